@@ -23,6 +23,7 @@ import java.util.Set;
 
 import io.vertx.core.json.JsonObject;
 
+import com.groupon.vertx.memcache.stream.MemcacheProtocol;
 import com.groupon.vertx.utils.Logger;
 
 /**
@@ -36,6 +37,10 @@ public class MemcacheClusterConfig implements MemcacheKeys {
 
     private String eventBusAddressPrefix;
     private long retryInterval = MemcacheConfig.DEFAULT_RETRY_INTERVAL;
+    private boolean pipelined = MemcacheConfig.DEFAULT_PIPELINED;
+    private long operationTimeout = MemcacheConfig.DEFAULT_OPERATION_TIMEOUT;
+    private int connectionsPerServer = MemcacheConfig.DEFAULT_CONNECTIONS_PER_SERVER;
+    private MemcacheProtocol protocol;
     private Map<String, MemcacheConfig> clusterMap = new HashMap<>();
 
     public MemcacheClusterConfig(JsonObject jsonConfig) {
@@ -46,6 +51,11 @@ public class MemcacheClusterConfig implements MemcacheKeys {
 
         this.eventBusAddressPrefix = jsonConfig.getString(EVENT_BUS_ADDRESS_PREFIX_KEY);
         this.retryInterval = jsonConfig.getLong(RETRY_INTERVAL, MemcacheConfig.DEFAULT_RETRY_INTERVAL);
+        this.pipelined = jsonConfig.getBoolean(PIPELINED, MemcacheConfig.DEFAULT_PIPELINED);
+        this.operationTimeout = jsonConfig.getLong(OPERATION_TIMEOUT, MemcacheConfig.DEFAULT_OPERATION_TIMEOUT);
+        this.connectionsPerServer = Math.max(jsonConfig.getInteger(CONNECTIONS_PER_SERVER, MemcacheConfig.DEFAULT_CONNECTIONS_PER_SERVER), 1);
+        String protocolStr = jsonConfig.getString(PROTOCOL);
+        this.protocol = protocolStr == null ? MemcacheProtocol.TEXT : MemcacheProtocol.valueOf(protocolStr);
         JsonObject clusters = jsonConfig.getJsonObject(CLUSTERS_KEY, new JsonObject());
 
         if (eventBusAddressPrefix != null && !eventBusAddressPrefix.isEmpty() && clusters.size() > 0) {
@@ -53,6 +63,10 @@ public class MemcacheClusterConfig implements MemcacheKeys {
                 JsonObject clusterConfig = clusters.getJsonObject(clusterKey, new JsonObject()).copy();
                 clusterConfig.put(EVENT_BUS_ADDRESS_KEY, eventBusAddressPrefix);
                 clusterConfig.put(RETRY_INTERVAL, retryInterval);
+                clusterConfig.put(PIPELINED, pipelined);
+                clusterConfig.put(OPERATION_TIMEOUT, operationTimeout);
+                clusterConfig.put(CONNECTIONS_PER_SERVER, connectionsPerServer);
+                clusterConfig.put(PROTOCOL, protocol.name());
                 clusterMap.put(clusterKey, new MemcacheConfig(clusterConfig));
             }
         } else {
@@ -71,6 +85,22 @@ public class MemcacheClusterConfig implements MemcacheKeys {
         return retryInterval;
     }
 
+    public boolean isPipelined() {
+        return pipelined;
+    }
+
+    public long getOperationTimeout() {
+        return operationTimeout;
+    }
+
+    public int getConnectionsPerServer() {
+        return connectionsPerServer;
+    }
+
+    public MemcacheProtocol getProtocol() {
+        return protocol;
+    }
+
     public Set<String> getClusterNames() {
         return Collections.unmodifiableSet(clusterMap.keySet());
     }
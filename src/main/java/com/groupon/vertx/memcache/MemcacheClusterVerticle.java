@@ -21,6 +21,7 @@ import io.vertx.core.net.NetClient;
 
 import com.groupon.vertx.memcache.server.MemcacheServer;
 import com.groupon.vertx.memcache.stream.MemcacheSocketHandler;
+import com.groupon.vertx.memcache.stream.MemcacheSocketRegistry;
 import com.groupon.vertx.utils.Logger;
 
 /**
@@ -62,12 +63,16 @@ public class MemcacheClusterVerticle extends AbstractVerticle implements Memcach
      * @param netClient             - The client for connecting to Memcache.
      */
     private void establishSockets(final MemcacheClusterConfig memcacheClusterConfig, final NetClient netClient) {
+        final MemcacheSocketRegistry registry = MemcacheSocketRegistry.getInstance(vertx);
         for (String server : memcacheClusterConfig.getServers()) {
             final String eventBusAddress = memcacheClusterConfig.getEventBusAddressPrefix() + "_" + server;
             final MemcacheServer memcacheServer = new MemcacheServer(server);
-            MemcacheSocketHandler handler = new MemcacheSocketHandler(vertx, eventBusAddress, memcacheServer, netClient,
-                    memcacheClusterConfig.getRetryInterval());
-            handler.handle(System.currentTimeMillis());
+            for (int i = 0; i < memcacheClusterConfig.getConnectionsPerServer(); i++) {
+                MemcacheSocketHandler handler = new MemcacheSocketHandler(vertx, eventBusAddress, memcacheServer, netClient,
+                        memcacheClusterConfig.getRetryInterval(), memcacheClusterConfig.isPipelined(), registry,
+                        memcacheClusterConfig.getOperationTimeout(), memcacheClusterConfig.getProtocol());
+                handler.handle(System.currentTimeMillis());
+            }
         }
     }
 }
@@ -24,6 +24,7 @@ import io.vertx.core.json.JsonObject;
 
 import com.groupon.vertx.memcache.hash.HashAlgorithm;
 import com.groupon.vertx.memcache.server.ContinuumType;
+import com.groupon.vertx.memcache.stream.MemcacheProtocol;
 import com.groupon.vertx.utils.Logger;
 
 /**
@@ -36,6 +37,11 @@ public class MemcacheConfig implements MemcacheKeys {
     private static final Logger log = Logger.getLogger(MemcacheConfig.class);
     protected static final int DEFAULT_POINTS_PER_SERVER = 160;
     protected static final long DEFAULT_RETRY_INTERVAL = 50;
+    protected static final boolean DEFAULT_PIPELINED = false;
+    protected static final long DEFAULT_OPERATION_TIMEOUT = 0;
+    protected static final int DEFAULT_CONNECTIONS_PER_SERVER = 1;
+    protected static final int DEFAULT_COMPRESSION_THRESHOLD = 0;
+    protected static final int DEFAULT_ROUTING_CACHE_SIZE = 1024;
     protected static final String VALID_SERVER = "[a-zA-Z0-9-.]+(:\\d+){0,2}$";
 
     private LinkedList<String> servers = new LinkedList<>();
@@ -45,6 +51,12 @@ public class MemcacheConfig implements MemcacheKeys {
     private HashAlgorithm algorithm;
     private int pointsPerServer = DEFAULT_POINTS_PER_SERVER;
     private long retryInterval = DEFAULT_RETRY_INTERVAL;
+    private boolean pipelined = DEFAULT_PIPELINED;
+    private long operationTimeout = DEFAULT_OPERATION_TIMEOUT;
+    private int connectionsPerServer = DEFAULT_CONNECTIONS_PER_SERVER;
+    private MemcacheProtocol protocol;
+    private int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+    private int routingCacheSize = DEFAULT_ROUTING_CACHE_SIZE;
 
     public MemcacheConfig(JsonObject jsonConfig) {
         if (jsonConfig == null) {
@@ -59,6 +71,11 @@ public class MemcacheConfig implements MemcacheKeys {
             this.namespace = jsonConfig.getString(NAMESPACE_KEY);
             this.pointsPerServer = jsonConfig.getInteger(POINTS_PER_SERVER, DEFAULT_POINTS_PER_SERVER);
             this.retryInterval = jsonConfig.getLong(RETRY_INTERVAL, DEFAULT_RETRY_INTERVAL);
+            this.pipelined = jsonConfig.getBoolean(PIPELINED, DEFAULT_PIPELINED);
+            this.operationTimeout = jsonConfig.getLong(OPERATION_TIMEOUT, DEFAULT_OPERATION_TIMEOUT);
+            this.connectionsPerServer = Math.max(jsonConfig.getInteger(CONNECTIONS_PER_SERVER, DEFAULT_CONNECTIONS_PER_SERVER), 1);
+            this.compressionThreshold = Math.max(jsonConfig.getInteger(COMPRESSION_THRESHOLD, DEFAULT_COMPRESSION_THRESHOLD), 0);
+            this.routingCacheSize = Math.max(jsonConfig.getInteger(ROUTING_CACHE_SIZE, DEFAULT_ROUTING_CACHE_SIZE), 0);
 
             final HashAlgorithm defaultHashAlgorithm = HashAlgorithm.FNV1_32_HASH;
             String algorithmStr = jsonConfig.getString(ALGORITHM_KEY, defaultHashAlgorithm.name());
@@ -67,6 +84,10 @@ public class MemcacheConfig implements MemcacheKeys {
             final ContinuumType defaultContinuumType = ContinuumType.KETAMA;
             String continuumStr = jsonConfig.getString(CONTINUUM_KEY, defaultContinuumType.name());
             this.continuum = continuumStr == null ? defaultContinuumType : ContinuumType.valueOf(continuumStr);
+
+            final MemcacheProtocol defaultProtocol = MemcacheProtocol.TEXT;
+            String protocolStr = jsonConfig.getString(PROTOCOL, defaultProtocol.name());
+            this.protocol = protocolStr == null ? defaultProtocol : MemcacheProtocol.valueOf(protocolStr);
         } else {
             log.error("initialize", "exception", "invalidConfigFound", new String[] {"config"}, jsonConfig.encode());
             throw new MemcacheException("Invalid Memcache config defined");
@@ -104,6 +125,66 @@ public class MemcacheConfig implements MemcacheKeys {
         return retryInterval;
     }
 
+    /**
+     * When pipelined, commands sent within the same event loop tick are coalesced into a single
+     * write to the socket instead of being flushed individually.
+     *
+     * @return true if the commands should be pipelined.
+     */
+    public boolean isPipelined() {
+        return pipelined;
+    }
+
+    /**
+     * The number of milliseconds to wait for a response before the command fails.  A socket whose oldest
+     * pending command is overdue is closed and reconnected.  A value of zero or less disables the timeout.
+     *
+     * @return the operation timeout in milliseconds.
+     */
+    public long getOperationTimeout() {
+        return operationTimeout;
+    }
+
+    /**
+     * The number of sockets each verticle instance opens to every server.  Commands sent over the event
+     * bus are distributed across the sockets, while direct clients use the socket with the fewest
+     * pending commands.
+     *
+     * @return the number of connections per server, at least one.
+     */
+    public int getConnectionsPerServer() {
+        return connectionsPerServer;
+    }
+
+    /**
+     * The protocol spoken to the Memcache servers, either TEXT or BINARY.
+     *
+     * @return the protocol, TEXT by default.
+     */
+    public MemcacheProtocol getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * The size in bytes from which the client compresses the stored values.  Compressed values are marked
+     * with an item flag and decompressed when they are retrieved.  A value of zero disables compression.
+     *
+     * @return the compression threshold in bytes, zero by default.
+     */
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * The number of keys for which the client remembers the server they are routed to, so hot keys are not
+     * hashed on every call.  A value of zero disables the routing cache.
+     *
+     * @return the routing cache size, 1024 by default.
+     */
+    public int getRoutingCacheSize() {
+        return routingCacheSize;
+    }
+
     /**
      * Process a JsonArray of server strings and return a collection of the valid entries.  Valid server strings should
      * be in the format [hostname]:[port].
@@ -33,4 +33,10 @@ public interface MemcacheKeys {
     String RETRY_INTERVAL = "retryInterval";
     String ALGORITHM_KEY = "algorithm";
     String CONTINUUM_KEY = "continuum";
+    String PIPELINED = "pipelined";
+    String OPERATION_TIMEOUT = "operationTimeout";
+    String CONNECTIONS_PER_SERVER = "connectionsPerServer";
+    String PROTOCOL = "protocol";
+    String COMPRESSION_THRESHOLD = "compressionThreshold";
+    String ROUTING_CACHE_SIZE = "routingCacheSize";
 }
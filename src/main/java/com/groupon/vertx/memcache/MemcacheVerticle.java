@@ -36,6 +36,7 @@ import com.groupon.vertx.memcache.codec.TouchCommandResponseCodec;
 import com.groupon.vertx.memcache.command.MemcacheCommand;
 import com.groupon.vertx.memcache.server.MemcacheServer;
 import com.groupon.vertx.memcache.stream.MemcacheSocketHandler;
+import com.groupon.vertx.memcache.stream.MemcacheSocketRegistry;
 import com.groupon.vertx.utils.Logger;
 
 /**
@@ -99,13 +100,17 @@ public class MemcacheVerticle extends AbstractVerticle implements MemcacheKeys {
      * @param netClient      - The client for connecting to Memcache.
      */
     private void establishSockets(final MemcacheConfig memcacheConfig, final NetClient netClient) {
+        final MemcacheSocketRegistry registry = MemcacheSocketRegistry.getInstance(vertx);
         for (String server : memcacheConfig.getServers()) {
             final String eventBusAddress = memcacheConfig.getEventBusAddress() + "_" + server;
             final MemcacheServer memcacheServer = new MemcacheServer(server);
 
-            MemcacheSocketHandler handler = new MemcacheSocketHandler(vertx, eventBusAddress, memcacheServer, netClient,
-                    memcacheConfig.getRetryInterval());
-            handler.handle(System.currentTimeMillis());
+            for (int i = 0; i < memcacheConfig.getConnectionsPerServer(); i++) {
+                MemcacheSocketHandler handler = new MemcacheSocketHandler(vertx, eventBusAddress, memcacheServer, netClient,
+                        memcacheConfig.getRetryInterval(), memcacheConfig.isPipelined(), registry,
+                        memcacheConfig.getOperationTimeout(), memcacheConfig.getProtocol());
+                handler.handle(System.currentTimeMillis());
+            }
         }
     }
 }
@@ -0,0 +1,91 @@
+/**
+ * Copyright 2014 Groupon.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.vertx.memcache.client;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * A compressor using the JDK deflate implementation, so no additional dependencies are needed.  The
+ * fastest compression level is used by default, since the values are compressed on the event loop.
+ *
+ * @author Stuart Siegrist (fsiegrist at groupon dot com)
+ * @since 4.0.3
+ */
+public class DeflateValueCompressor implements ValueCompressor {
+    private static final int CHUNK_SIZE = 8192;
+
+    private final int level;
+
+    public DeflateValueCompressor() {
+        this(Deflater.BEST_SPEED);
+    }
+
+    /**
+     * @param level - The deflate compression level from 0 to 9.
+     */
+    public DeflateValueCompressor(int level) {
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level");
+        }
+        this.level = level;
+    }
+
+    @Override
+    public Buffer compress(Buffer value) {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(value.getBytes());
+            deflater.finish();
+
+            Buffer compressed = Buffer.buffer(Math.max(value.length() / 2, 64));
+            byte[] chunk = new byte[CHUNK_SIZE];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(chunk);
+                compressed.appendBytes(chunk, 0, length);
+            }
+            return compressed;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public Buffer decompress(Buffer value) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(value.getBytes());
+
+            Buffer decompressed = Buffer.buffer(value.length() * 4);
+            byte[] chunk = new byte[CHUNK_SIZE];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(chunk);
+                if (length == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated compressed value");
+                }
+                decompressed.appendBytes(chunk, 0, length);
+            }
+            return decompressed;
+        } catch (DataFormatException ex) {
+            throw new IllegalArgumentException("Invalid compressed value", ex);
+        } finally {
+            inflater.end();
+        }
+    }
+}
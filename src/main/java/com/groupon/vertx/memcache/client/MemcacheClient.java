@@ -15,23 +15,37 @@
  */
 package com.groupon.vertx.memcache.client;
 
+import java.nio.charset.Charset;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
 
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.EventBus;
 
 import com.groupon.vertx.memcache.MemcacheConfig;
+import com.groupon.vertx.memcache.MemcacheException;
+import com.groupon.vertx.memcache.MemcacheUnavailableException;
 import com.groupon.vertx.memcache.client.response.DeleteCommandResponse;
+import com.groupon.vertx.memcache.client.response.MemcacheCommandResponse;
 import com.groupon.vertx.memcache.client.response.ModifyCommandResponse;
 import com.groupon.vertx.memcache.client.response.RetrieveCommandResponse;
 import com.groupon.vertx.memcache.client.response.StoreCommandResponse;
 import com.groupon.vertx.memcache.client.response.TouchCommandResponse;
+import com.groupon.vertx.memcache.client.transcoder.Transcoder;
+import com.groupon.vertx.memcache.client.transcoder.Transcoders;
 import com.groupon.vertx.memcache.command.MemcacheCommand;
 import com.groupon.vertx.memcache.command.MemcacheCommandType;
-import com.groupon.vertx.memcache.server.Continuum;
 import com.groupon.vertx.memcache.server.ContinuumFactory;
 import com.groupon.vertx.memcache.server.MemcacheServer;
+import com.groupon.vertx.memcache.stream.MemcacheResponseType;
+import com.groupon.vertx.memcache.stream.MemcacheSocketRegistry;
 import com.groupon.vertx.utils.Logger;
 
 /**
@@ -43,72 +57,362 @@ import com.groupon.vertx.utils.Logger;
 public class MemcacheClient {
     private static final Logger log = Logger.getLogger(MemcacheClient.class);
     private static final long INFINITE_REPLY_TIMEOUT = Long.MAX_VALUE;
-    private Continuum continuum;
+    private static final int DEFAULT_CAS_ATTEMPTS = 3;
+    private static final Charset ENCODING = Charset.forName("UTF-8");
+    private ServerRouter router;
     private EventBus eventBus;
-    private String eventBusAddress;
     private String namespace;
-
+    private MemcacheSocketRegistry registry;
+    private Long operationTimeout;
+    private ValueCompressor compressor;
+    private int compressionThreshold;
+
+    /**
+     * Creates a client which sends the commands over the event bus.
+     *
+     * @param eventBus - The event bus to send the commands on.
+     * @param config - The configuration for the Memcache servers.
+     */
     public MemcacheClient(EventBus eventBus, MemcacheConfig config) {
         this.eventBus = eventBus;
-        this.eventBusAddress = config.getEventBusAddress();
         this.namespace = config.getNamespace();
+        this.operationTimeout = config.getOperationTimeout() > 0 ? config.getOperationTimeout() : null;
+        this.compressor = new DeflateValueCompressor();
+        this.compressionThreshold = config.getCompressionThreshold();
 
         log.info("initialize", "createContinuum", new String[]{"servers", "pointsPerServer"}, config.getServers().size(),
                 config.getPointsPerServer());
-        continuum = ContinuumFactory.create(config);
+        router = new ServerRouter(ContinuumFactory.create(config), config.getEventBusAddress(), config.getRoutingCacheSize());
+    }
+
+    /**
+     * Creates a client which sends the commands directly to the sockets opened by the Memcache verticle
+     * in the same Vert.x instance, preferring the socket owned by the calling event loop.  Commands for
+     * servers without a socket in this instance, e.g. when the verticle is deployed elsewhere in the
+     * cluster, are sent over the event bus.
+     *
+     * @param vertx - The Vert.x instance.
+     * @param config - The configuration for the Memcache servers.
+     */
+    public MemcacheClient(Vertx vertx, MemcacheConfig config) {
+        this(vertx.eventBus(), config);
+        this.registry = MemcacheSocketRegistry.getInstance(vertx);
+    }
+
+    private MemcacheClient(MemcacheClient client) {
+        this.router = client.router;
+        this.eventBus = client.eventBus;
+        this.namespace = client.namespace;
+        this.registry = client.registry;
+        this.operationTimeout = client.operationTimeout;
+        this.compressor = client.compressor;
+        this.compressionThreshold = client.compressionThreshold;
+    }
+
+    /**
+     * Creates a view of this client which uses a different operation timeout, e.g.
+     * <code>client.withTimeout(50).get(key)</code>.  The view shares the servers and sockets of
+     * this client.  Commands which don't receive a response in time fail with a
+     * {@link MemcacheUnavailableException}.
+     *
+     * @param timeout - The milliseconds to wait for a response, zero or less for no timeout.
+     * @return A client using the timeout.
+     */
+    public MemcacheClient withTimeout(long timeout) {
+        MemcacheClient client = new MemcacheClient(this);
+        client.operationTimeout = Math.max(timeout, 0);
+        return client;
+    }
+
+    /**
+     * Creates a view of this client which compresses the stored values of at least the threshold size
+     * with the compressor.  The compressed values are stored with the
+     * {@link ValueCompressor#COMPRESSED_FLAG} item flag.  Retrieved values with the flag are always
+     * decompressed, even by a client with compression disabled, so readers can be upgraded before writers.
+     *
+     * @param compressor - The compressor for the values.
+     * @param threshold - The size in bytes from which values are compressed, zero to disable compression.
+     * @return A client using the compression.
+     */
+    public MemcacheClient withCompression(ValueCompressor compressor, int threshold) {
+        if (compressor == null) {
+            throw new IllegalArgumentException("Invalid compressor");
+        }
+
+        MemcacheClient client = new MemcacheClient(this);
+        client.compressor = compressor;
+        client.compressionThreshold = Math.max(threshold, 0);
+        return client;
     }
 
     public Future<ModifyCommandResponse> incr(String key, long value) {
-        return modify(MemcacheCommandType.incr, key, String.valueOf(value));
+        return modify(MemcacheCommandType.incr, key, toBuffer(String.valueOf(value)));
     }
 
     public Future<ModifyCommandResponse> decr(String key, long value) {
-        return modify(MemcacheCommandType.decr, key, String.valueOf(value));
+        return modify(MemcacheCommandType.decr, key, toBuffer(String.valueOf(value)));
     }
 
     public Future<StoreCommandResponse> set(String key, String data, int expires) {
+        return store(MemcacheCommandType.set, key, toBuffer(data), expires);
+    }
+
+    /**
+     * Stores the raw bytes of the value.  The bytes are sent to Memcache unmodified, so binary
+     * values can be stored and retrieved through {@link RetrieveCommandResponse#getBinaryData()}.
+     *
+     * @param key - The key to store the value under.
+     * @param data - A Buffer containing the value.
+     * @param expires - The number of seconds before the key expires.
+     * @return A Future with the response from the server.
+     */
+    public Future<StoreCommandResponse> set(String key, Buffer data, int expires) {
         return store(MemcacheCommandType.set, key, data, expires);
     }
 
+    /**
+     * Stores the raw bytes of the value with item flags.  The flags are returned with the value through
+     * {@link RetrieveCommandResponse#getFlags(String)}, so they can record how the value was encoded.
+     *
+     * @param key - The key to store the value under.
+     * @param data - A Buffer containing the value.
+     * @param expires - The number of seconds before the key expires.
+     * @param flags - The 32 bit item flags stored with the value.
+     * @return A Future with the response from the server.
+     */
+    public Future<StoreCommandResponse> set(String key, Buffer data, int expires, int flags) {
+        return store(MemcacheCommandType.set, key, data, expires, null, flags);
+    }
+
     public Future<StoreCommandResponse> add(String key, String data, int expires) {
+        return store(MemcacheCommandType.add, key, toBuffer(data), expires);
+    }
+
+    public Future<StoreCommandResponse> add(String key, Buffer data, int expires) {
         return store(MemcacheCommandType.add, key, data, expires);
     }
 
+    public Future<StoreCommandResponse> add(String key, Buffer data, int expires, int flags) {
+        return store(MemcacheCommandType.add, key, data, expires, null, flags);
+    }
+
     public Future<StoreCommandResponse> replace(String key, String data, int expires) {
+        return store(MemcacheCommandType.replace, key, toBuffer(data), expires);
+    }
+
+    public Future<StoreCommandResponse> replace(String key, Buffer data, int expires) {
         return store(MemcacheCommandType.replace, key, data, expires);
     }
 
-    public Future<ModifyCommandResponse> append(String key, String data) {
-        return modify(MemcacheCommandType.append, key, data);
+    public Future<StoreCommandResponse> replace(String key, Buffer data, int expires, int flags) {
+        return store(MemcacheCommandType.replace, key, data, expires, null, flags);
+    }
+
+    /**
+     * Stores a typed value.  The value is encoded by the transcoder and stored with the item flags of
+     * the transcoder, so it can be read back with {@link #get(String, Transcoder)}.
+     *
+     * @param key - The key to store the value under.
+     * @param value - The value.
+     * @param expires - The number of seconds before the key expires.
+     * @param transcoder - The transcoder encoding the value, e.g. one of the {@link Transcoders}.
+     * @param <T> - The type of the value.
+     * @return A Future with the response from the server.
+     * @throws IllegalArgumentException - If the transcoder flags include the reserved compressed flag.
+     */
+    public <T> Future<StoreCommandResponse> set(String key, T value, int expires, Transcoder<T> transcoder) {
+        return store(MemcacheCommandType.set, key, value, expires, transcoder);
+    }
+
+    public <T> Future<StoreCommandResponse> add(String key, T value, int expires, Transcoder<T> transcoder) {
+        return store(MemcacheCommandType.add, key, value, expires, transcoder);
     }
 
-    public Future<ModifyCommandResponse> prepend(String key, String data) {
-        return modify(MemcacheCommandType.prepend, key, data);
+    public <T> Future<StoreCommandResponse> replace(String key, T value, int expires, Transcoder<T> transcoder) {
+        return store(MemcacheCommandType.replace, key, value, expires, transcoder);
+    }
+
+    public Future<StoreCommandResponse> append(String key, String data) {
+        return concatenate(MemcacheCommandType.append, key, toBuffer(data));
+    }
+
+    public Future<StoreCommandResponse> append(String key, Buffer data) {
+        return concatenate(MemcacheCommandType.append, key, data);
+    }
+
+    public Future<StoreCommandResponse> prepend(String key, String data) {
+        return concatenate(MemcacheCommandType.prepend, key, toBuffer(data));
+    }
+
+    public Future<StoreCommandResponse> prepend(String key, Buffer data) {
+        return concatenate(MemcacheCommandType.prepend, key, data);
     }
 
     public Future<RetrieveCommandResponse> get(String key) {
-        return retrieve(MemcacheCommandType.get, key);
+        return retrieve(MemcacheCommandType.get, key, null);
     }
 
+    /**
+     * Retrieves multiple keys.  The keys are grouped by the server they are assigned to and a single
+     * multi key command is sent to each server.
+     *
+     * @param keys - A Collection of keys to retrieve.
+     * @return A Future with the combined response from all of the servers.
+     */
     public Future<RetrieveCommandResponse> get(Collection<String> keys) {
-        Future<RetrieveCommandResponse> finalResult = Future.future();
+        return retrieve(MemcacheCommandType.get, keys, null);
+    }
 
-        MemcacheClientMultiResponseHandler handleWrapper = new MemcacheClientMultiResponseHandler(finalResult, keys.size());
-        for (String key : keys) {
-            retrieve(MemcacheCommandType.get, key).setHandler(handleWrapper);
-        }
+    /**
+     * Retrieves a typed value.  The Future is completed with null for a miss, or for a value which the
+     * transcoder can't decode, and fails if the server returns an error.
+     *
+     * @param key - The key to retrieve.
+     * @param transcoder - The transcoder decoding the value.
+     * @param <T> - The type of the value.
+     * @return A Future with the decoded value.
+     */
+    public <T> Future<T> get(String key, Transcoder<T> transcoder) {
+        return decode(get(key), response -> decode(response, key, transcoder));
+    }
 
+    /**
+     * Retrieves multiple typed values.  Only the keys which were found and could be decoded are included.
+     *
+     * @param keys - A Collection of keys to retrieve.
+     * @param transcoder - The transcoder decoding the values.
+     * @param <T> - The type of the values.
+     * @return A Future with a Map of the keys to the decoded values.
+     */
+    public <T> Future<Map<String, T>> get(Collection<String> keys, Transcoder<T> transcoder) {
+        return decode(get(keys), response -> {
+            Map<String, T> values = new HashMap<>(response.getBinaryData().size() * 2);
+            for (String key : response.getBinaryData().keySet()) {
+                T value = decode(response, key, transcoder);
+                if (value != null) {
+                    values.put(key, value);
+                }
+            }
+            return values;
+        });
+    }
+
+    /**
+     * Retrieves a key with its cas unique value, which is returned through
+     * {@link RetrieveCommandResponse#getCas(String)}.
+     *
+     * @param key - The key to retrieve.
+     * @return A Future with the response from the server.
+     */
+    public Future<RetrieveCommandResponse> gets(String key) {
+        return retrieve(MemcacheCommandType.gets, key, null);
+    }
+
+    public Future<RetrieveCommandResponse> gets(Collection<String> keys) {
+        return retrieve(MemcacheCommandType.gets, keys, null);
+    }
+
+    /**
+     * Retrieves a key and updates its expiration in a single round trip, which replaces a get
+     * followed by a touch for sliding expirations.
+     *
+     * @param key - The key to retrieve.
+     * @param expires - The number of seconds before the key expires.
+     * @return A Future with the response from the server.
+     */
+    public Future<RetrieveCommandResponse> gat(String key, int expires) {
+        return retrieve(MemcacheCommandType.gat, key, expires);
+    }
+
+    /**
+     * Retrieves multiple keys and updates their expiration.  As with {@link #get(Collection)} a
+     * single multi key command is sent to each server.
+     *
+     * @param keys - A Collection of keys to retrieve.
+     * @param expires - The number of seconds before the keys expire.
+     * @return A Future with the combined response from all of the servers.
+     */
+    public Future<RetrieveCommandResponse> gat(Collection<String> keys, int expires) {
+        return retrieve(MemcacheCommandType.gat, keys, expires);
+    }
+
+    public Future<RetrieveCommandResponse> gats(String key, int expires) {
+        return retrieve(MemcacheCommandType.gats, key, expires);
+    }
+
+    public Future<RetrieveCommandResponse> gats(Collection<String> keys, int expires) {
+        return retrieve(MemcacheCommandType.gats, keys, expires);
+    }
+
+    /**
+     * Stores the value only if the key has not been modified since it was retrieved with a gets.  The data
+     * of the response is 'STORED' on success, 'EXISTS' if the key has been modified and 'NOT_FOUND' if it
+     * has been deleted or has expired.
+     *
+     * @param key - The key to store the value under.
+     * @param data - The value.
+     * @param expires - The number of seconds before the key expires.
+     * @param cas - The cas unique value returned by the gets.
+     * @return A Future with the response from the server.
+     */
+    public Future<StoreCommandResponse> cas(String key, String data, int expires, long cas) {
+        return store(MemcacheCommandType.cas, key, toBuffer(data), expires, cas, 0);
+    }
+
+    public Future<StoreCommandResponse> cas(String key, Buffer data, int expires, long cas) {
+        return store(MemcacheCommandType.cas, key, data, expires, cas, 0);
+    }
+
+    public Future<StoreCommandResponse> compareAndSwap(String key, Function<String, String> update, int expires) {
+        return compareAndSwap(key, update, expires, DEFAULT_CAS_ATTEMPTS);
+    }
+
+    /**
+     * Updates the value of the key with optimistic concurrency.  The key is retrieved with a gets, the
+     * update is applied to the value and the result is stored with a cas, or with an add if the key does
+     * not exist, in which case the update receives null.  If the key is modified concurrently the update
+     * is retried, up to the maximum number of attempts, after which the last response, e.g. 'EXISTS', is
+     * returned.  An update returning null leaves the key unchanged and the response is 'NOT_STORED'.
+     *
+     * @param key - The key to update.
+     * @param update - A Function from the current value to the new value.
+     * @param expires - The number of seconds before the key expires.
+     * @param maxAttempts - The maximum number of times the update is attempted.
+     * @return A Future with the response to the last store.
+     */
+    public Future<StoreCommandResponse> compareAndSwap(String key, Function<String, String> update, int expires, int maxAttempts) {
+        Future<StoreCommandResponse> finalResult = Future.future();
+        compareAndSwap(key, update, expires, Math.max(maxAttempts, 1), finalResult);
         return finalResult;
     }
 
+    /**
+     * Retrieves a key with the meta get command.  The response is the same as for {@link #get(String)}.
+     *
+     * @param key - The key to retrieve.
+     * @return A Future with the response from the server.
+     */
+    public Future<RetrieveCommandResponse> metaGet(String key) {
+        return retrieve(MemcacheCommandType.mg, key, null);
+    }
+
+    /**
+     * Retrieves multiple keys with the meta get command.  The keys for each server are sent as quiet meta
+     * gets followed by a meta noop, so the server only returns the hits instead of a line for every miss.
+     *
+     * @param keys - A Collection of keys to retrieve.
+     * @return A Future with the combined response from all of the servers.
+     */
+    public Future<RetrieveCommandResponse> metaGet(Collection<String> keys) {
+        return retrieve(MemcacheCommandType.mg, keys, null);
+    }
+
     public Future<DeleteCommandResponse> delete(String key) {
         Future<DeleteCommandResponse> finalResult = Future.future();
 
-        MemcacheCommand command = new MemcacheCommand(MemcacheCommandType.delete, getCacheKey(key), null, null);
+        MemcacheCommand command = commandBuilder(MemcacheCommandType.delete, getCacheKey(key)).build();
 
-        final DeliveryOptions deliveryOptions = new DeliveryOptions()
-                .setSendTimeout(INFINITE_REPLY_TIMEOUT);
-        eventBus.send(getEventBusAddress(key), command, deliveryOptions,
+        send(getEventBusAddress(command), command, DeleteCommandResponse.class,
                 new MemcacheClientResponseHandler<>(finalResult));
 
         return finalResult;
@@ -117,59 +421,422 @@ public class MemcacheClient {
     public Future<TouchCommandResponse> touch(String key, int expires) {
         Future<TouchCommandResponse> finalResult = Future.future();
 
-        MemcacheCommand command = new MemcacheCommand(MemcacheCommandType.touch, getCacheKey(key), null, expires);
+        MemcacheCommand command = commandBuilder(MemcacheCommandType.touch, getCacheKey(key))
+                .setExpires(expires)
+                .build();
 
-        final DeliveryOptions deliveryOptions = new DeliveryOptions()
-                .setSendTimeout(INFINITE_REPLY_TIMEOUT);
-        eventBus.send(getEventBusAddress(key), command, deliveryOptions,
+        send(getEventBusAddress(command), command, TouchCommandResponse.class,
                 new MemcacheClientResponseHandler<>(finalResult));
 
         return finalResult;
     }
 
+    /**
+     * Stores the value without waiting for a reply from the server.  The Future is completed once the
+     * command has been written to the socket, or immediately when it is sent over the event bus, and
+     * failures on the server are not reported.
+     *
+     * @param key - The key to store the value under.
+     * @param data - The value.
+     * @param expires - The number of seconds before the key expires.
+     * @return A Future completed when the command has been sent.
+     */
+    public Future<Void> setNoreply(String key, String data, int expires) {
+        return setNoreply(key, toBuffer(data), expires);
+    }
+
+    public Future<Void> setNoreply(String key, Buffer data, int expires) {
+        MemcacheCommand command = setValue(commandBuilder(MemcacheCommandType.set, getCacheKey(key)), data, 0)
+                .setExpires(expires)
+                .setNoreply(true)
+                .build();
+
+        return sendNoreply(getEventBusAddress(command), command);
+    }
+
+    /**
+     * Deletes the key without waiting for a reply from the server.
+     *
+     * @param key - The key to delete.
+     * @return A Future completed when the command has been sent.
+     */
+    public Future<Void> deleteNoreply(String key) {
+        MemcacheCommand command = commandBuilder(MemcacheCommandType.delete, getCacheKey(key))
+                .setNoreply(true)
+                .build();
+
+        return sendNoreply(getEventBusAddress(command), command);
+    }
+
+    /**
+     * Updates the expiration of the key without waiting for a reply from the server.
+     *
+     * @param key - The key to touch.
+     * @param expires - The number of seconds before the key expires.
+     * @return A Future completed when the command has been sent.
+     */
+    public Future<Void> touchNoreply(String key, int expires) {
+        MemcacheCommand command = commandBuilder(MemcacheCommandType.touch, getCacheKey(key))
+                .setExpires(expires)
+                .setNoreply(true)
+                .build();
+
+        return sendNoreply(getEventBusAddress(command), command);
+    }
+
+    /**
+     * Increments the value of the key without waiting for the new value from the server.
+     *
+     * @param key - The key to increment.
+     * @param value - The amount to increment by.
+     * @return A Future completed when the command has been sent.
+     */
+    public Future<Void> incrNoreply(String key, long value) {
+        return modifyNoreply(MemcacheCommandType.incr, key, value);
+    }
+
+    public Future<Void> decrNoreply(String key, long value) {
+        return modifyNoreply(MemcacheCommandType.decr, key, value);
+    }
+
     public String getNamespace() {
         return this.namespace;
     }
 
-    private Future<RetrieveCommandResponse> retrieve(MemcacheCommandType commandType, String key) {
+    private Future<RetrieveCommandResponse> retrieve(MemcacheCommandType commandType, String key, Integer expires) {
         Future<RetrieveCommandResponse> finalResult = Future.future();
 
-        MemcacheCommand command = new MemcacheCommand(commandType, getCacheKey(key), null, null);
+        MemcacheCommand command = commandBuilder(commandType, getCacheKey(key))
+                .setExpires(expires)
+                .build();
 
-        final DeliveryOptions deliveryOptions = new DeliveryOptions()
-                .setSendTimeout(INFINITE_REPLY_TIMEOUT);
-        eventBus.send(getEventBusAddress(key), command, deliveryOptions,
+        send(getEventBusAddress(command), command, RetrieveCommandResponse.class,
                 new TranslateKeyResponseHandler(finalResult, key, command.getKey()));
 
+        return decompress(finalResult);
+    }
+
+    private Future<RetrieveCommandResponse> retrieve(MemcacheCommandType commandType, Collection<String> keys, Integer expires) {
+        Future<RetrieveCommandResponse> finalResult = Future.future();
+
+        if (keys.isEmpty()) {
+            finalResult.complete(new RetrieveCommandResponse.Builder().setStatus(JsendStatus.success).build());
+            return finalResult;
+        }
+
+        Map<MemcacheServer, Map<String, String>> serverKeys = new HashMap<>();
+        for (String key : keys) {
+            String cacheKey = getCacheKey(key);
+            serverKeys.computeIfAbsent(router.getServer(cacheKey), server -> new LinkedHashMap<>()).put(cacheKey, key);
+        }
+
+        MemcacheClientMultiResponseHandler handleWrapper = new MemcacheClientMultiResponseHandler(finalResult, serverKeys.size());
+        for (Map.Entry<MemcacheServer, Map<String, String>> entry : serverKeys.entrySet()) {
+            retrieve(commandType, entry.getKey(), entry.getValue(), expires).setHandler(handleWrapper);
+        }
+
         return finalResult;
     }
 
-    private Future<ModifyCommandResponse> modify(MemcacheCommandType commandType, String key, String data) {
+    private Future<RetrieveCommandResponse> retrieve(MemcacheCommandType commandType, MemcacheServer server,
+                                                     Map<String, String> cacheKeys, Integer expires) {
+        Future<RetrieveCommandResponse> finalResult = Future.future();
+
+        MemcacheCommand command = new MemcacheCommand.Builder()
+                .setType(commandType)
+                .setKeys(cacheKeys.keySet())
+                .setExpires(expires)
+                .setTimeout(operationTimeout)
+                .build();
+
+        send(getEventBusAddress(server), command, RetrieveCommandResponse.class,
+                new TranslateKeyResponseHandler(finalResult, cacheKeys));
+
+        return decompress(finalResult);
+    }
+
+    private Future<ModifyCommandResponse> modify(MemcacheCommandType commandType, String key, Buffer data) {
         Future<ModifyCommandResponse> finalResult = Future.future();
 
-        MemcacheCommand command = new MemcacheCommand(commandType, getCacheKey(key), data, null);
+        MemcacheCommand command = commandBuilder(commandType, getCacheKey(key))
+                .setValue(data)
+                .build();
 
-        final DeliveryOptions deliveryOptions = new DeliveryOptions()
-                .setSendTimeout(INFINITE_REPLY_TIMEOUT);
-        eventBus.send(getEventBusAddress(key), command, deliveryOptions,
+        send(getEventBusAddress(command), command, ModifyCommandResponse.class,
                 new MemcacheClientResponseHandler<>(finalResult));
 
         return finalResult;
     }
 
-    private Future<StoreCommandResponse> store(MemcacheCommandType commandType, String key, String data, int expires) {
+    /**
+     * Sends an append or prepend.  These are storage commands, so the response is a StoreCommandResponse.  The
+     * data is never compressed, as it is joined to the bytes already stored.
+     */
+    private Future<StoreCommandResponse> concatenate(MemcacheCommandType commandType, String key, Buffer data) {
         Future<StoreCommandResponse> finalResult = Future.future();
 
-        MemcacheCommand command = new MemcacheCommand(commandType, getCacheKey(key), data, expires);
+        MemcacheCommand command = commandBuilder(commandType, getCacheKey(key))
+                .setValue(data)
+                .build();
 
-        final DeliveryOptions deliveryOptions = new DeliveryOptions()
-                .setSendTimeout(INFINITE_REPLY_TIMEOUT);
-        eventBus.send(getEventBusAddress(key), command, deliveryOptions,
+        send(getEventBusAddress(command), command, StoreCommandResponse.class,
                 new MemcacheClientResponseHandler<>(finalResult));
 
         return finalResult;
     }
 
+    private Future<Void> modifyNoreply(MemcacheCommandType commandType, String key, long value) {
+        MemcacheCommand command = commandBuilder(commandType, getCacheKey(key))
+                .setValue(toBuffer(String.valueOf(value)))
+                .setNoreply(true)
+                .build();
+
+        return sendNoreply(getEventBusAddress(command), command);
+    }
+
+    private <T> Future<StoreCommandResponse> store(MemcacheCommandType commandType, String key, T value, int expires,
+                                                   Transcoder<T> transcoder) {
+        Buffer data = value != null ? transcoder.encode(value) : null;
+        int flags = value != null ? transcoder.getFlags(value) : 0;
+        if ((flags & ValueCompressor.COMPRESSED_FLAG) != 0) {
+            log.warn("store", "failure", new String[]{"reason", "flags"}, "Reserved flag set by transcoder", flags);
+            throw new IllegalArgumentException("Transcoder flags must not include the compressed flag");
+        }
+        return store(commandType, key, data, expires, null, flags);
+    }
+
+    private Future<StoreCommandResponse> store(MemcacheCommandType commandType, String key, Buffer data, int expires) {
+        return store(commandType, key, data, expires, null, 0);
+    }
+
+    private Future<StoreCommandResponse> store(MemcacheCommandType commandType, String key, Buffer data, int expires, Long cas,
+                                               int flags) {
+        Future<StoreCommandResponse> finalResult = Future.future();
+
+        MemcacheCommand command = setValue(commandBuilder(commandType, getCacheKey(key)), data, flags)
+                .setExpires(expires)
+                .setCas(cas)
+                .build();
+
+        send(getEventBusAddress(command), command, StoreCommandResponse.class,
+                new MemcacheClientResponseHandler<>(finalResult));
+
+        return finalResult;
+    }
+
+    private void compareAndSwap(String key, Function<String, String> update, int expires, int attempts,
+                                Future<StoreCommandResponse> finalResult) {
+        gets(key).setHandler(current -> {
+            if (current.failed()) {
+                finalResult.fail(current.cause());
+                return;
+            }
+
+            RetrieveCommandResponse response = current.result();
+            if (response.getStatus() != JsendStatus.success) {
+                finalResult.complete(new StoreCommandResponse.Builder()
+                        .setStatus(response.getStatus())
+                        .setMessage(response.getMessage())
+                        .build());
+                return;
+            }
+
+            Long cas = response.getCas(key);
+            String value = update.apply(cas != null ? response.getData().get(key) : null);
+            if (value == null) {
+                finalResult.complete(new StoreCommandResponse.Builder()
+                        .setStatus(JsendStatus.success)
+                        .setData(MemcacheResponseType.NOT_STORED.name())
+                        .build());
+                return;
+            }
+
+            Future<StoreCommandResponse> stored = cas != null ? cas(key, value, expires, cas) : add(key, value, expires);
+            stored.setHandler(result -> {
+                if (attempts > 1 && result.succeeded() && isConflict(result.result())) {
+                    log.debug("compareAndSwap", "retry", new String[]{"key", "attempts"}, key, attempts - 1);
+                    compareAndSwap(key, update, expires, attempts - 1, finalResult);
+                } else {
+                    finalResult.handle(result);
+                }
+            });
+        });
+    }
+
+    private static boolean isConflict(StoreCommandResponse response) {
+        String data = response.getData();
+        return response.getStatus() == JsendStatus.success && (MemcacheResponseType.EXISTS.name().equals(data)
+                || MemcacheResponseType.NOT_FOUND.name().equals(data) || MemcacheResponseType.NOT_STORED.name().equals(data));
+    }
+
+    /**
+     * Sends the command directly to a socket in this Vert.x instance when one is available, otherwise
+     * over the event bus.  A direct response which is not of the expected type, e.g. the error returned
+     * when the socket closes, fails the command in the same way as a failed event bus reply.  Event bus
+     * replies use the operation timeout as the send timeout.
+     */
+    private <T extends MemcacheCommandResponse> void send(String address, MemcacheCommand command, Class<T> responseType,
+                                                           MemcacheResponseHandler<T> responseHandler) {
+        if (registry != null) {
+            Handler<MemcacheCommandResponse> directHandler = response -> {
+                if (responseType.isInstance(response)) {
+                    responseHandler.handleResponse(responseType.cast(response));
+                } else {
+                    responseHandler.handleFailure(new MemcacheException(response.getMessage()));
+                }
+            };
+
+            if (registry.sendCommand(address, command, directHandler)) {
+                return;
+            }
+        }
+
+        final DeliveryOptions deliveryOptions = new DeliveryOptions()
+                .setSendTimeout(operationTimeout != null && operationTimeout > 0 ? operationTimeout : INFINITE_REPLY_TIMEOUT);
+        eventBus.send(address, command, deliveryOptions, responseHandler);
+    }
+
+    /**
+     * Sends a noreply command.  A direct command completes the Future once it has been written to the
+     * socket, and fails it with a {@link MemcacheUnavailableException} if the socket is closed.  Over the
+     * event bus the command is sent without a reply handler and the Future is completed immediately.
+     */
+    private Future<Void> sendNoreply(String address, MemcacheCommand command) {
+        Future<Void> finalResult = Future.future();
+
+        if (registry != null) {
+            Handler<MemcacheCommandResponse> directHandler = response -> {
+                if (response.getStatus() == JsendStatus.success) {
+                    finalResult.complete();
+                } else {
+                    MemcacheUnavailableException unavailable = new MemcacheUnavailableException();
+                    unavailable.addSuppressed(new MemcacheException(response.getMessage()));
+                    finalResult.fail(unavailable);
+                }
+            };
+
+            if (registry.sendCommand(address, command, directHandler)) {
+                return finalResult;
+            }
+        }
+
+        eventBus.send(address, command);
+        finalResult.complete();
+        return finalResult;
+    }
+
+    private MemcacheCommand.Builder commandBuilder(MemcacheCommandType commandType, String cacheKey) {
+        return new MemcacheCommand.Builder()
+                .setType(commandType)
+                .setKey(cacheKey)
+                .setTimeout(operationTimeout);
+    }
+
+    /**
+     * Sets the value of a storage command, compressing it when it reaches the compression threshold.  The
+     * compressed value is only used if it is smaller than the original.
+     *
+     * @param builder - The command builder.
+     * @param data - The raw bytes of the value.
+     * @param flags - The item flags of the value.
+     * @return - The command builder.
+     */
+    private MemcacheCommand.Builder setValue(MemcacheCommand.Builder builder, Buffer data, int flags) {
+        if (compressionThreshold > 0 && data != null && data.length() >= compressionThreshold) {
+            Buffer compressed = compressor.compress(data);
+            if (compressed.length() < data.length()) {
+                return builder.setValue(compressed).setFlags(flags | ValueCompressor.COMPRESSED_FLAG);
+            }
+        }
+        return builder.setValue(data).setFlags(flags);
+    }
+
+    private Future<RetrieveCommandResponse> decompress(Future<RetrieveCommandResponse> result) {
+        Future<RetrieveCommandResponse> decompressed = Future.future();
+        result.setHandler(response -> {
+            if (response.succeeded()) {
+                decompressed.complete(decompress(response.result()));
+            } else {
+                decompressed.fail(response.cause());
+            }
+        });
+        return decompressed;
+    }
+
+    /**
+     * Decompresses the values stored with the compressed flag.  A value which can't be decompressed is
+     * dropped from the response, so it is treated as a miss.
+     *
+     * @param response - The retrieve response.
+     * @return - The response with the decompressed values.
+     */
+    private RetrieveCommandResponse decompress(RetrieveCommandResponse response) {
+        if (response == null || !isCompressed(response)) {
+            return response;
+        }
+
+        RetrieveCommandResponse.Builder builder = new RetrieveCommandResponse.Builder()
+                .setStatus(response.getStatus())
+                .setMessage(response.getMessage())
+                .setCasData(new HashMap<>(response.getCasData()));
+        for (Map.Entry<String, Buffer> entry : response.getBinaryData().entrySet()) {
+            int flags = response.getFlags(entry.getKey());
+            Buffer value = entry.getValue();
+            if ((flags & ValueCompressor.COMPRESSED_FLAG) != 0 && value != null) {
+                try {
+                    value = compressor.decompress(value);
+                } catch (IllegalArgumentException ex) {
+                    log.warn("decompress", "invalidValue", new String[]{"key", "reason"}, entry.getKey(), ex.getMessage());
+                    continue;
+                }
+            }
+            builder.addBinaryData(entry.getKey(), value).addFlags(entry.getKey(), flags & ~ValueCompressor.COMPRESSED_FLAG);
+        }
+        return builder.build();
+    }
+
+    private static <T> Future<T> decode(Future<RetrieveCommandResponse> result, Function<RetrieveCommandResponse, T> decoder) {
+        Future<T> decoded = Future.future();
+        result.setHandler(response -> {
+            if (response.failed()) {
+                decoded.fail(response.cause());
+            } else if (response.result() == null || response.result().getStatus() != JsendStatus.success) {
+                String message = response.result() != null ? response.result().getMessage() : "Missing response";
+                decoded.fail(new MemcacheException(message));
+            } else {
+                decoded.complete(decoder.apply(response.result()));
+            }
+        });
+        return decoded;
+    }
+
+    private static <T> T decode(RetrieveCommandResponse response, String key, Transcoder<T> transcoder) {
+        Buffer data = response.getBinaryData().get(key);
+        if (data == null) {
+            return null;
+        }
+
+        try {
+            return transcoder.decode(data, response.getFlags(key));
+        } catch (IllegalArgumentException ex) {
+            log.warn("decode", "invalidValue", new String[]{"key", "reason"}, key, ex.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean isCompressed(RetrieveCommandResponse response) {
+        for (Integer flags : response.getFlagsData().values()) {
+            if ((flags & ValueCompressor.COMPRESSED_FLAG) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Buffer toBuffer(String data) {
+        return data != null ? Buffer.buffer(data, ENCODING.name()) : null;
+    }
+
     private String getCacheKey(String key) {
         if (namespace != null) {
             return namespace + key;
@@ -178,9 +845,15 @@ public class MemcacheClient {
         }
     }
 
-    private String getEventBusAddress(String key) {
-        MemcacheServer server = continuum.getServer(getCacheKey(key));
-        log.debug("getEventBusAddress", "serverAddress", new String[]{"address"}, eventBusAddress + "_" + server.getServer());
-        return eventBusAddress + "_" + server.getServer();
+    private String getEventBusAddress(MemcacheCommand command) {
+        String address = router.getAddress(command.getKey());
+        log.debug("getEventBusAddress", "serverAddress", new String[]{"address"}, address);
+        return address;
+    }
+
+    private String getEventBusAddress(MemcacheServer server) {
+        String address = router.getAddress(server);
+        log.debug("getEventBusAddress", "serverAddress", new String[]{"address"}, address);
+        return address;
     }
 }
@@ -23,6 +23,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
 
 import com.groupon.vertx.memcache.client.response.RetrieveCommandResponse;
 import com.groupon.vertx.utils.Logger;
@@ -67,8 +68,14 @@ public class MemcacheClientMultiResponseHandler implements Handler<AsyncResult<R
                 log.trace("handleCommand", "queueReply", new String[]{"response"}, body);
                 switch (body.getStatus()) {
                     case success:
-                        for (Map.Entry<String, String> entry : body.getData().entrySet()) {
-                            builder.addData(entry.getKey(), entry.getValue());
+                        for (Map.Entry<String, Buffer> entry : body.getBinaryData().entrySet()) {
+                            builder.addBinaryData(entry.getKey(), entry.getValue());
+                        }
+                        for (Map.Entry<String, Long> entry : body.getCasData().entrySet()) {
+                            builder.addCas(entry.getKey(), entry.getValue());
+                        }
+                        for (Map.Entry<String, Integer> entry : body.getFlagsData().entrySet()) {
+                            builder.addFlags(entry.getKey(), entry.getValue());
                         }
                         success++;
                         break;
@@ -15,10 +15,7 @@
  */
 package com.groupon.vertx.memcache.client;
 
-import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
-import io.vertx.core.Handler;
-import io.vertx.core.eventbus.Message;
 
 import com.groupon.vertx.memcache.MemcacheUnavailableException;
 import com.groupon.vertx.memcache.client.response.MemcacheCommandResponse;
@@ -31,7 +28,7 @@ import com.groupon.vertx.utils.Logger;
  * @author Stuart Siegrist (fsiegrist at groupon dot com)
  * @since 1.0.0
  */
-public class MemcacheClientResponseHandler<T extends MemcacheCommandResponse> implements Handler<AsyncResult<Message<T>>> {
+public class MemcacheClientResponseHandler<T extends MemcacheCommandResponse> implements MemcacheResponseHandler<T> {
     private static final Logger log = Logger.getLogger(MemcacheClientResponseHandler.class);
 
     private Future<T> result;
@@ -41,16 +38,17 @@ public class MemcacheClientResponseHandler<T extends MemcacheCommandResponse> im
     }
 
     @Override
-    public void handle(AsyncResult<Message<T>> message) {
-        if (message.succeeded()) {
-            result.complete(message.result().body());
-        } else {
-            MemcacheUnavailableException unavailable = new MemcacheUnavailableException();
-            if (message.cause() != null) {
-                unavailable.addSuppressed(message.cause());
-            }
-            log.warn("memcacheClientResponse", "exception", unavailable);
-            result.fail(unavailable);
+    public void handleResponse(T response) {
+        result.complete(response);
+    }
+
+    @Override
+    public void handleFailure(Throwable cause) {
+        MemcacheUnavailableException unavailable = new MemcacheUnavailableException();
+        if (cause != null) {
+            unavailable.addSuppressed(cause);
         }
+        log.warn("memcacheClientResponse", "exception", unavailable);
+        result.fail(unavailable);
     }
 }
@@ -18,6 +18,7 @@ package com.groupon.vertx.memcache.client;
 import java.util.HashMap;
 import java.util.Map;
 
+import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.EventBus;
 
 import com.groupon.vertx.memcache.MemcacheClusterConfig;
@@ -41,6 +42,24 @@ public final class MemcacheClusterClientFactory {
         }
     }
 
+    /**
+     * Creates clients which send the commands directly to the sockets in the same Vert.x instance
+     * when they are available.
+     *
+     * @param vertx - The Vert.x instance.
+     * @param config - The configuration for the Memcache clusters.
+     * @throws MemcacheClientException - If the arguments are invalid.
+     */
+    public MemcacheClusterClientFactory(Vertx vertx, MemcacheClusterConfig config) throws MemcacheClientException {
+        if (vertx == null || config == null) {
+            throw new MemcacheClientException("Illegal arguments");
+        }
+
+        for (String clusterKey : config.getClusterNames()) {
+            clientMap.put(clusterKey, new MemcacheClient(vertx, config.getCluster(clusterKey)));
+        }
+    }
+
     public MemcacheClient getClient(String clusterName) {
         return clientMap.get(clusterName);
     }
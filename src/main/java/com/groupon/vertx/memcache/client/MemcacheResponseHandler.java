@@ -0,0 +1,54 @@
+/**
+ * Copyright 2014 Groupon.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.vertx.memcache.client;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.eventbus.Message;
+
+import com.groupon.vertx.memcache.client.response.MemcacheCommandResponse;
+
+/**
+ * Handles the response to a command, whether it was received as an event bus reply or directly from
+ * a socket in the same Vert.x instance.
+ *
+ * @author Stuart Siegrist (fsiegrist at groupon dot com)
+ * @since 4.0.3
+ */
+public interface MemcacheResponseHandler<T extends MemcacheCommandResponse> extends Handler<AsyncResult<Message<T>>> {
+    /**
+     * Handles the response returned by Memcache.
+     *
+     * @param response - The response to the command.
+     */
+    void handleResponse(T response);
+
+    /**
+     * Handles a command which did not receive a response.
+     *
+     * @param cause - The cause of the failure, or null if it is unknown.
+     */
+    void handleFailure(Throwable cause);
+
+    @Override
+    default void handle(AsyncResult<Message<T>> message) {
+        if (message.succeeded()) {
+            handleResponse(message.result().body());
+        } else {
+            handleFailure(message.cause());
+        }
+    }
+}
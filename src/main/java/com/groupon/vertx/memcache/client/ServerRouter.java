@@ -0,0 +1,129 @@
+/**
+ * Copyright 2014 Groupon.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.vertx.memcache.client;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.groupon.vertx.memcache.server.Continuum;
+import com.groupon.vertx.memcache.server.MemcacheServer;
+
+/**
+ * Resolves cache keys to their server and the event bus address of the server.  The address of each server
+ * is built once, and the route of recently used keys is remembered in a fixed size direct mapped cache, so
+ * hot keys are not hashed and searched for on the continuum on every call.
+ *
+ * The cache is shared by the event loops using the client without locking.  Routes are immutable and are
+ * written to their slot without synchronization, so a racing lookup sees either the old route, the new
+ * route or nothing, and resolves the key from the continuum on a miss.  The routes are only valid for the
+ * continuum they were resolved with, so a new router is created when the continuum changes.
+ *
+ * @author Stuart Siegrist (fsiegrist at groupon dot com)
+ * @since 4.0.3
+ */
+final class ServerRouter {
+    private static final int MAXIMUM_CACHE_SIZE = 1 << 20;
+
+    private final Continuum continuum;
+    private final String eventBusAddress;
+    private final ConcurrentHashMap<MemcacheServer, String> addresses = new ConcurrentHashMap<>();
+    private final Route[] routes;
+    private final int mask;
+
+    /**
+     * Creates the router.
+     *
+     * @param continuum - The continuum for routing the keys.
+     * @param eventBusAddress - The prefix of the server event bus addresses.
+     * @param cacheSize - The number of routes to remember, rounded up to a power of two, zero to disable the cache.
+     */
+    ServerRouter(Continuum continuum, String eventBusAddress, int cacheSize) {
+        this.continuum = continuum;
+        this.eventBusAddress = eventBusAddress;
+
+        if (cacheSize > 0) {
+            int size = Integer.highestOneBit(Math.min(cacheSize, MAXIMUM_CACHE_SIZE));
+            routes = new Route[size < cacheSize ? size << 1 : size];
+            mask = routes.length - 1;
+        } else {
+            routes = null;
+            mask = 0;
+        }
+    }
+
+    /**
+     * The server the cache key is stored on.
+     *
+     * @param cacheKey - The key used in memcache, including the namespace.
+     * @return - The server for the key.
+     */
+    MemcacheServer getServer(String cacheKey) {
+        return routes != null ? route(cacheKey).server : continuum.getServer(cacheKey);
+    }
+
+    /**
+     * The event bus address of the server the cache key is stored on.
+     *
+     * @param cacheKey - The key used in memcache, including the namespace.
+     * @return - The event bus address of the server for the key.
+     */
+    String getAddress(String cacheKey) {
+        return routes != null ? route(cacheKey).address : getAddress(continuum.getServer(cacheKey));
+    }
+
+    /**
+     * The event bus address of the server.
+     *
+     * @param server - The server to return the address for.
+     * @return - The event bus address of the server.
+     */
+    String getAddress(MemcacheServer server) {
+        String address = addresses.get(server);
+        if (address == null) {
+            address = addresses.computeIfAbsent(server, s -> eventBusAddress + "_" + s.getServer());
+        }
+        return address;
+    }
+
+    private Route route(String cacheKey) {
+        int hash = cacheKey.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & mask;
+
+        Route route = routes[slot];
+        if (route != null && (route.key == cacheKey || route.key.equals(cacheKey))) {
+            return route;
+        }
+
+        MemcacheServer server = continuum.getServer(cacheKey);
+        route = new Route(cacheKey, server, getAddress(server));
+        routes[slot] = route;
+        return route;
+    }
+
+    /**
+     * The resolved server of a cache key.
+     */
+    private static final class Route {
+        private final String key;
+        private final MemcacheServer server;
+        private final String address;
+
+        private Route(String key, MemcacheServer server, String address) {
+            this.key = key;
+            this.server = server;
+            this.address = address;
+        }
+    }
+}
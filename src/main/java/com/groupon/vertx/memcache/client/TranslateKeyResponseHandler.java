@@ -15,13 +15,11 @@
  */
 package com.groupon.vertx.memcache.client;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
-import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
-import io.vertx.core.Handler;
-import io.vertx.core.eventbus.Message;
 
 import com.groupon.vertx.memcache.MemcacheUnavailableException;
 import com.groupon.vertx.memcache.client.response.RetrieveCommandResponse;
@@ -33,44 +31,67 @@ import com.groupon.vertx.utils.Logger;
  * @author Stuart Siegrist (fsiegrist at groupon dot com)
  * @since 1.0.0
  */
-public class TranslateKeyResponseHandler implements Handler<AsyncResult<Message<RetrieveCommandResponse>>> {
+public class TranslateKeyResponseHandler implements MemcacheResponseHandler<RetrieveCommandResponse> {
     private static final Logger log = Logger.getLogger(TranslateKeyResponseHandler.class);
 
     private Future<RetrieveCommandResponse> result;
-    private String key;
-    private String cacheKey;
+    private Map<String, String> cacheKeys;
 
     public TranslateKeyResponseHandler(Future<RetrieveCommandResponse> result, String key, String cacheKey) {
+        this(result, key == null ? Collections.emptyMap() : Collections.singletonMap(cacheKey, key));
+    }
+
+    /**
+     * Translates the keys for a multi key retrieval.
+     *
+     * @param result - The Future to complete with the translated response.
+     * @param cacheKeys - A Map of the cache keys used in memcache to the original keys.
+     */
+    public TranslateKeyResponseHandler(Future<RetrieveCommandResponse> result, Map<String, String> cacheKeys) {
         this.result = result;
-        this.key = key;
-        this.cacheKey = cacheKey;
+        this.cacheKeys = cacheKeys;
     }
 
     @Override
-    public void handle(AsyncResult<Message<RetrieveCommandResponse>> message) {
-        if (message.succeeded()) {
-            RetrieveCommandResponse response = message.result().body();
-            if (key != null && !key.equals(cacheKey) && response != null) {
-                Map<String, String> data = new HashMap<>(response.getData());
-                String value = data.remove(cacheKey);
-                if (value != null) {
-                    data.put(key, value);
+    public void handleResponse(RetrieveCommandResponse response) {
+        if (response != null && requiresTranslation(response)) {
+            // Replace
+            response = new RetrieveCommandResponse.Builder()
+                    .setStatus(response.getStatus())
+                    .setBinaryData(translateKeys(response.getBinaryData()))
+                    .setCasData(translateKeys(response.getCasData()))
+                    .setFlagsData(translateKeys(response.getFlagsData()))
+                    .build();
+        }
+        result.complete(response);
+    }
 
-                    // Replace
-                    response = new RetrieveCommandResponse.Builder()
-                            .setStatus(response.getStatus())
-                            .setData(data)
-                            .build();
-                }
-            }
-            result.complete(response);
-        } else {
-            MemcacheUnavailableException unavailable = new MemcacheUnavailableException();
-            if (message.cause() != null) {
-                unavailable.addSuppressed(message.cause());
+    private <V> Map<String, V> translateKeys(Map<String, V> values) {
+        Map<String, V> translated = new HashMap<>(values.size());
+        for (Map.Entry<String, V> entry : values.entrySet()) {
+            String key = cacheKeys.get(entry.getKey());
+            translated.put(key != null ? key : entry.getKey(), entry.getValue());
+        }
+        return translated;
+    }
+
+    @Override
+    public void handleFailure(Throwable cause) {
+        MemcacheUnavailableException unavailable = new MemcacheUnavailableException();
+        if (cause != null) {
+            unavailable.addSuppressed(cause);
+        }
+        log.warn("translateKeyResponse", "exception", unavailable);
+        result.fail(unavailable);
+    }
+
+    private boolean requiresTranslation(RetrieveCommandResponse response) {
+        for (String cacheKey : response.getBinaryData().keySet()) {
+            String key = cacheKeys.get(cacheKey);
+            if (key != null && !key.equals(cacheKey)) {
+                return true;
             }
-            log.warn("translateKeyResponse", "exception", unavailable);
-            result.fail(unavailable);
         }
+        return false;
     }
 }
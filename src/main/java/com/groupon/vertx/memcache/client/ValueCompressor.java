@@ -0,0 +1,50 @@
+/**
+ * Copyright 2014 Groupon.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.vertx.memcache.client;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Compresses the values stored by the client.  Values at or above the compression threshold are
+ * compressed before they are sent to Memcache and are stored with the {@link #COMPRESSED_FLAG} item
+ * flag, which tells the client to decompress them when they are retrieved.
+ *
+ * @author Stuart Siegrist (fsiegrist at groupon dot com)
+ * @since 4.0.3
+ */
+public interface ValueCompressor {
+    /**
+     * The item flag marking a compressed value.
+     */
+    int COMPRESSED_FLAG = 0x2;
+
+    /**
+     * Compresses the value.
+     *
+     * @param value - The raw bytes of the value.
+     * @return - A Buffer with the compressed value.
+     */
+    Buffer compress(Buffer value);
+
+    /**
+     * Decompresses a value returned by {@link #compress(Buffer)}.
+     *
+     * @param value - The compressed value.
+     * @return - A Buffer with the raw bytes of the value.
+     * @throws IllegalArgumentException - If the value is not in the compressed format.
+     */
+    Buffer decompress(Buffer value);
+}
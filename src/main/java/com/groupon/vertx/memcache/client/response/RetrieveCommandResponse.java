@@ -15,33 +15,116 @@
  */
 package com.groupon.vertx.memcache.client.response;
 
+import java.nio.charset.Charset;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
+import io.vertx.core.buffer.Buffer;
+
 /**
- * Represents a memcache get response.
+ * Represents a memcache get response.  The values are kept as the raw bytes returned from memcache
+ * and are only decoded to Strings when they are requested through {@link #getData()}.  The response to a
+ * gets also contains the cas unique value of each key, which is used to store the key with a cas command.
+ * The item flags stored with each value are returned as well, so a client side codec can tell how the
+ * value was encoded.
  *
  * @author Stuart Siegrist (fsiegrist at groupon dot com)
  * @since 3.1.0
  */
 public final class RetrieveCommandResponse extends MemcacheCommandResponse {
-    private final Map<String, String> data;
+    private static final Charset ENCODING = Charset.forName("UTF-8");
+
+    private final Map<String, Buffer> binaryData;
+    private final Map<String, Long> casData;
+    private final Map<String, Integer> flagsData;
+    private volatile Map<String, String> data;
 
     private RetrieveCommandResponse(Builder builder) {
         super(builder);
-        data = Collections.unmodifiableMap(new HashMap<>(builder.data));
+        binaryData = Collections.unmodifiableMap(new HashMap<>(builder.data));
+        casData = copyOf(builder.casData);
+        flagsData = copyOf(builder.flagsData);
+    }
+
+    private static <V> Map<String, V> copyOf(Map<String, V> values) {
+        return values == null || values.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(new HashMap<>(values));
     }
 
+    /**
+     * The retrieved values decoded as UTF-8 Strings.
+     *
+     * @return - A Map of the keys to the String values.
+     */
     public Map<String, String> getData() {
-        return data;
+        Map<String, String> decoded = data;
+        if (decoded == null) {
+            Map<String, String> values = new HashMap<>(binaryData.size());
+            for (Map.Entry<String, Buffer> entry : binaryData.entrySet()) {
+                values.put(entry.getKey(), entry.getValue() != null ? entry.getValue().toString(ENCODING) : null);
+            }
+            decoded = Collections.unmodifiableMap(values);
+            data = decoded;
+        }
+        return decoded;
+    }
+
+    /**
+     * The retrieved values as the raw bytes returned from memcache.
+     *
+     * @return - A Map of the keys to the Buffer values.
+     */
+    public Map<String, Buffer> getBinaryData() {
+        return binaryData;
+    }
+
+    /**
+     * The cas unique values of the retrieved keys.  Only the responses to gets commands contain cas values.
+     *
+     * @return - A Map of the keys to the cas unique values.
+     */
+    public Map<String, Long> getCasData() {
+        return casData;
+    }
+
+    /**
+     * The cas unique value of a retrieved key.
+     *
+     * @param key - The key to return the cas value for.
+     * @return - The cas unique value, or null if the key was not retrieved with a gets.
+     */
+    public Long getCas(String key) {
+        return casData.get(key);
+    }
+
+    /**
+     * The item flags of the retrieved keys.  Only keys stored with non zero flags are included.
+     *
+     * @return - A Map of the keys to the item flags.
+     */
+    public Map<String, Integer> getFlagsData() {
+        return flagsData;
+    }
+
+    /**
+     * The item flags of a retrieved key.
+     *
+     * @param key - The key to return the flags for.
+     * @return - The 32 bit item flags, or zero if the key was stored without flags or was not retrieved.
+     */
+    public int getFlags(String key) {
+        Integer flags = flagsData.get(key);
+        return flags != null ? flags : 0;
     }
 
     /**
      * Builder for the RetrieveCommandResponse
      */
     public static class Builder extends AbstractBuilder<Builder, RetrieveCommandResponse> {
-        private Map<String, String> data = new HashMap<>();
+        private Map<String, Buffer> data = new HashMap<>();
+        // Most responses carry neither, so the maps are only created when needed.
+        private Map<String, Long> casData;
+        private Map<String, Integer> flagsData;
 
         @Override
         protected Builder self() {
@@ -49,6 +132,21 @@ public final class RetrieveCommandResponse extends MemcacheCommandResponse {
         }
 
         public Builder setData(Map<String, String> value) {
+            data = new HashMap<>();
+            if (value != null) {
+                for (Map.Entry<String, String> entry : value.entrySet()) {
+                    addData(entry.getKey(), entry.getValue());
+                }
+            }
+            return self();
+        }
+
+        public Builder addData(String key, String value) {
+            data.put(key, value != null ? Buffer.buffer(value, ENCODING.name()) : null);
+            return self();
+        }
+
+        public Builder setBinaryData(Map<String, Buffer> value) {
             if (value == null) {
                 data = new HashMap<>();
             } else {
@@ -57,11 +155,46 @@ public final class RetrieveCommandResponse extends MemcacheCommandResponse {
             return self();
         }
 
-        public Builder addData(String key, String value) {
+        public Builder addBinaryData(String key, Buffer value) {
             data.put(key, value);
             return self();
         }
 
+        public Builder setCasData(Map<String, Long> value) {
+            casData = value;
+            return self();
+        }
+
+        public Builder addCas(String key, long value) {
+            if (casData == null) {
+                casData = new HashMap<>();
+            }
+            casData.put(key, value);
+            return self();
+        }
+
+        public Builder setFlagsData(Map<String, Integer> value) {
+            flagsData = value;
+            return self();
+        }
+
+        /**
+         * Adds the item flags of a key.  Zero flags are the default and are not kept.
+         *
+         * @param key - The key the flags were stored with.
+         * @param value - The 32 bit item flags.
+         * @return - This builder.
+         */
+        public Builder addFlags(String key, int value) {
+            if (value != 0) {
+                if (flagsData == null) {
+                    flagsData = new HashMap<>();
+                }
+                flagsData.put(key, value);
+            }
+            return self();
+        }
+
         @Override
         public RetrieveCommandResponse build() {
             return new RetrieveCommandResponse(this);
@@ -0,0 +1,57 @@
+/**
+ * Copyright 2014 Groupon.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.vertx.memcache.client.transcoder;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Converts typed values to the bytes and item flags stored in Memcache and back.  The flags returned by
+ * {@link #getFlags(Object)} are stored with the value and passed to {@link #decode(Buffer, int)}, so a
+ * transcoder can tell how a value was encoded.  The <code>ValueCompressor.COMPRESSED_FLAG</code> is
+ * reserved for the compression done by the client and is never passed to a transcoder.
+ *
+ * @param <T> - The type of the values.
+ * @author Stuart Siegrist (fsiegrist at groupon dot com)
+ * @since 4.0.3
+ */
+public interface Transcoder<T> {
+    /**
+     * Encodes the value.
+     *
+     * @param value - The value to store.
+     * @return - A Buffer with the bytes sent to Memcache.
+     */
+    Buffer encode(T value);
+
+    /**
+     * The item flags stored with the encoded value.  The bit of <code>ValueCompressor.COMPRESSED_FLAG</code>
+     * must not be set, the client rejects values whose flags include it.
+     *
+     * @param value - The value to store.
+     * @return - The 32 bit item flags.
+     */
+    int getFlags(T value);
+
+    /**
+     * Decodes a value returned by Memcache.
+     *
+     * @param data - The bytes returned by Memcache.
+     * @param flags - The item flags stored with the value.
+     * @return - The decoded value.
+     * @throws IllegalArgumentException - If the value can't be decoded by this transcoder.
+     */
+    T decode(Buffer data, int flags);
+}
@@ -0,0 +1,202 @@
+/**
+ * Copyright 2014 Groupon.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.vertx.memcache.client.transcoder;
+
+import java.nio.charset.Charset;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The built in transcoders.  Numbers and booleans are stored in a compact binary format and are marked
+ * with a type flag in the second byte of the item flags.  Values stored as text, e.g. the counters of
+ * incr and decr or values set through the String methods of the client, have no type flag and are
+ * parsed from their text.
+ *
+ * @author Stuart Siegrist (fsiegrist at groupon dot com)
+ * @since 4.0.3
+ */
+public final class Transcoders {
+    private static final Charset ENCODING = Charset.forName("UTF-8");
+
+    static final int TYPE_MASK = 0xff00;
+    static final int TEXT_FLAG = 0;
+    static final int BOOLEAN_FLAG = 1 << 8;
+    static final int INTEGER_FLAG = 2 << 8;
+    static final int LONG_FLAG = 3 << 8;
+    static final int DOUBLE_FLAG = 4 << 8;
+    static final int BYTES_FLAG = 5 << 8;
+    static final int JSON_FLAG = 6 << 8;
+
+    /**
+     * Stores Strings as UTF-8 text, the same as the String methods of the client.
+     */
+    public static final Transcoder<String> STRING = new BaseTranscoder<String>(TEXT_FLAG) {
+        @Override
+        public Buffer encode(String value) {
+            return Buffer.buffer(value, ENCODING.name());
+        }
+
+        @Override
+        public String decode(Buffer data, int flags) {
+            return data.toString(ENCODING);
+        }
+    };
+
+    /**
+     * Stores byte arrays unmodified.
+     */
+    public static final Transcoder<byte[]> BYTES = new BaseTranscoder<byte[]>(BYTES_FLAG) {
+        @Override
+        public Buffer encode(byte[] value) {
+            return Buffer.buffer(value);
+        }
+
+        @Override
+        public byte[] decode(Buffer data, int flags) {
+            return data.getBytes();
+        }
+    };
+
+    public static final Transcoder<Boolean> BOOLEAN = new BaseTranscoder<Boolean>(BOOLEAN_FLAG) {
+        @Override
+        public Buffer encode(Boolean value) {
+            return Buffer.buffer(1).appendByte((byte) (value ? 1 : 0));
+        }
+
+        @Override
+        public Boolean decode(Buffer data, int flags) {
+            if (isType(flags, BOOLEAN_FLAG) && data.length() == 1) {
+                return data.getByte(0) != 0;
+            }
+            String text = decodeText(data, flags);
+            if (!Boolean.TRUE.toString().equalsIgnoreCase(text) && !Boolean.FALSE.toString().equalsIgnoreCase(text)) {
+                throw new IllegalArgumentException("Invalid boolean value");
+            }
+            return Boolean.valueOf(text);
+        }
+    };
+
+    public static final Transcoder<Integer> INTEGER = new BaseTranscoder<Integer>(INTEGER_FLAG) {
+        @Override
+        public Buffer encode(Integer value) {
+            return Buffer.buffer(Integer.BYTES).appendInt(value);
+        }
+
+        @Override
+        public Integer decode(Buffer data, int flags) {
+            if (isType(flags, INTEGER_FLAG) && data.length() == Integer.BYTES) {
+                return data.getInt(0);
+            }
+            return Integer.valueOf(decodeText(data, flags));
+        }
+    };
+
+    public static final Transcoder<Long> LONG = new BaseTranscoder<Long>(LONG_FLAG) {
+        @Override
+        public Buffer encode(Long value) {
+            return Buffer.buffer(Long.BYTES).appendLong(value);
+        }
+
+        @Override
+        public Long decode(Buffer data, int flags) {
+            if (isType(flags, LONG_FLAG) && data.length() == Long.BYTES) {
+                return data.getLong(0);
+            }
+            return Long.valueOf(decodeText(data, flags));
+        }
+    };
+
+    public static final Transcoder<Double> DOUBLE = new BaseTranscoder<Double>(DOUBLE_FLAG) {
+        @Override
+        public Buffer encode(Double value) {
+            return Buffer.buffer(Double.BYTES).appendDouble(value);
+        }
+
+        @Override
+        public Double decode(Buffer data, int flags) {
+            if (isType(flags, DOUBLE_FLAG) && data.length() == Double.BYTES) {
+                return data.getDouble(0);
+            }
+            return Double.valueOf(decodeText(data, flags));
+        }
+    };
+
+    /**
+     * Stores JsonObjects as UTF-8 encoded JSON.  JSON stored through the String methods of the client can
+     * be decoded as well.
+     */
+    public static final Transcoder<JsonObject> JSON_OBJECT = new BaseTranscoder<JsonObject>(JSON_FLAG) {
+        @Override
+        public Buffer encode(JsonObject value) {
+            return value.toBuffer();
+        }
+
+        @Override
+        public JsonObject decode(Buffer data, int flags) {
+            if (!isType(flags, JSON_FLAG) && !isType(flags, TEXT_FLAG)) {
+                throw new IllegalArgumentException("Unexpected flags for value");
+            }
+
+            try {
+                return new JsonObject(data);
+            } catch (DecodeException ex) {
+                throw new IllegalArgumentException("Invalid JSON value", ex);
+            }
+        }
+    };
+
+    private Transcoders() {
+    }
+
+    private static boolean isType(int flags, int type) {
+        return (flags & TYPE_MASK) == type;
+    }
+
+    /**
+     * Decodes a value stored as text.  The number parsers throw a NumberFormatException, which is an
+     * IllegalArgumentException, for invalid text.
+     *
+     * @param data - The bytes returned by Memcache.
+     * @param flags - The item flags stored with the value.
+     * @return - The text of the value.
+     */
+    private static String decodeText(Buffer data, int flags) {
+        if (!isType(flags, TEXT_FLAG)) {
+            throw new IllegalArgumentException("Unexpected flags for value");
+        }
+        return data.toString(ENCODING).trim();
+    }
+
+    /**
+     * Base for the transcoders which mark every value with the same flags.
+     *
+     * @param <T> - The type of the values.
+     */
+    private abstract static class BaseTranscoder<T> implements Transcoder<T> {
+        private final int flags;
+
+        BaseTranscoder(int flags) {
+            this.flags = flags;
+        }
+
+        @Override
+        public int getFlags(T value) {
+            return flags;
+        }
+    }
+}
@@ -17,10 +17,7 @@ package com.groupon.vertx.memcache.codec;
 
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.MessageCodec;
-import io.vertx.core.eventbus.impl.CodecManager;
-import io.vertx.core.json.JsonObject;
 
-import com.groupon.vertx.memcache.client.JsendStatus;
 import com.groupon.vertx.memcache.client.response.DeleteCommandResponse;
 
 /**
@@ -33,26 +30,17 @@ public class DeleteCommandResponseCodec implements MessageCodec<DeleteCommandRes
 
     @Override
     public void encodeToWire(Buffer buffer, DeleteCommandResponse commandResponse) {
-        JsonObject json = new JsonObject();
-        json.put("status", commandResponse.getStatus());
-        json.put("message", commandResponse.getMessage());
-        json.put("data", commandResponse.getData());
-
-        CodecManager.JSON_OBJECT_MESSAGE_CODEC.encodeToWire(buffer, json);
+        WireFormat.writeVersion(buffer);
+        WireFormat.writeResponse(buffer, commandResponse);
+        WireFormat.writeString(buffer, commandResponse.getData());
     }
 
     @Override
     public DeleteCommandResponse decodeFromWire(int i, Buffer buffer) {
-        JsonObject json = CodecManager.JSON_OBJECT_MESSAGE_CODEC.decodeFromWire(i, buffer);
-
-        JsendStatus status = JsendStatus.valueOf(json.getString("status"));
-        String message = json.getString("message");
-        String data = json.getString("data");
+        WireFormat.Reader reader = new WireFormat.Reader(buffer, i);
 
-        return new DeleteCommandResponse.Builder()
-                .setStatus(status)
-                .setMessage(message)
-                .setData(data)
+        return reader.readResponse(new DeleteCommandResponse.Builder())
+                .setData(reader.readString())
                 .build();
     }
 
@@ -63,7 +51,7 @@ public class DeleteCommandResponseCodec implements MessageCodec<DeleteCommandRes
 
     @Override
     public String name() {
-        return this.getClass().getSimpleName();
+        return WireFormat.codecName(getClass());
     }
 
     @Override
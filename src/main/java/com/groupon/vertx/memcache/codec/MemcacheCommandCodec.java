@@ -17,8 +17,6 @@ package com.groupon.vertx.memcache.codec;
 
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.MessageCodec;
-import io.vertx.core.eventbus.impl.CodecManager;
-import io.vertx.core.json.JsonObject;
 
 import com.groupon.vertx.memcache.command.MemcacheCommand;
 import com.groupon.vertx.memcache.command.MemcacheCommandType;
@@ -30,27 +28,37 @@ import com.groupon.vertx.memcache.command.MemcacheCommandType;
  * @since 3.1.0
  */
 public class MemcacheCommandCodec implements MessageCodec<MemcacheCommand, MemcacheCommand> {
+    private static final MemcacheCommandType[] COMMAND_TYPES = MemcacheCommandType.values();
+
     @Override
     public void encodeToWire(Buffer buffer, MemcacheCommand memcacheCommand) {
-        JsonObject json = new JsonObject();
-        json.put("key", memcacheCommand.getKey());
-        json.put("value", memcacheCommand.getValue());
-        json.put("expires", memcacheCommand.getExpires());
-        json.put("type", memcacheCommand.getType());
-
-        CodecManager.JSON_OBJECT_MESSAGE_CODEC.encodeToWire(buffer, json);
+        WireFormat.writeVersion(buffer);
+        buffer.appendByte((byte) memcacheCommand.getType().ordinal());
+        WireFormat.writeString(buffer, memcacheCommand.getKey());
+        WireFormat.writeBuffer(buffer, memcacheCommand.getValueBuffer());
+        WireFormat.writeInteger(buffer, memcacheCommand.getExpires());
+        WireFormat.writeLong(buffer, memcacheCommand.getTimeout());
+        WireFormat.writeString(buffer, memcacheCommand.getMetaFlags());
+        WireFormat.writeBoolean(buffer, memcacheCommand.isNoreply());
+        WireFormat.writeLong(buffer, memcacheCommand.getCas());
+        buffer.appendInt(memcacheCommand.getFlags());
     }
 
     @Override
     public MemcacheCommand decodeFromWire(int i, Buffer buffer) {
-        JsonObject json = CodecManager.JSON_OBJECT_MESSAGE_CODEC.decodeFromWire(i, buffer);
-
-        String key = json.getString("key");
-        String value = json.getString("value");
-        Integer expires = json.getInteger("expires");
-        MemcacheCommandType type = MemcacheCommandType.valueOf(json.getString("type"));
+        WireFormat.Reader reader = new WireFormat.Reader(buffer, i);
 
-        return new MemcacheCommand(type, key, value, expires);
+        return new MemcacheCommand.Builder()
+                .setType(COMMAND_TYPES[reader.readByte()])
+                .setKey(reader.readString())
+                .setValue(reader.readBuffer())
+                .setExpires(reader.readInteger())
+                .setTimeout(reader.readLong())
+                .setMetaFlags(reader.readString())
+                .setNoreply(reader.readBoolean())
+                .setCas(reader.readLong())
+                .setFlags(reader.readInt())
+                .build();
     }
 
     @Override
@@ -60,7 +68,7 @@ public class MemcacheCommandCodec implements MessageCodec<MemcacheCommand, Memca
 
     @Override
     public String name() {
-        return this.getClass().getSimpleName();
+        return WireFormat.codecName(getClass());
     }
 
     @Override
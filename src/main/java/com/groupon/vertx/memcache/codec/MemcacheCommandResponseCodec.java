@@ -17,10 +17,7 @@ package com.groupon.vertx.memcache.codec;
 
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.MessageCodec;
-import io.vertx.core.eventbus.impl.CodecManager;
-import io.vertx.core.json.JsonObject;
 
-import com.groupon.vertx.memcache.client.JsendStatus;
 import com.groupon.vertx.memcache.client.response.MemcacheCommandResponse;
 
 /**
@@ -32,24 +29,13 @@ import com.groupon.vertx.memcache.client.response.MemcacheCommandResponse;
 public class MemcacheCommandResponseCodec implements MessageCodec<MemcacheCommandResponse, MemcacheCommandResponse> {
     @Override
     public void encodeToWire(Buffer buffer, MemcacheCommandResponse commandResponse) {
-        JsonObject json = new JsonObject();
-        json.put("status", commandResponse.getStatus());
-        json.put("message", commandResponse.getMessage());
-
-        CodecManager.JSON_OBJECT_MESSAGE_CODEC.encodeToWire(buffer, json);
+        WireFormat.writeVersion(buffer);
+        WireFormat.writeResponse(buffer, commandResponse);
     }
 
     @Override
     public MemcacheCommandResponse decodeFromWire(int i, Buffer buffer) {
-        JsonObject json = CodecManager.JSON_OBJECT_MESSAGE_CODEC.decodeFromWire(i, buffer);
-
-        JsendStatus status = JsendStatus.valueOf(json.getString("status"));
-        String message = json.getString("message");
-
-        return new MemcacheCommandResponse.Builder()
-                .setStatus(status)
-                .setMessage(message)
-                .build();
+        return new WireFormat.Reader(buffer, i).readResponse(new MemcacheCommandResponse.Builder()).build();
     }
 
     @Override
@@ -59,7 +45,7 @@ public class MemcacheCommandResponseCodec implements MessageCodec<MemcacheComman
 
     @Override
     public String name() {
-        return this.getClass().getSimpleName();
+        return WireFormat.codecName(getClass());
     }
 
     @Override
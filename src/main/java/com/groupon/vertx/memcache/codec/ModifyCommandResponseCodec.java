@@ -17,10 +17,7 @@ package com.groupon.vertx.memcache.codec;
 
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.MessageCodec;
-import io.vertx.core.eventbus.impl.CodecManager;
-import io.vertx.core.json.JsonObject;
 
-import com.groupon.vertx.memcache.client.JsendStatus;
 import com.groupon.vertx.memcache.client.response.ModifyCommandResponse;
 
 /**
@@ -33,26 +30,17 @@ public class ModifyCommandResponseCodec implements MessageCodec<ModifyCommandRes
 
     @Override
     public void encodeToWire(Buffer buffer, ModifyCommandResponse commandResponse) {
-        JsonObject json = new JsonObject();
-        json.put("status", commandResponse.getStatus());
-        json.put("message", commandResponse.getMessage());
-        json.put("data", commandResponse.getData());
-
-        CodecManager.JSON_OBJECT_MESSAGE_CODEC.encodeToWire(buffer, json);
+        WireFormat.writeVersion(buffer);
+        WireFormat.writeResponse(buffer, commandResponse);
+        WireFormat.writeInteger(buffer, commandResponse.getData());
     }
 
     @Override
     public ModifyCommandResponse decodeFromWire(int i, Buffer buffer) {
-        JsonObject json = CodecManager.JSON_OBJECT_MESSAGE_CODEC.decodeFromWire(i, buffer);
-
-        JsendStatus status = JsendStatus.valueOf(json.getString("status"));
-        String message = json.getString("message");
-        Integer data = json.getInteger("data");
+        WireFormat.Reader reader = new WireFormat.Reader(buffer, i);
 
-        return new ModifyCommandResponse.Builder()
-                .setStatus(status)
-                .setMessage(message)
-                .setData(data)
+        return reader.readResponse(new ModifyCommandResponse.Builder())
+                .setData(reader.readInteger())
                 .build();
     }
 
@@ -63,7 +51,7 @@ public class ModifyCommandResponseCodec implements MessageCodec<ModifyCommandRes
 
     @Override
     public String name() {
-        return this.getClass().getSimpleName();
+        return WireFormat.codecName(getClass());
     }
 
     @Override
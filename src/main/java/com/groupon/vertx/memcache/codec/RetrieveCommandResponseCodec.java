@@ -20,10 +20,7 @@ import java.util.Map;
 
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.MessageCodec;
-import io.vertx.core.eventbus.impl.CodecManager;
-import io.vertx.core.json.JsonObject;
 
-import com.groupon.vertx.memcache.client.JsendStatus;
 import com.groupon.vertx.memcache.client.response.RetrieveCommandResponse;
 
 /**
@@ -36,35 +33,53 @@ public class RetrieveCommandResponseCodec implements MessageCodec<RetrieveComman
 
     @Override
     public void encodeToWire(Buffer buffer, RetrieveCommandResponse commandResponse) {
-        JsonObject json = new JsonObject();
-        json.put("status", commandResponse.getStatus());
-        json.put("message", commandResponse.getMessage());
-        json.put("data", commandResponse.getData());
+        WireFormat.writeVersion(buffer);
+        WireFormat.writeResponse(buffer, commandResponse);
+        Map<String, Buffer> data = commandResponse.getBinaryData();
+        buffer.appendInt(data.size());
+        for (Map.Entry<String, Buffer> entry : data.entrySet()) {
+            WireFormat.writeString(buffer, entry.getKey());
+            WireFormat.writeBuffer(buffer, entry.getValue());
+        }
+
+        Map<String, Long> casData = commandResponse.getCasData();
+        buffer.appendInt(casData.size());
+        for (Map.Entry<String, Long> entry : casData.entrySet()) {
+            WireFormat.writeString(buffer, entry.getKey());
+            WireFormat.writeLong(buffer, entry.getValue());
+        }
 
-        CodecManager.JSON_OBJECT_MESSAGE_CODEC.encodeToWire(buffer, json);
+        Map<String, Integer> flagsData = commandResponse.getFlagsData();
+        buffer.appendInt(flagsData.size());
+        for (Map.Entry<String, Integer> entry : flagsData.entrySet()) {
+            WireFormat.writeString(buffer, entry.getKey());
+            buffer.appendInt(entry.getValue());
+        }
     }
 
     @Override
     public RetrieveCommandResponse decodeFromWire(int i, Buffer buffer) {
-        JsonObject json = CodecManager.JSON_OBJECT_MESSAGE_CODEC.decodeFromWire(i, buffer);
+        WireFormat.Reader reader = new WireFormat.Reader(buffer, i);
+        RetrieveCommandResponse.Builder builder = reader.readResponse(new RetrieveCommandResponse.Builder());
 
-        JsendStatus status = JsendStatus.valueOf(json.getString("status"));
-        String message = json.getString("message");
-        JsonObject jsonData = json.getJsonObject("data");
+        int size = reader.readInt();
+        Map<String, Buffer> data = new HashMap<>(size * 2);
+        for (int entry = 0; entry < size; entry++) {
+            data.put(reader.readString(), reader.readBuffer());
+        }
+        builder.setBinaryData(data);
+
+        int casSize = reader.readInt();
+        for (int entry = 0; entry < casSize; entry++) {
+            builder.addCas(reader.readString(), reader.readLong());
+        }
 
-        Map<String, String> data = null;
-        if (jsonData != null) {
-            data = new HashMap<>();
-            for (Map.Entry<String, Object> entry : jsonData.getMap().entrySet()) {
-                data.put(entry.getKey(), entry.getValue() != null ? entry.getValue().toString() : null);
-            }
+        int flagsSize = reader.readInt();
+        for (int entry = 0; entry < flagsSize; entry++) {
+            builder.addFlags(reader.readString(), reader.readInt());
         }
 
-        return new RetrieveCommandResponse.Builder()
-                .setStatus(status)
-                .setMessage(message)
-                .setData(data)
-                .build();
+        return builder.build();
     }
 
     @Override
@@ -74,7 +89,7 @@ public class RetrieveCommandResponseCodec implements MessageCodec<RetrieveComman
 
     @Override
     public String name() {
-        return this.getClass().getSimpleName();
+        return WireFormat.codecName(getClass());
     }
 
     @Override
@@ -0,0 +1,197 @@
+/**
+ * Copyright 2014 Groupon.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.vertx.memcache.codec;
+
+import java.nio.charset.Charset;
+
+import io.vertx.core.buffer.Buffer;
+
+import com.groupon.vertx.memcache.MemcacheException;
+import com.groupon.vertx.memcache.client.JsendStatus;
+import com.groupon.vertx.memcache.client.response.MemcacheCommandResponse;
+
+/**
+ * Helpers for the compact binary format used by the codecs on the wire.  Values are written in order
+ * without field names: Strings and Buffers are prefixed by their length, enums by their ordinal and
+ * nullable numbers by a presence byte.  A length or ordinal of -1 represents null.
+ *
+ * Every message starts with the version of the format, and the version is part of the codec names, so
+ * nodes using different formats on a clustered event bus fail to exchange messages instead of decoding
+ * them incorrectly.
+ *
+ * @author Stuart Siegrist (fsiegrist at groupon dot com)
+ * @since 4.0.3
+ */
+final class WireFormat {
+    private static final Charset ENCODING = Charset.forName("UTF-8");
+    private static final int NULL_LENGTH = -1;
+    private static final byte ABSENT = 0;
+    private static final byte PRESENT = 1;
+    private static final JsendStatus[] STATUSES = JsendStatus.values();
+
+    /**
+     * The version of the format, which must change whenever the layout of any message changes.
+     */
+    static final byte VERSION = 1;
+
+    private WireFormat() {
+    }
+
+    /**
+     * The name of a codec writing this version of the format.
+     *
+     * @param codec - The codec class.
+     * @return - The simple name of the codec with the format version.
+     */
+    static String codecName(Class<?> codec) {
+        return codec.getSimpleName() + "-v" + VERSION;
+    }
+
+    static void writeVersion(Buffer buffer) {
+        buffer.appendByte(VERSION);
+    }
+
+    static void writeResponse(Buffer buffer, MemcacheCommandResponse response) {
+        writeStatus(buffer, response.getStatus());
+        writeString(buffer, response.getMessage());
+    }
+
+    static void writeStatus(Buffer buffer, JsendStatus status) {
+        buffer.appendByte(status != null ? (byte) status.ordinal() : NULL_LENGTH);
+    }
+
+    static void writeString(Buffer buffer, String value) {
+        if (value == null) {
+            buffer.appendInt(NULL_LENGTH);
+        } else {
+            byte[] bytes = value.getBytes(ENCODING);
+            buffer.appendInt(bytes.length).appendBytes(bytes);
+        }
+    }
+
+    static void writeBuffer(Buffer buffer, Buffer value) {
+        if (value == null) {
+            buffer.appendInt(NULL_LENGTH);
+        } else {
+            buffer.appendInt(value.length()).appendBuffer(value);
+        }
+    }
+
+    static void writeBoolean(Buffer buffer, boolean value) {
+        buffer.appendByte(value ? PRESENT : ABSENT);
+    }
+
+    static void writeInteger(Buffer buffer, Integer value) {
+        if (value == null) {
+            buffer.appendByte(ABSENT);
+        } else {
+            buffer.appendByte(PRESENT).appendInt(value);
+        }
+    }
+
+    static void writeLong(Buffer buffer, Long value) {
+        if (value == null) {
+            buffer.appendByte(ABSENT);
+        } else {
+            buffer.appendByte(PRESENT).appendLong(value);
+        }
+    }
+
+    /**
+     * Reads the values back in the order they were written, starting from the position given to
+     * the codec.
+     */
+    static final class Reader {
+        private final Buffer buffer;
+        private int pos;
+
+        /**
+         * Creates the reader after checking the version the message was written with.
+         *
+         * @param buffer - The Buffer containing the message.
+         * @param pos - The position of the message in the Buffer.
+         * @throws MemcacheException - If the message was written with a different version of the format.
+         */
+        Reader(Buffer buffer, int pos) {
+            this.buffer = buffer;
+            this.pos = pos;
+
+            byte version = readByte();
+            if (version != VERSION) {
+                throw new MemcacheException("Unsupported wire format version " + version);
+            }
+        }
+
+        <B extends MemcacheCommandResponse.AbstractBuilder<B, ?>> B readResponse(B builder) {
+            return builder.setStatus(readStatus()).setMessage(readString());
+        }
+
+        JsendStatus readStatus() {
+            byte ordinal = readByte();
+            return ordinal != NULL_LENGTH ? STATUSES[ordinal] : null;
+        }
+
+        byte readByte() {
+            return buffer.getByte(pos++);
+        }
+
+        int readInt() {
+            int value = buffer.getInt(pos);
+            pos += Integer.BYTES;
+            return value;
+        }
+
+        String readString() {
+            int length = readInt();
+            if (length == NULL_LENGTH) {
+                return null;
+            }
+
+            String value = buffer.getString(pos, pos + length, ENCODING.name());
+            pos += length;
+            return value;
+        }
+
+        Buffer readBuffer() {
+            int length = readInt();
+            if (length == NULL_LENGTH) {
+                return null;
+            }
+
+            Buffer value = buffer.getBuffer(pos, pos + length);
+            pos += length;
+            return value;
+        }
+
+        boolean readBoolean() {
+            return readByte() == PRESENT;
+        }
+
+        Integer readInteger() {
+            return readByte() == PRESENT ? readInt() : null;
+        }
+
+        Long readLong() {
+            if (readByte() == ABSENT) {
+                return null;
+            }
+
+            long value = buffer.getLong(pos);
+            pos += Long.BYTES;
+            return value;
+        }
+    }
+}
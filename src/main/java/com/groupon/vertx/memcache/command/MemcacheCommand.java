@@ -15,13 +15,18 @@
  */
 package com.groupon.vertx.memcache.command;
 
+import java.nio.charset.Charset;
+import java.util.Collection;
+
 import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
 
 import com.groupon.vertx.memcache.MemcacheException;
 import com.groupon.vertx.memcache.client.response.MemcacheCommandResponse;
 import com.groupon.vertx.memcache.parser.DeleteLineParser;
 import com.groupon.vertx.memcache.parser.LineParser;
 import com.groupon.vertx.memcache.parser.LineParserType;
+import com.groupon.vertx.memcache.parser.MetaLineParser;
 import com.groupon.vertx.memcache.parser.ModifyLineParser;
 import com.groupon.vertx.memcache.parser.RetrieveLineParser;
 import com.groupon.vertx.memcache.parser.StoreLineParser;
@@ -37,10 +42,17 @@ import com.groupon.vertx.utils.Logger;
  */
 public class MemcacheCommand {
     private static final Logger log = Logger.getLogger(MemcacheCommand.class);
+    private static final Charset ENCODING = Charset.forName("UTF-8");
     private MemcacheCommandType type;
     private String key;
-    private String value;
+    private Buffer value;
     private Integer expires;
+    private Long timeout;
+    private String metaFlags;
+    private boolean noreply;
+    private Long cas;
+    private int flags;
+    private long deadline;
     private LineParser parser;
     private Handler<MemcacheCommandResponse> commandResponseHandler;
 
@@ -53,17 +65,53 @@ public class MemcacheCommand {
      * @param expires - An integer with the seconds before expiration.
      */
     public MemcacheCommand(MemcacheCommandType type, String key, String value, Integer expires) {
-        if (type == null || key == null) {
+        this(new Builder().setType(type).setKey(key).setValue(value).setExpires(expires));
+    }
+
+    /**
+     * A helper method for building a retrieval command for multiple keys.  The keys are sent to
+     * Memcache as a single space delimited line, e.g. 'get key1 key2 key3', and all of the values
+     * are collected into a single response.
+     *
+     * @param type - An enum for the command type.  Must be a retrieval command.
+     * @param keys - A Collection containing the keys to retrieve.
+     */
+    public MemcacheCommand(MemcacheCommandType type, Collection<String> keys) {
+        this(new Builder().setType(type).setKeys(keys));
+    }
+
+    private MemcacheCommand(Builder builder) {
+        String key = builder.keys != null ? joinKeys(builder.type, builder.keys) : builder.key;
+        if (builder.type == null || (key == null && builder.type != MemcacheCommandType.mn)) {
             log.warn("initMemcacheCommand", "failure", new String[]{"reason"}, "Invalid command format");
             throw new IllegalArgumentException("Invalid command format");
         }
 
-        setLineParser(type.getLineParserType());
+        if (builder.type == MemcacheCommandType.cas && builder.cas == null) {
+            log.warn("initMemcacheCommand", "failure", new String[]{"reason"}, "Missing cas value");
+            throw new IllegalArgumentException("Invalid command format");
+        }
 
-        this.type = type;
+        if ((builder.type == MemcacheCommandType.gat || builder.type == MemcacheCommandType.gats) && builder.expires == null) {
+            log.warn("initMemcacheCommand", "failure", new String[]{"reason"}, "Missing expiration");
+            throw new IllegalArgumentException("Invalid command format");
+        }
+
+        LineParserType lineParserType = builder.type.getLineParserType();
+        if (builder.noreply && (lineParserType == LineParserType.RETRIEVE || lineParserType == LineParserType.META)) {
+            log.warn("initMemcacheCommand", "failure", new String[]{"reason"}, "Invalid noreply command");
+            throw new IllegalArgumentException("Invalid command format");
+        }
+
+        this.type = builder.type;
         this.key = key;
-        this.value = value;
-        this.expires = expires;
+        this.value = builder.value;
+        this.expires = builder.expires;
+        this.timeout = builder.timeout;
+        this.metaFlags = builder.metaFlags;
+        this.noreply = builder.noreply;
+        this.cas = builder.cas;
+        this.flags = builder.flags;
     }
 
     /**
@@ -96,9 +144,18 @@ public class MemcacheCommand {
     /**
      * The value to be stored or updated in the store.
      *
-     * @return - A String containing the value.
+     * @return - A String containing the UTF-8 decoded value.
      */
     public String getValue() {
+        return value != null ? value.toString(ENCODING) : null;
+    }
+
+    /**
+     * The raw bytes of the value to be stored or updated in the store.
+     *
+     * @return - A Buffer containing the value.
+     */
+    public Buffer getValueBuffer() {
         return value;
     }
 
@@ -111,6 +168,74 @@ public class MemcacheCommand {
         return expires;
     }
 
+    /**
+     * The number of milliseconds to wait for the response before the command fails.  When null the
+     * timeout configured for the socket is used.
+     *
+     * @return - A Long with the timeout in milliseconds, or null for the socket default.
+     */
+    public Long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * The additional flags sent with a meta command, e.g. 'MD' to decrement with an 'ma'.
+     *
+     * @return - A String with the space delimited meta flags, or null if there are none.
+     */
+    public String getMetaFlags() {
+        return metaFlags;
+    }
+
+    /**
+     * The cas unique value returned by a gets for the key.  A cas command only stores the value if the
+     * key has not been modified since, and an 'ms' only if the cas value still matches.
+     *
+     * @return - A Long with the cas unique value, or null if the value is stored unconditionally.
+     */
+    public Long getCas() {
+        return cas;
+    }
+
+    /**
+     * The item flags stored with the value.  Memcache does not interpret the flags and returns them with
+     * the value, so they can mark how the value was encoded, e.g. compressed or serialized.
+     *
+     * @return - An int with the 32 bit item flags, zero by default.
+     */
+    public int getFlags() {
+        return flags;
+    }
+
+    /**
+     * Whether the command is sent without waiting for a response from Memcache.  A noreply command is
+     * completed with a success as soon as it is written, and failures are not reported.
+     *
+     * @return - true if the server does not reply to the command.
+     */
+    public boolean isNoreply() {
+        return noreply;
+    }
+
+    /**
+     * The time in milliseconds after which the socket considers the command overdue.  This is set by
+     * the socket when the command is written, and is zero if the command never times out.
+     *
+     * @return - A long with the deadline as a millisecond timestamp, or zero for no deadline.
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Sets the time after which the command is overdue.
+     *
+     * @param deadline - The deadline as a millisecond timestamp, or zero for no deadline.
+     */
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
     /**
      * Calling this method will execute the handler associate with this command.  If no
      * handler is specified the response will be ignored.
@@ -135,38 +260,168 @@ public class MemcacheCommand {
     }
 
     /**
-     * This is the parser for processing the current response for this command.
+     * This is the parser for processing the current response for this command.  The parser is only
+     * created once the response is read, so commands which are sent over the event bus, rejected,
+     * sent with noreply or answered through the binary protocol never allocate one.
      *
-     * @return - The currently initialized line parser.
+     * @return - The line parser for the response.
      */
     public LineParser getLineParser() {
+        if (parser == null) {
+            parser = createLineParser(type, key);
+        }
         return parser;
     }
 
+    private static String joinKeys(MemcacheCommandType type, Collection<String> keys) {
+        if (type == null || (type.getLineParserType() != LineParserType.RETRIEVE && type != MemcacheCommandType.mg)
+                || keys == null || keys.isEmpty()) {
+            log.warn("initMemcacheCommand", "failure", new String[]{"reason"}, "Invalid multi key command format");
+            throw new IllegalArgumentException("Invalid command format");
+        }
+
+        return String.join(" ", keys);
+    }
+
     /**
-     * This initializes the line parser for processing the response for this command.
+     * This creates the line parser for processing the response for this command.
      *
-     * @param lineParserType - The type of line parser to create.
+     * @param type - The type of command the line parser is created for.
+     * @param key - The key sent with the command.
+     * @return - A new line parser for the command type.
      */
-    private void setLineParser(LineParserType lineParserType) {
-        switch (lineParserType) {
+    private static LineParser createLineParser(MemcacheCommandType type, String key) {
+        switch (type.getLineParserType()) {
             case RETRIEVE:
-                parser = new RetrieveLineParser();
-                break;
+                return new RetrieveLineParser();
             case STORE:
-                parser = new StoreLineParser();
-                break;
+                return new StoreLineParser();
             case MODIFY:
-                parser = new ModifyLineParser();
-                break;
+                return new ModifyLineParser();
             case DELETE:
-                parser = new DeleteLineParser();
-                break;
+                return new DeleteLineParser();
             case TOUCH:
-                parser = new TouchLineParser();
-                break;
+                return new TouchLineParser();
+            case META:
+                return new MetaLineParser(type, key);
             default:
                 throw new MemcacheException("Unable to initialize line parser.");
         }
     }
+
+    /**
+     * Builder for the MemcacheCommand
+     */
+    public static class Builder {
+        private MemcacheCommandType type;
+        private String key;
+        private Buffer value;
+        private Integer expires;
+        private Long timeout;
+        private String metaFlags;
+        private boolean noreply;
+        private Long cas;
+        private int flags;
+        private Collection<String> keys;
+
+        public Builder setType(MemcacheCommandType value) {
+            type = value;
+            return this;
+        }
+
+        public Builder setKey(String value) {
+            key = value;
+            return this;
+        }
+
+        /**
+         * Sets multiple keys for a retrieval command.  The keys are sent as a single space delimited
+         * line and replace any key set through {@link #setKey(String)}.
+         *
+         * @param value - A Collection containing the keys to retrieve.
+         * @return - This builder.
+         */
+        public Builder setKeys(Collection<String> value) {
+            keys = value;
+            return this;
+        }
+
+        /**
+         * Sets the value from a String which is sent to Memcache UTF-8 encoded.
+         *
+         * @param value - The String value to be sent using the command.
+         * @return - This builder.
+         */
+        public Builder setValue(String value) {
+            this.value = value != null ? Buffer.buffer(value, ENCODING.name()) : null;
+            return this;
+        }
+
+        /**
+         * Sets the value from raw bytes which are sent to Memcache unmodified.
+         *
+         * @param value - The Buffer value to be sent using the command.
+         * @return - This builder.
+         */
+        public Builder setValue(Buffer value) {
+            this.value = value;
+            return this;
+        }
+
+        public Builder setExpires(Integer value) {
+            expires = value;
+            return this;
+        }
+
+        public Builder setTimeout(Long value) {
+            timeout = value;
+            return this;
+        }
+
+        /**
+         * Sets additional flags for a meta command, e.g. 'MD' to decrement with an 'ma' or 'N30' to
+         * create a missing item with a 30 second expiration.  The flags for returning the value and key,
+         * and the quiet mode, are added by the socket.
+         *
+         * @param value - A String with the space delimited meta flags.
+         * @return - This builder.
+         */
+        public Builder setMetaFlags(String value) {
+            metaFlags = value;
+            return this;
+        }
+
+        /**
+         * Sends the command without waiting for a response.  Only storage, delete, touch and incr/decr
+         * commands can be sent with noreply.
+         *
+         * @param value - true to send the command with noreply.
+         * @return - This builder.
+         */
+        public Builder setNoreply(boolean value) {
+            noreply = value;
+            return this;
+        }
+
+        public Builder setCas(Long value) {
+            cas = value;
+            return this;
+        }
+
+        /**
+         * Sets the item flags stored with the value of a storage command.  The flags are treated as an
+         * unsigned 32 bit value.
+         *
+         * @param value - The item flags.
+         * @return - This builder.
+         */
+        public Builder setFlags(int value) {
+            flags = value;
+            return this;
+        }
+
+        public MemcacheCommand build() {
+            return new MemcacheCommand(this);
+        }
+    }
 }
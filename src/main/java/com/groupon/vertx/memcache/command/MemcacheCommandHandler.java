@@ -15,6 +15,7 @@
  */
 package com.groupon.vertx.memcache.command;
 
+import io.vertx.core.Context;
 import io.vertx.core.Handler;
 import io.vertx.core.eventbus.Message;
 import io.vertx.core.net.NetSocket;
@@ -69,7 +70,27 @@ public class MemcacheCommandHandler implements Handler<Message<MemcacheCommand>>
      * @param socket - The NetSocket which is currently connected to the Memcache server.
      */
     public MemcacheCommandHandler(NetSocket socket) {
-        this.socket = new MemcacheSocket(socket);
+        this(socket, null);
+    }
+
+    /**
+     * Creates the handler with a pipelined socket.  Commands are buffered and flushed to the Memcache
+     * server once per event loop tick on the provided context.
+     *
+     * @param socket - The NetSocket which is currently connected to the Memcache server.
+     * @param flushContext - The Context used to flush the pipelined commands, or null to flush every command.
+     */
+    public MemcacheCommandHandler(NetSocket socket, Context flushContext) {
+        this(new MemcacheSocket(socket, flushContext));
+    }
+
+    /**
+     * Creates the handler for an existing MemcacheSocket.
+     *
+     * @param socket - The MemcacheSocket which is currently connected to the Memcache server.
+     */
+    public MemcacheCommandHandler(MemcacheSocket socket) {
+        this.socket = socket;
     }
 
     /**
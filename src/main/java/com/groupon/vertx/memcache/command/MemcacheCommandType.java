@@ -33,7 +33,16 @@ public enum MemcacheCommandType {
     delete(LineParserType.DELETE),
     touch(LineParserType.TOUCH),
     incr(LineParserType.MODIFY),
-    decr(LineParserType.MODIFY);
+    decr(LineParserType.MODIFY),
+    mg(LineParserType.META),
+    ms(LineParserType.META),
+    md(LineParserType.META),
+    ma(LineParserType.META),
+    mn(LineParserType.META),
+    gets(LineParserType.RETRIEVE),
+    cas(LineParserType.STORE),
+    gat(LineParserType.RETRIEVE),
+    gats(LineParserType.RETRIEVE);
 
 
     private final String command;
@@ -16,6 +16,7 @@
 package com.groupon.vertx.memcache.hash;
 
 import java.nio.charset.Charset;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.zip.CRC32;
@@ -25,6 +26,12 @@ import java.util.zip.CRC32;
  *
  * http://code.google.com/p/spymemcached/
  *
+ * The CRC and Ketama hashes keep their CRC32, MD5 digest and scratch buffers per thread, so keys can be
+ * hashed from several event loops at once without locking or allocating for ASCII keys.
+ *
+ * MurmurHash3 (x86 32 bit) and xxHash (32 and 64 bit) are fast, well mixing hashes of the UTF-8 bytes of
+ * the key with a zero seed.  Like the other hashes the result is truncated to 32 bits.
+ *
  * @author Stuart Siegrist (fsiegrist at groupon dot com)
  * @since 1.0.0
  */
@@ -35,7 +42,10 @@ public enum HashAlgorithm {
     FNV1A_64_HASH,
     FNV1_32_HASH,
     FNV1A_32_HASH,
-    KETAMA_HASH;
+    KETAMA_HASH,
+    MURMUR3_32_HASH,
+    XXHASH32_HASH,
+    XXHASH64_HASH;
 
     private static final Charset ENCODING = Charset.forName("UTF-8");
 
@@ -45,18 +55,24 @@ public enum HashAlgorithm {
     private static final long FNV_32_INIT = 2166136261L;
     private static final long FNV_32_PRIME = 16777619;
 
-    private static MessageDigest md5Digest = null;
-    private static CRC32 crc32 = null;
+    // CS.OFF: MagicNumber
+    private static final int MURMUR3_C1 = 0xcc9e2d51;
+    private static final int MURMUR3_C2 = 0x1b873593;
 
-    static {
-        try {
-            md5Digest = MessageDigest.getInstance("MD5");
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("MD5 not supported", e);
-        }
+    private static final int XXH32_PRIME_1 = 0x9E3779B1;
+    private static final int XXH32_PRIME_2 = 0x85EBCA77;
+    private static final int XXH32_PRIME_3 = 0xC2B2AE3D;
+    private static final int XXH32_PRIME_4 = 0x27D4EB2F;
+    private static final int XXH32_PRIME_5 = 0x165667B1;
 
-        crc32 = new CRC32();
-    }
+    private static final long XXH64_PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long XXH64_PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long XXH64_PRIME_3 = 0x165667B19E3779F9L;
+    private static final long XXH64_PRIME_4 = 0x85EBCA77C2B2AE63L;
+    private static final long XXH64_PRIME_5 = 0x27D4EB2F165667C5L;
+    // CS.ON: MagicNumber
+
+    private static final ThreadLocal<DigestState> DIGEST_STATE = ThreadLocal.withInitial(DigestState::new);
 
     /**
      * Compute the hash for the given key.
@@ -102,7 +118,14 @@ public enum HashAlgorithm {
                 }
                 break;
             default:
-                rv = hash(k.getBytes(ENCODING));
+                DigestState state = DIGEST_STATE.get();
+                int encoded = state.encodeAscii(k);
+                if (encoded < 0) {
+                    byte[] bytes = k.getBytes(ENCODING);
+                    rv = hashBytes(state, bytes, 0, bytes.length);
+                } else {
+                    rv = hashBytes(state, state.scratch, 0, encoded);
+                }
                 break;
         }
         return rv & 0xffffffffL; /* Truncate to 32-bits */
@@ -110,29 +133,226 @@ public enum HashAlgorithm {
     }
 
     /**
-     * Compute the hash for the given key.
-     *
-     * @param k - byte array key
-     * @return a positive integer hash
+     * Compute the hashes defined on the bytes of the key, using the state of the current thread.
      */
-    private long hash(final byte[] k) {
+    private long hashBytes(DigestState state, final byte[] k, int offset, int length) {
         long rv = 0;
         // CS.OFF: MagicNumber
         switch (this) {
             case CRC_HASH:
-                crc32.reset();
-                crc32.update(k);
-                rv = (crc32.getValue() >> 16) & 0x7fff;
+                state.crc32.reset();
+                state.crc32.update(k, offset, length);
+                rv = (state.crc32.getValue() >> 16) & 0x7fff;
                 break;
             case KETAMA_HASH:
-                byte[] bKey = md5Digest.digest(k);
+                byte[] bKey = state.md5(k, offset, length);
                 rv = ((long) (bKey[3] & 0xFF) << 24) | ((long) (bKey[2] & 0xFF) << 16) |
                         ((long) (bKey[1] & 0xFF) << 8) | (bKey[0] & 0xFF);
                 break;
+            case MURMUR3_32_HASH:
+                rv = murmur3(k, offset, length) & 0xffffffffL;
+                break;
+            case XXHASH32_HASH:
+                rv = xxHash32(k, offset, length) & 0xffffffffL;
+                break;
+            case XXHASH64_HASH:
+                rv = xxHash64(k, offset, length) & 0xffffffffL;
+                break;
             default:
                 assert false;
         }
         // CS.ON: MagicNumber
         return rv;
     }
+
+    // CS.OFF: MagicNumber
+    private static int murmur3(byte[] k, int offset, int length) {
+        int h = 0;
+        int end = offset + (length & ~3);
+        for (int i = offset; i < end; i += 4) {
+            h ^= murmur3Mix(getInt(k, i));
+            h = Integer.rotateLeft(h, 13) * 5 + 0xe6546b64;
+        }
+
+        int remaining = length & 3;
+        if (remaining > 0) {
+            int tail = k[end] & 0xff;
+            if (remaining > 1) {
+                tail |= (k[end + 1] & 0xff) << 8;
+            }
+            if (remaining > 2) {
+                tail |= (k[end + 2] & 0xff) << 16;
+            }
+            h ^= murmur3Mix(tail);
+        }
+
+        h ^= length;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static int murmur3Mix(int k) {
+        return Integer.rotateLeft(k * MURMUR3_C1, 15) * MURMUR3_C2;
+    }
+
+    private static int xxHash32(byte[] k, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+        int h;
+        if (length >= 16) {
+            int v1 = XXH32_PRIME_1 + XXH32_PRIME_2;
+            int v2 = XXH32_PRIME_2;
+            int v3 = 0;
+            int v4 = -XXH32_PRIME_1;
+            for (int limit = end - 16; i <= limit; i += 16) {
+                v1 = xxHash32Round(v1, getInt(k, i));
+                v2 = xxHash32Round(v2, getInt(k, i + 4));
+                v3 = xxHash32Round(v3, getInt(k, i + 8));
+                v4 = xxHash32Round(v4, getInt(k, i + 12));
+            }
+            h = Integer.rotateLeft(v1, 1) + Integer.rotateLeft(v2, 7) + Integer.rotateLeft(v3, 12) + Integer.rotateLeft(v4, 18);
+        } else {
+            h = XXH32_PRIME_5;
+        }
+
+        h += length;
+        for (; i + 4 <= end; i += 4) {
+            h += getInt(k, i) * XXH32_PRIME_3;
+            h = Integer.rotateLeft(h, 17) * XXH32_PRIME_4;
+        }
+        for (; i < end; i++) {
+            h += (k[i] & 0xff) * XXH32_PRIME_5;
+            h = Integer.rotateLeft(h, 11) * XXH32_PRIME_1;
+        }
+
+        h ^= h >>> 15;
+        h *= XXH32_PRIME_2;
+        h ^= h >>> 13;
+        h *= XXH32_PRIME_3;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static int xxHash32Round(int acc, int input) {
+        return Integer.rotateLeft(acc + input * XXH32_PRIME_2, 13) * XXH32_PRIME_1;
+    }
+
+    private static long xxHash64(byte[] k, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+        long h;
+        if (length >= 32) {
+            long v1 = XXH64_PRIME_1 + XXH64_PRIME_2;
+            long v2 = XXH64_PRIME_2;
+            long v3 = 0;
+            long v4 = -XXH64_PRIME_1;
+            for (int limit = end - 32; i <= limit; i += 32) {
+                v1 = xxHash64Round(v1, getLong(k, i));
+                v2 = xxHash64Round(v2, getLong(k, i + 8));
+                v3 = xxHash64Round(v3, getLong(k, i + 16));
+                v4 = xxHash64Round(v4, getLong(k, i + 24));
+            }
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = xxHash64Merge(h, v1);
+            h = xxHash64Merge(h, v2);
+            h = xxHash64Merge(h, v3);
+            h = xxHash64Merge(h, v4);
+        } else {
+            h = XXH64_PRIME_5;
+        }
+
+        h += length;
+        for (; i + 8 <= end; i += 8) {
+            h ^= xxHash64Round(0, getLong(k, i));
+            h = Long.rotateLeft(h, 27) * XXH64_PRIME_1 + XXH64_PRIME_4;
+        }
+        if (i + 4 <= end) {
+            h ^= (getInt(k, i) & 0xffffffffL) * XXH64_PRIME_1;
+            h = Long.rotateLeft(h, 23) * XXH64_PRIME_2 + XXH64_PRIME_3;
+            i += 4;
+        }
+        for (; i < end; i++) {
+            h ^= (k[i] & 0xff) * XXH64_PRIME_5;
+            h = Long.rotateLeft(h, 11) * XXH64_PRIME_1;
+        }
+
+        h ^= h >>> 33;
+        h *= XXH64_PRIME_2;
+        h ^= h >>> 29;
+        h *= XXH64_PRIME_3;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    private static long xxHash64Round(long acc, long input) {
+        return Long.rotateLeft(acc + input * XXH64_PRIME_2, 31) * XXH64_PRIME_1;
+    }
+
+    private static long xxHash64Merge(long acc, long value) {
+        return (acc ^ xxHash64Round(0, value)) * XXH64_PRIME_1 + XXH64_PRIME_4;
+    }
+
+    private static int getInt(byte[] k, int i) {
+        return (k[i] & 0xff) | (k[i + 1] & 0xff) << 8 | (k[i + 2] & 0xff) << 16 | (k[i + 3] & 0xff) << 24;
+    }
+
+    private static long getLong(byte[] k, int i) {
+        return (getInt(k, i) & 0xffffffffL) | (long) getInt(k, i + 4) << 32;
+    }
+    // CS.ON: MagicNumber
+
+    /**
+     * The digests and buffers used by one thread.
+     */
+    private static final class DigestState {
+        private static final int MD5_LENGTH = 16;
+        private static final int SCRATCH_LENGTH = 256;
+
+        private final MessageDigest md5Digest;
+        private final CRC32 crc32 = new CRC32();
+        private final byte[] md5Result = new byte[MD5_LENGTH];
+        private byte[] scratch = new byte[SCRATCH_LENGTH];
+
+        private DigestState() {
+            try {
+                md5Digest = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException("MD5 not supported", e);
+            }
+        }
+
+        /**
+         * Copies an ASCII key to the scratch buffer, growing it if needed.
+         *
+         * @return - The number of bytes copied, or -1 if the key is not ASCII.
+         */
+        private int encodeAscii(String k) {
+            int len = k.length();
+            if (scratch.length < len) {
+                scratch = new byte[len];
+            }
+            for (int i = 0; i < len; i++) {
+                char c = k.charAt(i);
+                if (c >= 0x80) {
+                    return -1;
+                }
+                scratch[i] = (byte) c;
+            }
+            return len;
+        }
+
+        private byte[] md5(byte[] k, int offset, int length) {
+            md5Digest.update(k, offset, length);
+            try {
+                md5Digest.digest(md5Result, 0, MD5_LENGTH);
+            } catch (DigestException e) {
+                throw new RuntimeException("MD5 digest failed", e);
+            }
+            return md5Result;
+        }
+    }
 }
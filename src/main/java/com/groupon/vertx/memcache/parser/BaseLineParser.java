@@ -15,9 +15,9 @@
  */
 package com.groupon.vertx.memcache.parser;
 
-import java.io.ByteArrayOutputStream;
-import java.io.UnsupportedEncodingException;
+import io.vertx.core.buffer.Buffer;
 
+import com.groupon.vertx.memcache.MemcacheException;
 import com.groupon.vertx.memcache.client.JsendStatus;
 import com.groupon.vertx.memcache.client.response.MemcacheCommandResponse;
 import com.groupon.vertx.memcache.stream.MemcacheResponseType;
@@ -35,27 +35,36 @@ public abstract class BaseLineParser<T extends MemcacheCommandResponse, B extend
             MemcacheResponseType.ERROR, MemcacheResponseType.CLIENT_ERROR, MemcacheResponseType.SERVER_ERROR
     };
 
+    protected static final int NO_DATA = -1;
+    protected static final long MAX_FLAGS = 0xffffffffL;
+
     protected abstract B getResponseBuilder();
 
-    public boolean isResponseEnd(ByteArrayOutputStream line) {
-        try {
-            MemcacheResponseType type = getResponseType(RESPONSE_TYPES, line);
-            if (type != null) {
-                log.trace("isResponseEnd", "error", new String[]{"type"}, type);
-                B builder = getResponseBuilder();
-                builder.setStatus(JsendStatus.error);
-                builder.setMessage(line.toString(ENCODING));
-                return true;
-            } else {
-                return false;
-            }
-        } catch (UnsupportedEncodingException e) {
-            log.error("getResponse", "unexpected", "unsupported encoding", e);
+    @Override
+    public int getExpectedDataLength() {
+        return NO_DATA;
+    }
+
+    @Override
+    public void addData(Buffer data) {
+        log.error("addData", "exception", "unexpectedData", new String[] {"length"}, data.length());
+        throw new MemcacheException("Unexpected data in response");
+    }
+
+    public boolean isResponseEnd(Buffer line) {
+        MemcacheResponseType type = getResponseType(RESPONSE_TYPES, line);
+        if (type != null) {
+            log.trace("isResponseEnd", "error", new String[]{"type"}, type);
+            B builder = getResponseBuilder();
+            builder.setStatus(JsendStatus.error);
+            builder.setMessage(line.toString(ENCODING));
+            return true;
+        } else {
             return false;
         }
     }
 
-    protected MemcacheResponseType getResponseType(MemcacheResponseType[] list, ByteArrayOutputStream line) {
+    protected MemcacheResponseType getResponseType(MemcacheResponseType[] list, Buffer line) {
         MemcacheResponseType type = null;
         for (MemcacheResponseType responseType : list) {
             if (responseType.matches(line)) {
@@ -81,12 +90,78 @@ public abstract class BaseLineParser<T extends MemcacheCommandResponse, B extend
         return response;
     }
 
-    protected String getMessageNullIfError(ByteArrayOutputStream line) {
-        try {
-            return line.toString(ENCODING);
-        } catch (UnsupportedEncodingException e) {
-            log.warn("lint_to_string", e.getMessage());
+    protected String getMessageNullIfError(Buffer line) {
+        return line != null ? line.toString(ENCODING) : null;
+    }
+
+    /**
+     * Finds the next occurrence of the byte in the line.
+     *
+     * @param line - The response line.
+     * @param from - The index to start searching from.
+     * @param value - The byte to search for.
+     * @return - The index of the byte, or -1 if it is not found.
+     */
+    protected static int indexOf(Buffer line, int from, byte value) {
+        for (int i = from; i < line.length(); i++) {
+            if (line.getByte(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parses the unsigned decimal number between start and end in the line directly from the bytes.
+     *
+     * @param line - The response line.
+     * @param start - The index of the first digit.
+     * @param end - The index after the last digit.
+     * @return - The number, or NO_DATA if the bytes are not a valid number.
+     */
+    protected static int parseNumber(Buffer line, int start, int end) {
+        if (start >= end) {
+            return NO_DATA;
+        }
+
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            byte digit = line.getByte(i);
+            if (digit < '0' || digit > '9') {
+                return NO_DATA;
+            }
+
+            value = value * 10 + (digit - '0');
+            if (value > Integer.MAX_VALUE) {
+                return NO_DATA;
+            }
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses the unsigned decimal number between start and end in the line directly from the bytes, e.g.
+     * the 64 bit cas unique value.
+     *
+     * @param line - The response line.
+     * @param start - The index of the first digit.
+     * @param end - The index after the last digit.
+     * @return - The number, or NO_DATA if the bytes are not a valid number.
+     */
+    protected static long parseLongNumber(Buffer line, int start, int end) {
+        if (start >= end) {
+            return NO_DATA;
+        }
+
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            byte digit = line.getByte(i);
+            if (digit < '0' || digit > '9' || value > (Long.MAX_VALUE - (digit - '0')) / 10) {
+                return NO_DATA;
+            }
+
+            value = value * 10 + (digit - '0');
         }
-        return null;
+        return value;
     }
 }
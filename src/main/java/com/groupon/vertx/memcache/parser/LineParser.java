@@ -15,7 +15,7 @@
  */
 package com.groupon.vertx.memcache.parser;
 
-import java.io.ByteArrayOutputStream;
+import io.vertx.core.buffer.Buffer;
 
 import com.groupon.vertx.memcache.client.response.MemcacheCommandResponse;
 
@@ -28,7 +28,39 @@ import com.groupon.vertx.memcache.client.response.MemcacheCommandResponse;
 public interface LineParser {
     String ENCODING = "UTF-8";
 
-    boolean isResponseEnd(ByteArrayOutputStream line);
+    /**
+     * The number of bytes in the data block which follows the last parsed line.  The data block is
+     * read by length instead of by line, so values containing CRLF are not split.
+     *
+     * @return - The length of the expected data block, or -1 if the next response part is a line.
+     */
+    int getExpectedDataLength();
+
+    /**
+     * Parses a line of the response.
+     *
+     * @param line - A Buffer containing the response line without the trailing CRLF.  The Buffer is only
+     *             valid for the duration of the call.
+     * @return - true if the line completes the response.
+     */
+    boolean isResponseEnd(Buffer line);
+
+    /**
+     * Passes the data block, without the trailing CRLF, to the parser.
+     *
+     * @param data - A Buffer containing exactly the number of bytes returned by getExpectedDataLength.
+     */
+    void addData(Buffer data);
+
+    /**
+     * Whether the last data block completed the response.  Responses which end with a line, e.g. the
+     * 'END' after the values of a get, return false.
+     *
+     * @return - true if no more lines are expected after the data block.
+     */
+    default boolean isDataResponseEnd() {
+        return false;
+    }
 
     MemcacheCommandResponse getResponse();
 }
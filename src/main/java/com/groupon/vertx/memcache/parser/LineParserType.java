@@ -26,5 +26,6 @@ public enum LineParserType {
     RETRIEVE,
     MODIFY,
     DELETE,
-    TOUCH
+    TOUCH,
+    META
 }
@@ -0,0 +1,295 @@
+/**
+ * Copyright 2014 Groupon.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.vertx.memcache.parser;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import io.vertx.core.buffer.Buffer;
+
+import com.groupon.vertx.memcache.MemcacheException;
+import com.groupon.vertx.memcache.client.JsendStatus;
+import com.groupon.vertx.memcache.client.response.DeleteCommandResponse;
+import com.groupon.vertx.memcache.client.response.MemcacheCommandResponse;
+import com.groupon.vertx.memcache.client.response.ModifyCommandResponse;
+import com.groupon.vertx.memcache.client.response.RetrieveCommandResponse;
+import com.groupon.vertx.memcache.client.response.StoreCommandResponse;
+import com.groupon.vertx.memcache.command.MemcacheCommandType;
+import com.groupon.vertx.memcache.stream.MemcacheResponseType;
+import com.groupon.vertx.utils.Logger;
+
+/**
+ * This supports the parsing logic for the memcache meta commands MG/MS/MD/MA/MN.  The responses are
+ * returned as the same response objects as the equivalent text commands, e.g. an 'ms' returns a
+ * StoreCommandResponse with 'STORED' for 'HD' and 'NOT_STORED' for 'NS'.
+ * <br>
+ * A meta get for multiple keys is sent as a quiet get for each key followed by an 'mn', so only the
+ * hits are returned and the 'MN' ends the response.
+ *
+ * @author Stuart Siegrist (fsiegrist at groupon dot com)
+ * @since 4.0.3
+ */
+public class MetaLineParser extends BaseLineParser<MemcacheCommandResponse, MemcacheCommandResponse.Builder> {
+    private static final Logger log = Logger.getLogger(MetaLineParser.class);
+    private static final MemcacheResponseType[] RESPONSE_TYPES = new MemcacheResponseType[] {
+        MemcacheResponseType.META_VALUE, MemcacheResponseType.META_HIT, MemcacheResponseType.META_MISS,
+        MemcacheResponseType.META_NOT_STORED, MemcacheResponseType.META_EXISTS, MemcacheResponseType.META_NOT_FOUND,
+        MemcacheResponseType.META_NOOP
+    };
+    private static final Map<MemcacheResponseType, MemcacheResponseType> STORE_RESULTS = new EnumMap<>(MemcacheResponseType.class);
+    private static final Map<MemcacheResponseType, MemcacheResponseType> DELETE_RESULTS = new EnumMap<>(MemcacheResponseType.class);
+    private static final int VALUE_LENGTH_INDEX = MemcacheResponseType.META_VALUE.type.length();
+    private static final byte DELIMITER = ' ';
+    private static final byte KEY_FLAG = 'k';
+    private static final byte CAS_FLAG = 'c';
+    private static final byte FLAGS_FLAG = 'f';
+    private static final String KEY_DELIMITER = " ";
+
+    static {
+        STORE_RESULTS.put(MemcacheResponseType.META_HIT, MemcacheResponseType.STORED);
+        STORE_RESULTS.put(MemcacheResponseType.META_NOT_STORED, MemcacheResponseType.NOT_STORED);
+        STORE_RESULTS.put(MemcacheResponseType.META_EXISTS, MemcacheResponseType.EXISTS);
+        STORE_RESULTS.put(MemcacheResponseType.META_NOT_FOUND, MemcacheResponseType.NOT_FOUND);
+
+        DELETE_RESULTS.put(MemcacheResponseType.META_HIT, MemcacheResponseType.DELETED);
+        DELETE_RESULTS.put(MemcacheResponseType.META_EXISTS, MemcacheResponseType.EXISTS);
+        DELETE_RESULTS.put(MemcacheResponseType.META_NOT_FOUND, MemcacheResponseType.NOT_FOUND);
+    }
+
+    private final MemcacheCommandType type;
+    private final String key;
+    private final boolean batched;
+    private final MemcacheCommandResponse.Builder builder;
+    private final RetrieveCommandResponse.Builder retrieveBuilder;
+    private String result;
+    private Integer number;
+    private String expectedKey;
+    private int expectedLength = NO_DATA;
+    private long expectedCas = NO_DATA;
+    private int expectedFlags;
+    private boolean failed;
+
+    /**
+     * Creates the parser for a meta command.
+     *
+     * @param type - The meta command type.
+     * @param key - The key sent with the command, space delimited for a meta get of multiple keys.
+     */
+    public MetaLineParser(MemcacheCommandType type, String key) {
+        this.type = type;
+        this.key = key;
+        this.batched = isBatched(type, key);
+        this.builder = new MemcacheCommandResponse.Builder();
+        this.retrieveBuilder = new RetrieveCommandResponse.Builder();
+    }
+
+    /**
+     * Whether the command is sent as quiet meta gets terminated by an 'mn'.
+     *
+     * @param type - The command type.
+     * @param key - The key sent with the command.
+     * @return - true if the command is a meta get for multiple keys.
+     */
+    public static boolean isBatched(MemcacheCommandType type, String key) {
+        return type == MemcacheCommandType.mg && key != null && key.contains(KEY_DELIMITER);
+    }
+
+    @Override
+    protected MemcacheCommandResponse.Builder getResponseBuilder() {
+        return builder;
+    }
+
+    @Override
+    public int getExpectedDataLength() {
+        return expectedLength;
+    }
+
+    @Override
+    public boolean isResponseEnd(Buffer line) {
+        if (super.isResponseEnd(line)) {
+            failed = true;
+            // The quiet gets of a batch keep going after an error, so the batch only ends with the 'MN'.
+            return !batched;
+        }
+
+        MemcacheResponseType responseType = getResponseType(RESPONSE_TYPES, line);
+        if (responseType == MemcacheResponseType.META_VALUE) {
+            parseValueHeader(line);
+            return false;
+        } else if (responseType == MemcacheResponseType.META_NOOP) {
+            if (!failed) {
+                builder.setStatus(JsendStatus.success);
+            }
+            return true;
+        } else if (responseType == null || batched) {
+            log.error("isResponseEnd", "exception", "invalidFormat", new String[] {"line"}, getMessageNullIfError(line));
+            throw new MemcacheException("Unexpected format in response");
+        }
+
+        MemcacheResponseType resultType = getResultType(responseType);
+        if (resultType != null) {
+            builder.setStatus(JsendStatus.success);
+            result = resultType.name();
+        } else {
+            builder.setStatus(JsendStatus.error);
+            builder.setMessage(line.toString(ENCODING));
+        }
+        return true;
+    }
+
+    @Override
+    public void addData(Buffer data) {
+        if (expectedKey == null || data.length() != expectedLength) {
+            log.error("addData", "exception", "invalidLength", new String[] {"length"}, data.length());
+            throw new MemcacheException("Length of value does not match expected response");
+        }
+
+        if (type == MemcacheCommandType.ma) {
+            int value = parseNumber(data, 0, data.length());
+            if (value == NO_DATA) {
+                log.error("addData", "exception", "unexpectedFormat", new String[] {"value"}, getMessageNullIfError(data));
+                throw new MemcacheException("Unexpected format in response");
+            }
+            number = value;
+        } else {
+            retrieveBuilder.addBinaryData(expectedKey, data);
+            if (expectedCas != NO_DATA) {
+                retrieveBuilder.addCas(expectedKey, expectedCas);
+            }
+            retrieveBuilder.addFlags(expectedKey, expectedFlags);
+        }
+
+        if (!batched) {
+            builder.setStatus(JsendStatus.success);
+        }
+        expectedKey = null;
+        expectedLength = NO_DATA;
+        expectedCas = NO_DATA;
+        expectedFlags = 0;
+    }
+
+    @Override
+    public boolean isDataResponseEnd() {
+        return !batched;
+    }
+
+    @Override
+    public MemcacheCommandResponse getResponse() {
+        MemcacheCommandResponse response = super.getResponse();
+        switch (type) {
+            case mg:
+                return retrieveBuilder.setStatus(response.getStatus()).setMessage(response.getMessage()).build();
+            case ms:
+                return new StoreCommandResponse.Builder().setStatus(response.getStatus()).setMessage(response.getMessage())
+                        .setData(result).build();
+            case md:
+                return new DeleteCommandResponse.Builder().setStatus(response.getStatus()).setMessage(response.getMessage())
+                        .setData(result).build();
+            case ma:
+                return new ModifyCommandResponse.Builder().setStatus(response.getStatus()).setMessage(response.getMessage())
+                        .setData(number).build();
+            default:
+                return response;
+        }
+    }
+
+    /**
+     * Translates a meta response code to the equivalent text response for the command.
+     *
+     * @param responseType - The meta response code.
+     * @return - The text response type, or null if the response is a failure for the command.
+     */
+    private MemcacheResponseType getResultType(MemcacheResponseType responseType) {
+        switch (type) {
+            case mg:
+                return responseType == MemcacheResponseType.META_HIT || responseType == MemcacheResponseType.META_MISS ? responseType : null;
+            case ms:
+                return STORE_RESULTS.get(responseType);
+            case md:
+                return DELETE_RESULTS.get(responseType);
+            case ma:
+                return responseType == MemcacheResponseType.META_HIT || responseType == MemcacheResponseType.META_NOT_FOUND ? responseType : null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Parses the 'VA {bytes} {flags}' header directly from the bytes of the line.  The key is taken
+     * from the 'k' flag and defaults to the key of the command, the item flags from the 'f' flag and the
+     * cas unique value from the 'c' flag when it was requested.
+     *
+     * @param line - The VA header line.
+     */
+    private void parseValueHeader(Buffer line) {
+        int lengthEnd = indexOf(line, VALUE_LENGTH_INDEX, DELIMITER);
+        int length = parseNumber(line, VALUE_LENGTH_INDEX, lengthEnd < 0 ? line.length() : lengthEnd);
+        int keyStart = lengthEnd < 0 ? NO_DATA : findFlag(line, lengthEnd + 1, KEY_FLAG);
+        int casStart = lengthEnd < 0 ? NO_DATA : findFlag(line, lengthEnd + 1, CAS_FLAG);
+        int flagsStart = lengthEnd < 0 ? NO_DATA : findFlag(line, lengthEnd + 1, FLAGS_FLAG);
+        String valueKey = keyStart < 0 ? null : line.getString(keyStart, flagEnd(line, keyStart), ENCODING);
+        if (valueKey == null && !batched) {
+            valueKey = key;
+        }
+
+        if (length == NO_DATA || valueKey == null) {
+            log.error("parseValueHeader", "exception", "invalidValueFormat", new String[] {"line"}, getMessageNullIfError(line));
+            throw new MemcacheException("Unexpected format in response");
+        }
+
+        long cas = casStart < 0 ? NO_DATA : parseLongNumber(line, casStart, flagEnd(line, casStart));
+        if (casStart >= 0 && cas == NO_DATA) {
+            log.error("parseValueHeader", "exception", "invalidCasValue", new String[] {"line"}, getMessageNullIfError(line));
+            throw new MemcacheException("Unexpected format in response");
+        }
+
+        long flags = flagsStart < 0 ? 0 : parseLongNumber(line, flagsStart, flagEnd(line, flagsStart));
+        if (flags == NO_DATA || flags > MAX_FLAGS) {
+            log.error("parseValueHeader", "exception", "invalidFlags", new String[] {"line"}, getMessageNullIfError(line));
+            throw new MemcacheException("Unexpected format in response");
+        }
+
+        expectedKey = valueKey;
+        expectedLength = length;
+        expectedCas = cas;
+        expectedFlags = (int) flags;
+    }
+
+    /**
+     * Finds the value of a returned flag.
+     *
+     * @param line - The response line.
+     * @param from - The index of the first flag.
+     * @param flag - The flag to search for.
+     * @return - The index of the flag value, or NO_DATA if the flag is not returned.
+     */
+    private static int findFlag(Buffer line, int from, byte flag) {
+        int start = from;
+        while (start < line.length()) {
+            int end = flagEnd(line, start);
+            if (end > start + 1 && line.getByte(start) == flag) {
+                return start + 1;
+            }
+            start = end + 1;
+        }
+        return NO_DATA;
+    }
+
+    private static int flagEnd(Buffer line, int start) {
+        int end = indexOf(line, start, DELIMITER);
+        return end < 0 ? line.length() : end;
+    }
+}
@@ -15,8 +15,7 @@
  */
 package com.groupon.vertx.memcache.parser;
 
-import java.io.ByteArrayOutputStream;
-import java.io.UnsupportedEncodingException;
+import io.vertx.core.buffer.Buffer;
 
 import com.groupon.vertx.memcache.MemcacheException;
 import com.groupon.vertx.memcache.client.JsendStatus;
@@ -48,7 +47,7 @@ public class ModifyLineParser extends BaseLineParser<ModifyCommandResponse, Modi
     }
 
     @Override
-    public boolean isResponseEnd(ByteArrayOutputStream line) {
+    public boolean isResponseEnd(Buffer line) {
         boolean match = super.isResponseEnd(line);
         if (match) {
             return true;
@@ -64,16 +63,15 @@ public class ModifyLineParser extends BaseLineParser<ModifyCommandResponse, Modi
         }
     }
 
-    private boolean parseModifiedValue(ByteArrayOutputStream line) {
-        try {
-            int data = Integer.parseInt(line.toString(ENCODING));
-            builder.setStatus(JsendStatus.success);
-            builder.setData(data);
-        } catch (NumberFormatException | UnsupportedEncodingException nfe) {
+    private boolean parseModifiedValue(Buffer line) {
+        int data = parseNumber(line, 0, line.length());
+        if (data == NO_DATA) {
             log.error("parseModifiedValue", "exception", "unexpectedFormat", new String[] {"line"}, getMessageNullIfError(line));
             throw new MemcacheException("Unexpected format in response");
         }
 
+        builder.setStatus(JsendStatus.success);
+        builder.setData(data);
         return true;
     }
 }
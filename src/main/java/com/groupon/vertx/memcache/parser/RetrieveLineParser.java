@@ -15,9 +15,7 @@
  */
 package com.groupon.vertx.memcache.parser;
 
-import java.io.ByteArrayOutputStream;
-import java.io.UnsupportedEncodingException;
-import java.nio.charset.Charset;
+import io.vertx.core.buffer.Buffer;
 
 import com.groupon.vertx.memcache.MemcacheException;
 import com.groupon.vertx.memcache.client.JsendStatus;
@@ -26,7 +24,7 @@ import com.groupon.vertx.memcache.stream.MemcacheResponseType;
 import com.groupon.vertx.utils.Logger;
 
 /**
- * This supports the parsing logic for memcache retrieval command GET.
+ * This supports the parsing logic for memcache retrieval commands GET and GETS.
  *
  * @author Stuart Siegrist (fsiegrist at groupon dot com)
  * @since 1.0.0
@@ -36,13 +34,13 @@ public class RetrieveLineParser extends BaseLineParser<RetrieveCommandResponse,
     private static final MemcacheResponseType[] RESPONSE_TYPES = new MemcacheResponseType[] {
         MemcacheResponseType.VALUE, MemcacheResponseType.END
     };
-    private static final int VALUE_SEGMENTS = 4;
-    private static final int VALUE_KEY_INDEX = 1;
-    private static final int VALUE_LENGTH_INDEX = 3;
+    private static final int VALUE_KEY_INDEX = MemcacheResponseType.VALUE.type.length();
+    private static final byte DELIMITER = ' ';
 
     private String expectedKey;
-    private byte[] expectedBytes;
-    private int bytesRetrieved = 0;
+    private int expectedLength = NO_DATA;
+    private long expectedCas = NO_DATA;
+    private int expectedFlags;
 
     private RetrieveCommandResponse.Builder builder;
 
@@ -56,35 +54,23 @@ public class RetrieveLineParser extends BaseLineParser<RetrieveCommandResponse,
     }
 
     @Override
-    public boolean isResponseEnd(ByteArrayOutputStream line) {
+    public int getExpectedDataLength() {
+        return expectedLength;
+    }
+
+    @Override
+    public boolean isResponseEnd(Buffer line) {
         boolean match = super.isResponseEnd(line);
         if (match) {
             return true;
         }
 
         MemcacheResponseType type = getResponseType(RESPONSE_TYPES, line);
-        if (type != null) {
-            switch (type) {
-                case END:
-                    builder.setStatus(JsendStatus.success);
-                    match = true;
-                    break;
-                case VALUE:
-                    parseRetrievedValue(line);
-                    match = false;
-                    break;
-                default:
-                    if (expectedBytes != null) {
-                        parseRetrievedValue(line);
-                        match = false;
-                    } else {
-                        log.error("isResponseEnd", "exception", "invalidFormat", new String[] {"line"}, getMessageNullIfError(line));
-                        throw new MemcacheException("Unexpected format in response");
-                    }
-                    break;
-            }
-        } else if (expectedBytes != null) {
-            parseRetrievedValue(line);
+        if (type == MemcacheResponseType.END) {
+            builder.setStatus(JsendStatus.success);
+            match = true;
+        } else if (type == MemcacheResponseType.VALUE) {
+            parseValueHeader(line);
             match = false;
         } else {
             log.error("isResponseEnd", "exception", "invalidFormat", new String[] {"line"}, getMessageNullIfError(line));
@@ -94,40 +80,67 @@ public class RetrieveLineParser extends BaseLineParser<RetrieveCommandResponse,
         return match;
     }
 
-    private void parseRetrievedValue(ByteArrayOutputStream line) {
-        if (expectedBytes == null) {
-            String valueHeader;
-            try {
-                valueHeader = line.toString(ENCODING);
-            } catch (UnsupportedEncodingException e) {
-                throw new MemcacheException("Unexpected encoding");
-            }
-            String[] parts = valueHeader.split(" ");
-            if (parts.length < VALUE_SEGMENTS) {
-                log.error("parseRetrieveValue", "exception", "invalidValueFormat", new String[] {"line"}, valueHeader);
+    @Override
+    public void addData(Buffer data) {
+        if (expectedKey == null || data.length() != expectedLength) {
+            log.error("addData", "exception", "invalidLength", new String[] {"length"}, data.length());
+            throw new MemcacheException("Length of value does not match expected response");
+        }
+
+        builder.addBinaryData(expectedKey, data);
+        if (expectedCas != NO_DATA) {
+            builder.addCas(expectedKey, expectedCas);
+        }
+        builder.addFlags(expectedKey, expectedFlags);
+        clearExpected();
+    }
+
+    /**
+     * Parses the 'VALUE {key} {flags} {bytes} [{cas unique}]' header directly from the bytes of the line.
+     * The cas unique value is only returned for a gets or gats.
+     *
+     * @param line - The VALUE header line.
+     */
+    private void parseValueHeader(Buffer line) {
+        int keyEnd = indexOf(line, VALUE_KEY_INDEX, DELIMITER);
+        int flagsEnd = keyEnd > VALUE_KEY_INDEX ? indexOf(line, keyEnd + 1, DELIMITER) : -1;
+        if (flagsEnd < 0) {
+            log.error("parseValueHeader", "exception", "invalidValueFormat", new String[] {"line"}, getMessageNullIfError(line));
+            throw new MemcacheException("Unexpected format in response");
+        }
+
+        long flags = parseLongNumber(line, keyEnd + 1, flagsEnd);
+        if (flags == NO_DATA || flags > MAX_FLAGS) {
+            log.error("parseValueHeader", "exception", "invalidFlags", new String[] {"line"}, getMessageNullIfError(line));
+            throw new MemcacheException("Unexpected format in response");
+        }
+
+        int lengthEnd = indexOf(line, flagsEnd + 1, DELIMITER);
+        int length = parseNumber(line, flagsEnd + 1, lengthEnd < 0 ? line.length() : lengthEnd);
+        if (length == NO_DATA) {
+            log.error("parseValueHeader", "exception", "invalidValueLength", new String[] {"line"}, getMessageNullIfError(line));
+            throw new MemcacheException("Unexpected format in response");
+        }
+
+        long cas = NO_DATA;
+        if (lengthEnd >= 0) {
+            cas = parseLongNumber(line, lengthEnd + 1, line.length());
+            if (cas == NO_DATA) {
+                log.error("parseValueHeader", "exception", "invalidCasValue", new String[] {"line"}, getMessageNullIfError(line));
                 throw new MemcacheException("Unexpected format in response");
             }
-            expectedKey = parts[VALUE_KEY_INDEX];
-            expectedBytes = new byte[Integer.parseInt(parts[VALUE_LENGTH_INDEX])];
-        } else if (expectedBytes.length >= (line.size() + bytesRetrieved)) {
-            System.arraycopy(line.toByteArray(), 0, expectedBytes, bytesRetrieved, line.size());
-            bytesRetrieved += line.size();
-        } else {
-            log.error("parseRetrievedValue", "exception", "invalidLength", new String[] {"length"}, line.size());
-            throw new MemcacheException("Length of value exceeds expected response");
         }
 
-        // We have finished collecting the value.
-        if (bytesRetrieved == expectedBytes.length) {
-            builder.addData(expectedKey, new String(expectedBytes, Charset.forName(ENCODING)));
-            clearExpected();
-        }
+        expectedKey = line.getString(VALUE_KEY_INDEX, keyEnd, ENCODING);
+        expectedLength = length;
+        expectedCas = cas;
+        expectedFlags = (int) flags;
     }
 
     private void clearExpected() {
         expectedKey = null;
-        expectedBytes = null;
-        bytesRetrieved = 0;
+        expectedLength = NO_DATA;
+        expectedCas = NO_DATA;
+        expectedFlags = 0;
     }
 }
-
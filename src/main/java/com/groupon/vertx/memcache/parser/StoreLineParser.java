@@ -15,7 +15,7 @@
  */
 package com.groupon.vertx.memcache.parser;
 
-import java.io.ByteArrayOutputStream;
+import io.vertx.core.buffer.Buffer;
 
 import com.groupon.vertx.memcache.MemcacheException;
 import com.groupon.vertx.memcache.client.JsendStatus;
@@ -48,7 +48,7 @@ public class StoreLineParser extends BaseLineParser<StoreCommandResponse, StoreC
     }
 
     @Override
-    public boolean isResponseEnd(ByteArrayOutputStream line) {
+    public boolean isResponseEnd(Buffer line) {
         boolean match = super.isResponseEnd(line);
         if (match) {
             return true;
@@ -16,24 +16,19 @@
 package com.groupon.vertx.memcache.server;
 
 import java.nio.charset.Charset;
-import java.util.Map;
-import java.util.TreeMap;
 
 import com.groupon.vertx.memcache.MemcacheException;
 import com.groupon.vertx.memcache.hash.HashAlgorithm;
-import com.groupon.vertx.utils.Logger;
 
 /**
- * Base class with the shared methods for the continuum.
+ * Base class for the continuum, which distributes the keys across the servers by the hash of the key.
  *
  * @author Stuart Siegrist (fsiegrist at groupon dot com)
  * @since 1.0.0
  */
 public abstract class Continuum {
-    private static final Logger log = Logger.getLogger(Continuum.class);
     public static final Charset ENCODING = Charset.forName("UTF-8");
 
-    private final TreeMap<Long, MemcacheServer> servers = new TreeMap<>();
     private final HashAlgorithm hashAlgorithm;
 
     protected Continuum(HashAlgorithm hashAlgorithm) {
@@ -43,34 +38,15 @@ public abstract class Continuum {
         this.hashAlgorithm = hashAlgorithm;
     }
 
-    public MemcacheServer getServer(String key) {
-        if (servers.size() == 1) {
-            log.debug("getServer", "singleServer");
-            return servers.firstEntry().getValue();
-        } else {
-            long hash = hashAlgorithm.hash(key);
-            log.debug("getServer", "hashingKey", new String[] {"alorithm", "hash"}, hashAlgorithm.name(), hash);
-            Map.Entry<Long, MemcacheServer> serverEntry = servers.ceilingEntry(hash);
-            if (serverEntry == null) {
-                return servers.firstEntry().getValue();
-            }
-            return serverEntry.getValue();
-        }
-    }
-
-    protected int getServerEntryCount(MemcacheServer server, int pointsPerServer, int totalServers, int totalWeight) {
-        return (int) (((double) (totalServers * pointsPerServer * server.getWeight())) / (double) totalWeight);
-    }
+    /**
+     * Finds the server the key is stored on.
+     *
+     * @param key - The key to find the server for.
+     * @return - The server for the key, or null if there are no servers.
+     */
+    public abstract MemcacheServer getServer(String key);
 
-    protected TreeMap<Long, MemcacheServer> getServerContinuum() {
-        return servers;
-    }
-
-    protected abstract void addServerEntry(MemcacheServer server, int index);
-
-    protected void addServerEntries(MemcacheServer server, int entries) {
-        for (int i = 0; i < entries; i++) {
-            addServerEntry(server, i);
-        }
+    protected HashAlgorithm getHashAlgorithm() {
+        return hashAlgorithm;
     }
 }
@@ -45,6 +45,12 @@ public final class ContinuumFactory {
             case KETAMA:
                 result = new KetamaContinuum(memcacheServerList, config.getHashAlgorithm(), config.getPointsPerServer());
                 break;
+            case JUMP:
+                result = new JumpContinuum(memcacheServerList, config.getHashAlgorithm());
+                break;
+            case RENDEZVOUS:
+                result = new RendezvousContinuum(memcacheServerList, config.getHashAlgorithm());
+                break;
             default:
                 result = new DefaultContinuum(memcacheServerList, config.getHashAlgorithm(), config.getPointsPerServer());
                 break;
@@ -23,5 +23,7 @@ package com.groupon.vertx.memcache.server;
  */
 public enum ContinuumType {
     KETAMA,
-    DEFAULT;
+    DEFAULT,
+    JUMP,
+    RENDEZVOUS;
 }
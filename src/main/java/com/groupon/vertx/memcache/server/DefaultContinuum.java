@@ -29,7 +29,7 @@ import com.groupon.vertx.utils.Logger;
  * @author Stuart Siegrist (fsiegrist at groupon dot com)
  * @since 1.0.0
  */
-public class DefaultContinuum extends Continuum {
+public class DefaultContinuum extends RingContinuum {
     private static final Logger log = Logger.getLogger(DefaultContinuum.class);
     private static final int CONTINUUM_HASH_LENGTH = 4;
 
@@ -0,0 +1,85 @@
+/**
+ * Copyright 2014 Groupon.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.vertx.memcache.server;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.groupon.vertx.memcache.hash.HashAlgorithm;
+import com.groupon.vertx.utils.Logger;
+
+/**
+ * Distributes the keys with the jump consistent hash by Lamping and Veach, which balances the keys across the
+ * buckets without keeping a ring of points.  Each server is given one bucket for each unit of its weight, in
+ * the order the servers are configured.  When servers are only added to or removed from the end of the list,
+ * only the keys of the added or removed buckets move.
+ *
+ * @author Stuart Siegrist (fsiegrist at groupon dot com)
+ * @since 4.0.3
+ */
+public class JumpContinuum extends Continuum {
+    private static final Logger log = Logger.getLogger(JumpContinuum.class);
+    private static final long JUMP_MULTIPLIER = 2862933555777941757L;
+    private static final double JUMP_SCALE = (double) (1L << 31);
+    private static final int JUMP_SHIFT = 33;
+
+    private final MemcacheServer[] buckets;
+
+    public JumpContinuum(Collection<MemcacheServer> servers, HashAlgorithm hashAlgorithm) {
+        super(hashAlgorithm);
+
+        List<MemcacheServer> serverBuckets = new ArrayList<>();
+        for (MemcacheServer server : servers) {
+            for (int i = 0; i < server.getWeight(); i++) {
+                serverBuckets.add(server);
+            }
+        }
+        buckets = serverBuckets.toArray(new MemcacheServer[serverBuckets.size()]);
+
+        log.info("initialize", "createdBuckets", new String[] {"servers", "buckets"}, servers.size(), buckets.length);
+    }
+
+    @Override
+    public MemcacheServer getServer(String key) {
+        if (buckets.length == 0) {
+            return null;
+        }
+
+        long hash = getHashAlgorithm().hash(key);
+        log.debug("getServer", "hashingKey", new String[] {"alorithm", "hash"}, getHashAlgorithm().name(), hash);
+        return buckets[jump(hash, buckets.length)];
+    }
+
+    /**
+     * The jump consistent hash of the key.
+     *
+     * @param key - The hash of the key.
+     * @param bucketCount - The number of buckets.
+     * @return - The bucket of the key, from zero to bucketCount - 1.
+     */
+    static int jump(long key, int bucketCount) {
+        long hash = key;
+        long bucket = -1;
+        long next = 0;
+        while (next < bucketCount) {
+            bucket = next;
+            hash = hash * JUMP_MULTIPLIER + 1;
+            next = (long) ((bucket + 1) * (JUMP_SCALE / (double) ((hash >>> JUMP_SHIFT) + 1)));
+        }
+        return (int) bucket;
+    }
+}
@@ -29,7 +29,7 @@ import com.groupon.vertx.utils.Logger;
  * @author Stuart Siegrist (fsiegrist at groupon dot com)
  * @since 1.0.0
  */
-public class KetamaContinuum extends Continuum {
+public class KetamaContinuum extends RingContinuum {
     private static final Logger log = Logger.getLogger(KetamaContinuum.class);
     private static final int KETAMA_SAMPLES = 4;
 
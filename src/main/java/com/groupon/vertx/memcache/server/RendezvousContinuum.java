@@ -0,0 +1,127 @@
+/**
+ * Copyright 2014 Groupon.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.vertx.memcache.server;
+
+import java.util.Collection;
+
+import com.groupon.vertx.memcache.hash.HashAlgorithm;
+import com.groupon.vertx.utils.Logger;
+
+/**
+ * Distributes the keys with weighted rendezvous (highest random weight) hashing.  Each key is scored against
+ * every server and is stored on the server with the highest score, so adding or removing a server only moves
+ * the keys it wins or had won, wherever it is in the list.  The score of a server is derived from the hash of
+ * the key and the hash of the server name, scaled by the weight of the server, so the share of each server
+ * follows its weight.  A lookup scores every server, which suits the small clusters this is intended for.
+ *
+ * @author Stuart Siegrist (fsiegrist at groupon dot com)
+ * @since 4.0.3
+ */
+public class RendezvousContinuum extends Continuum {
+    private static final Logger log = Logger.getLogger(RendezvousContinuum.class);
+    private static final double UNIT_SCALE = 1.0 / (1L << 53);
+    private static final int UNIT_SHIFT = 11;
+
+    private final MemcacheServer[] servers;
+    private final long[] seeds;
+    private final double[] weights;
+    private final boolean weighted;
+
+    public RendezvousContinuum(Collection<MemcacheServer> servers, HashAlgorithm hashAlgorithm) {
+        super(hashAlgorithm);
+
+        this.servers = servers.toArray(new MemcacheServer[servers.size()]);
+        this.seeds = new long[this.servers.length];
+        this.weights = new double[this.servers.length];
+
+        boolean equalWeights = true;
+        for (int i = 0; i < this.servers.length; i++) {
+            MemcacheServer server = this.servers[i];
+            // The seed only depends on the server, so the scores don't change when other servers are added.  The
+            // hash is truncated to 32 bits, so it is mixed to spread it over all 64 bits of the seed.
+            seeds[i] = mix(HashAlgorithm.XXHASH64_HASH.hash(server.getServer()));
+            weights[i] = server.getWeight();
+            equalWeights &= server.getWeight() == this.servers[0].getWeight();
+        }
+        this.weighted = !equalWeights;
+
+        log.info("initialize", "createdServers", new String[] {"servers", "weighted"}, this.servers.length, weighted);
+    }
+
+    @Override
+    public MemcacheServer getServer(String key) {
+        if (servers.length <= 1) {
+            log.debug("getServer", "singleServer");
+            return servers.length == 1 ? servers[0] : null;
+        }
+
+        long hash = getHashAlgorithm().hash(key);
+        log.debug("getServer", "hashingKey", new String[] {"alorithm", "hash"}, getHashAlgorithm().name(), hash);
+        return servers[weighted ? weightedWinner(hash) : winner(hash)];
+    }
+
+    /**
+     * With equal weights the server with the highest mixed hash wins.
+     */
+    private int winner(long hash) {
+        int best = 0;
+        long bestScore = Long.MIN_VALUE;
+        for (int i = 0; i < servers.length; i++) {
+            long score = mix(seeds[i] ^ hash);
+            if (score > bestScore) {
+                best = i;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * With different weights the mixed hash is turned into a uniform value u in (0, 1) and the server with the
+     * highest weight / -ln(u) wins, which selects each server in proportion to its weight.
+     */
+    private int weightedWinner(long hash) {
+        int best = 0;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < servers.length; i++) {
+            if (weights[i] <= 0) {
+                continue;
+            }
+            double unit = ((mix(seeds[i] ^ hash) >>> UNIT_SHIFT) + 0.5) * UNIT_SCALE;
+            double score = weights[i] / -Math.log(unit);
+            if (score > bestScore) {
+                best = i;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The 64 bit finalizer of MurmurHash3, which spreads every input bit across the result.
+     */
+    static long mix(long value) {
+        // CS.OFF: MagicNumber
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        // CS.ON: MagicNumber
+        return h;
+    }
+}
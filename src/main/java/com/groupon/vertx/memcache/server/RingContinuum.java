@@ -0,0 +1,132 @@
+/**
+ * Copyright 2014 Groupon.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.vertx.memcache.server;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.groupon.vertx.memcache.hash.HashAlgorithm;
+import com.groupon.vertx.utils.Logger;
+
+/**
+ * Base class for the continuums which place each server on a ring of points.  The points are added to a
+ * sorted map while the continuum is built, and copied to parallel sorted arrays of points and servers on
+ * the first lookup, so routing a key is a binary search over primitive longs.
+ *
+ * @author Stuart Siegrist (fsiegrist at groupon dot com)
+ * @since 4.0.3
+ */
+public abstract class RingContinuum extends Continuum {
+    private static final Logger log = Logger.getLogger(RingContinuum.class);
+
+    private final TreeMap<Long, MemcacheServer> servers = new TreeMap<>();
+    private volatile Points points;
+
+    protected RingContinuum(HashAlgorithm hashAlgorithm) {
+        super(hashAlgorithm);
+    }
+
+    /**
+     * Finds the server for the key, which is the server owning the first point at or after the hash of the
+     * key, wrapping around to the first point.
+     *
+     * @param key - The key to find the server for.
+     * @return - The server for the key, or null if the continuum has no points.
+     */
+    @Override
+    public MemcacheServer getServer(String key) {
+        Points current = getPoints();
+        MemcacheServer[] owners = current.owners;
+        if (owners.length <= 1) {
+            log.debug("getServer", "singleServer");
+            return owners.length == 1 ? owners[0] : null;
+        } else {
+            long hash = getHashAlgorithm().hash(key);
+            log.debug("getServer", "hashingKey", new String[] {"alorithm", "hash"}, getHashAlgorithm().name(), hash);
+            int index = ceiling(current.values, hash);
+            return owners[index < owners.length ? index : 0];
+        }
+    }
+
+    /**
+     * Finds the index of the first value at or after the hash.  The loop always runs log2(n) times and only
+     * moves the base, so the comparison can be compiled to a conditional move.
+     *
+     * @param values - The sorted values.
+     * @param hash - The hash to search for.
+     * @return - The index of the first value not less than the hash, or the length if there is none.
+     */
+    static int ceiling(long[] values, long hash) {
+        int base = 0;
+        int length = values.length;
+        while (length > 1) {
+            int half = length >>> 1;
+            base = values[base + half] < hash ? base + half : base;
+            length -= half;
+        }
+        return values[base] < hash ? base + 1 : base;
+    }
+
+    private Points getPoints() {
+        Points current = points;
+        if (current == null) {
+            current = new Points(servers);
+            points = current;
+        }
+        return current;
+    }
+
+    protected int getServerEntryCount(MemcacheServer server, int pointsPerServer, int totalServers, int totalWeight) {
+        return (int) (((double) (totalServers * pointsPerServer * server.getWeight())) / (double) totalWeight);
+    }
+
+    /**
+     * The points of the continuum while it is being built.  Changes made after the first lookup are not seen
+     * by {@link #getServer(String)}.
+     *
+     * @return - The sorted map of points to servers.
+     */
+    protected TreeMap<Long, MemcacheServer> getServerContinuum() {
+        return servers;
+    }
+
+    protected abstract void addServerEntry(MemcacheServer server, int index);
+
+    protected void addServerEntries(MemcacheServer server, int entries) {
+        for (int i = 0; i < entries; i++) {
+            addServerEntry(server, i);
+        }
+    }
+
+    /**
+     * Immutable snapshot of the continuum as parallel arrays sorted by point.
+     */
+    private static final class Points {
+        private final long[] values;
+        private final MemcacheServer[] owners;
+
+        private Points(TreeMap<Long, MemcacheServer> servers) {
+            values = new long[servers.size()];
+            owners = new MemcacheServer[servers.size()];
+            int index = 0;
+            for (Map.Entry<Long, MemcacheServer> entry : servers.entrySet()) {
+                values[index] = entry.getKey();
+                owners[index] = entry.getValue();
+                index++;
+            }
+        }
+    }
+}
@@ -0,0 +1,255 @@
+/**
+ * Copyright 2014 Groupon.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.vertx.memcache.stream;
+
+import static com.groupon.vertx.memcache.stream.MemcacheBinaryProtocol.BODY_LENGTH_OFFSET;
+import static com.groupon.vertx.memcache.stream.MemcacheBinaryProtocol.CAS_OFFSET;
+import static com.groupon.vertx.memcache.stream.MemcacheBinaryProtocol.EXTRAS_LENGTH_OFFSET;
+import static com.groupon.vertx.memcache.stream.MemcacheBinaryProtocol.GAT;
+import static com.groupon.vertx.memcache.stream.MemcacheBinaryProtocol.GATKQ;
+import static com.groupon.vertx.memcache.stream.MemcacheBinaryProtocol.GET;
+import static com.groupon.vertx.memcache.stream.MemcacheBinaryProtocol.GETKQ;
+import static com.groupon.vertx.memcache.stream.MemcacheBinaryProtocol.HEADER_LENGTH;
+import static com.groupon.vertx.memcache.stream.MemcacheBinaryProtocol.KEY_LENGTH_OFFSET;
+import static com.groupon.vertx.memcache.stream.MemcacheBinaryProtocol.NOREPLY_OPAQUE;
+import static com.groupon.vertx.memcache.stream.MemcacheBinaryProtocol.OPAQUE_OFFSET;
+import static com.groupon.vertx.memcache.stream.MemcacheBinaryProtocol.OPCODE_OFFSET;
+import static com.groupon.vertx.memcache.stream.MemcacheBinaryProtocol.RESPONSE_MAGIC;
+import static com.groupon.vertx.memcache.stream.MemcacheBinaryProtocol.STATUS_ITEM_NOT_STORED;
+import static com.groupon.vertx.memcache.stream.MemcacheBinaryProtocol.STATUS_KEY_EXISTS;
+import static com.groupon.vertx.memcache.stream.MemcacheBinaryProtocol.STATUS_KEY_NOT_FOUND;
+import static com.groupon.vertx.memcache.stream.MemcacheBinaryProtocol.STATUS_NO_ERROR;
+import static com.groupon.vertx.memcache.stream.MemcacheBinaryProtocol.STATUS_OFFSET;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.vertx.core.buffer.Buffer;
+
+import com.groupon.vertx.memcache.MemcacheException;
+import com.groupon.vertx.memcache.client.JsendStatus;
+import com.groupon.vertx.memcache.client.response.DeleteCommandResponse;
+import com.groupon.vertx.memcache.client.response.MemcacheCommandResponse;
+import com.groupon.vertx.memcache.client.response.ModifyCommandResponse;
+import com.groupon.vertx.memcache.client.response.RetrieveCommandResponse;
+import com.groupon.vertx.memcache.client.response.StoreCommandResponse;
+import com.groupon.vertx.memcache.client.response.TouchCommandResponse;
+import com.groupon.vertx.memcache.command.MemcacheCommand;
+import com.groupon.vertx.memcache.command.MemcacheCommandType;
+import com.groupon.vertx.utils.Logger;
+
+/**
+ * Reads Memcache binary protocol responses and completes the pending commands.  Each response is framed
+ * by the total body length in its header, so no scanning is needed.  The responses are converted to the
+ * same response objects, with the same data, as the text protocol returns.
+ * <br>
+ * The opaque of a command is its sequence number on the socket.  A response whose opaque does not match
+ * the number of completed commands means the responses are out of sync with the pending commands, so an
+ * exception is thrown and the socket should be closed, which fails the pending commands.
+ * Failures of noreply commands are returned with a reserved opaque and are only logged.
+ * The quiet responses for a multi key get are collected until the terminating noop response.
+ *
+ * @author Stuart Siegrist (fsiegrist at groupon dot com)
+ * @since 4.0.3
+ */
+public class MemcacheBinaryInputStream implements MemcacheResponseReader {
+    private static final Logger log = Logger.getLogger(MemcacheBinaryInputStream.class);
+    private static final Charset ENCODING = Charset.forName("UTF-8");
+    private static final AtomicLongFieldUpdater<MemcacheBinaryInputStream> PUBLISHED_COMPLETED_COMMANDS =
+            AtomicLongFieldUpdater.newUpdater(MemcacheBinaryInputStream.class, "publishedCompletedCommands");
+    private final PendingCommandQueue pendingCommands;
+    private CompositeByteBuf remaining;
+    private RetrieveCommandResponse.Builder retrieveBuilder;
+    private long completedCommands = 0;
+    private volatile long publishedCompletedCommands = 0;
+
+    public MemcacheBinaryInputStream(PendingCommandQueue pendingCommands) {
+        this.pendingCommands = pendingCommands;
+    }
+
+    @Override
+    public void processBuffer(Buffer processBuffer) {
+        if (processBuffer == null || processBuffer.length() == 0) {
+            return;
+        }
+
+        ByteBuf byteBuf = processBuffer.getByteBuf();
+        if (remaining != null) {
+            remaining.addComponent(true, byteBuf);
+            byteBuf = remaining;
+            remaining = null;
+        }
+
+        int startIndex = byteBuf.readerIndex();
+        while (byteBuf.readableBytes() >= HEADER_LENGTH) {
+            long bodyLength = byteBuf.getUnsignedInt(byteBuf.readerIndex() + BODY_LENGTH_OFFSET);
+            if (byteBuf.readableBytes() < HEADER_LENGTH + bodyLength) {
+                break;
+            }
+            readResponse(byteBuf, (int) bodyLength);
+        }
+
+        if (byteBuf.isReadable()) {
+            remaining = MemcacheInputStream.keepRemaining(byteBuf, byteBuf.readerIndex() != startIndex);
+        }
+    }
+
+    @Override
+    public long getCompletedCommands() {
+        return publishedCompletedCommands;
+    }
+
+    private void readResponse(ByteBuf byteBuf, int bodyLength) {
+        ByteBuf header = byteBuf.readSlice(HEADER_LENGTH);
+        if (header.getByte(0) != RESPONSE_MAGIC) {
+            log.error("readResponse", "exception", "invalidMagic", new String[] {"magic"}, header.getByte(0));
+            throw new MemcacheException("Unexpected format in response");
+        }
+
+        byte opcode = header.getByte(OPCODE_OFFSET);
+        int keyLength = header.getUnsignedShort(KEY_LENGTH_OFFSET);
+        int extrasLength = header.getUnsignedByte(EXTRAS_LENGTH_OFFSET);
+        int status = header.getUnsignedShort(STATUS_OFFSET);
+        int opaque = header.getInt(OPAQUE_OFFSET);
+        long cas = header.getLong(CAS_OFFSET);
+        if (extrasLength + keyLength > bodyLength) {
+            log.error("readResponse", "exception", "invalidLength", new String[] {"bodyLength"}, bodyLength);
+            throw new MemcacheException("Unexpected format in response");
+        }
+
+        // The extras of a value are its item flags.
+        int flags = extrasLength >= Integer.BYTES ? byteBuf.getInt(byteBuf.readerIndex()) : 0;
+        byteBuf.skipBytes(extrasLength);
+        ByteBuf key = byteBuf.readSlice(keyLength);
+        Buffer value = Buffer.buffer(byteBuf.readSlice(bodyLength - extrasLength - keyLength));
+
+        if (opaque == NOREPLY_OPAQUE) {
+            if (status != STATUS_NO_ERROR) {
+                log.warn("readResponse", "noreplyFailure", new String[] {"opcode", "status", "message"}, opcode, status,
+                        value.toString(ENCODING));
+            }
+            return;
+        }
+
+        MemcacheCommand command = pendingCommands.peek();
+        if (command == null || opaque != MemcacheBinaryProtocol.getOpaque(completedCommands)) {
+            log.error("readResponse", "exception", "unexpectedResponse", new String[] {"opcode", "opaque", "status"}, opcode, opaque,
+                    status);
+            throw new MemcacheException("Unexpected opaque in response");
+        }
+
+        if (opcode == GETKQ || opcode == GATKQ) {
+            if (status == STATUS_NO_ERROR) {
+                addValue(command, key.toString(ENCODING), value, cas, flags);
+            }
+            return;
+        }
+
+        MemcacheCommandResponse response = buildResponse(command, opcode, status, value, cas, flags);
+        pendingCommands.poll();
+        retrieveBuilder = null;
+        PUBLISHED_COMPLETED_COMMANDS.lazySet(this, ++completedCommands);
+        command.setResponse(response);
+    }
+
+    private MemcacheCommandResponse buildResponse(MemcacheCommand command, byte opcode, int status, Buffer value, long cas, int flags) {
+        switch (command.getType().getLineParserType()) {
+            case RETRIEVE:
+                return buildRetrieveResponse(command, opcode, status, value, cas, flags);
+            case STORE:
+                StoreCommandResponse.Builder storeBuilder = new StoreCommandResponse.Builder();
+                if (status == STATUS_NO_ERROR) {
+                    return storeBuilder.setStatus(JsendStatus.success).setData(MemcacheResponseType.STORED.name()).build();
+                } else if (command.getCas() != null && status == STATUS_KEY_EXISTS) {
+                    return storeBuilder.setStatus(JsendStatus.success).setData(MemcacheResponseType.EXISTS.name()).build();
+                } else if (command.getCas() != null && status == STATUS_KEY_NOT_FOUND) {
+                    return storeBuilder.setStatus(JsendStatus.success).setData(MemcacheResponseType.NOT_FOUND.name()).build();
+                } else if (status == STATUS_KEY_NOT_FOUND || status == STATUS_KEY_EXISTS || status == STATUS_ITEM_NOT_STORED) {
+                    return storeBuilder.setStatus(JsendStatus.success).setData(MemcacheResponseType.NOT_STORED.name()).build();
+                }
+                return setError(storeBuilder, value).build();
+            case DELETE:
+                DeleteCommandResponse.Builder deleteBuilder = new DeleteCommandResponse.Builder();
+                if (status == STATUS_NO_ERROR) {
+                    return deleteBuilder.setStatus(JsendStatus.success).setData(MemcacheResponseType.DELETED.name()).build();
+                } else if (status == STATUS_KEY_NOT_FOUND) {
+                    return deleteBuilder.setStatus(JsendStatus.success).setData(MemcacheResponseType.NOT_FOUND.name()).build();
+                }
+                return setError(deleteBuilder, value).build();
+            case TOUCH:
+                TouchCommandResponse.Builder touchBuilder = new TouchCommandResponse.Builder();
+                if (status == STATUS_NO_ERROR) {
+                    return touchBuilder.setStatus(JsendStatus.success).setData(MemcacheResponseType.TOUCHED.name()).build();
+                } else if (status == STATUS_KEY_NOT_FOUND) {
+                    return touchBuilder.setStatus(JsendStatus.success).setData(MemcacheResponseType.NOT_FOUND.name()).build();
+                }
+                return setError(touchBuilder, value).build();
+            case MODIFY:
+                return buildModifyResponse(status, value);
+            default:
+                log.error("buildResponse", "exception", "unsupportedCommand", new String[] {"command"}, command.getCommand());
+                throw new MemcacheException("Unexpected response for command");
+        }
+    }
+
+    private MemcacheCommandResponse buildRetrieveResponse(MemcacheCommand command, byte opcode, int status, Buffer value, long cas,
+                                                          int flags) {
+        RetrieveCommandResponse.Builder builder = getRetrieveBuilder();
+        if (status == STATUS_NO_ERROR) {
+            if (opcode == GET || opcode == GAT) {
+                addValue(command, command.getKey(), value, cas, flags);
+            }
+        } else if (status != STATUS_KEY_NOT_FOUND) {
+            return setError(builder, value).build();
+        }
+        return builder.setStatus(JsendStatus.success).build();
+    }
+
+    private MemcacheCommandResponse buildModifyResponse(int status, Buffer value) {
+        ModifyCommandResponse.Builder builder = new ModifyCommandResponse.Builder();
+        if (status == STATUS_KEY_NOT_FOUND) {
+            return builder.setStatus(JsendStatus.success).setData(null).build();
+        } else if (status != STATUS_NO_ERROR) {
+            return setError(builder, value).build();
+        }
+
+        if (value.length() != Long.BYTES || value.getLong(0) < 0 || value.getLong(0) > Integer.MAX_VALUE) {
+            log.error("buildModifyResponse", "exception", "unexpectedFormat", new String[] {"length"}, value.length());
+            return builder.setStatus(JsendStatus.error).setMessage("Unexpected format in response").build();
+        }
+        return builder.setStatus(JsendStatus.success).setData((int) value.getLong(0)).build();
+    }
+
+    private void addValue(MemcacheCommand command, String key, Buffer value, long cas, int flags) {
+        RetrieveCommandResponse.Builder builder = getRetrieveBuilder().addBinaryData(key, value).addFlags(key, flags);
+        if (command.getType() == MemcacheCommandType.gets || command.getType() == MemcacheCommandType.gats) {
+            builder.addCas(key, cas);
+        }
+    }
+
+    private RetrieveCommandResponse.Builder getRetrieveBuilder() {
+        if (retrieveBuilder == null) {
+            retrieveBuilder = new RetrieveCommandResponse.Builder();
+        }
+        return retrieveBuilder;
+    }
+
+    private static <B extends MemcacheCommandResponse.AbstractBuilder<B, ?>> B setError(B builder, Buffer value) {
+        return builder.setStatus(JsendStatus.error).setMessage(value.toString(ENCODING));
+    }
+}
@@ -0,0 +1,289 @@
+/**
+ * Copyright 2014 Groupon.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.vertx.memcache.stream;
+
+import io.vertx.core.buffer.Buffer;
+
+import com.groupon.vertx.memcache.MemcacheException;
+import com.groupon.vertx.memcache.command.MemcacheCommand;
+import com.groupon.vertx.utils.Logger;
+
+/**
+ * Constants and request encoding for the Memcache binary protocol.  Every request and response starts
+ * with a 24 byte header:
+ * <br>
+ * <code>
+ * magic (1) | opcode (1) | key length (2) | extras length (1) | data type (1) | vbucket or status (2) |
+ * total body length (4) | opaque (4) | cas (8)
+ * </code>
+ * <br>
+ * followed by the extras, the key and the value.  The opaque is echoed by the server and is used to
+ * match the responses to the pending commands.
+ *
+ * @author Stuart Siegrist (fsiegrist at groupon dot com)
+ * @since 4.0.3
+ */
+final class MemcacheBinaryProtocol {
+    private static final Logger log = Logger.getLogger(MemcacheBinaryProtocol.class);
+
+    static final int HEADER_LENGTH = 24;
+    static final byte REQUEST_MAGIC = (byte) 0x80;
+    static final byte RESPONSE_MAGIC = (byte) 0x81;
+
+    static final int OPCODE_OFFSET = 1;
+    static final int KEY_LENGTH_OFFSET = 2;
+    static final int EXTRAS_LENGTH_OFFSET = 4;
+    static final int STATUS_OFFSET = 6;
+    static final int BODY_LENGTH_OFFSET = 8;
+    static final int OPAQUE_OFFSET = 12;
+    static final int CAS_OFFSET = 16;
+
+    static final byte GET = 0x00;
+    static final byte SET = 0x01;
+    static final byte ADD = 0x02;
+    static final byte REPLACE = 0x03;
+    static final byte DELETE = 0x04;
+    static final byte INCREMENT = 0x05;
+    static final byte DECREMENT = 0x06;
+    static final byte NOOP = 0x0a;
+    static final byte GETKQ = 0x0d;
+    static final byte APPEND = 0x0e;
+    static final byte PREPEND = 0x0f;
+    static final byte SETQ = 0x11;
+    static final byte ADDQ = 0x12;
+    static final byte REPLACEQ = 0x13;
+    static final byte DELETEQ = 0x14;
+    static final byte INCREMENTQ = 0x15;
+    static final byte DECREMENTQ = 0x16;
+    static final byte APPENDQ = 0x19;
+    static final byte PREPENDQ = 0x1a;
+    static final byte TOUCH = 0x1c;
+    static final byte GAT = 0x1d;
+    static final byte GATKQ = 0x24;
+
+    static final int STATUS_NO_ERROR = 0x0000;
+    static final int STATUS_KEY_NOT_FOUND = 0x0001;
+    static final int STATUS_KEY_EXISTS = 0x0002;
+    static final int STATUS_ITEM_NOT_STORED = 0x0005;
+
+    /**
+     * The opaque of the quiet requests sent for noreply commands.  The sequence numbers of the other
+     * commands never set the high bit, so any response with this opaque belongs to a noreply command.
+     */
+    static final int NOREPLY_OPAQUE = 0x80000000;
+    private static final int SEQUENCE_MASK = 0x7fffffff;
+
+    private static final int STORE_EXTRAS_LENGTH = 8;
+    private static final int TOUCH_EXTRAS_LENGTH = 4;
+    private static final int MODIFY_EXTRAS_LENGTH = 20;
+    private static final int NO_AUTO_CREATE = 0xffffffff;
+    private static final char KEY_DELIMITER = ' ';
+    private static final char UTF8_TWO_BYTES = 0x80;
+    private static final char UTF8_THREE_BYTES = 0x800;
+
+    private MemcacheBinaryProtocol() {
+    }
+
+    /**
+     * The opaque for the command with the sequence number on the socket.
+     *
+     * @param sequence - The number of commands sent or completed before the command.
+     * @return - The opaque echoed by the server.
+     */
+    static int getOpaque(long sequence) {
+        return (int) sequence & SEQUENCE_MASK;
+    }
+
+    /**
+     * Encodes the command as binary requests, writing the headers, extras, keys and values straight to
+     * the output stream.  A retrieval for multiple keys is encoded as a quiet get, or get and touch, for
+     * each key followed by a noop, all with the same opaque, so the noop response ends the command.
+     * A noreply command is encoded with the quiet opcode, which the server only answers on failure.  There
+     * is no quiet touch, so a noreply touch is answered with the opaque of the noreply commands.
+     * An invalid command is rejected before anything is written.
+     *
+     * @param output - The output stream of the socket.
+     * @param command - The command to encode.
+     * @param opaque - The value echoed by the server in the responses to the command.
+     */
+    static void encode(MemcacheOutputStream output, MemcacheCommand command, int opaque) {
+        String key = command.getKey();
+        Buffer value = command.getValueBuffer();
+        int flags = command.getFlags();
+        int expires = command.getExpires() != null ? command.getExpires() : 0;
+        boolean quiet = command.isNoreply();
+
+        switch (command.getType()) {
+            case set:
+                writeStore(output, quiet ? SETQ : SET, key, value, flags, expires, 0, opaque);
+                break;
+            case add:
+                writeStore(output, quiet ? ADDQ : ADD, key, value, flags, expires, 0, opaque);
+                break;
+            case replace:
+                writeStore(output, quiet ? REPLACEQ : REPLACE, key, value, flags, expires, 0, opaque);
+                break;
+            case append:
+                writeRequest(output, quiet ? APPENDQ : APPEND, key, value, opaque);
+                break;
+            case prepend:
+                writeRequest(output, quiet ? PREPENDQ : PREPEND, key, value, opaque);
+                break;
+            case cas:
+                writeStore(output, quiet ? SETQ : SET, key, value, flags, expires, command.getCas(), opaque);
+                break;
+            case get:
+            case gets:
+                writeGet(output, GET, GETKQ, key, 0, 0, opaque);
+                break;
+            case gat:
+            case gats:
+                writeGet(output, GAT, GATKQ, key, TOUCH_EXTRAS_LENGTH, expires, opaque);
+                break;
+            case delete:
+                writeRequest(output, quiet ? DELETEQ : DELETE, key, null, opaque);
+                break;
+            case touch:
+                writeKeyRequest(output, TOUCH, key, 0, key.length(), TOUCH_EXTRAS_LENGTH, expires, opaque);
+                break;
+            case incr:
+                writeModify(output, quiet ? INCREMENTQ : INCREMENT, command, opaque);
+                break;
+            case decr:
+                writeModify(output, quiet ? DECREMENTQ : DECREMENT, command, opaque);
+                break;
+            default:
+                log.error("encode", "exception", "unsupportedCommand", new String[] {"command"}, command.getCommand());
+                throw new MemcacheException("Unsupported command for the binary protocol");
+        }
+    }
+
+    /**
+     * The number of bytes in the UTF-8 encoding of the characters between start and end, matching the
+     * bytes the output stream writes for them, so the key length is known without encoding the key.
+     *
+     * @param key - The String containing the key.
+     * @param start - The index of the first character.
+     * @param end - The index after the last character.
+     * @return - The length of the encoded key.
+     */
+    static int encodedLength(String key, int start, int end) {
+        int length = end - start;
+        for (int i = start; i < end; i++) {
+            char c = key.charAt(i);
+            if (c < UTF8_TWO_BYTES) {
+                continue;
+            } else if (c < UTF8_THREE_BYTES) {
+                length++;
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(key.charAt(i + 1))) {
+                // The pair is encoded as four bytes.
+                length += 2;
+                i++;
+            } else if (!Character.isSurrogate(c)) {
+                length += 2;
+            }
+        }
+        return length;
+    }
+
+    private static void writeGet(MemcacheOutputStream output, byte opcode, byte quietOpcode, String key, int extrasLength,
+                                 int expires, int opaque) {
+        if (key.indexOf(KEY_DELIMITER) < 0) {
+            writeKeyRequest(output, opcode, key, 0, key.length(), extrasLength, expires, opaque);
+            return;
+        }
+
+        int start = 0;
+        while (start < key.length()) {
+            int end = key.indexOf(KEY_DELIMITER, start);
+            end = end < 0 ? key.length() : end;
+            if (end > start) {
+                writeKeyRequest(output, quietOpcode, key, start, end, extrasLength, expires, opaque);
+            }
+            start = end + 1;
+        }
+        writeHeader(output, NOOP, 0, 0, 0, opaque, 0);
+    }
+
+    /**
+     * Writes a request for the key between start and end, with the expiration as its extras for a touch
+     * or a get and touch, or without extras for a plain get.
+     */
+    private static void writeKeyRequest(MemcacheOutputStream output, byte opcode, String key, int start, int end,
+                                        int extrasLength, int expires, int opaque) {
+        int keyLength = encodedLength(key, start, end);
+        writeHeader(output, opcode, keyLength, extrasLength, 0, opaque, 0);
+        if (extrasLength > 0) {
+            output.writeInt(expires);
+        }
+        output.write(key, start, end);
+    }
+
+    private static void writeStore(MemcacheOutputStream output, byte opcode, String key, Buffer value, int flags, int expires,
+                                   long cas, int opaque) {
+        int keyLength = encodedLength(key, 0, key.length());
+        writeHeader(output, opcode, keyLength, STORE_EXTRAS_LENGTH, length(value), opaque, cas);
+        output.writeInt(flags);
+        output.writeInt(expires);
+        writeKeyAndValue(output, key, value);
+    }
+
+    private static void writeModify(MemcacheOutputStream output, byte opcode, MemcacheCommand command, int opaque) {
+        long delta;
+        try {
+            delta = Long.parseUnsignedLong(command.getValue());
+        } catch (NumberFormatException ex) {
+            log.error("writeModify", "exception", "invalidDelta", new String[] {"value"}, command.getValue());
+            throw new MemcacheException("Invalid numeric delta argument");
+        }
+
+        String key = command.getKey();
+        writeHeader(output, opcode, encodedLength(key, 0, key.length()), MODIFY_EXTRAS_LENGTH, 0, opaque, 0);
+        output.writeLong(delta);
+        output.writeLong(0);
+        output.writeInt(NO_AUTO_CREATE);
+        output.write(key);
+    }
+
+    private static void writeRequest(MemcacheOutputStream output, byte opcode, String key, Buffer value, int opaque) {
+        writeHeader(output, opcode, encodedLength(key, 0, key.length()), 0, length(value), opaque, 0);
+        writeKeyAndValue(output, key, value);
+    }
+
+    private static void writeKeyAndValue(MemcacheOutputStream output, String key, Buffer value) {
+        output.write(key);
+        if (value != null) {
+            output.write(value);
+        }
+    }
+
+    private static void writeHeader(MemcacheOutputStream output, byte opcode, int keyLength, int extrasLength, int valueLength,
+                                    int opaque, long cas) {
+        output.write(REQUEST_MAGIC);
+        output.write(opcode);
+        output.writeShort(keyLength);
+        output.write((byte) extrasLength);
+        output.write((byte) 0);
+        output.writeShort(0);
+        output.writeInt(extrasLength + keyLength + valueLength);
+        output.writeInt(opaque);
+        output.writeLong(cas);
+    }
+
+    private static int length(Buffer value) {
+        return value != null ? value.length() : 0;
+    }
+}
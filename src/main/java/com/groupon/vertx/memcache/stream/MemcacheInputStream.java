@@ -15,12 +15,14 @@
  */
 package com.groupon.vertx.memcache.stream;
 
-import java.io.ByteArrayOutputStream;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
 import io.vertx.core.buffer.Buffer;
 
+import com.groupon.vertx.memcache.MemcacheException;
 import com.groupon.vertx.memcache.client.response.MemcacheCommandResponse;
 import com.groupon.vertx.memcache.command.MemcacheCommand;
 import com.groupon.vertx.memcache.parser.LineParser;
@@ -47,22 +49,27 @@ import com.groupon.vertx.utils.Logger;
  * @author Stuart Siegrist (fsiegrist at groupon dot com)
  * @since 1.0.0
  */
-public class MemcacheInputStream {
+public class MemcacheInputStream implements MemcacheResponseReader {
     private static final Logger log = Logger.getLogger(MemcacheInputStream.class);
-    private static final int DEFAULT_BUFFER_SIZE = 8192;
-    private final ConcurrentLinkedQueue<MemcacheCommand> pendingCommands;
-    private final ByteArrayOutputStream buffer;
-    private byte previous;
+    private static final int NO_DATA = -1;
+    private static final int CRLF_LENGTH = 2;
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final AtomicLongFieldUpdater<MemcacheInputStream> PUBLISHED_COMPLETED_COMMANDS =
+            AtomicLongFieldUpdater.newUpdater(MemcacheInputStream.class, "publishedCompletedCommands");
+    private final PendingCommandQueue pendingCommands;
+    private CompositeByteBuf remaining;
+    private int expectedDataLength = NO_DATA;
+    private long completedCommands = 0;
+    private volatile long publishedCompletedCommands = 0;
 
     /**
      * create a MemcacheInputStream parser that will process the commands reading the buffer received
      *
      * @param pendingCommands the commands
      */
-    public MemcacheInputStream(ConcurrentLinkedQueue<MemcacheCommand> pendingCommands) {
+    public MemcacheInputStream(PendingCommandQueue pendingCommands) {
         this.pendingCommands = pendingCommands;
-        this.buffer = new ByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
-        this.previous = 0;
     }
 
     /**
@@ -72,7 +79,7 @@ public class MemcacheInputStream {
      * @param bufferSize      size of the buffer to read the response
      */
     @Deprecated
-    public MemcacheInputStream(ConcurrentLinkedQueue<MemcacheCommand> pendingCommands, int bufferSize) {
+    public MemcacheInputStream(PendingCommandQueue pendingCommands, int bufferSize) {
         this(pendingCommands);
     }
 
@@ -81,39 +88,126 @@ public class MemcacheInputStream {
      * is not guaranteed to contain a whole message so this method tracks the current state
      * of the incoming data and notifies the pending commands when enough data has been sent
      * for a response.
+     * <br>
+     * Lines are located by scanning for the CRLF and passed to the parsers as slices of the
+     * incoming data, and data blocks are sliced by the length from the preceding line, so
+     * nothing is copied.  Bytes which do not complete a line or data block are kept as a
+     * composite of the incoming buffers until the next Buffer arrives.
      *
      * @param processBuffer - The Buffer containing the current set of bytes.
      */
+    @Override
     public void processBuffer(Buffer processBuffer) {
         if (processBuffer == null || processBuffer.length() == 0) {
             return;
         }
 
-        byte first;
-        byte second;
-
         ByteBuf byteBuf = processBuffer.getByteBuf();
+        if (remaining != null) {
+            remaining.addComponent(true, byteBuf);
+            byteBuf = remaining;
+            remaining = null;
+        }
 
+        int startIndex = byteBuf.readerIndex();
         while (byteBuf.isReadable()) {
-            first = byteBuf.readByte();
-            if (first == '\r') {
-                if (byteBuf.isReadable()) {
-                    second = byteBuf.readByte();
-                    if (second == '\n') {
-                        addCompletedLine();
-                    }
-                    previous = second;
-                } else {
-                    previous = first;
+            if (expectedDataLength != NO_DATA) {
+                if (byteBuf.readableBytes() < expectedDataLength + CRLF_LENGTH) {
+                    break;
                 }
-            } else if (first == '\n' && previous == '\r') {
-                addCompletedLine();
-                previous = first;
+                readData(byteBuf);
             } else {
-                buffer.write(first);
-                previous = first;
+                int lineEnd = findCrlf(byteBuf);
+                if (lineEnd < 0) {
+                    break;
+                }
+                readLine(byteBuf, lineEnd);
+            }
+        }
+
+        if (byteBuf.isReadable()) {
+            remaining = keepRemaining(byteBuf, byteBuf.readerIndex() != startIndex);
+        }
+    }
+
+    /**
+     * Finds the index of the next CRLF in the readable bytes.  A LF which is not preceded by a CR
+     * is treated as part of the line.
+     *
+     * @param byteBuf - The ByteBuf containing the current set of bytes.
+     * @return - The index of the CR, or -1 if the line is not complete.
+     */
+    private int findCrlf(ByteBuf byteBuf) {
+        int from = byteBuf.readerIndex();
+        int to = byteBuf.writerIndex();
+        while (from < to) {
+            int lf = byteBuf.indexOf(from, to, LF);
+            if (lf < 0) {
+                return -1;
+            } else if (lf > byteBuf.readerIndex() && byteBuf.getByte(lf - 1) == CR) {
+                return lf - 1;
             }
+            from = lf + 1;
         }
+        return -1;
+    }
+
+    private void readLine(ByteBuf byteBuf, int lineEnd) {
+        Buffer line = Buffer.buffer(byteBuf.readSlice(lineEnd - byteBuf.readerIndex()));
+        byteBuf.skipBytes(CRLF_LENGTH);
+        addCompletedLine(line);
+    }
+
+    /**
+     * Reads the data block expected by the current parser.  The data block is read by length
+     * rather than by line, so binary values containing CRLF are passed through unmodified.
+     *
+     * @param byteBuf - The ByteBuf containing the current set of bytes.
+     */
+    private void readData(ByteBuf byteBuf) {
+        ByteBuf data = byteBuf.readSlice(expectedDataLength);
+        if (byteBuf.readByte() != CR || byteBuf.readByte() != LF) {
+            log.error("readData", "exception", "missingCrlf", new String[] {"length"}, expectedDataLength);
+            throw new MemcacheException("Data block not terminated by CRLF");
+        }
+        expectedDataLength = NO_DATA;
+
+        MemcacheCommand command = pendingCommands.peek();
+        if (command != null) {
+            LineParser parser = command.getLineParser();
+            parser.addData(Buffer.buffer(data));
+            if (parser.isDataResponseEnd()) {
+                processCommand(pendingCommands.poll());
+            }
+        } else {
+            log.warn("readData", "noPendingCommands");
+        }
+    }
+
+    /**
+     * Keeps the unread bytes until the next Buffer arrives.  Data blocks may already have been sliced
+     * out of a composite, so once bytes have been read from it the composite is not modified again and
+     * its unread components are carried over to a new composite instead.
+     *
+     * @param byteBuf - The ByteBuf containing the unread bytes.
+     * @param consumed - true if bytes have been read from the ByteBuf.
+     * @return - A composite with the unread bytes.
+     */
+    static CompositeByteBuf keepRemaining(ByteBuf byteBuf, boolean consumed) {
+        CompositeByteBuf remaining;
+        if (byteBuf instanceof CompositeByteBuf) {
+            CompositeByteBuf composite = (CompositeByteBuf) byteBuf;
+            if (consumed) {
+                remaining = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+                remaining.addComponents(true, composite.decompose(composite.readerIndex(), composite.readableBytes()));
+            } else {
+                remaining = composite;
+            }
+        } else {
+            remaining = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+            remaining.addComponent(true, byteBuf.slice());
+        }
+        return remaining;
     }
 
     /**
@@ -135,28 +229,32 @@ public class MemcacheInputStream {
 
         log.trace("processCommand", "redisCommandSuccess", new String[]{"command"}, command.getCommand());
 
+        PUBLISHED_COMPLETED_COMMANDS.lazySet(this, ++completedCommands);
         command.setResponse(response);
     }
 
+    @Override
+    public long getCompletedCommands() {
+        return publishedCompletedCommands;
+    }
+
     /**
      * When the crlf sequence has been received from the Buffer it is time to check if we
-     * have enough data to complete a command and clear the line off of the current buffer.
+     * have enough data to complete a command.
+     *
+     * @param line - The completed line without the trailing CRLF.
      */
-    private void addCompletedLine() {
-        try {
-            previous = 0;
-            if (pendingCommands.size() > 0) {
-                MemcacheCommand command = pendingCommands.peek();
-                LineParser parser = command.getLineParser();
-                if (parser.isResponseEnd(buffer)) {
-                    processCommand(pendingCommands.poll());
-                }
+    private void addCompletedLine(Buffer line) {
+        MemcacheCommand command = pendingCommands.peek();
+        if (command != null) {
+            LineParser parser = command.getLineParser();
+            if (parser.isResponseEnd(line)) {
+                processCommand(pendingCommands.poll());
             } else {
-                log.warn("addCompletedLine", "noPendingCommands");
+                expectedDataLength = parser.getExpectedDataLength();
             }
-        } finally {
-            buffer.reset();
+        } else {
+            log.warn("addCompletedLine", "noPendingCommands");
         }
-        buffer.reset();
     }
 }
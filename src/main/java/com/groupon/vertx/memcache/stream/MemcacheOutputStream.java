@@ -17,6 +17,8 @@ package com.groupon.vertx.memcache.stream;
 
 import java.nio.charset.Charset;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.net.NetSocket;
 
@@ -45,6 +47,8 @@ public class MemcacheOutputStream {
     private static final int[] SIZE_TABLE = {9, 99, 999, 9999, 99999, 999999, 9999999, 99999999, 999999999, Integer.MAX_VALUE};
     private static final Charset ENCODING = Charset.forName("UTF-8");
     private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final int INITIAL_BUFFER_SIZE = 256;
+    private static final char MAX_ASCII = 0x7f;
     private static final int WRITE_QUEUE_MAX_SIZE = 123;
     private static final byte[] DIGIT_TENS = {
         '0', '0', '0', '0', '0', '0', '0', '0', '0', '0',
@@ -81,6 +85,7 @@ public class MemcacheOutputStream {
     private final NetSocket socket;
     private final int maxBuffer;
     private Buffer buffer;
+    private ByteBuf bytes;
 
     public MemcacheOutputStream(NetSocket socket) {
         this(socket, DEFAULT_BUFFER_SIZE);
@@ -92,27 +97,91 @@ public class MemcacheOutputStream {
         }
 
         this.socket = socket;
-        this.buffer = Buffer.buffer();
         this.maxBuffer = maxBuffer;
+        newBuffer();
     }
 
     public void write(final byte b) {
-        buffer.appendByte(b);
-        if (buffer.length() == maxBuffer) {
+        bytes.writeByte(b);
+        if (bytes.writerIndex() == maxBuffer) {
             flushBuffer();
         }
     }
 
     public void write(String in) {
-        byte[] bytes = in.getBytes(ENCODING);
-        for (int i = 0; i < bytes.length; i++) {
-            write(bytes[i]);
+        write(in, 0, in.length());
+    }
+
+    /**
+     * Writes the characters between start and end of the String.  ASCII characters, e.g. the commands
+     * and almost all keys, are copied straight into the buffer without encoding the String to a byte
+     * array first.
+     *
+     * @param in - The String to write.
+     * @param start - The index of the first character.
+     * @param end - The index after the last character.
+     */
+    public void write(String in, int start, int end) {
+        int offset = start;
+        while (offset < end) {
+            int length = Math.min(maxBuffer - bytes.writerIndex(), end - offset);
+            bytes.ensureWritable(length);
+            int index = bytes.writerIndex();
+            for (int i = 0; i < length; i++) {
+                char c = in.charAt(offset + i);
+                if (c > MAX_ASCII) {
+                    bytes.writerIndex(index + i);
+                    write(in.substring(offset + i, end).getBytes(ENCODING));
+                    return;
+                }
+                bytes.setByte(index + i, c);
+            }
+            bytes.writerIndex(index + length);
+            offset += length;
+            if (bytes.writerIndex() == maxBuffer) {
+                flushBuffer();
+            }
+        }
+    }
+
+    private void write(byte[] in) {
+        int offset = 0;
+        while (offset < in.length) {
+            int length = Math.min(maxBuffer - bytes.writerIndex(), in.length - offset);
+            bytes.writeBytes(in, offset, length);
+            offset += length;
+            if (bytes.writerIndex() == maxBuffer) {
+                flushBuffer();
+            }
+        }
+    }
+
+    public void write(Buffer in) {
+        ByteBuf source = in.getByteBuf();
+        int offset = 0;
+        while (offset < in.length()) {
+            int length = Math.min(maxBuffer - bytes.writerIndex(), in.length() - offset);
+            bytes.writeBytes(source, offset, length);
+            offset += length;
+            if (bytes.writerIndex() == maxBuffer) {
+                flushBuffer();
+            }
         }
     }
 
+    /**
+     * Writes the decimal digits of the value without converting it to a String.  The digits are never
+     * split across writes to the socket.
+     *
+     * @param value - The number to write.
+     */
     public void write(int value) {
         if (value < 0) {
-            write('-');
+            if (value == Integer.MIN_VALUE) {
+                write(String.valueOf(value));
+                return;
+            }
+            write((byte) '-');
             value = -value;
         }
 
@@ -122,27 +191,29 @@ public class MemcacheOutputStream {
         }
 
         size++;
-        if (size >= maxBuffer - buffer.length()) {
+        if (size >= maxBuffer - bytes.writerIndex()) {
             flushBuffer();
         }
 
+        bytes.ensureWritable(size);
         int q;
         int r;
-        int charPos = buffer.length() + size;
+        int charPos = bytes.writerIndex() + size;
+        bytes.writerIndex(charPos);
 
         // CS.OFF: MagicNumber
         while (value >= 65536) {
             q = value / 100;
             r = value - ((q << 6) + (q << 5) + (q << 2));
             value = q;
-            buffer.setByte(--charPos, DIGIT_ONES[r]);
-            buffer.setByte(--charPos, DIGIT_TENS[r]);
+            bytes.setByte(--charPos, DIGIT_ONES[r]);
+            bytes.setByte(--charPos, DIGIT_TENS[r]);
         }
 
         for (;;) {
             q = (value * 52429) >>> (16 + 3);
             r = value - ((q << 3) + (q << 1));
-            buffer.setByte(--charPos, DIGITS[r]);
+            bytes.setByte(--charPos, DIGITS[r]);
             value = q;
             if (value == 0) {
                 break;
@@ -151,17 +222,84 @@ public class MemcacheOutputStream {
         // CS.ON: MagicNumber
     }
 
+    /**
+     * Writes the decimal digits of the value, e.g. a 64 bit cas unique value or unsigned item flags.
+     *
+     * @param value - The number to write.
+     */
+    public void write(long value) {
+        if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            write((int) value);
+            return;
+        } else if (value == Long.MIN_VALUE) {
+            write(String.valueOf(value));
+            return;
+        } else if (value < 0) {
+            write((byte) '-');
+            value = -value;
+        }
+
+        int size = 1;
+        for (long remaining = value / 10; remaining != 0; remaining /= 10) {
+            size++;
+        }
+
+        if (size >= maxBuffer - bytes.writerIndex()) {
+            flushBuffer();
+        }
+
+        bytes.ensureWritable(size);
+        int charPos = bytes.writerIndex() + size;
+        bytes.writerIndex(charPos);
+        do {
+            bytes.setByte(--charPos, DIGITS[(int) (value % 10)]);
+            value /= 10;
+        } while (value != 0);
+    }
+
+    /**
+     * Writes the low 16 bits of the value in big-endian order, e.g. a length in a binary protocol header.
+     *
+     * @param value - The value to write.
+     */
+    public void writeShort(int value) {
+        ensureSpace(Short.BYTES);
+        bytes.writeShort(value);
+    }
+
+    /**
+     * Writes the value as 4 bytes in big-endian order.  Unlike {@link #write(int)} the value is not
+     * written as decimal digits.
+     *
+     * @param value - The value to write.
+     */
+    public void writeInt(int value) {
+        ensureSpace(Integer.BYTES);
+        bytes.writeInt(value);
+    }
+
+    /**
+     * Writes the value as 8 bytes in big-endian order.  Unlike {@link #write(long)} the value is not
+     * written as decimal digits.
+     *
+     * @param value - The value to write.
+     */
+    public void writeLong(long value) {
+        ensureSpace(Long.BYTES);
+        bytes.writeLong(value);
+    }
+
     public void writeDelim() {
-        buffer.appendByte((byte) ' ');
+        bytes.writeByte(' ');
     }
 
     public void writeCrlf() {
-        if (2 >= (maxBuffer - buffer.length())) {
+        if (2 >= (maxBuffer - bytes.writerIndex())) {
             flushBuffer();
         }
 
-        buffer.appendByte((byte) '\r');
-        buffer.appendByte((byte) '\n');
+        bytes.writeByte('\r');
+        bytes.writeByte('\n');
     }
 
     public void flush() {
@@ -174,10 +312,25 @@ public class MemcacheOutputStream {
         socket.close();
     }
 
+    private void ensureSpace(int length) {
+        if (length > maxBuffer - bytes.writerIndex()) {
+            flushBuffer();
+        }
+    }
+
     private void flushBuffer() {
-        if (buffer.length() > 0) {
+        if (bytes.isReadable()) {
             socket.write(buffer);
-            buffer = Buffer.buffer();
+            newBuffer();
         }
     }
+
+    /**
+     * Starts a new buffer.  The commands are written directly to the backing ByteBuf, which the Buffer
+     * handed to the socket wraps without copying.
+     */
+    private void newBuffer() {
+        bytes = Unpooled.buffer(Math.min(INITIAL_BUFFER_SIZE, maxBuffer));
+        buffer = Buffer.buffer(bytes);
+    }
 }
@@ -0,0 +1,35 @@
+/**
+ * Copyright 2014 Groupon.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.vertx.memcache.stream;
+
+/**
+ * The wire protocol used to talk to the Memcache servers.
+ *
+ * @author Stuart Siegrist (fsiegrist at groupon dot com)
+ * @since 4.0.3
+ */
+public enum MemcacheProtocol {
+    /**
+     * The ASCII protocol with line based responses.
+     */
+    TEXT,
+
+    /**
+     * The binary protocol with fixed 24 byte headers.  Multi key gets are sent as quiet commands
+     * followed by a noop, so the server only responds for the keys which are found.
+     */
+    BINARY
+}
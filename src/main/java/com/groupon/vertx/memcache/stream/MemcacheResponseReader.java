@@ -0,0 +1,42 @@
+/**
+ * Copyright 2014 Groupon.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.vertx.memcache.stream;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Reads the responses from a Memcache server socket and completes the pending commands.
+ *
+ * @author Stuart Siegrist (fsiegrist at groupon dot com)
+ * @since 4.0.3
+ */
+public interface MemcacheResponseReader {
+    /**
+     * Processes the next Buffer received from the socket.  The Buffer is not guaranteed to contain
+     * whole responses, so any incomplete response is kept until the next Buffer arrives.
+     *
+     * @param buffer - The Buffer containing the current set of bytes.
+     */
+    void processBuffer(Buffer buffer);
+
+    /**
+     * The number of commands which have received a response.  This is only updated from the context
+     * reading the socket, and is published with an ordered store so it may be read from any thread.
+     *
+     * @return - The count of completed commands.
+     */
+    long getCompletedCommands();
+}
@@ -15,8 +15,9 @@
  */
 package com.groupon.vertx.memcache.stream;
 
-import java.io.ByteArrayOutputStream;
-import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+
+import io.vertx.core.buffer.Buffer;
 
 /**
  * List of Memcache response types.
@@ -35,27 +36,43 @@ public enum MemcacheResponseType {
     END("END", true),
     ERROR("ERROR", true),
     CLIENT_ERROR("CLIENT ERROR", false),
-    SERVER_ERROR("SERVER ERROR", false);
+    SERVER_ERROR("SERVER ERROR", false),
+    META_VALUE("VA ", false),
+    META_HIT("HD", false),
+    META_MISS("EN", true),
+    META_NOT_STORED("NS", false),
+    META_EXISTS("EX", false),
+    META_NOT_FOUND("NF", false),
+    META_NOOP("MN", true);
 
     public final String type;
     public final boolean exact;
+    private final byte[] bytes;
 
     MemcacheResponseType(String type, boolean exact) {
         this.type = type;
         this.exact = exact;
+        this.bytes = type.getBytes(Charset.forName("US-ASCII"));
     }
 
-    public boolean matches(ByteArrayOutputStream line) {
-        boolean match;
-        try {
-            if (!exact) {
-                match = line.toString("UTF-8").startsWith(type);
-            } else {
-                match = line.toString("UTF-8").equals(type);
+    /**
+     * Compares the raw bytes of the line against the response type, so the line does not need
+     * to be decoded for each candidate type.
+     *
+     * @param line - A Buffer containing the response line without the trailing CRLF.
+     * @return - true if the line is of this response type.
+     */
+    public boolean matches(Buffer line) {
+        int length = line.length();
+        if (exact ? length != bytes.length : length < bytes.length) {
+            return false;
+        }
+
+        for (int i = 0; i < bytes.length; i++) {
+            if (line.getByte(i) != bytes[i]) {
+                return false;
             }
-        } catch (UnsupportedEncodingException e) {
-            match = false;
         }
-        return match;
+        return true;
     }
 }
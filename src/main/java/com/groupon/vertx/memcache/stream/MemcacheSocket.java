@@ -15,15 +15,20 @@
  */
 package com.groupon.vertx.memcache.stream;
 
-import java.nio.charset.Charset;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.net.NetSocket;
 
+import com.groupon.vertx.memcache.MemcacheException;
 import com.groupon.vertx.memcache.client.JsendStatus;
 import com.groupon.vertx.memcache.client.response.MemcacheCommandResponse;
 import com.groupon.vertx.memcache.command.MemcacheCommand;
+import com.groupon.vertx.memcache.command.MemcacheCommandType;
 import com.groupon.vertx.memcache.parser.LineParserType;
+import com.groupon.vertx.memcache.parser.MetaLineParser;
 import com.groupon.vertx.utils.Logger;
 
 /**
@@ -34,23 +39,107 @@ import com.groupon.vertx.utils.Logger;
  */
 public class MemcacheSocket {
     private static final Logger log = Logger.getLogger(MemcacheSocket.class);
-    private static final Charset ENCODING = Charset.forName("UTF-8");
+    private static final long NO_TIMER = -1;
+    private static final long TIMER_STARTING = -2;
+    private static final AtomicLongFieldUpdater<MemcacheSocket> PUBLISHED_SENT_COMMANDS =
+            AtomicLongFieldUpdater.newUpdater(MemcacheSocket.class, "publishedSentCommands");
+    private static final String NOREPLY = "noreply";
+    private static final String META_GET_FLAGS = "v k f";
+    private static final String META_QUIET_GET_FLAGS = "v k f q";
+    private static final String META_VALUE_FLAG = "v";
+    private static final byte META_EXPIRES_FLAG = 'T';
+    private static final byte META_DELTA_FLAG = 'D';
+    private static final byte META_CAS_FLAG = 'C';
+    private static final byte META_FLAGS_FLAG = 'F';
+    private static final char KEY_DELIMITER = ' ';
     private final NetSocket socket;
     private final MemcacheOutputStream output;
-    private final MemcacheInputStream input;
-    private final ConcurrentLinkedQueue<MemcacheCommand> pendingCommands;
+    private final MemcacheResponseReader input;
+    private final MemcacheProtocol protocol;
+    private final PendingCommandQueue pendingCommands;
+    private final Context flushContext;
+    private final Context timerContext;
+    private final Vertx vertx;
+    private final long operationTimeout;
+    private boolean flushScheduled = false;
+    private boolean closed = false;
+    private long timerId = NO_TIMER;
+    private long timerDeadline = 0;
+    private long sentCommands = 0;
+    private volatile long publishedSentCommands = 0;
 
     public MemcacheSocket(final NetSocket socket) {
-        this(socket, new ConcurrentLinkedQueue<MemcacheCommand>());
+        this(socket, new PendingCommandQueue());
     }
 
-    public MemcacheSocket(final NetSocket socket, ConcurrentLinkedQueue<MemcacheCommand> pendingCommands) {
+    public MemcacheSocket(final NetSocket socket, PendingCommandQueue pendingCommands) {
+        this(socket, pendingCommands, null);
+    }
+
+    public MemcacheSocket(final NetSocket socket, Context flushContext) {
+        this(socket, new PendingCommandQueue(), flushContext);
+    }
+
+    /**
+     * Creates the socket.  When a flush context is provided the socket is pipelined, so the commands sent
+     * during the current event loop tick are appended to the same buffer and written with a single flush
+     * at the end of the tick, or earlier if the buffer fills up.  The pending commands remain in the order
+     * they were written.
+     *
+     * @param socket - The NetSocket connected to the Memcache server.
+     * @param pendingCommands - The queue of commands waiting for a response.
+     * @param flushContext - The Context for scheduling the flush, or null to flush after every command.
+     */
+    public MemcacheSocket(final NetSocket socket, PendingCommandQueue pendingCommands, Context flushContext) {
+        this(socket, pendingCommands, flushContext, null, 0);
+    }
+
+    /**
+     * Creates the socket with operation timeouts.  A single timer is kept for the earliest deadline of the
+     * pending commands, and is always set on the context which creates the socket.  When a command is
+     * overdue the server is considered unresponsive, all of the pending commands fail and the socket is
+     * closed so it can be reconnected.
+     *
+     * @param socket - The NetSocket connected to the Memcache server.
+     * @param pendingCommands - The queue of commands waiting for a response.
+     * @param flushContext - The Context for scheduling the flush, or null to flush after every command.
+     * @param vertx - The Vert.x instance for the timeout timer, or null to never time out.
+     * @param operationTimeout - The milliseconds to wait for commands without their own timeout, zero or less for no timeout.
+     */
+    public MemcacheSocket(final NetSocket socket, PendingCommandQueue pendingCommands, Context flushContext,
+                          Vertx vertx, long operationTimeout) {
+        this(socket, pendingCommands, flushContext, vertx, operationTimeout, MemcacheProtocol.TEXT);
+    }
+
+    /**
+     * Creates the socket for the protocol used by the Memcache server.  With the binary protocol the opaque
+     * of each command is its sequence number on the socket, which the responses are matched against.
+     *
+     * @param socket - The NetSocket connected to the Memcache server.
+     * @param pendingCommands - The queue of commands waiting for a response.
+     * @param flushContext - The Context for scheduling the flush, or null to flush after every command.
+     * @param vertx - The Vert.x instance for the timeout timer, or null to never time out.
+     * @param operationTimeout - The milliseconds to wait for commands without their own timeout, zero or less for no timeout.
+     * @param protocol - The protocol for encoding the commands and reading the responses.
+     */
+    public MemcacheSocket(final NetSocket socket, PendingCommandQueue pendingCommands, Context flushContext,
+                          Vertx vertx, long operationTimeout, MemcacheProtocol protocol) {
         this.socket = socket;
+        this.flushContext = flushContext;
+        this.vertx = vertx;
+        this.timerContext = vertx != null ? vertx.getOrCreateContext() : null;
+        this.operationTimeout = operationTimeout;
         this.output = new MemcacheOutputStream(socket);
         this.pendingCommands = pendingCommands;
-        this.input = new MemcacheInputStream(pendingCommands);
+        this.protocol = protocol;
+        this.input = protocol == MemcacheProtocol.BINARY ? new MemcacheBinaryInputStream(pendingCommands)
+                : new MemcacheInputStream(pendingCommands);
 
         socket.handler(buffer -> {
+            if (closed) {
+                return;
+            }
+
             try {
                 input.processBuffer(buffer);
             } catch (Exception ex) {
@@ -61,8 +150,8 @@ public class MemcacheSocket {
     }
 
     /**
-     * This formats and writes the Memcache command to the NetSocket.  Expected output
-     * to the socket is:
+     * This formats and writes the Memcache command to the NetSocket.  With the text protocol the
+     * expected output to the socket is:
      * <br>
      * <code>
      * '{command name} {key} {expires} {length of value}\r\n'
@@ -74,54 +163,355 @@ public class MemcacheSocket {
      * <code>
      *     'SET somekey 300 4\r\nblue\r\n'
      * </code>
+     * <br>
+     * A noreply command is sent with 'noreply', or as a quiet request with the binary protocol, and is not
+     * added to the pending commands.  Its response handler is called with a success as soon as the command
+     * has been written to the output buffer.
      *
      * @param command - Memcache command to send
      */
     public void sendCommand(MemcacheCommand command) {
+        if (closed) {
+            log.warn("sendCommand", "socketClosed", new String[]{"command", "key"}, command.getCommand(), command.getKey());
+            command.setResponse(buildClosedResponse());
+            return;
+        }
+
+        if (protocol == MemcacheProtocol.BINARY) {
+            try {
+                int opaque = command.isNoreply() ? MemcacheBinaryProtocol.NOREPLY_OPAQUE : MemcacheBinaryProtocol.getOpaque(sentCommands);
+                MemcacheBinaryProtocol.encode(output, command, opaque);
+            } catch (MemcacheException ex) {
+                log.warn("sendCommand", "invalidCommand", new String[]{"command", "key"}, command.getCommand(), command.getKey());
+                command.setResponse(buildErrorResponse(ex.getMessage()));
+                return;
+            }
+        } else {
+            writeText(command);
+        }
+
+        if (command.isNoreply()) {
+            flushOrSchedule();
+            log.debug("sendCommand", "noreplyCommandSent", new String[]{"command", "key"}, command.getCommand(), command.getKey());
+            command.setResponse(buildNoreplyResponse());
+            return;
+        }
+
+        pendingCommands.add(command);
+        PUBLISHED_SENT_COMMANDS.lazySet(this, ++sentCommands);
+        trackTimeout(command);
+        flushOrSchedule();
+        log.debug("sendCommand", "commandSent", new String[]{"command", "key"}, command.getCommand(), command.getKey());
+    }
+
+    private void writeText(MemcacheCommand command) {
+        if (command.getType().getLineParserType() == LineParserType.META) {
+            writeMeta(command);
+            return;
+        }
+
         output.write(command.getCommand());
         output.writeDelim();
+        if (isTouchRetrieve(command.getType())) {
+            // The expiration of a gat precedes the keys, e.g. 'gat 300 key1 key2'.
+            output.write(command.getExpires().intValue());
+            output.writeDelim();
+            output.write(command.getKey());
+            output.writeCrlf();
+            return;
+        }
         output.write(command.getKey());
 
-        if (command.getType().getLineParserType() == LineParserType.STORE) {
+        boolean store = command.getType().getLineParserType() == LineParserType.STORE;
+        if (store) {
             output.writeDelim();
-            output.write("0");
+            output.write(Integer.toUnsignedLong(command.getFlags()));
         }
 
-        if (command.getExpires() != null) {
+        // The exptime is required by the storage commands, so it defaults to never expiring.
+        if (command.getExpires() != null || store) {
             output.writeDelim();
-            output.write(String.valueOf(command.getExpires()));
+            output.write(command.getExpires() != null ? command.getExpires() : 0);
         }
 
-        if (command.getValue() != null) {
+        Buffer value = command.getValueBuffer();
+        if (value != null) {
             output.writeDelim();
-            if (command.getType().getLineParserType() == LineParserType.STORE) {
-                byte[] valueBytes = command.getValue().getBytes(ENCODING);
-                output.write(String.valueOf(valueBytes.length));
+            if (store) {
+                output.write(value.length());
+                if (command.getType() == MemcacheCommandType.cas) {
+                    output.writeDelim();
+                    output.write(command.getCas().longValue());
+                }
+                writeNoreply(command);
+                output.writeCrlf();
+                output.write(value);
                 output.writeCrlf();
-                for (int i = 0; i < valueBytes.length; i++) {
-                    output.write(valueBytes[i]);
+                return;
+            }
+            output.write(value);
+        }
+        writeNoreply(command);
+        output.writeCrlf();
+    }
+
+    private static boolean isTouchRetrieve(MemcacheCommandType type) {
+        return type == MemcacheCommandType.gat || type == MemcacheCommandType.gats;
+    }
+
+    private void writeNoreply(MemcacheCommand command) {
+        if (command.isNoreply()) {
+            output.writeDelim();
+            output.write(NOREPLY);
+        }
+    }
+
+    /**
+     * Writes a meta command.  The value of an 'ms' is sent as the data block and the value of an 'ma' as
+     * the delta.  A meta get for multiple keys is sent as a quiet get for each key followed by an 'mn',
+     * so the server only responds to the hits:
+     * <br>
+     * <code>
+     *     'mg key1 v k f q\r\nmg key2 v k f q\r\nmn\r\n'
+     * </code>
+     *
+     * @param command - Memcache meta command to send
+     */
+    private void writeMeta(MemcacheCommand command) {
+        MemcacheCommandType type = command.getType();
+        String key = command.getKey();
+        if (MetaLineParser.isBatched(type, key)) {
+            int start = 0;
+            while (start < key.length()) {
+                int end = key.indexOf(KEY_DELIMITER, start);
+                end = end < 0 ? key.length() : end;
+                if (end > start) {
+                    writeMetaStart(type, key, start, end);
+                    writeMetaEnd(META_QUIET_GET_FLAGS, command.getMetaFlags());
                 }
-            } else {
-                output.write(command.getValue());
+                start = end + 1;
             }
+            output.write(MemcacheCommandType.mn.getCommand());
+            output.writeCrlf();
+            return;
+        }
+
+        Buffer value = command.getValueBuffer();
+        switch (type) {
+            case mg:
+                writeMetaStart(type, key, 0, key.length());
+                writeMetaEnd(META_GET_FLAGS, command.getMetaFlags());
+                break;
+            case ms:
+                writeMetaStart(type, key, 0, key.length());
+                output.writeDelim();
+                output.write(value != null ? value.length() : 0);
+                if (command.getExpires() != null) {
+                    writeMetaFlag(META_EXPIRES_FLAG);
+                    output.write(command.getExpires().intValue());
+                }
+                if (command.getCas() != null) {
+                    writeMetaFlag(META_CAS_FLAG);
+                    output.write(command.getCas().longValue());
+                }
+                if (command.getFlags() != 0) {
+                    writeMetaFlag(META_FLAGS_FLAG);
+                    output.write(Integer.toUnsignedLong(command.getFlags()));
+                }
+                writeMetaEnd(null, command.getMetaFlags());
+                if (value != null) {
+                    output.write(value);
+                }
+                output.writeCrlf();
+                break;
+            case ma:
+                writeMetaStart(type, key, 0, key.length());
+                output.writeDelim();
+                output.write(META_VALUE_FLAG);
+                if (value != null) {
+                    writeMetaFlag(META_DELTA_FLAG);
+                    output.write(value);
+                }
+                writeMetaEnd(null, command.getMetaFlags());
+                break;
+            default:
+                output.write(type.getCommand());
+                if (key != null) {
+                    output.writeDelim();
+                    output.write(key);
+                }
+                writeMetaEnd(null, command.getMetaFlags());
+                break;
+        }
+    }
+
+    private void writeMetaStart(MemcacheCommandType type, String key, int start, int end) {
+        output.write(type.getCommand());
+        output.writeDelim();
+        output.write(key, start, end);
+    }
+
+    private void writeMetaFlag(byte flag) {
+        output.writeDelim();
+        output.write(flag);
+    }
+
+    private void writeMetaEnd(String flags, String metaFlags) {
+        if (flags != null) {
+            output.writeDelim();
+            output.write(flags);
+        }
+        if (metaFlags != null && !metaFlags.isEmpty()) {
+            output.writeDelim();
+            output.write(metaFlags);
         }
         output.writeCrlf();
+    }
 
-        pendingCommands.add(command);
-        output.flush();
-        log.debug("sendCommand", "commandSent", new String[]{"command", "key"}, command.getCommand(), command.getKey());
+    private void flushOrSchedule() {
+        if (flushContext == null) {
+            output.flush();
+        } else {
+            scheduleFlush();
+        }
     }
 
-    public void close() {
-        MemcacheCommand command = pendingCommands.poll();
-        while (command != null) {
-            command.setResponse(new MemcacheCommandResponse.Builder()
-                    .setStatus(JsendStatus.error)
-                    .setMessage("Socket closed unexpectedly")
-                    .build());
-            command = pendingCommands.poll();
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            flushContext.runOnContext(event -> {
+                flushScheduled = false;
+                if (!closed) {
+                    output.flush();
+                }
+            });
+        }
+    }
+
+    /**
+     * The number of commands written to the socket which are still waiting for a response.  The count
+     * is kept as two counters updated by the owning context and published with ordered stores, so it
+     * can be read from any thread without walking the pending queue or fencing every command.
+     *
+     * @return - The number of pending commands.
+     */
+    public int getPendingCommandCount() {
+        return (int) Math.max(publishedSentCommands - input.getCompletedCommands(), 0);
+    }
+
+    /**
+     * Sets the deadline for the command and starts the timer if it isn't running, or if the command is due
+     * before the deadline the timer is running for.
+     */
+    private void trackTimeout(MemcacheCommand command) {
+        long timeout = command.getTimeout() != null ? command.getTimeout() : operationTimeout;
+        if (vertx == null || timeout <= 0) {
+            return;
+        }
+
+        long deadline = System.currentTimeMillis() + timeout;
+        command.setDeadline(deadline);
+        if (timerId == NO_TIMER || deadline < timerDeadline) {
+            scheduleTimeout(deadline, timeout);
+        }
+    }
+
+    /**
+     * Replaces the timer with one for the deadline.  A timer belongs to the context which sets it and is
+     * cancelled when that context is undeployed, so a command written inline from another context starts
+     * the timer on the context of the socket instead.
+     */
+    private void scheduleTimeout(long deadline, long delay) {
+        timerDeadline = deadline;
+        if (timerId == TIMER_STARTING) {
+            return;
         }
 
+        cancelTimer();
+        if (Vertx.currentContext() == timerContext) {
+            timerId = vertx.setTimer(delay, this::checkTimeout);
+        } else {
+            timerId = TIMER_STARTING;
+            timerContext.runOnContext(event -> {
+                if (timerId == TIMER_STARTING) {
+                    timerId = vertx.setTimer(Math.max(timerDeadline - System.currentTimeMillis(), 1), this::checkTimeout);
+                }
+            });
+        }
+    }
+
+    private void cancelTimer() {
+        if (timerId >= 0) {
+            vertx.cancelTimer(timerId);
+        }
+        timerId = NO_TIMER;
+    }
+
+    /**
+     * Checks the deadlines of the pending commands.  If any command is overdue the socket is closed, otherwise
+     * the timer is rescheduled for the earliest deadline.  Commands without a deadline are skipped, so they
+     * don't stop the commands behind them from timing out.
+     */
+    private void checkTimeout(long id) {
+        timerId = NO_TIMER;
+        if (closed) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long earliest = Long.MAX_VALUE;
+        for (int i = 0; i < pendingCommands.size(); i++) {
+            MemcacheCommand command = pendingCommands.get(i);
+            long deadline = command.getDeadline();
+            if (deadline == 0) {
+                continue;
+            }
+
+            if (deadline <= now) {
+                log.warn("checkTimeout", "commandTimedOut", new String[]{"command", "key", "pending"}, command.getCommand(),
+                        command.getKey(), pendingCommands.size());
+                close(buildTimeoutResponse());
+                return;
+            }
+            earliest = Math.min(earliest, deadline);
+        }
+
+        if (earliest != Long.MAX_VALUE) {
+            scheduleTimeout(earliest, earliest - now);
+        }
+    }
+
+    public void close() {
+        close(buildClosedResponse());
+    }
+
+    private void close(MemcacheCommandResponse response) {
+        closed = true;
+        cancelTimer();
+
+        pendingCommands.drain(command -> command.setResponse(response));
+
         output.close();
     }
+
+    private MemcacheCommandResponse buildClosedResponse() {
+        return buildErrorResponse("Socket closed unexpectedly");
+    }
+
+    private MemcacheCommandResponse buildNoreplyResponse() {
+        return new MemcacheCommandResponse.Builder()
+                .setStatus(JsendStatus.success)
+                .build();
+    }
+
+    private MemcacheCommandResponse buildTimeoutResponse() {
+        return buildErrorResponse("Command timed out");
+    }
+
+    private MemcacheCommandResponse buildErrorResponse(String message) {
+        return new MemcacheCommandResponse.Builder()
+                .setStatus(JsendStatus.error)
+                .setMessage(message)
+                .build();
+    }
 }
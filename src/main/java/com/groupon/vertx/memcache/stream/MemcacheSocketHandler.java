@@ -16,6 +16,7 @@
 package com.groupon.vertx.memcache.stream;
 
 import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.MessageConsumer;
@@ -45,14 +46,80 @@ public class MemcacheSocketHandler implements Handler<Long> {
     private NetClient netClient;
     private long delayFactor;
     private long currentDelay;
+    private boolean pipelined;
+    private MemcacheSocketRegistry registry;
+    private long operationTimeout;
+    private MemcacheProtocol protocol;
 
     public MemcacheSocketHandler(Vertx vertx, String eventBusAddress, MemcacheServer server, NetClient netClient, long delayFactor) {
+        this(vertx, eventBusAddress, server, netClient, delayFactor, false);
+    }
+
+    public MemcacheSocketHandler(Vertx vertx, String eventBusAddress, MemcacheServer server, NetClient netClient, long delayFactor,
+                                 boolean pipelined) {
+        this(vertx, eventBusAddress, server, netClient, delayFactor, pipelined, null);
+    }
+
+    /**
+     * Creates the handler.  When a registry is provided the connected socket is also registered with it,
+     * so clients in the same Vert.x instance can send commands to the socket without the event bus.
+     *
+     * @param vertx - The Vert.x instance.
+     * @param eventBusAddress - The event bus address for the server.
+     * @param server - The Memcache server to connect to.
+     * @param netClient - The client for connecting to Memcache.
+     * @param delayFactor - The initial delay before reconnecting.
+     * @param pipelined - true to coalesce the socket writes per event loop tick.
+     * @param registry - The registry for the connected socket, or null to only use the event bus.
+     */
+    public MemcacheSocketHandler(Vertx vertx, String eventBusAddress, MemcacheServer server, NetClient netClient, long delayFactor,
+                                 boolean pipelined, MemcacheSocketRegistry registry) {
+        this(vertx, eventBusAddress, server, netClient, delayFactor, pipelined, registry, 0);
+    }
+
+    /**
+     * Creates the handler with an operation timeout.  A socket whose oldest pending command is overdue
+     * is closed, which fails the pending commands and reconnects.
+     *
+     * @param vertx - The Vert.x instance.
+     * @param eventBusAddress - The event bus address for the server.
+     * @param server - The Memcache server to connect to.
+     * @param netClient - The client for connecting to Memcache.
+     * @param delayFactor - The initial delay before reconnecting.
+     * @param pipelined - true to coalesce the socket writes per event loop tick.
+     * @param registry - The registry for the connected socket, or null to only use the event bus.
+     * @param operationTimeout - The milliseconds to wait for a response, zero or less for no timeout.
+     */
+    public MemcacheSocketHandler(Vertx vertx, String eventBusAddress, MemcacheServer server, NetClient netClient, long delayFactor,
+                                 boolean pipelined, MemcacheSocketRegistry registry, long operationTimeout) {
+        this(vertx, eventBusAddress, server, netClient, delayFactor, pipelined, registry, operationTimeout, MemcacheProtocol.TEXT);
+    }
+
+    /**
+     * Creates the handler for a server using the given protocol.
+     *
+     * @param vertx - The Vert.x instance.
+     * @param eventBusAddress - The event bus address for the server.
+     * @param server - The Memcache server to connect to.
+     * @param netClient - The client for connecting to Memcache.
+     * @param delayFactor - The initial delay before reconnecting.
+     * @param pipelined - true to coalesce the socket writes per event loop tick.
+     * @param registry - The registry for the connected socket, or null to only use the event bus.
+     * @param operationTimeout - The milliseconds to wait for a response, zero or less for no timeout.
+     * @param protocol - The protocol spoken by the server.
+     */
+    public MemcacheSocketHandler(Vertx vertx, String eventBusAddress, MemcacheServer server, NetClient netClient, long delayFactor,
+                                 boolean pipelined, MemcacheSocketRegistry registry, long operationTimeout, MemcacheProtocol protocol) {
         this.vertx = vertx;
         this.eventBusAddress = eventBusAddress;
         this.server = server;
         this.netClient = netClient;
         this.delayFactor = delayFactor;
         this.currentDelay = delayFactor;
+        this.pipelined = pipelined;
+        this.registry = registry;
+        this.operationTimeout = operationTimeout;
+        this.protocol = protocol;
     }
 
     public void handle(Long time) {
@@ -69,18 +136,24 @@ public class MemcacheSocketHandler implements Handler<Long> {
                     currentDelay = delayFactor;
 
                     final NetSocket netSocket = socket.result();
-                    final MemcacheCommandHandler memcacheHandler = new MemcacheCommandHandler(netSocket);
+                    final Context context = vertx.getOrCreateContext();
+                    final MemcacheSocket memcacheSocket = new MemcacheSocket(netSocket, new PendingCommandQueue(),
+                            pipelined ? context : null, vertx, operationTimeout, protocol);
+                    final MemcacheCommandHandler memcacheHandler = new MemcacheCommandHandler(memcacheSocket);
                     final MessageConsumer<MemcacheCommand> consumer = vertx.eventBus().consumer(eventBusAddress, memcacheHandler);
+                    if (registry != null) {
+                        registry.register(eventBusAddress, context, memcacheSocket);
+                    }
 
                     netSocket.exceptionHandler(ex -> {
                         log.error("establishSocket", "exception", "unknown", ex);
-                        consumer.unregister();
+                        unregister(consumer, memcacheSocket);
                         memcacheHandler.finish();
                     });
 
                     netSocket.closeHandler(message -> {
                         log.warn("establishSocket", "socketClosed");
-                        consumer.unregister();
+                        unregister(consumer, memcacheSocket);
                         memcacheHandler.finish();
                         vertx.setTimer(currentDelay, currentHandler);
                     });
@@ -98,4 +171,11 @@ public class MemcacheSocketHandler implements Handler<Long> {
             }
         });
     }
+
+    private void unregister(MessageConsumer<MemcacheCommand> consumer, MemcacheSocket memcacheSocket) {
+        consumer.unregister();
+        if (registry != null) {
+            registry.unregister(eventBusAddress, memcacheSocket);
+        }
+    }
 }
@@ -0,0 +1,169 @@
+/**
+ * Copyright 2014 Groupon.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.vertx.memcache.stream;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+
+import com.groupon.vertx.memcache.client.response.MemcacheCommandResponse;
+import com.groupon.vertx.memcache.command.MemcacheCommand;
+import com.groupon.vertx.utils.Logger;
+
+/**
+ * Keeps track of the Memcache sockets which are connected in the current Vert.x instance, so a client
+ * running in the same instance can send commands directly to a socket instead of over the event bus.
+ * Each socket is only written to from the event loop thread which opened it, and sockets on the calling
+ * event loop are preferred, so a client sharing an event loop with a Memcache verticle instance never
+ * hands its commands to another thread.
+ *
+ * @author Stuart Siegrist (fsiegrist at groupon dot com)
+ * @since 4.0.3
+ */
+public class MemcacheSocketRegistry implements Shareable {
+    private static final Logger log = Logger.getLogger(MemcacheSocketRegistry.class);
+    private static final String REGISTRY_MAP = "com.groupon.vertx.memcache.sockets";
+    private static final String REGISTRY_KEY = "registry";
+
+    private final ConcurrentMap<String, List<LocalSocket>> sockets = new ConcurrentHashMap<>();
+
+    /**
+     * Retrieves the registry shared by the verticles and clients in the Vert.x instance.
+     *
+     * @param vertx - The Vert.x instance.
+     * @return - The MemcacheSocketRegistry for the Vert.x instance.
+     */
+    public static MemcacheSocketRegistry getInstance(Vertx vertx) {
+        LocalMap<String, MemcacheSocketRegistry> registryMap = vertx.sharedData().getLocalMap(REGISTRY_MAP);
+        MemcacheSocketRegistry registry = registryMap.get(REGISTRY_KEY);
+        if (registry == null) {
+            registry = new MemcacheSocketRegistry();
+            MemcacheSocketRegistry existing = registryMap.putIfAbsent(REGISTRY_KEY, registry);
+            if (existing != null) {
+                registry = existing;
+            }
+        }
+        return registry;
+    }
+
+    /**
+     * Registers a connected socket for the server address.  This must be called on the context which
+     * owns the socket, so the event loop thread of the socket can be recorded.
+     *
+     * @param address - The event bus address of the server.
+     * @param context - The Context which owns the socket.
+     * @param socket - The connected MemcacheSocket.
+     */
+    public void register(String address, Context context, MemcacheSocket socket) {
+        log.trace("register", "registerSocket", new String[]{"address"}, address);
+        Thread eventLoop = context.isEventLoopContext() ? Thread.currentThread() : null;
+        sockets.computeIfAbsent(address, key -> new CopyOnWriteArrayList<>()).add(new LocalSocket(context, eventLoop, socket));
+    }
+
+    /**
+     * Removes a socket which is no longer connected.
+     *
+     * @param address - The event bus address of the server.
+     * @param socket - The MemcacheSocket to remove.
+     */
+    public void unregister(String address, MemcacheSocket socket) {
+        log.trace("unregister", "unregisterSocket", new String[]{"address"}, address);
+        List<LocalSocket> localSockets = sockets.get(address);
+        if (localSockets != null) {
+            localSockets.removeIf(localSocket -> localSocket.socket == socket);
+        }
+    }
+
+    /**
+     * Sends the command to a socket registered for the server address.  A socket on the calling event loop
+     * is preferred and written to immediately, otherwise the command is handed to the context owning the
+     * socket.  The response handler is executed back on the calling context.  When there are multiple
+     * connections to the server the one with the fewest pending commands is used.
+     *
+     * @param address - The event bus address of the server.
+     * @param command - The command to send.
+     * @param responseHandler - The handler for the response to the command.
+     * @return - false if there is no socket registered for the address and the command was not sent.
+     */
+    public boolean sendCommand(String address, MemcacheCommand command, Handler<MemcacheCommandResponse> responseHandler) {
+        final Context caller = Vertx.currentContext();
+        final Thread current = Thread.currentThread();
+        final LocalSocket localSocket = getSocket(address, current);
+        if (localSocket == null) {
+            return false;
+        }
+
+        if (caller == null || caller == localSocket.context) {
+            command.commandResponseHandler(responseHandler);
+        } else {
+            command.commandResponseHandler(response -> caller.runOnContext(event -> responseHandler.handle(response)));
+        }
+
+        if (caller == localSocket.context || current == localSocket.eventLoop) {
+            localSocket.socket.sendCommand(command);
+        } else {
+            localSocket.context.runOnContext(event -> localSocket.socket.sendCommand(command));
+        }
+        return true;
+    }
+
+    private LocalSocket getSocket(String address, Thread current) {
+        List<LocalSocket> localSockets = sockets.get(address);
+        if (localSockets == null) {
+            return null;
+        }
+
+        LocalSocket selected = null;
+        boolean selectedLocal = false;
+        int selectedPending = 0;
+        for (LocalSocket localSocket : localSockets) {
+            boolean local = localSocket.eventLoop == current;
+            if (selectedLocal && !local) {
+                continue;
+            }
+
+            int pending = localSocket.socket.getPendingCommandCount();
+            if (selected == null || local != selectedLocal || pending < selectedPending) {
+                selected = localSocket;
+                selectedLocal = local;
+                selectedPending = pending;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * A connected socket with the Context and event loop thread which own it.
+     */
+    private static final class LocalSocket {
+        private final Context context;
+        private final Thread eventLoop;
+        private final MemcacheSocket socket;
+
+        private LocalSocket(Context context, Thread eventLoop, MemcacheSocket socket) {
+            this.context = context;
+            this.eventLoop = eventLoop;
+            this.socket = socket;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright 2014 Groupon.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.vertx.memcache.stream;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import com.groupon.vertx.memcache.command.MemcacheCommand;
+
+/**
+ * The commands written to a socket which are waiting for a response, in the order they were written.
+ * The commands are kept in a growable array used as a ring, so adding a command does not allocate
+ * once the array has grown to the number of commands in flight.  The queue is not thread safe, it
+ * must only be used from the context which writes to and reads from the socket.
+ *
+ * @author Stuart Siegrist (fsiegrist at groupon dot com)
+ * @since 4.0.3
+ */
+public final class PendingCommandQueue {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private MemcacheCommand[] commands;
+    private int head = 0;
+    private int size = 0;
+
+    public PendingCommandQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates the queue with the initial capacity rounded up to a power of two.
+     *
+     * @param capacity - The number of commands the queue holds before it grows.
+     */
+    public PendingCommandQueue(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid capacity");
+        }
+        int length = Integer.highestOneBit(capacity);
+        commands = new MemcacheCommand[length < capacity ? length << 1 : length];
+    }
+
+    /**
+     * Adds the command to the tail of the queue, doubling the array when it is full.
+     *
+     * @param command - The command waiting for a response.
+     */
+    public void add(MemcacheCommand command) {
+        if (command == null) {
+            throw new NullPointerException("command");
+        }
+
+        if (size == commands.length) {
+            grow();
+        }
+        commands[(head + size) & (commands.length - 1)] = command;
+        size++;
+    }
+
+    /**
+     * The command at the head of the queue.
+     *
+     * @return - The oldest command, or null if the queue is empty.
+     */
+    public MemcacheCommand peek() {
+        return size == 0 ? null : commands[head];
+    }
+
+    /**
+     * The command at the position in the queue, counting from the head.
+     *
+     * @param index - The position of the command, where 0 is the head.
+     * @return - The command at the position.
+     */
+    public MemcacheCommand get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Invalid index: " + index);
+        }
+        return commands[(head + index) & (commands.length - 1)];
+    }
+
+    /**
+     * Removes the command at the head of the queue.
+     *
+     * @return - The oldest command, or null if the queue is empty.
+     */
+    public MemcacheCommand poll() {
+        if (size == 0) {
+            return null;
+        }
+
+        MemcacheCommand command = commands[head];
+        commands[head] = null;
+        head = (head + 1) & (commands.length - 1);
+        size--;
+        return command;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes each command from the head of the queue and passes it to the handler.  Commands added by
+     * the handler are drained as well.
+     *
+     * @param handler - The handler for the removed commands.
+     */
+    public void drain(Consumer<MemcacheCommand> handler) {
+        MemcacheCommand command = poll();
+        while (command != null) {
+            handler.accept(command);
+            command = poll();
+        }
+    }
+
+    /**
+     * Removes all of the commands.
+     */
+    public void clear() {
+        Arrays.fill(commands, null);
+        head = 0;
+        size = 0;
+    }
+
+    private void grow() {
+        MemcacheCommand[] grown = new MemcacheCommand[commands.length << 1];
+        int first = commands.length - head;
+        System.arraycopy(commands, head, grown, 0, first);
+        System.arraycopy(commands, 0, grown, first, head);
+        commands = grown;
+        head = 0;
+    }
+}
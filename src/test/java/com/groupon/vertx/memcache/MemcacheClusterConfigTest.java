@@ -16,8 +16,10 @@
 package com.groupon.vertx.memcache;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import io.vertx.core.eventbus.EventBus;
 import io.vertx.core.json.JsonArray;
@@ -28,6 +30,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import com.groupon.vertx.memcache.hash.HashAlgorithm;
+import com.groupon.vertx.memcache.stream.MemcacheProtocol;
 
 /**
  * Tests for <code>MemcacheClusterConfig</code>.
@@ -87,6 +90,9 @@ public class MemcacheClusterConfigTest implements MemcacheKeys {
             assertNull("Namespace shouldn't have a default", memcacheConfig.getNamespace());
             assertEquals("Default points per server doesn't match", 160, memcacheConfig.getPointsPerServer());
             assertEquals("Default hash algorithm doesn't match", HashAlgorithm.FNV1_32_HASH, memcacheConfig.getHashAlgorithm());
+            assertFalse("Default pipelined doesn't match", config.isPipelined());
+            assertFalse("Default pipelined doesn't match", memcacheConfig.isPipelined());
+            assertEquals("Default protocol doesn't match", MemcacheProtocol.TEXT, memcacheConfig.getProtocol());
         } catch (MemcacheException me) {
             assertNull("Unexpected exception", me);
         }
@@ -96,6 +102,10 @@ public class MemcacheClusterConfigTest implements MemcacheKeys {
     public void testFullJsonObject() {
         JsonObject configObj = new JsonObject();
         configObj.put(EVENT_BUS_ADDRESS_PREFIX_KEY, "address");
+        configObj.put(PIPELINED, true);
+        configObj.put(OPERATION_TIMEOUT, 250);
+        configObj.put(CONNECTIONS_PER_SERVER, 4);
+        configObj.put(PROTOCOL, MemcacheProtocol.BINARY.name());
 
         JsonObject clusterObj = new JsonObject();
         clusterObj.put(SERVERS_KEY, new JsonArray().add("server1"));
@@ -120,6 +130,11 @@ public class MemcacheClusterConfigTest implements MemcacheKeys {
             assertEquals("Namespace doesn't match", "namespace", memcacheConfig.getNamespace());
             assertEquals("Points per server doesn't match", 10, memcacheConfig.getPointsPerServer());
             assertEquals("Hash algorithm doesn't match", HashAlgorithm.CRC_HASH, memcacheConfig.getHashAlgorithm());
+            assertTrue("Pipelined doesn't match", config.isPipelined());
+            assertTrue("Pipelined doesn't match", memcacheConfig.isPipelined());
+            assertEquals("Operation timeout doesn't match", 250, memcacheConfig.getOperationTimeout());
+            assertEquals("Connections per server doesn't match", 4, memcacheConfig.getConnectionsPerServer());
+            assertEquals("Protocol doesn't match", MemcacheProtocol.BINARY, memcacheConfig.getProtocol());
         } catch (MemcacheException me) {
             assertNull("Unexpected exception", me);
         }
@@ -32,6 +32,8 @@ import io.vertx.core.eventbus.Message;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.net.NetClient;
 import io.vertx.core.net.NetSocket;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.SharedData;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -69,6 +71,12 @@ public class MemcacheClusterVerticleTest {
     @Mock
     private NetSocket netSocket;
 
+    @Mock
+    private SharedData sharedData;
+
+    @Mock
+    private LocalMap<Object, Object> registryMap;
+
     @Captor
     private ArgumentCaptor<Handler<AsyncResult<NetSocket>>> socketCaptor;
 
@@ -84,6 +92,8 @@ public class MemcacheClusterVerticleTest {
         stub(vertx.eventBus()).toReturn(eventBus);
         stub(vertx.createNetClient()).toReturn(netClient);
         doReturn(context).when(vertx).getOrCreateContext();
+        doReturn(sharedData).when(vertx).sharedData();
+        doReturn(registryMap).when(sharedData).getLocalMap(any(String.class));
 
         verticle = new MemcacheClusterVerticle();
         verticle.init(vertx, context);
@@ -16,8 +16,10 @@
 package com.groupon.vertx.memcache;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
 
@@ -77,7 +79,11 @@ public class MemcacheConfigTest implements MemcacheKeys {
             assertNull("Namespace shouldn't have a default", config.getNamespace());
             assertEquals("Default points per server doesn't match", 160, config.getPointsPerServer());
             assertEquals("Default hash algorithm doesn't match", HashAlgorithm.FNV1_32_HASH, config.getHashAlgorithm());
-
+            assertFalse("Default pipelined doesn't match", config.isPipelined());
+            assertEquals("Default operation timeout doesn't match", 0, config.getOperationTimeout());
+            assertEquals("Default connections per server doesn't match", 1, config.getConnectionsPerServer());
+            assertEquals("Default compression threshold doesn't match", 0, config.getCompressionThreshold());
+            assertEquals("Default routing cache size doesn't match", 1024, config.getRoutingCacheSize());
         } catch (MemcacheException me) {
             assertNull("Unexpected exception", me);
         }
@@ -91,6 +97,11 @@ public class MemcacheConfigTest implements MemcacheKeys {
         configObj.put(NAMESPACE_KEY, "namespace");
         configObj.put(POINTS_PER_SERVER, 10);
         configObj.put(ALGORITHM_KEY, HashAlgorithm.CRC_HASH.name());
+        configObj.put(PIPELINED, true);
+        configObj.put(OPERATION_TIMEOUT, 250);
+        configObj.put(CONNECTIONS_PER_SERVER, 4);
+        configObj.put(COMPRESSION_THRESHOLD, 16384);
+        configObj.put(ROUTING_CACHE_SIZE, 64);
 
         try {
             MemcacheConfig config = new MemcacheConfig(configObj);
@@ -99,6 +110,11 @@ public class MemcacheConfigTest implements MemcacheKeys {
             assertEquals("Namespace doesn't match", "namespace", config.getNamespace());
             assertEquals("Points per server doesn't match", 10, config.getPointsPerServer());
             assertEquals("Hash algorithm doesn't match", HashAlgorithm.CRC_HASH, config.getHashAlgorithm());
+            assertTrue("Pipelined doesn't match", config.isPipelined());
+            assertEquals("Operation timeout doesn't match", 250, config.getOperationTimeout());
+            assertEquals("Connections per server doesn't match", 4, config.getConnectionsPerServer());
+            assertEquals("Compression threshold doesn't match", 16384, config.getCompressionThreshold());
+            assertEquals("Routing cache size doesn't match", 64, config.getRoutingCacheSize());
         } catch (MemcacheException me) {
             assertNull("Unexpected exception", me);
         }
@@ -32,6 +32,8 @@ import io.vertx.core.eventbus.Message;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.net.NetClient;
 import io.vertx.core.net.NetSocket;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.SharedData;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -69,6 +71,12 @@ public class MemcacheVerticleTest {
     @Mock
     private NetSocket netSocket;
 
+    @Mock
+    private SharedData sharedData;
+
+    @Mock
+    private LocalMap<Object, Object> registryMap;
+
     @Captor
     private ArgumentCaptor<Handler<AsyncResult<NetSocket>>> socketCaptor;
 
@@ -84,6 +92,8 @@ public class MemcacheVerticleTest {
         stub(vertx.eventBus()).toReturn(eventBus);
         stub(vertx.createNetClient()).toReturn(netClient);
         doReturn(context).when(vertx).getOrCreateContext();
+        doReturn(sharedData).when(vertx).sharedData();
+        doReturn(registryMap).when(sharedData).getLocalMap(any(String.class));
 
         verticle = new MemcacheVerticle();
         verticle.init(vertx, context);
@@ -116,6 +126,19 @@ public class MemcacheVerticleTest {
         socketHandler.handle(socket);
 
         verify(eventBus, times(1)).consumer(Matchers.eq("address_server"), registerCaptor.capture());
+        verify(registryMap, times(1)).putIfAbsent(any(), any());
+    }
+
+    @Test
+    public void testStartMultipleConnections() {
+        JsonObject config = new JsonObject("{\"memcacheConfig\":{\"servers\":[\"server\"],\"eventBusAddress\":\"address\"," +
+                "\"connectionsPerServer\":3}}");
+
+        stub(context.config()).toReturn(config);
+
+        verticle.start(startFuture);
+
+        verify(netClient, times(3)).connect(Matchers.eq(11211), Matchers.eq("server"), socketCaptor.capture());
     }
 
     @Test
@@ -0,0 +1,78 @@
+/**
+ * Copyright 2014 Groupon.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.vertx.memcache.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.Test;
+
+/**
+ * Tests for <code>DeflateValueCompressor</code>.
+ *
+ * @author Stuart Siegrist (fsiegrist at groupon dot com)
+ * @since 4.0.3
+ */
+public class DeflateValueCompressorTest {
+    private DeflateValueCompressor compressor = new DeflateValueCompressor();
+
+    @Test
+    public void testRoundTrip() {
+        StringBuilder fragment = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            fragment.append("<li class=\"deal\">").append(i).append("</li>");
+        }
+        Buffer value = Buffer.buffer(fragment.toString());
+
+        Buffer compressed = compressor.compress(value);
+
+        assertTrue("Value not compressed", compressed.length() * 5 < value.length());
+        assertEquals("Value doesn't match", value, compressor.decompress(compressed));
+    }
+
+    @Test
+    public void testRoundTripRandomBytes() {
+        byte[] bytes = new byte[20000];
+        new Random(7).nextBytes(bytes);
+        Buffer value = Buffer.buffer(bytes);
+
+        assertEquals("Value doesn't match", value, compressor.decompress(compressor.compress(value)));
+    }
+
+    @Test
+    public void testRoundTripEmpty() {
+        assertEquals("Value doesn't match", 0, compressor.decompress(compressor.compress(Buffer.buffer())).length());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidValue() {
+        compressor.decompress(Buffer.buffer("value"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTruncatedValue() {
+        Buffer compressed = compressor.compress(Buffer.buffer(new byte[1000]));
+        compressor.decompress(compressed.getBuffer(0, compressed.length() - 4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLevel() {
+        new DeflateValueCompressor(10);
+    }
+}
@@ -15,25 +15,42 @@
  */
 package com.groupon.vertx.memcache.client;
 
+import static org.hamcrest.CoreMatchers.startsWith;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.SharedData;
 import org.hamcrest.FeatureMatcher;
 import org.junit.Before;
 import org.junit.Test;
@@ -45,15 +62,20 @@ import org.mockito.internal.matchers.Equals;
 
 import com.groupon.vertx.memcache.MemcacheConfig;
 import com.groupon.vertx.memcache.MemcacheKeys;
+import com.groupon.vertx.memcache.MemcacheUnavailableException;
 import com.groupon.vertx.memcache.TestMessage;
 import com.groupon.vertx.memcache.client.response.DeleteCommandResponse;
+import com.groupon.vertx.memcache.client.response.MemcacheCommandResponse;
 import com.groupon.vertx.memcache.client.response.ModifyCommandResponse;
 import com.groupon.vertx.memcache.client.response.RetrieveCommandResponse;
 import com.groupon.vertx.memcache.client.response.StoreCommandResponse;
 import com.groupon.vertx.memcache.client.response.TouchCommandResponse;
+import com.groupon.vertx.memcache.client.transcoder.Transcoder;
+import com.groupon.vertx.memcache.client.transcoder.Transcoders;
 import com.groupon.vertx.memcache.command.MemcacheCommand;
 import com.groupon.vertx.memcache.command.MemcacheCommandType;
 import com.groupon.vertx.memcache.hash.HashAlgorithm;
+import com.groupon.vertx.memcache.stream.MemcacheSocketRegistry;
 
 /**
  * Tests for <code>MemcacheClient</code>.
@@ -66,6 +88,21 @@ public class MemcacheClientTest implements MemcacheKeys {
     @Mock
     private EventBus eventBus;
 
+    @Mock
+    private Vertx vertx;
+
+    @Mock
+    private SharedData sharedData;
+
+    @Mock
+    private LocalMap<String, MemcacheSocketRegistry> registryMap;
+
+    @Mock
+    private MemcacheSocketRegistry registry;
+
+    @Captor
+    private ArgumentCaptor<Handler<MemcacheCommandResponse>> directCaptor;
+
     @Captor
     private ArgumentCaptor<MemcacheClientResponseHandler<ModifyCommandResponse>> modifyCaptor;
 
@@ -167,6 +204,155 @@ public class MemcacheClientTest implements MemcacheKeys {
         storeCaptor.getValue().handle(Future.succeededFuture(new TestMessage<>(response)));
     }
 
+    @Test
+    public void testSetBinary() {
+        Buffer value = Buffer.buffer(new byte[] {0, (byte) 0xff, '\r', '\n'});
+
+        client.set("key", value, 100);
+
+        verify(eventBus, times(1)).send(eq("address_server1"), commandCaptor.capture(), withTimeout(Long.MAX_VALUE), storeCaptor.capture());
+
+        assertEquals(MemcacheCommandType.set, commandCaptor.getValue().getType());
+        assertEquals("namespacekey", commandCaptor.getValue().getKey());
+        assertEquals(value, commandCaptor.getValue().getValueBuffer());
+        assertEquals(100, (int) commandCaptor.getValue().getExpires());
+    }
+
+    @Test
+    public void testSetBinaryWithFlags() {
+        client.set("key", Buffer.buffer("value"), 100, 2);
+
+        verify(eventBus, times(1)).send(eq("address_server1"), commandCaptor.capture(), withTimeout(Long.MAX_VALUE), storeCaptor.capture());
+
+        assertEquals(MemcacheCommandType.set, commandCaptor.getValue().getType());
+        assertEquals(2, commandCaptor.getValue().getFlags());
+    }
+
+    @Test
+    public void testSetCompressed() {
+        Buffer value = Buffer.buffer(new String(new char[1000]).replace('\0', 'a'));
+        MemcacheClient compressingClient = client.withCompression(new DeflateValueCompressor(), 100);
+
+        compressingClient.set("key", value, 100, 1);
+        compressingClient.set("small", "value", 100);
+
+        verify(eventBus, times(2)).send(eq("address_server1"), commandCaptor.capture(), withTimeout(Long.MAX_VALUE), storeCaptor.capture());
+
+        MemcacheCommand compressed = commandCaptor.getAllValues().get(0);
+        assertEquals("Flags don't match", 1 | ValueCompressor.COMPRESSED_FLAG, compressed.getFlags());
+        assertTrue("Value not compressed", compressed.getValueBuffer().length() < value.length());
+        assertEquals("Value doesn't match", value, new DeflateValueCompressor().decompress(compressed.getValueBuffer()));
+
+        MemcacheCommand small = commandCaptor.getAllValues().get(1);
+        assertEquals("Flags don't match", 0, small.getFlags());
+        assertEquals("Value doesn't match", "value", small.getValue());
+    }
+
+    @Test
+    public void testGetDecompressed() {
+        final RetrieveCommandResponse response = new RetrieveCommandResponse.Builder()
+                .setStatus(JsendStatus.success)
+                .addBinaryData("namespacekey", new DeflateValueCompressor().compress(Buffer.buffer("value")))
+                .addFlags("namespacekey", 1 | ValueCompressor.COMPRESSED_FLAG)
+                .build();
+
+        Future<RetrieveCommandResponse> result = client.get("key");
+
+        verify(eventBus, times(1)).send(eq("address_server1"), commandCaptor.capture(), withTimeout(Long.MAX_VALUE), getCaptor.capture());
+        getCaptor.getValue().handle(Future.succeededFuture(new TestMessage<>(response)));
+
+        assertTrue("Result not completed", result.succeeded());
+        assertEquals("Result data doesn't match", "value", result.result().getData().get("key"));
+        assertEquals("Result flags don't match", 1, result.result().getFlags("key"));
+    }
+
+    @Test
+    public void testGetInvalidCompressedValue() {
+        final RetrieveCommandResponse response = new RetrieveCommandResponse.Builder()
+                .setStatus(JsendStatus.success)
+                .addData("namespacekey", "value")
+                .addFlags("namespacekey", ValueCompressor.COMPRESSED_FLAG)
+                .build();
+
+        Future<RetrieveCommandResponse> result = client.get("key");
+
+        verify(eventBus, times(1)).send(eq("address_server1"), commandCaptor.capture(), withTimeout(Long.MAX_VALUE), getCaptor.capture());
+        getCaptor.getValue().handle(Future.succeededFuture(new TestMessage<>(response)));
+
+        assertTrue("Result not completed", result.succeeded());
+        assertTrue("Invalid value not dropped", result.result().getData().isEmpty());
+    }
+
+    @Test
+    public void testSetTranscoded() {
+        client.set("key", 42L, 100, Transcoders.LONG);
+
+        verify(eventBus, times(1)).send(eq("address_server1"), commandCaptor.capture(), withTimeout(Long.MAX_VALUE), storeCaptor.capture());
+
+        assertEquals(MemcacheCommandType.set, commandCaptor.getValue().getType());
+        assertEquals(Transcoders.LONG.getFlags(42L), commandCaptor.getValue().getFlags());
+        assertEquals(Buffer.buffer().appendLong(42L), commandCaptor.getValue().getValueBuffer());
+    }
+
+    @Test
+    public void testSetTranscodedReservedFlag() {
+        Transcoder<String> transcoder = new Transcoder<String>() {
+            public Buffer encode(String value) {
+                return Buffer.buffer(value);
+            }
+
+            public int getFlags(String value) {
+                return ValueCompressor.COMPRESSED_FLAG;
+            }
+
+            public String decode(Buffer data, int flags) {
+                return data.toString();
+            }
+        };
+
+        try {
+            client.set("key", "value", 100, transcoder);
+            assertTrue("Expected an exception", false);
+        } catch (IllegalArgumentException iae) {
+            assertEquals("Transcoder flags must not include the compressed flag", iae.getMessage());
+        }
+
+        verify(eventBus, never()).send(anyString(), any(), any(DeliveryOptions.class), any());
+    }
+
+    @Test
+    public void testGetTranscoded() {
+        final RetrieveCommandResponse response = new RetrieveCommandResponse.Builder()
+                .setStatus(JsendStatus.success)
+                .addBinaryData("namespacekey1", Transcoders.JSON_OBJECT.encode(new JsonObject().put("id", 1)))
+                .addFlags("namespacekey1", Transcoders.JSON_OBJECT.getFlags(null))
+                .addData("namespacekey2", "not json")
+                .build();
+
+        Future<Map<String, JsonObject>> result = client.get(Arrays.asList("key1", "key2", "key3"), Transcoders.JSON_OBJECT);
+
+        verify(eventBus, times(1)).send(eq("address_server1"), commandCaptor.capture(), withTimeout(Long.MAX_VALUE), getCaptor.capture());
+        getCaptor.getValue().handle(Future.succeededFuture(new TestMessage<>(response)));
+
+        assertTrue("Result not completed", result.succeeded());
+        assertEquals("Undecodable value not dropped", 1, result.result().size());
+        assertEquals(new JsonObject().put("id", 1), result.result().get("key1"));
+    }
+
+    @Test
+    public void testGetTranscodedError() {
+        Future<Long> result = client.get("key", Transcoders.LONG);
+
+        verify(eventBus, times(1)).send(eq("address_server1"), commandCaptor.capture(), withTimeout(Long.MAX_VALUE), getCaptor.capture());
+        getCaptor.getValue().handle(Future.succeededFuture(new TestMessage<>(new RetrieveCommandResponse.Builder()
+                .setStatus(JsendStatus.error)
+                .setMessage("SERVER_ERROR out of memory")
+                .build())));
+
+        assertTrue("Result not failed", result.failed());
+        assertEquals("SERVER_ERROR out of memory", result.cause().getMessage());
+    }
+
     @Test
     public void testAdd() {
         final StoreCommandResponse response = new StoreCommandResponse.Builder()
@@ -214,46 +400,46 @@ public class MemcacheClientTest implements MemcacheKeys {
 
     @Test
     public void testAppend() {
-        final ModifyCommandResponse response = new ModifyCommandResponse.Builder()
+        final StoreCommandResponse response = new StoreCommandResponse.Builder()
                 .setStatus(JsendStatus.success)
                 .build();
 
-        client.append("key", "value").setHandler(new Handler<AsyncResult<ModifyCommandResponse>>() {
+        client.append("key", "value").setHandler(new Handler<AsyncResult<StoreCommandResponse>>() {
             @Override
-            public void handle(AsyncResult<ModifyCommandResponse> result) {
+            public void handle(AsyncResult<StoreCommandResponse> result) {
                 assertEquals("Result doesn't match", response, result.result());
             }
         });
 
         MemcacheCommand command = new MemcacheCommand(MemcacheCommandType.append, "namespacekey", "value", null);
 
-        verify(eventBus, times(1)).send(eq("address_server1"), commandCaptor.capture(), withTimeout(Long.MAX_VALUE), modifyCaptor.capture());
+        verify(eventBus, times(1)).send(eq("address_server1"), commandCaptor.capture(), withTimeout(Long.MAX_VALUE), storeCaptor.capture());
 
         verifyCommand(command, commandCaptor.getValue());
 
-        modifyCaptor.getValue().handle(Future.succeededFuture(new TestMessage<>(response)));
+        storeCaptor.getValue().handle(Future.succeededFuture(new TestMessage<>(response)));
     }
 
     @Test
     public void testPrepend() {
-        final ModifyCommandResponse response = new ModifyCommandResponse.Builder()
+        final StoreCommandResponse response = new StoreCommandResponse.Builder()
                 .setStatus(JsendStatus.success)
                 .build();
 
-        client.prepend("key", "value").setHandler(new Handler<AsyncResult<ModifyCommandResponse>>() {
+        client.prepend("key", "value").setHandler(new Handler<AsyncResult<StoreCommandResponse>>() {
             @Override
-            public void handle(AsyncResult<ModifyCommandResponse> result) {
+            public void handle(AsyncResult<StoreCommandResponse> result) {
                 assertEquals("Result doesn't match", response, result.result());
             }
         });
 
         MemcacheCommand command = new MemcacheCommand(MemcacheCommandType.prepend, "namespacekey", "value", null);
 
-        verify(eventBus, times(1)).send(eq("address_server1"), commandCaptor.capture(), withTimeout(Long.MAX_VALUE), modifyCaptor.capture());
+        verify(eventBus, times(1)).send(eq("address_server1"), commandCaptor.capture(), withTimeout(Long.MAX_VALUE), storeCaptor.capture());
 
         verifyCommand(command, commandCaptor.getValue());
 
-        modifyCaptor.getValue().handle(Future.succeededFuture(new TestMessage<>(response)));
+        storeCaptor.getValue().handle(Future.succeededFuture(new TestMessage<>(response)));
     }
 
     @Test
@@ -285,44 +471,53 @@ public class MemcacheClientTest implements MemcacheKeys {
         final Map<String, String> keyMap = new HashMap<>();
         keyMap.put("namespacekey1", "value");
         keyMap.put("namespacekey2", "value");
-        final RetrieveCommandResponse responseFull = new RetrieveCommandResponse.Builder()
+        final RetrieveCommandResponse response = new RetrieveCommandResponse.Builder()
                 .setStatus(JsendStatus.success)
                 .setData(keyMap)
                 .build();
-        List<TestMessage<RetrieveCommandResponse>> messages = Arrays.asList(
-                new TestMessage<>(
-                        new RetrieveCommandResponse.Builder()
-                                .setStatus(JsendStatus.success)
-                                .setData(Collections.singletonMap("namespacekey1", keyMap.get("namespacekey1")))
-                                .build()),
-                new TestMessage<>(
-                        new RetrieveCommandResponse.Builder()
-                                .setStatus(JsendStatus.success)
-                                .setData(Collections.singletonMap("namespacekey2", keyMap.get("namespacekey2")))
-                                .build()));
 
         client.get(Arrays.asList("key1", "key2")).setHandler(new Handler<AsyncResult<RetrieveCommandResponse>>() {
             @Override
             public void handle(AsyncResult<RetrieveCommandResponse> result) {
-                assertEquals("Result status doesn't match", responseFull.getStatus(), result.result().getStatus());
+                assertEquals("Result status doesn't match", response.getStatus(), result.result().getStatus());
                 assertEquals("Result data doesn't match", "value", result.result().getData().get("key1"));
                 assertEquals("Result data doesn't match", "value", result.result().getData().get("key2"));
             }
         });
 
-        MemcacheCommand command1 = new MemcacheCommand(MemcacheCommandType.get, "namespacekey1", null, null);
-        MemcacheCommand command2 = new MemcacheCommand(MemcacheCommandType.get, "namespacekey2", null, null);
+        MemcacheCommand command = new MemcacheCommand(MemcacheCommandType.get, Arrays.asList("namespacekey1", "namespacekey2"));
+
+        verify(eventBus, times(1)).send(eq("address_server1"), commandCaptor.capture(), withTimeout(Long.MAX_VALUE), getCaptor.capture());
 
-        List<MemcacheCommand> expectedCommands = Arrays.asList(command1, command2);
+        verifyCommand(command, commandCaptor.getValue());
 
-        verify(eventBus, times(2)).send(eq("address_server1"), commandCaptor.capture(), withTimeout(Long.MAX_VALUE), getCaptor.capture());
+        getCaptor.getValue().handle(Future.succeededFuture(new TestMessage<>(response)));
+    }
 
-        List<MemcacheCommand> commands = commandCaptor.getAllValues();
-        List<TranslateKeyResponseHandler> handlers = getCaptor.getAllValues();
-        for (int i = 0; i < getCaptor.getAllValues().size(); i++) {
-            verifyCommand(expectedCommands.get(i), commands.get(i));
-            handlers.get(i).handle(Future.succeededFuture(messages.get(i)));
-        }
+    @Test
+    public void testMultiGetAndTouch() {
+        final RetrieveCommandResponse response = new RetrieveCommandResponse.Builder()
+                .setStatus(JsendStatus.success)
+                .addData("namespacekey1", "value")
+                .build();
+
+        Future<RetrieveCommandResponse> result = client.gat(Arrays.asList("key1", "key2"), 300);
+
+        MemcacheCommand command = new MemcacheCommand.Builder()
+                .setType(MemcacheCommandType.gat)
+                .setKeys(Arrays.asList("namespacekey1", "namespacekey2"))
+                .setExpires(300)
+                .build();
+
+        verify(eventBus, times(1)).send(eq("address_server1"), commandCaptor.capture(), withTimeout(Long.MAX_VALUE), getCaptor.capture());
+
+        verifyCommand(command, commandCaptor.getValue());
+
+        getCaptor.getValue().handle(Future.succeededFuture(new TestMessage<>(response)));
+
+        assertTrue("Result not completed", result.succeeded());
+        assertEquals("Result data doesn't match", "value", result.result().getData().get("key1"));
+        assertNull("Result data doesn't match", result.result().getData().get("key2"));
     }
 
     @Test
@@ -331,12 +526,6 @@ public class MemcacheClientTest implements MemcacheKeys {
                 .setStatus(JsendStatus.success)
                 .setData(Collections.singletonMap("namespacekey1", "value"))
                 .build();
-        List<TestMessage<RetrieveCommandResponse>> messages = Arrays.asList(
-                new TestMessage<>(response),
-                new TestMessage<>(new RetrieveCommandResponse.Builder()
-                        .setStatus(JsendStatus.success)
-                        .setData(Collections.emptyMap())
-                        .build()));
 
         client.get(Arrays.asList("key1", "key2")).setHandler(new Handler<AsyncResult<RetrieveCommandResponse>>() {
             @Override
@@ -346,19 +535,166 @@ public class MemcacheClientTest implements MemcacheKeys {
             }
         });
 
-        MemcacheCommand command1 = new MemcacheCommand(MemcacheCommandType.get, "namespacekey1", null, null);
-        MemcacheCommand command2 = new MemcacheCommand(MemcacheCommandType.get, "namespacekey2", null, null);
+        MemcacheCommand command = new MemcacheCommand(MemcacheCommandType.get, Arrays.asList("namespacekey1", "namespacekey2"));
+
+        verify(eventBus, times(1)).send(eq("address_server1"), commandCaptor.capture(), withTimeout(Long.MAX_VALUE), getCaptor.capture());
+
+        verifyCommand(command, commandCaptor.getValue());
+
+        getCaptor.getValue().handle(Future.succeededFuture(new TestMessage<>(response)));
+    }
+
+    @Test
+    public void testMultiGetMultipleServers() {
+        JsonObject configObj = new JsonObject();
+        configObj.put(SERVERS_KEY, new JsonArray().add("server1").add("server2"));
+        configObj.put(EVENT_BUS_ADDRESS_KEY, "address");
+        configObj.put(NAMESPACE_KEY, "namespace");
+        configObj.put(POINTS_PER_SERVER, 10);
+        configObj.put(ALGORITHM_KEY, HashAlgorithm.FNV1A_32_HASH.name());
+        client = new MemcacheClient(eventBus, new MemcacheConfig(configObj));
+
+        final List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            keys.add("key" + i);
+        }
 
-        List<MemcacheCommand> expectedCommands = Arrays.asList(command1, command2);
+        client.get(keys).setHandler(new Handler<AsyncResult<RetrieveCommandResponse>>() {
+            @Override
+            public void handle(AsyncResult<RetrieveCommandResponse> result) {
+                assertEquals("Result status doesn't match", JsendStatus.success, result.result().getStatus());
+                assertEquals("Result data doesn't match", keys.size(), result.result().getData().size());
+            }
+        });
 
-        verify(eventBus, times(2)).send(eq("address_server1"), commandCaptor.capture(), withTimeout(Long.MAX_VALUE), getCaptor.capture());
+        verify(eventBus, times(2)).send(argThat(startsWith("address_server")), commandCaptor.capture(), withTimeout(Long.MAX_VALUE),
+                getCaptor.capture());
 
+        Set<String> sentKeys = new HashSet<>();
         List<MemcacheCommand> commands = commandCaptor.getAllValues();
         List<TranslateKeyResponseHandler> handlers = getCaptor.getAllValues();
-        for (int i = 0; i < getCaptor.getAllValues().size(); i++) {
-            verifyCommand(expectedCommands.get(i), commands.get(i));
-            handlers.get(i).handle(Future.succeededFuture(messages.get(i)));
+        for (int i = 0; i < commands.size(); i++) {
+            RetrieveCommandResponse.Builder builder = new RetrieveCommandResponse.Builder().setStatus(JsendStatus.success);
+            for (String cacheKey : commands.get(i).getKey().split(" ")) {
+                assertTrue("Key sent more than once", sentKeys.add(cacheKey));
+                builder.addData(cacheKey, "value");
+            }
+            handlers.get(i).handle(Future.succeededFuture(new TestMessage<>(builder.build())));
         }
+        assertEquals("Not all keys were sent", keys.size(), sentKeys.size());
+    }
+
+    @Test
+    public void testMultiGetNoKeys() {
+        Future<RetrieveCommandResponse> result = client.get(Collections.emptyList());
+
+        assertTrue("Result not completed", result.isComplete());
+        assertEquals("Result status doesn't match", JsendStatus.success, result.result().getStatus());
+        assertTrue("Result data not empty", result.result().getData().isEmpty());
+
+        verify(eventBus, never()).send(anyString(), any(), any(DeliveryOptions.class), any());
+    }
+
+    @Test
+    public void testWithTimeout() {
+        client.withTimeout(50).get("key");
+
+        verify(eventBus, times(1)).send(eq("address_server1"), commandCaptor.capture(), withTimeout(50L), getCaptor.capture());
+        assertEquals("Timeout doesn't match", Long.valueOf(50), commandCaptor.getValue().getTimeout());
+
+        getCaptor.getValue().handle(Future.failedFuture(new ReplyException(ReplyFailure.TIMEOUT, "Timed out")));
+
+        client.get("key");
+
+        verify(eventBus, times(1)).send(eq("address_server1"), any(MemcacheCommand.class), withTimeout(Long.MAX_VALUE), any());
+    }
+
+    @Test
+    public void testConfiguredTimeout() {
+        JsonObject configObj = new JsonObject();
+        configObj.put(SERVERS_KEY, new JsonArray().add("server1"));
+        configObj.put(EVENT_BUS_ADDRESS_KEY, "address");
+        configObj.put(OPERATION_TIMEOUT, 100);
+        client = new MemcacheClient(eventBus, new MemcacheConfig(configObj));
+
+        Future<DeleteCommandResponse> result = client.delete("key");
+
+        verify(eventBus, times(1)).send(eq("address_server1"), commandCaptor.capture(), withTimeout(100L), deleteCaptor.capture());
+        assertEquals("Timeout doesn't match", Long.valueOf(100), commandCaptor.getValue().getTimeout());
+
+        deleteCaptor.getValue().handle(Future.failedFuture(new ReplyException(ReplyFailure.TIMEOUT, "Timed out")));
+
+        assertTrue("Result not failed", result.failed());
+        assertTrue("Wrong failure", result.cause() instanceof MemcacheUnavailableException);
+    }
+
+    @Test
+    public void testDirectGet() {
+        doReturn(true).when(registry).sendCommand(anyString(), any(MemcacheCommand.class), any());
+        client = createDirectClient();
+
+        Future<RetrieveCommandResponse> result = client.get("key");
+
+        verify(registry, times(1)).sendCommand(eq("address_server1"), commandCaptor.capture(), directCaptor.capture());
+        verify(eventBus, never()).send(anyString(), any(), any(DeliveryOptions.class), any());
+        assertEquals("namespacekey", commandCaptor.getValue().getKey());
+
+        directCaptor.getValue().handle(new RetrieveCommandResponse.Builder()
+                .setStatus(JsendStatus.success)
+                .addData("namespacekey", "value")
+                .build());
+
+        assertTrue("Result not completed", result.succeeded());
+        assertEquals("Key not translated", "value", result.result().getData().get("key"));
+    }
+
+    @Test
+    public void testDirectAppend() {
+        doReturn(true).when(registry).sendCommand(anyString(), any(MemcacheCommand.class), any());
+        client = createDirectClient();
+
+        Future<StoreCommandResponse> result = client.append("key", "value");
+
+        verify(registry, times(1)).sendCommand(eq("address_server1"), commandCaptor.capture(), directCaptor.capture());
+        verify(eventBus, never()).send(anyString(), any(), any(DeliveryOptions.class), any());
+        assertEquals(MemcacheCommandType.append, commandCaptor.getValue().getType());
+
+        directCaptor.getValue().handle(new StoreCommandResponse.Builder()
+                .setStatus(JsendStatus.success)
+                .setData("STORED")
+                .build());
+
+        assertTrue("Result not completed", result.succeeded());
+        assertEquals("Result doesn't match", "STORED", result.result().getData());
+    }
+
+    @Test
+    public void testDirectSocketClosed() {
+        doReturn(true).when(registry).sendCommand(anyString(), any(MemcacheCommand.class), any());
+        client = createDirectClient();
+
+        Future<StoreCommandResponse> result = client.set("key", "value", 100);
+
+        verify(registry, times(1)).sendCommand(eq("address_server1"), commandCaptor.capture(), directCaptor.capture());
+
+        directCaptor.getValue().handle(new MemcacheCommandResponse.Builder()
+                .setStatus(JsendStatus.error)
+                .setMessage("Socket closed unexpectedly")
+                .build());
+
+        assertTrue("Result not failed", result.failed());
+        assertTrue("Wrong failure", result.cause() instanceof MemcacheUnavailableException);
+    }
+
+    @Test
+    public void testDirectNoLocalSocket() {
+        doReturn(false).when(registry).sendCommand(anyString(), any(MemcacheCommand.class), any());
+        client = createDirectClient();
+
+        client.delete("key");
+
+        verify(registry, times(1)).sendCommand(eq("address_server1"), any(MemcacheCommand.class), any());
+        verify(eventBus, times(1)).send(eq("address_server1"), commandCaptor.capture(), withTimeout(Long.MAX_VALUE), deleteCaptor.capture());
     }
 
     @Test
@@ -405,11 +741,141 @@ public class MemcacheClientTest implements MemcacheKeys {
         touchCaptor.getValue().handle(Future.succeededFuture(new TestMessage<>(response)));
     }
 
+    @Test
+    public void testSetNoreply() {
+        Future<Void> result = client.setNoreply("key", "value", 100);
+
+        verify(eventBus, times(1)).send(eq("address_server1"), commandCaptor.capture());
+        verify(eventBus, never()).send(anyString(), any(), any(DeliveryOptions.class), any());
+        assertTrue("Result not completed", result.succeeded());
+
+        MemcacheCommand command = commandCaptor.getValue();
+        assertEquals("namespacekey", command.getKey());
+        assertEquals("value", command.getValue());
+        assertEquals(Integer.valueOf(100), command.getExpires());
+        assertTrue("Command not noreply", command.isNoreply());
+    }
+
+    @Test
+    public void testDirectDeleteNoreply() {
+        doReturn(true).when(registry).sendCommand(anyString(), any(MemcacheCommand.class), any());
+        client = createDirectClient();
+
+        Future<Void> result = client.deleteNoreply("key");
+
+        verify(registry, times(1)).sendCommand(eq("address_server1"), commandCaptor.capture(), directCaptor.capture());
+        assertTrue("Command not noreply", commandCaptor.getValue().isNoreply());
+        assertFalse("Result completed before the write", result.isComplete());
+
+        directCaptor.getValue().handle(new MemcacheCommandResponse.Builder().setStatus(JsendStatus.success).build());
+
+        assertTrue("Result not completed", result.succeeded());
+    }
+
+    @Test
+    public void testDirectIncrNoreplySocketClosed() {
+        doReturn(true).when(registry).sendCommand(anyString(), any(MemcacheCommand.class), any());
+        client = createDirectClient();
+
+        Future<Void> result = client.incrNoreply("key", 2);
+
+        verify(registry, times(1)).sendCommand(eq("address_server1"), commandCaptor.capture(), directCaptor.capture());
+        assertEquals("2", commandCaptor.getValue().getValue());
+
+        directCaptor.getValue().handle(new MemcacheCommandResponse.Builder()
+                .setStatus(JsendStatus.error)
+                .setMessage("Socket closed unexpectedly")
+                .build());
+
+        assertTrue("Result not failed", result.failed());
+        assertTrue("Wrong failure", result.cause() instanceof MemcacheUnavailableException);
+    }
+
+    @Test
+    public void testCompareAndSwapRetry() {
+        doReturn(true).when(registry).sendCommand(anyString(), any(MemcacheCommand.class), any());
+        client = createDirectClient();
+
+        Future<StoreCommandResponse> result = client.compareAndSwap("key", value -> String.valueOf(Integer.parseInt(value) + 1), 100);
+
+        verify(registry, times(1)).sendCommand(eq("address_server1"), commandCaptor.capture(), directCaptor.capture());
+        assertEquals(MemcacheCommandType.gets, commandCaptor.getValue().getType());
+        directCaptor.getValue().handle(casResponse("1", 10));
+
+        verify(registry, times(2)).sendCommand(eq("address_server1"), commandCaptor.capture(), directCaptor.capture());
+        assertEquals(MemcacheCommandType.cas, commandCaptor.getValue().getType());
+        assertEquals("2", commandCaptor.getValue().getValue());
+        assertEquals(Long.valueOf(10), commandCaptor.getValue().getCas());
+        directCaptor.getValue().handle(storeResponse("EXISTS"));
+
+        verify(registry, times(3)).sendCommand(eq("address_server1"), commandCaptor.capture(), directCaptor.capture());
+        assertEquals(MemcacheCommandType.gets, commandCaptor.getValue().getType());
+        directCaptor.getValue().handle(casResponse("5", 11));
+
+        verify(registry, times(4)).sendCommand(eq("address_server1"), commandCaptor.capture(), directCaptor.capture());
+        assertEquals("6", commandCaptor.getValue().getValue());
+        assertEquals(Long.valueOf(11), commandCaptor.getValue().getCas());
+        assertFalse("Result completed before the store", result.isComplete());
+        directCaptor.getValue().handle(storeResponse("STORED"));
+
+        assertTrue("Result not completed", result.succeeded());
+        assertEquals("STORED", result.result().getData());
+    }
+
+    @Test
+    public void testCompareAndSwapMissingKey() {
+        doReturn(true).when(registry).sendCommand(anyString(), any(MemcacheCommand.class), any());
+        client = createDirectClient();
+
+        Future<StoreCommandResponse> result = client.compareAndSwap("key", value -> value == null ? "initial" : value, 100, 1);
+
+        verify(registry, times(1)).sendCommand(eq("address_server1"), commandCaptor.capture(), directCaptor.capture());
+        directCaptor.getValue().handle(new RetrieveCommandResponse.Builder().setStatus(JsendStatus.success).build());
+
+        verify(registry, times(2)).sendCommand(eq("address_server1"), commandCaptor.capture(), directCaptor.capture());
+        assertEquals(MemcacheCommandType.add, commandCaptor.getValue().getType());
+        assertEquals("initial", commandCaptor.getValue().getValue());
+        directCaptor.getValue().handle(storeResponse("NOT_STORED"));
+
+        assertTrue("Result not completed", result.succeeded());
+        assertEquals("Attempts not bounded", "NOT_STORED", result.result().getData());
+        verify(registry, times(2)).sendCommand(anyString(), any(MemcacheCommand.class), any());
+    }
+
     @Test
     public void testGetNamespace() {
         assertEquals("namespace", client.getNamespace());
     }
     
+    private static RetrieveCommandResponse casResponse(String value, long cas) {
+        return new RetrieveCommandResponse.Builder()
+                .setStatus(JsendStatus.success)
+                .addData("namespacekey", value)
+                .addCas("namespacekey", cas)
+                .build();
+    }
+
+    private static StoreCommandResponse storeResponse(String data) {
+        return new StoreCommandResponse.Builder()
+                .setStatus(JsendStatus.success)
+                .setData(data)
+                .build();
+    }
+
+    private MemcacheClient createDirectClient() {
+        doReturn(eventBus).when(vertx).eventBus();
+        doReturn(sharedData).when(vertx).sharedData();
+        doReturn(registryMap).when(sharedData).getLocalMap(anyString());
+        doReturn(registry).when(registryMap).get(anyString());
+
+        JsonObject configObj = new JsonObject();
+        configObj.put(SERVERS_KEY, new JsonArray().add("server1"));
+        configObj.put(EVENT_BUS_ADDRESS_KEY, "address");
+        configObj.put(NAMESPACE_KEY, "namespace");
+
+        return new MemcacheClient(vertx, new MemcacheConfig(configObj));
+    }
+
     private void verifyCommand(MemcacheCommand expected, MemcacheCommand actual) {
         assertEquals(expected.getCommand(), actual.getCommand());
         assertEquals(expected.getKey(), actual.getKey());
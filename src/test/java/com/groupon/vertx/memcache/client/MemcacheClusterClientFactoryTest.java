@@ -18,10 +18,14 @@ package com.groupon.vertx.memcache.client;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doReturn;
 
+import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.EventBus;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.SharedData;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -30,6 +34,7 @@ import org.mockito.MockitoAnnotations;
 import com.groupon.vertx.memcache.MemcacheClusterConfig;
 import com.groupon.vertx.memcache.MemcacheKeys;
 import com.groupon.vertx.memcache.hash.HashAlgorithm;
+import com.groupon.vertx.memcache.stream.MemcacheSocketRegistry;
 
 /**
  * Tests for <code>MemcacheClusterClientFactory</code>.
@@ -41,6 +46,15 @@ public class MemcacheClusterClientFactoryTest implements MemcacheKeys {
     @Mock
     private EventBus eventBus;
 
+    @Mock
+    private Vertx vertx;
+
+    @Mock
+    private SharedData sharedData;
+
+    @Mock
+    private LocalMap<String, MemcacheSocketRegistry> registryMap;
+
     private JsonObject configObj;
     private MemcacheClusterConfig config;
 
@@ -63,18 +77,38 @@ public class MemcacheClusterClientFactoryTest implements MemcacheKeys {
         configObj.put(CLUSTERS_KEY, clustersObj);
 
         config = new MemcacheClusterConfig(configObj);
+
+        doReturn(eventBus).when(vertx).eventBus();
+        doReturn(sharedData).when(vertx).sharedData();
+        doReturn(registryMap).when(sharedData).getLocalMap("com.groupon.vertx.memcache.sockets");
     }
 
     @Test
     public void testConstructorFail() {
         try {
-            assertNull(new MemcacheClusterClientFactory(null, null));
+            assertNull(new MemcacheClusterClientFactory((EventBus) null, null));
             fail("Exception was not thrown");
         } catch (MemcacheClientException me) {
             assertNotNull(me);
         }
     }
 
+    @Test
+    public void testVertxConstructorFail() {
+        try {
+            assertNull(new MemcacheClusterClientFactory((Vertx) null, config));
+            fail("Exception was not thrown");
+        } catch (MemcacheClientException me) {
+            assertNotNull(me);
+        }
+    }
+
+    @Test
+    public void testVertxGetClient() throws MemcacheClientException {
+        MemcacheClusterClientFactory factory = new MemcacheClusterClientFactory(vertx, config);
+        assertNotNull(factory.getClient("clusterA"));
+    }
+
     @Test
     public void testConstructorConfigFail() {
         try {
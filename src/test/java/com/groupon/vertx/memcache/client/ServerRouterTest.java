@@ -0,0 +1,76 @@
+/**
+ * Copyright 2014 Groupon.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.vertx.memcache.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.groupon.vertx.memcache.hash.HashAlgorithm;
+import com.groupon.vertx.memcache.server.KetamaContinuum;
+import com.groupon.vertx.memcache.server.MemcacheServer;
+
+/**
+ * Tests for <code>ServerRouter</code>.
+ *
+ * @author Stuart Siegrist (fsiegrist at groupon dot com)
+ * @since 4.0.3
+ */
+public class ServerRouterTest {
+    private KetamaContinuum continuum;
+
+    @Before
+    public void setUp() {
+        continuum = new KetamaContinuum(Arrays.asList(new MemcacheServer("localhost:1234"), new MemcacheServer("localhost:1235"),
+                new MemcacheServer("localhost:1236")), HashAlgorithm.KETAMA_HASH, 160);
+    }
+
+    @Test
+    public void testRoutesMatchContinuum() {
+        // A small cache so the keys keep replacing each other.
+        ServerRouter router = new ServerRouter(continuum, "address", 4);
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < 500; i++) {
+                String key = "key" + i;
+                MemcacheServer server = continuum.getServer(key);
+                assertSame("Server doesn't match", server, router.getServer(key));
+                assertEquals("Address doesn't match", "address_" + server.getServer(), router.getAddress(key));
+            }
+        }
+    }
+
+    @Test
+    public void testCachedRoute() {
+        ServerRouter router = new ServerRouter(continuum, "address", 16);
+
+        String address = router.getAddress("key");
+        assertSame("Route should be cached", address, router.getAddress(new String("key")));
+        assertSame("Server address should be shared", address, router.getAddress(continuum.getServer("key")));
+    }
+
+    @Test
+    public void testDisabledCache() {
+        ServerRouter router = new ServerRouter(continuum, "address", 0);
+
+        MemcacheServer server = continuum.getServer("key");
+        assertSame("Server doesn't match", server, router.getServer("key"));
+        assertEquals("Address doesn't match", "address_" + server.getServer(), router.getAddress("key"));
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright 2014 Groupon.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.vertx.memcache.client.transcoder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+/**
+ * Tests for <code>Transcoders</code>.
+ *
+ * @author Stuart Siegrist (fsiegrist at groupon dot com)
+ * @since 4.0.3
+ */
+public class TranscodersTest {
+    @Test
+    public void testString() {
+        assertEquals(Transcoders.TEXT_FLAG, Transcoders.STRING.getFlags("value"));
+        assertEquals("v\u00e4lue", Transcoders.STRING.decode(Transcoders.STRING.encode("v\u00e4lue"), 0));
+    }
+
+    @Test
+    public void testBytes() {
+        byte[] value = new byte[] {0, (byte) 0xff, '\r', '\n'};
+
+        Buffer encoded = Transcoders.BYTES.encode(value);
+
+        assertEquals(Transcoders.BYTES_FLAG, Transcoders.BYTES.getFlags(value));
+        assertArrayEquals(value, Transcoders.BYTES.decode(encoded, Transcoders.BYTES_FLAG));
+    }
+
+    @Test
+    public void testLong() {
+        Buffer encoded = Transcoders.LONG.encode(Long.MIN_VALUE);
+
+        assertEquals(Long.BYTES, encoded.length());
+        assertEquals(Long.valueOf(Long.MIN_VALUE), Transcoders.LONG.decode(encoded, Transcoders.LONG.getFlags(Long.MIN_VALUE)));
+    }
+
+    @Test
+    public void testLongFromText() {
+        assertEquals("Counter not parsed", Long.valueOf(42), Transcoders.LONG.decode(Buffer.buffer("42  "), 0));
+    }
+
+    @Test
+    public void testInteger() {
+        Buffer encoded = Transcoders.INTEGER.encode(-7);
+
+        assertEquals(Integer.BYTES, encoded.length());
+        assertEquals(Integer.valueOf(-7), Transcoders.INTEGER.decode(encoded, Transcoders.INTEGER_FLAG));
+        assertEquals(Integer.valueOf(12345678), Transcoders.INTEGER.decode(Buffer.buffer("12345678"), 0));
+    }
+
+    @Test
+    public void testDouble() {
+        assertEquals(Double.valueOf(1.5), Transcoders.DOUBLE.decode(Transcoders.DOUBLE.encode(1.5), Transcoders.DOUBLE_FLAG));
+        assertEquals(Double.valueOf(2.25), Transcoders.DOUBLE.decode(Buffer.buffer("2.25"), 0));
+    }
+
+    @Test
+    public void testBoolean() {
+        assertEquals(Boolean.TRUE, Transcoders.BOOLEAN.decode(Transcoders.BOOLEAN.encode(true), Transcoders.BOOLEAN_FLAG));
+        assertEquals(Boolean.FALSE, Transcoders.BOOLEAN.decode(Transcoders.BOOLEAN.encode(false), Transcoders.BOOLEAN_FLAG));
+        assertEquals(Boolean.TRUE, Transcoders.BOOLEAN.decode(Buffer.buffer("true"), 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBooleanInvalidText() {
+        Transcoders.BOOLEAN.decode(Buffer.buffer("yes"), 0);
+    }
+
+    @Test
+    public void testJsonObject() {
+        JsonObject value = new JsonObject().put("name", "value").put("count", 3);
+
+        assertEquals(Transcoders.JSON_FLAG, Transcoders.JSON_OBJECT.getFlags(value));
+        assertEquals(value, Transcoders.JSON_OBJECT.decode(Transcoders.JSON_OBJECT.encode(value), Transcoders.JSON_FLAG));
+        assertEquals(value, Transcoders.JSON_OBJECT.decode(Buffer.buffer(value.encode()), 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testJsonObjectInvalid() {
+        Transcoders.JSON_OBJECT.decode(Buffer.buffer("{invalid"), Transcoders.JSON_FLAG);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnexpectedFlags() {
+        Transcoders.LONG.decode(Transcoders.INTEGER.encode(1), Transcoders.INTEGER_FLAG);
+    }
+
+    @Test
+    public void testFlagsAreDistinct() {
+        int[] flags = new int[] {Transcoders.TEXT_FLAG, Transcoders.BOOLEAN_FLAG, Transcoders.INTEGER_FLAG, Transcoders.LONG_FLAG,
+            Transcoders.DOUBLE_FLAG, Transcoders.BYTES_FLAG, Transcoders.JSON_FLAG};
+        for (int i = 0; i < flags.length; i++) {
+            assertEquals("Flag outside the type mask", flags[i], flags[i] & Transcoders.TYPE_MASK);
+            for (int j = i + 1; j < flags.length; j++) {
+                assertTrue("Duplicate flag", flags[i] != flags[j]);
+            }
+        }
+    }
+}
@@ -46,7 +46,7 @@ public class DeleteCommandResponseCodecTest {
 
     @Test
     public void testName() {
-        assertEquals(codec.getClass().getSimpleName(), codec.name());
+        assertEquals("DeleteCommandResponseCodec-v1", codec.name());
     }
 
     @Test
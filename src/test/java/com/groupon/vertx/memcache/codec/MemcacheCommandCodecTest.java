@@ -16,11 +16,15 @@
 package com.groupon.vertx.memcache.codec;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import io.vertx.core.buffer.Buffer;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.groupon.vertx.memcache.MemcacheException;
 import com.groupon.vertx.memcache.command.MemcacheCommand;
 import com.groupon.vertx.memcache.command.MemcacheCommandType;
 
@@ -43,7 +47,21 @@ public class MemcacheCommandCodecTest {
 
     @Test
     public void testName() {
-        assertEquals(codec.getClass().getSimpleName(), codec.name());
+        assertEquals("MemcacheCommandCodec-v1", codec.name());
+    }
+
+    @Test
+    public void testDecodeOtherVersion() {
+        Buffer buffer = Buffer.buffer();
+        codec.encodeToWire(buffer, command);
+        buffer.setByte(0, (byte) (WireFormat.VERSION + 1));
+
+        try {
+            codec.decodeFromWire(0, buffer);
+            assertTrue("Expected an exception", false);
+        } catch (MemcacheException me) {
+            assertEquals("Unsupported wire format version 2", me.getMessage());
+        }
     }
 
     @Test
@@ -68,5 +86,100 @@ public class MemcacheCommandCodecTest {
         assertEquals(command.getKey(), endCommand.getKey());
         assertEquals(command.getValue(), endCommand.getValue());
         assertEquals(command.getExpires(), endCommand.getExpires());
+        assertNull(endCommand.getTimeout());
+    }
+
+    @Test
+    public void testEncodeToWireAndDecodeFromWireTimeout() {
+        command = new MemcacheCommand.Builder()
+                .setType(MemcacheCommandType.get)
+                .setKey("key")
+                .setTimeout(250L)
+                .build();
+
+        Buffer buffer = Buffer.buffer();
+        codec.encodeToWire(buffer, command);
+
+        assertEquals(Long.valueOf(250), codec.decodeFromWire(0, buffer).getTimeout());
+    }
+
+    @Test
+    public void testEncodeToWireAndDecodeFromWireMetaFlags() {
+        command = new MemcacheCommand.Builder()
+                .setType(MemcacheCommandType.ma)
+                .setKey("key")
+                .setMetaFlags("MD N30")
+                .build();
+
+        Buffer buffer = Buffer.buffer();
+        codec.encodeToWire(buffer, command);
+
+        MemcacheCommand endCommand = codec.decodeFromWire(0, buffer);
+        assertEquals(MemcacheCommandType.ma, endCommand.getType());
+        assertEquals("MD N30", endCommand.getMetaFlags());
+        assertFalse(endCommand.isNoreply());
+    }
+
+    @Test
+    public void testEncodeToWireAndDecodeFromWireNoreply() {
+        command = new MemcacheCommand.Builder()
+                .setType(MemcacheCommandType.delete)
+                .setKey("key")
+                .setNoreply(true)
+                .build();
+
+        Buffer buffer = Buffer.buffer();
+        codec.encodeToWire(buffer, command);
+
+        assertTrue(codec.decodeFromWire(0, buffer).isNoreply());
+    }
+
+    @Test
+    public void testEncodeToWireAndDecodeFromWireFlags() {
+        command = new MemcacheCommand.Builder()
+                .setType(MemcacheCommandType.set)
+                .setKey("key")
+                .setValue("value")
+                .setFlags(0x80000001)
+                .build();
+
+        Buffer buffer = Buffer.buffer();
+        codec.encodeToWire(buffer, command);
+
+        assertEquals(0x80000001, codec.decodeFromWire(0, buffer).getFlags());
+    }
+
+    @Test
+    public void testEncodeToWireAndDecodeFromWireBinary() {
+        command = new MemcacheCommand.Builder()
+                .setType(MemcacheCommandType.set)
+                .setKey("key")
+                .setValue(Buffer.buffer(new byte[] {0, (byte) 0xff, '\r', '\n'}))
+                .setExpires(1)
+                .build();
+
+        Buffer buffer = Buffer.buffer();
+        codec.encodeToWire(buffer, command);
+
+        MemcacheCommand endCommand = codec.decodeFromWire(0, buffer);
+
+        assertEquals(command.getKey(), endCommand.getKey());
+        assertEquals(command.getValueBuffer(), endCommand.getValueBuffer());
+    }
+
+    @Test
+    public void testDecodeFromWireOffset() {
+        command = new MemcacheCommand(MemcacheCommandType.get, "key", null, null);
+
+        Buffer buffer = Buffer.buffer().appendString("header");
+        codec.encodeToWire(buffer, command);
+
+        MemcacheCommand endCommand = codec.decodeFromWire("header".length(), buffer);
+
+        assertEquals(MemcacheCommandType.get, endCommand.getType());
+        assertEquals("key", endCommand.getKey());
+        assertNull(endCommand.getValueBuffer());
+        assertNull(endCommand.getExpires());
+        assertNull(endCommand.getTimeout());
     }
 }
@@ -45,7 +45,7 @@ public class MemcacheCommandResponseCodecTest {
 
     @Test
     public void testName() {
-        assertEquals(codec.getClass().getSimpleName(), codec.name());
+        assertEquals("MemcacheCommandResponseCodec-v1", codec.name());
     }
 
     @Test
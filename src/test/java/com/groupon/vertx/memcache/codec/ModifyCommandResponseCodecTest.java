@@ -16,6 +16,7 @@
 package com.groupon.vertx.memcache.codec;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 import io.vertx.core.buffer.Buffer;
 import org.junit.Before;
@@ -46,7 +47,7 @@ public class ModifyCommandResponseCodecTest {
 
     @Test
     public void testName() {
-        assertEquals(codec.getClass().getSimpleName(), codec.name());
+        assertEquals("ModifyCommandResponseCodec-v1", codec.name());
     }
 
     @Test
@@ -70,4 +71,18 @@ public class ModifyCommandResponseCodecTest {
         assertEquals(command.getData(), endCommand.getData());
         assertEquals(command.getMessage(), endCommand.getMessage());
     }
+
+    @Test
+    public void testEncodeToWireAndDecodeFromWireNulls() {
+        command = new ModifyCommandResponse.Builder().build();
+
+        Buffer buffer = Buffer.buffer();
+        codec.encodeToWire(buffer, command);
+
+        ModifyCommandResponse endCommand = codec.decodeFromWire(0, buffer);
+
+        assertNull(endCommand.getStatus());
+        assertNull(endCommand.getData());
+        assertNull(endCommand.getMessage());
+    }
 }
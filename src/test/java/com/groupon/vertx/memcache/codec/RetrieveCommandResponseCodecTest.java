@@ -16,6 +16,7 @@
 package com.groupon.vertx.memcache.codec;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 import java.util.Collections;
 
@@ -48,7 +49,7 @@ public class RetrieveCommandResponseCodecTest {
 
     @Test
     public void testName() {
-        assertEquals(codec.getClass().getSimpleName(), codec.name());
+        assertEquals("RetrieveCommandResponseCodec-v1", codec.name());
     }
 
     @Test
@@ -72,4 +73,58 @@ public class RetrieveCommandResponseCodecTest {
         assertEquals(command.getData(), endCommand.getData());
         assertEquals(command.getMessage(), endCommand.getMessage());
     }
+
+    @Test
+    public void testEncodeToWireAndDecodeFromWireCas() {
+        command = new RetrieveCommandResponse.Builder()
+                .addData("key", "value")
+                .addCas("key", Long.MAX_VALUE)
+                .addFlags("key", 3)
+                .setStatus(JsendStatus.success)
+                .build();
+
+        Buffer buffer = Buffer.buffer();
+        codec.encodeToWire(buffer, command);
+
+        RetrieveCommandResponse endCommand = codec.decodeFromWire(0, buffer);
+
+        assertEquals(command.getData(), endCommand.getData());
+        assertEquals(Long.valueOf(Long.MAX_VALUE), endCommand.getCas("key"));
+        assertEquals(3, endCommand.getFlags("key"));
+    }
+
+    @Test
+    public void testEncodeToWireAndDecodeFromWireBinary() {
+        Buffer value = Buffer.buffer(new byte[] {0, (byte) 0xff, '\r', '\n'});
+        command = new RetrieveCommandResponse.Builder()
+                .addBinaryData("key", value)
+                .setStatus(JsendStatus.success)
+                .build();
+
+        Buffer buffer = Buffer.buffer();
+        codec.encodeToWire(buffer, command);
+
+        RetrieveCommandResponse endCommand = codec.decodeFromWire(0, buffer);
+
+        assertEquals(value, endCommand.getBinaryData().get("key"));
+    }
+
+    @Test
+    public void testDecodeFromWireOffset() {
+        command = new RetrieveCommandResponse.Builder()
+                .addData("key1", "value")
+                .addBinaryData("key2", null)
+                .setStatus(JsendStatus.success)
+                .build();
+
+        Buffer buffer = Buffer.buffer().appendString("header");
+        codec.encodeToWire(buffer, command);
+
+        RetrieveCommandResponse endCommand = codec.decodeFromWire("header".length(), buffer);
+
+        assertEquals(JsendStatus.success, endCommand.getStatus());
+        assertEquals(2, endCommand.getBinaryData().size());
+        assertEquals("value", endCommand.getData().get("key1"));
+        assertNull(endCommand.getBinaryData().get("key2"));
+    }
 }
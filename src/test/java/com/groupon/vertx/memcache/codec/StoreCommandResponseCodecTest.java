@@ -46,7 +46,7 @@ public class StoreCommandResponseCodecTest {
 
     @Test
     public void testName() {
-        assertEquals(codec.getClass().getSimpleName(), codec.name());
+        assertEquals("StoreCommandResponseCodec-v1", codec.name());
     }
 
     @Test
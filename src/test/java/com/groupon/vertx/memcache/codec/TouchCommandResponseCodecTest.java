@@ -46,7 +46,7 @@ public class TouchCommandResponseCodecTest {
 
     @Test
     public void testName() {
-        assertEquals(codec.getClass().getSimpleName(), codec.name());
+        assertEquals("TouchCommandResponseCodec-v1", codec.name());
     }
 
     @Test
@@ -16,10 +16,16 @@
 package com.groupon.vertx.memcache.command;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+import java.util.Collections;
+
+import io.vertx.core.buffer.Buffer;
 import org.junit.Test;
 
+import com.groupon.vertx.memcache.parser.RetrieveLineParser;
 import com.groupon.vertx.memcache.parser.StoreLineParser;
 
 /**
@@ -50,6 +56,36 @@ public class MemcacheCommandTest {
         }
     }
 
+    @Test
+    public void testNoreplyRetrieveCommand() {
+        try {
+            new MemcacheCommand.Builder().setType(MemcacheCommandType.get).setKey("somekey").setNoreply(true).build();
+            assertTrue("Unexpected success", false);
+        } catch (IllegalArgumentException iae) {
+            assertEquals("Unexpected exception", "Invalid command format", iae.getMessage());
+        }
+    }
+
+    @Test
+    public void testCasWithoutValue() {
+        try {
+            new MemcacheCommand.Builder().setType(MemcacheCommandType.cas).setKey("somekey").setValue("somevalue").build();
+            assertTrue("Unexpected success", false);
+        } catch (IllegalArgumentException iae) {
+            assertEquals("Unexpected exception", "Invalid command format", iae.getMessage());
+        }
+    }
+
+    @Test
+    public void testGetAndTouchWithoutExpiration() {
+        try {
+            new MemcacheCommand(MemcacheCommandType.gat, Arrays.asList("key1", "key2"));
+            assertTrue("Unexpected success", false);
+        } catch (IllegalArgumentException iae) {
+            assertEquals("Unexpected exception", "Invalid command format", iae.getMessage());
+        }
+    }
+
     @Test
     public void testConstructor() {
         MemcacheCommand command = new MemcacheCommand(MemcacheCommandType.set, "somekey", "somevalue", 300);
@@ -60,4 +96,74 @@ public class MemcacheCommandTest {
         assertEquals("Invalid expires", 300, (int) command.getExpires());
         assertTrue("Invalid line parser", command.getLineParser() instanceof StoreLineParser);
     }
+
+    @Test
+    public void testBuilderBinaryValue() {
+        Buffer value = Buffer.buffer(new byte[] {0, (byte) 0xff, '\r', '\n'});
+        MemcacheCommand command = new MemcacheCommand.Builder()
+                .setType(MemcacheCommandType.set)
+                .setKey("somekey")
+                .setValue(value)
+                .setExpires(300)
+                .build();
+        assertEquals("Invalid type", MemcacheCommandType.set, command.getType());
+        assertEquals("Invalid key", "somekey", command.getKey());
+        assertEquals("Invalid value", value, command.getValueBuffer());
+        assertEquals("Invalid expires", 300, (int) command.getExpires());
+        assertTrue("Invalid line parser", command.getLineParser() instanceof StoreLineParser);
+    }
+
+    @Test
+    public void testBuilderStringValue() {
+        MemcacheCommand command = new MemcacheCommand.Builder()
+                .setType(MemcacheCommandType.set)
+                .setKey("somekey")
+                .setValue("\u00e9t\u00e9")
+                .build();
+        assertEquals("Invalid value", "\u00e9t\u00e9", command.getValue());
+        assertEquals("Invalid value length", 5, command.getValueBuffer().length());
+        assertNull("Invalid expires", command.getExpires());
+    }
+
+    @Test
+    public void testMultiKeyConstructor() {
+        MemcacheCommand command = new MemcacheCommand(MemcacheCommandType.get, Arrays.asList("key1", "key2", "key3"));
+        assertEquals("Invalid type", MemcacheCommandType.get, command.getType());
+        assertEquals("Invalid key", "key1 key2 key3", command.getKey());
+        assertNull("Invalid value", command.getValue());
+        assertNull("Invalid expires", command.getExpires());
+        assertTrue("Invalid line parser", command.getLineParser() instanceof RetrieveLineParser);
+    }
+
+    @Test
+    public void testBuilderKeysAndTimeout() {
+        MemcacheCommand command = new MemcacheCommand.Builder()
+                .setType(MemcacheCommandType.get)
+                .setKeys(Arrays.asList("key1", "key2"))
+                .setTimeout(100L)
+                .build();
+        assertEquals("Invalid key", "key1 key2", command.getKey());
+        assertEquals("Invalid timeout", Long.valueOf(100), command.getTimeout());
+        assertEquals("Invalid deadline", 0, command.getDeadline());
+    }
+
+    @Test
+    public void testMultiKeyEmptyKeys() {
+        try {
+            new MemcacheCommand(MemcacheCommandType.get, Collections.emptyList());
+            assertTrue("Unexpected success", false);
+        } catch (IllegalArgumentException iae) {
+            assertEquals("Unexpected exception", "Invalid command format", iae.getMessage());
+        }
+    }
+
+    @Test
+    public void testMultiKeyInvalidCommand() {
+        try {
+            new MemcacheCommand(MemcacheCommandType.delete, Arrays.asList("key1", "key2"));
+            assertTrue("Unexpected success", false);
+        } catch (IllegalArgumentException iae) {
+            assertEquals("Unexpected exception", "Invalid command format", iae.getMessage());
+        }
+    }
 }
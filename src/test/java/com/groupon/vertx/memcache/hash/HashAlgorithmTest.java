@@ -17,6 +17,15 @@ package com.groupon.vertx.memcache.hash;
 
 import static org.junit.Assert.assertEquals;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.junit.Test;
 
 /**
@@ -35,6 +44,7 @@ public class HashAlgorithmTest {
     private long fnv1A32Hash = 2949673445L;
     private long crcHash = 22655L;
     private long ketamaHash = 3446378249L;
+    private String longString = "The quick brown fox jumps over the lazy dog";
 
     @Test
     public void testNativeHash() {
@@ -70,4 +80,78 @@ public class HashAlgorithmTest {
     public void testKetamaHash() {
         assertEquals("Hash doesn't match", ketamaHash, HashAlgorithm.KETAMA_HASH.hash(testString));
     }
+
+    @Test
+    public void testMurmur3Hash() {
+        assertEquals("Hash doesn't match", 0L, HashAlgorithm.MURMUR3_32_HASH.hash(""));
+        assertEquals("Hash doesn't match", 0xba6bd213L, HashAlgorithm.MURMUR3_32_HASH.hash(testString));
+        assertEquals("Hash doesn't match", 0xb3dd93faL, HashAlgorithm.MURMUR3_32_HASH.hash("abc"));
+        assertEquals("Hash doesn't match", 0x2e4ff723L, HashAlgorithm.MURMUR3_32_HASH.hash(longString));
+    }
+
+    @Test
+    public void testXxHash32() {
+        assertEquals("Hash doesn't match", 0x02cc5d05L, HashAlgorithm.XXHASH32_HASH.hash(""));
+        assertEquals("Hash doesn't match", 0x32d153ffL, HashAlgorithm.XXHASH32_HASH.hash("abc"));
+        assertEquals("Hash doesn't match", 0xe85ea4deL, HashAlgorithm.XXHASH32_HASH.hash(longString));
+    }
+
+    @Test
+    public void testXxHash64() {
+        // The low 32 bits of the 64 bit hash.
+        assertEquals("Hash doesn't match", 0x51d8e999L, HashAlgorithm.XXHASH64_HASH.hash(""));
+        assertEquals("Hash doesn't match", 0xad770999L, HashAlgorithm.XXHASH64_HASH.hash("abc"));
+        assertEquals("Hash doesn't match", 0x1fda71bcL, HashAlgorithm.XXHASH64_HASH.hash(longString));
+    }
+
+    @Test
+    public void testKetamaHashOfEncodedKey() throws Exception {
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            key.append('a');
+        }
+        String[] keys = new String[] {key.toString(), "k\u00e4se", "\u65e5\u672c"};
+        for (String k : keys) {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(k.getBytes(StandardCharsets.UTF_8));
+            long expected = (digest[3] & 0xffL) << 24 | (digest[2] & 0xffL) << 16 | (digest[1] & 0xffL) << 8 | (digest[0] & 0xffL);
+            assertEquals("Hash doesn't match", expected, HashAlgorithm.KETAMA_HASH.hash(k));
+        }
+        assertEquals("Hash doesn't match", ketamaHash, HashAlgorithm.KETAMA_HASH.hash(testString));
+    }
+
+    @Test
+    public void testConcurrentHashing() throws Exception {
+        final int keyCount = 2000;
+        final long[] ketama = new long[keyCount];
+        final long[] crc = new long[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            ketama[i] = HashAlgorithm.KETAMA_HASH.hash("key" + i);
+            crc[i] = HashAlgorithm.CRC_HASH.hash("key" + i);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(executor.submit(new Callable<Boolean>() {
+                    public Boolean call() {
+                        for (int r = 0; r < 20; r++) {
+                            for (int i = 0; i < keyCount; i++) {
+                                if (HashAlgorithm.KETAMA_HASH.hash("key" + i) != ketama[i] || HashAlgorithm.CRC_HASH.hash("key" + i) != crc[i]) {
+                                    return false;
+                                }
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+
+            for (Future<Boolean> result : results) {
+                assertEquals("Concurrent hash doesn't match", Boolean.TRUE, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
@@ -18,8 +18,7 @@ package com.groupon.vertx.memcache.parser;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
-import java.io.ByteArrayOutputStream;
-
+import io.vertx.core.buffer.Buffer;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -36,11 +35,11 @@ import com.groupon.vertx.memcache.stream.MemcacheResponseType;
 public class BaseLineParserTest {
 
     private BaseLineParser<MemcacheCommandResponse, MemcacheCommandResponse.Builder> parser;
-    private ByteArrayOutputStream outputStream;
+    private Buffer line;
 
     @Before
     public void setUp() {
-        outputStream = new ByteArrayOutputStream();
+        line = Buffer.buffer();
         parser = new BaseLineParser<MemcacheCommandResponse, MemcacheCommandResponse.Builder>() {
             private MemcacheCommandResponse.Builder builder = new MemcacheCommandResponse.Builder();
 
@@ -53,8 +52,8 @@ public class BaseLineParserTest {
 
     @Test
     public void testErrorEndLine() throws Exception {
-        outputStream.write(MemcacheResponseType.ERROR.type.getBytes());
-        assertTrue("Failed to identify end", parser.isResponseEnd(outputStream));
+        line.appendBytes(MemcacheResponseType.ERROR.type.getBytes());
+        assertTrue("Failed to identify end", parser.isResponseEnd(line));
         MemcacheCommandResponse response = parser.getResponse();
         assertEquals("Wrong status", JsendStatus.error, response.getStatus());
         assertEquals("Wrong data", MemcacheResponseType.ERROR.name(), response.getMessage());
@@ -63,8 +62,8 @@ public class BaseLineParserTest {
     @Test
     public void testClientErrorEndLine() throws Exception {
         String clientError = "CLIENT ERROR message";
-        outputStream.write(clientError.getBytes());
-        assertTrue("Failed to identify end", parser.isResponseEnd(outputStream));
+        line.appendBytes(clientError.getBytes());
+        assertTrue("Failed to identify end", parser.isResponseEnd(line));
         MemcacheCommandResponse response = parser.getResponse();
         assertEquals("Wrong status", JsendStatus.error, response.getStatus());
         assertEquals("Wrong data", clientError, response.getMessage());
@@ -73,8 +72,8 @@ public class BaseLineParserTest {
     @Test
     public void testServerErrorEndLine() throws Exception {
         String serverError = "SERVER ERROR message";
-        outputStream.write(serverError.getBytes());
-        assertTrue("Failed to identify end", parser.isResponseEnd(outputStream));
+        line.appendBytes(serverError.getBytes());
+        assertTrue("Failed to identify end", parser.isResponseEnd(line));
         MemcacheCommandResponse response = parser.getResponse();
         assertEquals("Wrong status", JsendStatus.error, response.getStatus());
         assertEquals("Wrong data", serverError, response.getMessage());
@@ -18,8 +18,7 @@ package com.groupon.vertx.memcache.parser;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
-import java.io.ByteArrayOutputStream;
-
+import io.vertx.core.buffer.Buffer;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -36,18 +35,18 @@ import com.groupon.vertx.memcache.stream.MemcacheResponseType;
  */
 public class DeleteLineParserTest {
     private DeleteLineParser parser;
-    private ByteArrayOutputStream outputStream;
+    private Buffer line;
 
     @Before
     public void setUp() {
-        outputStream = new ByteArrayOutputStream();
+        line = Buffer.buffer();
         parser = new DeleteLineParser();
     }
 
     @Test
     public void testDeletedEndLine() throws Exception {
-        outputStream.write(MemcacheResponseType.DELETED.type.getBytes());
-        assertTrue("Failed to identify end", parser.isResponseEnd(outputStream));
+        line.appendBytes(MemcacheResponseType.DELETED.type.getBytes());
+        assertTrue("Failed to identify end", parser.isResponseEnd(line));
         DeleteCommandResponse response = parser.getResponse();
         assertEquals("Wrong status", JsendStatus.success, response.getStatus());
         assertEquals("Wrong data", MemcacheResponseType.DELETED.name(), response.getData());
@@ -55,8 +54,8 @@ public class DeleteLineParserTest {
 
     @Test
     public void testNotFoundEndLine() throws Exception {
-        outputStream.write(MemcacheResponseType.NOT_FOUND.type.getBytes());
-        assertTrue("Failed to identify end", parser.isResponseEnd(outputStream));
+        line.appendBytes(MemcacheResponseType.NOT_FOUND.type.getBytes());
+        assertTrue("Failed to identify end", parser.isResponseEnd(line));
         DeleteCommandResponse response = parser.getResponse();
         assertEquals("Wrong status", JsendStatus.success, response.getStatus());
         assertEquals("Wrong data", MemcacheResponseType.NOT_FOUND.name(), response.getData());
@@ -64,8 +63,8 @@ public class DeleteLineParserTest {
 
     @Test
     public void testErrorEndLine() throws Exception {
-        outputStream.write(MemcacheResponseType.ERROR.type.getBytes());
-        assertTrue("Failed to identify end", parser.isResponseEnd(outputStream));
+        line.appendBytes(MemcacheResponseType.ERROR.type.getBytes());
+        assertTrue("Failed to identify end", parser.isResponseEnd(line));
         DeleteCommandResponse response = parser.getResponse();
         assertEquals("Wrong status", JsendStatus.error, response.getStatus());
         assertEquals("Wrong data", MemcacheResponseType.ERROR.name(), response.getMessage());
@@ -74,8 +73,8 @@ public class DeleteLineParserTest {
     @Test
     public void testClientErrorEndLine() throws Exception {
         String clientError = "CLIENT ERROR message";
-        outputStream.write(clientError.getBytes());
-        assertTrue("Failed to identify end", parser.isResponseEnd(outputStream));
+        line.appendBytes(clientError.getBytes());
+        assertTrue("Failed to identify end", parser.isResponseEnd(line));
         DeleteCommandResponse response = parser.getResponse();
         assertEquals("Wrong status", JsendStatus.error, response.getStatus());
         assertEquals("Wrong data", clientError, response.getMessage());
@@ -84,8 +83,8 @@ public class DeleteLineParserTest {
     @Test
     public void testServerErrorEndLine() throws Exception {
         String serverError = "SERVER ERROR message";
-        outputStream.write(serverError.getBytes());
-        assertTrue("Failed to identify end", parser.isResponseEnd(outputStream));
+        line.appendBytes(serverError.getBytes());
+        assertTrue("Failed to identify end", parser.isResponseEnd(line));
         DeleteCommandResponse response = parser.getResponse();
         assertEquals("Wrong status", JsendStatus.error, response.getStatus());
         assertEquals("Wrong data", serverError, response.getMessage());
@@ -94,8 +93,8 @@ public class DeleteLineParserTest {
     @Test
     public void testUnexpectedFormat() throws Exception {
         try {
-            outputStream.write("foo".getBytes());
-            parser.isResponseEnd(outputStream);
+            line.appendBytes("foo".getBytes());
+            parser.isResponseEnd(line);
             assertTrue("Failed to throw exception", false);
         } catch (MemcacheException me) {
             assertEquals("Unexpected exception", "Unexpected format in response", me.getMessage());
@@ -0,0 +1,229 @@
+/**
+ * Copyright 2014 Groupon.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.vertx.memcache.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.Test;
+
+import com.groupon.vertx.memcache.MemcacheException;
+import com.groupon.vertx.memcache.client.JsendStatus;
+import com.groupon.vertx.memcache.client.response.DeleteCommandResponse;
+import com.groupon.vertx.memcache.client.response.ModifyCommandResponse;
+import com.groupon.vertx.memcache.client.response.RetrieveCommandResponse;
+import com.groupon.vertx.memcache.client.response.StoreCommandResponse;
+import com.groupon.vertx.memcache.command.MemcacheCommandType;
+import com.groupon.vertx.memcache.stream.MemcacheResponseType;
+
+/**
+ * Tests for <code>MetaLineParser</code>.
+ *
+ * @author Stuart Siegrist (fsiegrist at groupon dot com)
+ * @since 4.0.3
+ */
+public class MetaLineParserTest {
+    @Test
+    public void testGetHit() {
+        MetaLineParser parser = new MetaLineParser(MemcacheCommandType.mg, "key");
+
+        assertFalse("Response ended before the value", parser.isResponseEnd(Buffer.buffer("VA 5 kkey")));
+        assertEquals("Wrong data length", 5, parser.getExpectedDataLength());
+        parser.addData(Buffer.buffer("value"));
+        assertTrue("Response not ended by the value", parser.isDataResponseEnd());
+
+        RetrieveCommandResponse response = (RetrieveCommandResponse) parser.getResponse();
+        assertEquals("Wrong status", JsendStatus.success, response.getStatus());
+        assertEquals("Wrong data", "value", response.getData().get("key"));
+    }
+
+    @Test
+    public void testGetHitWithoutKey() {
+        MetaLineParser parser = new MetaLineParser(MemcacheCommandType.mg, "key");
+
+        assertFalse("Response ended before the value", parser.isResponseEnd(Buffer.buffer("VA 5")));
+        parser.addData(Buffer.buffer("value"));
+
+        RetrieveCommandResponse response = (RetrieveCommandResponse) parser.getResponse();
+        assertEquals("Wrong data", "value", response.getData().get("key"));
+    }
+
+    @Test
+    public void testGetHitWithCas() {
+        MetaLineParser parser = new MetaLineParser(MemcacheCommandType.mg, "key");
+
+        assertFalse("Response ended before the value", parser.isResponseEnd(Buffer.buffer("VA 5 c42 kkey")));
+        parser.addData(Buffer.buffer("value"));
+
+        RetrieveCommandResponse response = (RetrieveCommandResponse) parser.getResponse();
+        assertEquals("Wrong data", "value", response.getData().get("key"));
+        assertEquals("Wrong cas", Long.valueOf(42), response.getCas("key"));
+    }
+
+    @Test
+    public void testGetHitWithFlags() {
+        MetaLineParser parser = new MetaLineParser(MemcacheCommandType.mg, "key");
+
+        assertFalse("Response ended before the value", parser.isResponseEnd(Buffer.buffer("VA 5 kkey f17")));
+        parser.addData(Buffer.buffer("value"));
+
+        RetrieveCommandResponse response = (RetrieveCommandResponse) parser.getResponse();
+        assertEquals("Wrong flags", 17, response.getFlags("key"));
+    }
+
+    @Test
+    public void testGetMiss() {
+        MetaLineParser parser = new MetaLineParser(MemcacheCommandType.mg, "key");
+
+        assertTrue("Failed to identify end", parser.isResponseEnd(Buffer.buffer(MemcacheResponseType.META_MISS.type)));
+
+        RetrieveCommandResponse response = (RetrieveCommandResponse) parser.getResponse();
+        assertEquals("Wrong status", JsendStatus.success, response.getStatus());
+        assertTrue("Unexpected data", response.getData().isEmpty());
+    }
+
+    @Test
+    public void testBatchedGet() {
+        MetaLineParser parser = new MetaLineParser(MemcacheCommandType.mg, "key1 key2 key3");
+
+        assertFalse("Response ended before the value", parser.isResponseEnd(Buffer.buffer("VA 6 kkey1")));
+        parser.addData(Buffer.buffer("value1"));
+        assertFalse("Batch ended by the value", parser.isDataResponseEnd());
+        assertFalse("Response ended before the value", parser.isResponseEnd(Buffer.buffer("VA 6 t-1 kkey3")));
+        parser.addData(Buffer.buffer("value3"));
+        assertTrue("Failed to identify end", parser.isResponseEnd(Buffer.buffer(MemcacheResponseType.META_NOOP.type)));
+
+        RetrieveCommandResponse response = (RetrieveCommandResponse) parser.getResponse();
+        assertEquals("Wrong status", JsendStatus.success, response.getStatus());
+        assertEquals("Wrong data size", 2, response.getData().size());
+        assertEquals("Wrong data", "value1", response.getData().get("key1"));
+        assertEquals("Wrong data", "value3", response.getData().get("key3"));
+    }
+
+    @Test
+    public void testBatchedGetError() {
+        MetaLineParser parser = new MetaLineParser(MemcacheCommandType.mg, "key1 key2");
+
+        assertFalse("Batch ended by the error", parser.isResponseEnd(Buffer.buffer("SERVER ERROR out of memory")));
+        assertTrue("Failed to identify end", parser.isResponseEnd(Buffer.buffer(MemcacheResponseType.META_NOOP.type)));
+
+        RetrieveCommandResponse response = (RetrieveCommandResponse) parser.getResponse();
+        assertEquals("Wrong status", JsendStatus.error, response.getStatus());
+        assertEquals("Wrong message", "SERVER ERROR out of memory", response.getMessage());
+    }
+
+    @Test
+    public void testBatchedGetMissingKey() {
+        MetaLineParser parser = new MetaLineParser(MemcacheCommandType.mg, "key1 key2");
+
+        try {
+            parser.isResponseEnd(Buffer.buffer("VA 6"));
+            assertTrue("Failed to throw exception", false);
+        } catch (MemcacheException me) {
+            assertEquals("Unexpected exception", "Unexpected format in response", me.getMessage());
+        }
+    }
+
+    @Test
+    public void testSet() {
+        MetaLineParser parser = new MetaLineParser(MemcacheCommandType.ms, "key");
+
+        assertTrue("Failed to identify end", parser.isResponseEnd(Buffer.buffer(MemcacheResponseType.META_HIT.type)));
+
+        StoreCommandResponse response = (StoreCommandResponse) parser.getResponse();
+        assertEquals("Wrong status", JsendStatus.success, response.getStatus());
+        assertEquals("Wrong data", MemcacheResponseType.STORED.name(), response.getData());
+    }
+
+    @Test
+    public void testSetNotStored() {
+        MetaLineParser parser = new MetaLineParser(MemcacheCommandType.ms, "key");
+
+        assertTrue("Failed to identify end", parser.isResponseEnd(Buffer.buffer(MemcacheResponseType.META_NOT_STORED.type)));
+
+        StoreCommandResponse response = (StoreCommandResponse) parser.getResponse();
+        assertEquals("Wrong data", MemcacheResponseType.NOT_STORED.name(), response.getData());
+    }
+
+    @Test
+    public void testDeleteNotFound() {
+        MetaLineParser parser = new MetaLineParser(MemcacheCommandType.md, "key");
+
+        assertTrue("Failed to identify end", parser.isResponseEnd(Buffer.buffer(MemcacheResponseType.META_NOT_FOUND.type)));
+
+        DeleteCommandResponse response = (DeleteCommandResponse) parser.getResponse();
+        assertEquals("Wrong status", JsendStatus.success, response.getStatus());
+        assertEquals("Wrong data", MemcacheResponseType.NOT_FOUND.name(), response.getData());
+    }
+
+    @Test
+    public void testArithmetic() {
+        MetaLineParser parser = new MetaLineParser(MemcacheCommandType.ma, "key");
+
+        assertFalse("Response ended before the value", parser.isResponseEnd(Buffer.buffer("VA 2")));
+        parser.addData(Buffer.buffer("42"));
+        assertTrue("Response not ended by the value", parser.isDataResponseEnd());
+
+        ModifyCommandResponse response = (ModifyCommandResponse) parser.getResponse();
+        assertEquals("Wrong status", JsendStatus.success, response.getStatus());
+        assertEquals("Wrong data", Integer.valueOf(42), response.getData());
+    }
+
+    @Test
+    public void testArithmeticNotFound() {
+        MetaLineParser parser = new MetaLineParser(MemcacheCommandType.ma, "key");
+
+        assertTrue("Failed to identify end", parser.isResponseEnd(Buffer.buffer(MemcacheResponseType.META_NOT_FOUND.type)));
+
+        ModifyCommandResponse response = (ModifyCommandResponse) parser.getResponse();
+        assertEquals("Wrong status", JsendStatus.success, response.getStatus());
+        assertNull("Wrong data", response.getData());
+    }
+
+    @Test
+    public void testArithmeticExists() {
+        MetaLineParser parser = new MetaLineParser(MemcacheCommandType.ma, "key");
+
+        assertTrue("Failed to identify end", parser.isResponseEnd(Buffer.buffer(MemcacheResponseType.META_EXISTS.type)));
+
+        ModifyCommandResponse response = (ModifyCommandResponse) parser.getResponse();
+        assertEquals("Wrong status", JsendStatus.error, response.getStatus());
+        assertEquals("Wrong message", "EX", response.getMessage());
+    }
+
+    @Test
+    public void testNoop() {
+        MetaLineParser parser = new MetaLineParser(MemcacheCommandType.mn, null);
+
+        assertTrue("Failed to identify end", parser.isResponseEnd(Buffer.buffer(MemcacheResponseType.META_NOOP.type)));
+        assertEquals("Wrong status", JsendStatus.success, parser.getResponse().getStatus());
+    }
+
+    @Test
+    public void testUnexpectedFormat() {
+        MetaLineParser parser = new MetaLineParser(MemcacheCommandType.ms, "key");
+
+        try {
+            parser.isResponseEnd(Buffer.buffer("STORED"));
+            assertTrue("Failed to throw exception", false);
+        } catch (MemcacheException me) {
+            assertEquals("Unexpected exception", "Unexpected format in response", me.getMessage());
+        }
+    }
+}
@@ -19,8 +19,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
-import java.io.ByteArrayOutputStream;
-
+import io.vertx.core.buffer.Buffer;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -37,18 +36,18 @@ import com.groupon.vertx.memcache.stream.MemcacheResponseType;
  */
 public class ModifyLineParserTest {
     private ModifyLineParser parser;
-    private ByteArrayOutputStream outputStream;
+    private Buffer line;
 
     @Before
     public void setUp() throws Exception {
         parser = new ModifyLineParser();
-        outputStream = new ByteArrayOutputStream();
+        line = Buffer.buffer();
     }
 
     @Test
     public void testIntegerResult() throws Exception {
-        outputStream.write("12345".getBytes());
-        assertTrue("Failed to parse value", parser.isResponseEnd(outputStream));
+        line.appendBytes("12345".getBytes());
+        assertTrue("Failed to parse value", parser.isResponseEnd(line));
 
         ModifyCommandResponse response = parser.getResponse();
         assertEquals("Wrong status", JsendStatus.success, response.getStatus());
@@ -57,9 +56,9 @@ public class ModifyLineParserTest {
 
     @Test
     public void testNonIntegerResult() throws Exception {
-        outputStream.write("hello".getBytes());
+        line.appendBytes("hello".getBytes());
         try {
-            parser.isResponseEnd(outputStream);
+            parser.isResponseEnd(line);
             assertTrue("Failed to throw exception", false);
         } catch (MemcacheException me) {
             assertEquals("Unexpected exception", "Unexpected format in response", me.getMessage());
@@ -68,8 +67,8 @@ public class ModifyLineParserTest {
 
     @Test
     public void testNotFoundResult() throws Exception {
-        outputStream.write(MemcacheResponseType.NOT_FOUND.type.getBytes());
-        assertTrue("Failed to parse value", parser.isResponseEnd(outputStream));
+        line.appendBytes(MemcacheResponseType.NOT_FOUND.type.getBytes());
+        assertTrue("Failed to parse value", parser.isResponseEnd(line));
 
         ModifyCommandResponse response = parser.getResponse();
         assertEquals("Wrong status", JsendStatus.success, response.getStatus());
@@ -78,8 +77,8 @@ public class ModifyLineParserTest {
 
     @Test
     public void testErrorEndLine() throws Exception {
-        outputStream.write(MemcacheResponseType.ERROR.type.getBytes());
-        assertTrue("Failed to identify end", parser.isResponseEnd(outputStream));
+        line.appendBytes(MemcacheResponseType.ERROR.type.getBytes());
+        assertTrue("Failed to identify end", parser.isResponseEnd(line));
         ModifyCommandResponse response = parser.getResponse();
         assertEquals("Wrong status", JsendStatus.error, response.getStatus());
         assertEquals("Wrong data", MemcacheResponseType.ERROR.name(), response.getMessage());
@@ -88,8 +87,8 @@ public class ModifyLineParserTest {
     @Test
     public void testClientErrorEndLine() throws Exception {
         String clientError = "CLIENT ERROR message";
-        outputStream.write(clientError.getBytes());
-        assertTrue("Failed to identify end", parser.isResponseEnd(outputStream));
+        line.appendBytes(clientError.getBytes());
+        assertTrue("Failed to identify end", parser.isResponseEnd(line));
         ModifyCommandResponse response = parser.getResponse();
         assertEquals("Wrong status", JsendStatus.error, response.getStatus());
         assertEquals("Wrong data", clientError, response.getMessage());
@@ -98,8 +97,8 @@ public class ModifyLineParserTest {
     @Test
     public void testServerErrorEndLine() throws Exception {
         String serverError = "SERVER ERROR message";
-        outputStream.write(serverError.getBytes());
-        assertTrue("Failed to identify end", parser.isResponseEnd(outputStream));
+        line.appendBytes(serverError.getBytes());
+        assertTrue("Failed to identify end", parser.isResponseEnd(line));
         ModifyCommandResponse response = parser.getResponse();
         assertEquals("Wrong status", JsendStatus.error, response.getStatus());
         assertEquals("Wrong data", serverError, response.getMessage());
@@ -108,8 +107,8 @@ public class ModifyLineParserTest {
     @Test
     public void testInvalidLine() throws Exception {
         try {
-            outputStream.write("foo".getBytes());
-            parser.isResponseEnd(outputStream);
+            line.appendBytes("foo".getBytes());
+            parser.isResponseEnd(line);
             assertTrue("Failed to throw exception", false);
         } catch (MemcacheException me) {
             assertEquals("Unexpected exception", "Unexpected format in response", me.getMessage());
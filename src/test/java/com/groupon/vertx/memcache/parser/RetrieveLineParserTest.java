@@ -17,14 +17,13 @@ package com.groupon.vertx.memcache.parser;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
-import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
-import java.io.ByteArrayOutputStream;
 import java.lang.reflect.Field;
 import java.util.Map;
 
+import io.vertx.core.buffer.Buffer;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -41,51 +40,90 @@ import com.groupon.vertx.memcache.stream.MemcacheResponseType;
  */
 public class RetrieveLineParserTest {
     private RetrieveLineParser parser;
-    private Field expectedBytes;
-    private Field bytesRetrieved;
-    private ByteArrayOutputStream outputStream;
+    private Field expectedKey;
+    private Buffer line;
 
     @Before
     public void setUp() throws Exception {
         parser = new RetrieveLineParser();
 
-        expectedBytes = RetrieveLineParser.class.getDeclaredField("expectedBytes");
-        expectedBytes.setAccessible(true);
-
-        bytesRetrieved = RetrieveLineParser.class.getDeclaredField("bytesRetrieved");
-        bytesRetrieved.setAccessible(true);
-        outputStream = new ByteArrayOutputStream();
+        expectedKey = RetrieveLineParser.class.getDeclaredField("expectedKey");
+        expectedKey.setAccessible(true);
+        line = Buffer.buffer();
     }
 
     @Test
     public void testValueParseLine() throws Exception {
-        outputStream.write((MemcacheResponseType.VALUE.name() + " key 0 4").getBytes());
-        assertFalse("Failed to parse value header", parser.isResponseEnd(outputStream));
-        assertNotNull("Invalid expected bytes", expectedBytes.get(parser));
-        assertEquals("Invalid expected bytes length", 4, ((byte[]) expectedBytes.get(parser)).length);
-        assertEquals("Invalid bytes retrieved", 0, bytesRetrieved.getInt(parser));
+        line.appendBytes((MemcacheResponseType.VALUE.name() + " key 0 4").getBytes());
+        assertFalse("Failed to parse value header", parser.isResponseEnd(line));
+        assertEquals("Invalid expected key", "key", expectedKey.get(parser));
+        assertEquals("Invalid expected length", 4, parser.getExpectedDataLength());
+    }
+
+    @Test
+    public void testValueWithCasParseLine() throws Exception {
+        line.appendBytes((MemcacheResponseType.VALUE.name() + " key 0 4 12345").getBytes());
+        assertFalse("Failed to parse value header", parser.isResponseEnd(line));
+        assertEquals("Invalid expected key", "key", expectedKey.get(parser));
+        assertEquals("Invalid expected length", 4, parser.getExpectedDataLength());
+    }
+
+    @Test
+    public void testValueWithCas() throws Exception {
+        line.appendBytes((MemcacheResponseType.VALUE.name() + " key 0 4 12345678901").getBytes());
+        assertFalse("Failed to parse value header", parser.isResponseEnd(line));
+        parser.addData(Buffer.buffer("test"));
+        assertTrue("Failed to identify end", parser.isResponseEnd(Buffer.buffer(MemcacheResponseType.END.type)));
+
+        RetrieveCommandResponse response = parser.getResponse();
+        assertEquals("Value not parsed", "test", response.getData().get("key"));
+        assertEquals("Cas not parsed", Long.valueOf(12345678901L), response.getCas("key"));
+    }
+
+    @Test
+    public void testValueWithFlags() throws Exception {
+        line.appendBytes((MemcacheResponseType.VALUE.name() + " key 4294967295 4").getBytes());
+        assertFalse("Failed to parse value header", parser.isResponseEnd(line));
+        parser.addData(Buffer.buffer("test"));
+        assertTrue("Failed to identify end", parser.isResponseEnd(Buffer.buffer(MemcacheResponseType.END.type)));
+
+        assertEquals("Flags not parsed", 0xffffffff, parser.getResponse().getFlags("key"));
+    }
+
+    @Test
+    public void testValueWithInvalidFlags() throws Exception {
+        line.appendBytes((MemcacheResponseType.VALUE.name() + " key 4294967296 4").getBytes());
+        try {
+            parser.isResponseEnd(line);
+            assertTrue("Failed to throw exception", false);
+        } catch (MemcacheException me) {
+            assertEquals("Unexpected exception", "Unexpected format in response", me.getMessage());
+        }
     }
 
     @Test
-    public void testIncompletePartialParseLine() throws Exception {
-        outputStream.write((MemcacheResponseType.VALUE.name() + " key 0 4").getBytes());
-        ByteArrayOutputStream body = new ByteArrayOutputStream();
-        body.write("tes".getBytes());
-        assertFalse("Failed to parse value header", parser.isResponseEnd(outputStream));
-        assertFalse("Failed to parse value line", parser.isResponseEnd(body));
-        assertEquals("Invalid expected bytes", "tes", new String((byte[]) expectedBytes.get(parser)).trim());
-        assertEquals("Invalid bytes retrieved", 3, bytesRetrieved.getInt(parser));
+    public void testValueWithInvalidCas() throws Exception {
+        line.appendBytes((MemcacheResponseType.VALUE.name() + " key 0 4 12a").getBytes());
+        try {
+            parser.isResponseEnd(line);
+            assertTrue("Failed to throw exception", false);
+        } catch (MemcacheException me) {
+            assertEquals("Unexpected exception", "Unexpected format in response", me.getMessage());
+        }
+    }
+
+    @Test
+    public void testNoExpectedData() throws Exception {
+        assertEquals("Invalid expected length", -1, parser.getExpectedDataLength());
     }
 
     @Test
     public void testPartialParseLine() throws Exception {
-        outputStream.write((MemcacheResponseType.VALUE.name() + " key 0 4").getBytes());
-        ByteArrayOutputStream body = new ByteArrayOutputStream();
-        body.write("test".getBytes());
-        assertFalse("Failed to parse value header", parser.isResponseEnd(outputStream));
-        assertFalse("Failed to parse value line", parser.isResponseEnd(body));
-        assertNull("Invalid expected bytes", expectedBytes.get(parser));
-        assertEquals("Invalid bytes retrieved", 0, bytesRetrieved.getInt(parser));
+        line.appendBytes((MemcacheResponseType.VALUE.name() + " key 0 4").getBytes());
+        assertFalse("Failed to parse value header", parser.isResponseEnd(line));
+        parser.addData(Buffer.buffer("test"));
+        assertNull("Invalid expected key", expectedKey.get(parser));
+        assertEquals("Invalid expected length", -1, parser.getExpectedDataLength());
 
         RetrieveCommandResponse response = parser.getResponse();
         assertEquals("Wrong status", JsendStatus.error, response.getStatus());
@@ -96,16 +134,13 @@ public class RetrieveLineParserTest {
 
     @Test
     public void testCompleteParseLine() throws Exception {
-        outputStream.write((MemcacheResponseType.VALUE.name() + " key 0 4").getBytes());
-        ByteArrayOutputStream body = new ByteArrayOutputStream();
-        body.write("test".getBytes());
-        ByteArrayOutputStream end = new ByteArrayOutputStream();
-        end.write(MemcacheResponseType.END.type.getBytes());
-        assertFalse("Failed to parse value header", parser.isResponseEnd(outputStream));
-        assertFalse("Failed to parse value line", parser.isResponseEnd(body));
+        line.appendBytes((MemcacheResponseType.VALUE.name() + " key 0 4").getBytes());
+        Buffer end = Buffer.buffer();
+        end.appendBytes(MemcacheResponseType.END.type.getBytes());
+        assertFalse("Failed to parse value header", parser.isResponseEnd(line));
+        parser.addData(Buffer.buffer("test"));
         assertTrue("Failed to parse end line", parser.isResponseEnd(end));
-        assertNull("Invalid expected bytes", expectedBytes.get(parser));
-        assertEquals("Invalid bytes retrieved", 0, bytesRetrieved.getInt(parser));
+        assertNull("Invalid expected key", expectedKey.get(parser));
 
         RetrieveCommandResponse response = parser.getResponse();
         assertEquals("Wrong status", JsendStatus.success, response.getStatus());
@@ -114,10 +149,35 @@ public class RetrieveLineParserTest {
         assertEquals("Value not parsed", "test", data.get("key"));
     }
 
+    @Test
+    public void testBinaryParseLine() throws Exception {
+        byte[] value = new byte[] {0, (byte) 0xff, '\r', '\n', 'E', 'N', 'D'};
+        line.appendBytes((MemcacheResponseType.VALUE.name() + " key 0 7").getBytes());
+        Buffer end = Buffer.buffer();
+        end.appendBytes(MemcacheResponseType.END.type.getBytes());
+        assertFalse("Failed to parse value header", parser.isResponseEnd(line));
+        parser.addData(Buffer.buffer(value));
+        assertTrue("Failed to parse end line", parser.isResponseEnd(end));
+
+        RetrieveCommandResponse response = parser.getResponse();
+        assertEquals("Wrong status", JsendStatus.success, response.getStatus());
+        assertEquals("Value not parsed", Buffer.buffer(value), response.getBinaryData().get("key"));
+    }
+
+    @Test
+    public void testEmptyValue() throws Exception {
+        line.appendBytes((MemcacheResponseType.VALUE.name() + " key 0 0").getBytes());
+        assertFalse("Failed to parse value header", parser.isResponseEnd(line));
+        assertEquals("Invalid expected length", 0, parser.getExpectedDataLength());
+        parser.addData(Buffer.buffer());
+
+        assertEquals("Value not parsed", "", parser.getResponse().getData().get("key"));
+    }
+
     @Test
     public void testErrorEndLine() throws Exception {
-        outputStream.write(MemcacheResponseType.ERROR.type.getBytes());
-        assertTrue("Failed to identify end", parser.isResponseEnd(outputStream));
+        line.appendBytes(MemcacheResponseType.ERROR.type.getBytes());
+        assertTrue("Failed to identify end", parser.isResponseEnd(line));
         RetrieveCommandResponse response = parser.getResponse();
         assertEquals("Wrong status", JsendStatus.error, response.getStatus());
         assertEquals("Wrong data", MemcacheResponseType.ERROR.name(), response.getMessage());
@@ -126,8 +186,8 @@ public class RetrieveLineParserTest {
     @Test
     public void testClientErrorEndLine() throws Exception {
         String clientError = "CLIENT ERROR message";
-        outputStream.write(clientError.getBytes());
-        assertTrue("Failed to identify end", parser.isResponseEnd(outputStream));
+        line.appendBytes(clientError.getBytes());
+        assertTrue("Failed to identify end", parser.isResponseEnd(line));
         RetrieveCommandResponse response = parser.getResponse();
         assertEquals("Wrong status", JsendStatus.error, response.getStatus());
         assertEquals("Wrong data", clientError, response.getMessage());
@@ -136,8 +196,8 @@ public class RetrieveLineParserTest {
     @Test
     public void testServerErrorEndLine() throws Exception {
         String serverError = "SERVER ERROR message";
-        outputStream.write(serverError.getBytes());
-        assertTrue("Failed to identify end", parser.isResponseEnd(outputStream));
+        line.appendBytes(serverError.getBytes());
+        assertTrue("Failed to identify end", parser.isResponseEnd(line));
         RetrieveCommandResponse response = parser.getResponse();
         assertEquals("Wrong status", JsendStatus.error, response.getStatus());
         assertEquals("Wrong data", serverError, response.getMessage());
@@ -146,8 +206,19 @@ public class RetrieveLineParserTest {
     @Test
     public void testInvalidValue() throws Exception {
         try {
-            outputStream.write((MemcacheResponseType.VALUE.name() + " key").getBytes());
-            parser.isResponseEnd(outputStream);
+            line.appendBytes((MemcacheResponseType.VALUE.name() + " key").getBytes());
+            parser.isResponseEnd(line);
+            assertTrue("Failed to throw exception", false);
+        } catch (MemcacheException me) {
+            assertEquals("Unexpected exception", "Unexpected format in response", me.getMessage());
+        }
+    }
+
+    @Test
+    public void testInvalidValueLength() throws Exception {
+        try {
+            line.appendBytes((MemcacheResponseType.VALUE.name() + " key 0 abc").getBytes());
+            parser.isResponseEnd(line);
             assertTrue("Failed to throw exception", false);
         } catch (MemcacheException me) {
             assertEquals("Unexpected exception", "Unexpected format in response", me.getMessage());
@@ -157,22 +228,30 @@ public class RetrieveLineParserTest {
     @Test
     public void testValueTooLong() throws Exception {
         try {
-            outputStream.write((MemcacheResponseType.VALUE.name() + " key 0 4").getBytes());
-            ByteArrayOutputStream body = new ByteArrayOutputStream();
-            body.write("testtoolong".getBytes());
-            assertFalse("Failed to parse value header", parser.isResponseEnd(outputStream));
-            parser.isResponseEnd(body);
+            line.appendBytes((MemcacheResponseType.VALUE.name() + " key 0 4").getBytes());
+            assertFalse("Failed to parse value header", parser.isResponseEnd(line));
+            parser.addData(Buffer.buffer("testtoolong"));
+            assertTrue("Failed to throw exception", false);
+        } catch (MemcacheException me) {
+            assertEquals("Unexpected exception", "Length of value does not match expected response", me.getMessage());
+        }
+    }
+
+    @Test
+    public void testUnexpectedData() throws Exception {
+        try {
+            parser.addData(Buffer.buffer("test"));
             assertTrue("Failed to throw exception", false);
         } catch (MemcacheException me) {
-            assertEquals("Unexpected exception", "Length of value exceeds expected response", me.getMessage());
+            assertEquals("Unexpected exception", "Length of value does not match expected response", me.getMessage());
         }
     }
 
     @Test
     public void testInvalidLine() throws Exception {
         try {
-            outputStream.write("foo".getBytes());
-            parser.isResponseEnd(outputStream);
+            line.appendBytes("foo".getBytes());
+            parser.isResponseEnd(line);
             assertTrue("Failed to throw exception", false);
         } catch (MemcacheException me) {
             assertEquals("Unexpected exception", "Unexpected format in response", me.getMessage());
@@ -18,8 +18,7 @@ package com.groupon.vertx.memcache.parser;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
-import java.io.ByteArrayOutputStream;
-
+import io.vertx.core.buffer.Buffer;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -36,18 +35,18 @@ import com.groupon.vertx.memcache.stream.MemcacheResponseType;
  */
 public class StoreLineParserTest {
     private StoreLineParser parser;
-    private ByteArrayOutputStream outputStream;
+    private Buffer line;
 
     @Before
     public void setUp() {
-        outputStream = new ByteArrayOutputStream();
+        line = Buffer.buffer();
         parser = new StoreLineParser();
     }
 
     @Test
     public void testStoredEndLine() throws Exception {
-        outputStream.write(MemcacheResponseType.STORED.type.getBytes());
-        assertTrue("Failed to identify end", parser.isResponseEnd(outputStream));
+        line.appendBytes(MemcacheResponseType.STORED.type.getBytes());
+        assertTrue("Failed to identify end", parser.isResponseEnd(line));
         StoreCommandResponse response = parser.getResponse();
         assertEquals("Wrong status", JsendStatus.success, response.getStatus());
         assertEquals("Wrong data", MemcacheResponseType.STORED.name(), response.getData());
@@ -55,8 +54,8 @@ public class StoreLineParserTest {
 
     @Test
     public void testNotStoredEndLine() throws Exception {
-        outputStream.write(MemcacheResponseType.NOT_STORED.type.getBytes());
-        assertTrue("Failed to identify end", parser.isResponseEnd(outputStream));
+        line.appendBytes(MemcacheResponseType.NOT_STORED.type.getBytes());
+        assertTrue("Failed to identify end", parser.isResponseEnd(line));
         StoreCommandResponse response = parser.getResponse();
         assertEquals("Wrong status", JsendStatus.success, response.getStatus());
         assertEquals("Wrong data", MemcacheResponseType.NOT_STORED.name(), response.getData());
@@ -64,8 +63,8 @@ public class StoreLineParserTest {
 
     @Test
     public void testExistsEndLine() throws Exception {
-        outputStream.write(MemcacheResponseType.EXISTS.type.getBytes());
-        assertTrue("Failed to identify end", parser.isResponseEnd(outputStream));
+        line.appendBytes(MemcacheResponseType.EXISTS.type.getBytes());
+        assertTrue("Failed to identify end", parser.isResponseEnd(line));
         StoreCommandResponse response = parser.getResponse();
         assertEquals("Wrong status", JsendStatus.success, response.getStatus());
         assertEquals("Wrong data", MemcacheResponseType.EXISTS.name(), response.getData());
@@ -73,8 +72,8 @@ public class StoreLineParserTest {
 
     @Test
     public void testNotFoundEndLine() throws Exception {
-        outputStream.write(MemcacheResponseType.NOT_FOUND.type.getBytes());
-        assertTrue("Failed to identify end", parser.isResponseEnd(outputStream));
+        line.appendBytes(MemcacheResponseType.NOT_FOUND.type.getBytes());
+        assertTrue("Failed to identify end", parser.isResponseEnd(line));
         StoreCommandResponse response = parser.getResponse();
         assertEquals("Wrong status", JsendStatus.success, response.getStatus());
         assertEquals("Wrong data", MemcacheResponseType.NOT_FOUND.name(), response.getData());
@@ -82,8 +81,8 @@ public class StoreLineParserTest {
 
     @Test
     public void testErrorEndLine() throws Exception {
-        outputStream.write(MemcacheResponseType.ERROR.type.getBytes());
-        assertTrue("Failed to identify end", parser.isResponseEnd(outputStream));
+        line.appendBytes(MemcacheResponseType.ERROR.type.getBytes());
+        assertTrue("Failed to identify end", parser.isResponseEnd(line));
         StoreCommandResponse response = parser.getResponse();
         assertEquals("Wrong status", JsendStatus.error, response.getStatus());
         assertEquals("Wrong data", MemcacheResponseType.ERROR.name(), response.getMessage());
@@ -92,8 +91,8 @@ public class StoreLineParserTest {
     @Test
     public void testClientErrorEndLine() throws Exception {
         String clientError = "CLIENT ERROR message";
-        outputStream.write(clientError.getBytes());
-        assertTrue("Failed to identify end", parser.isResponseEnd(outputStream));
+        line.appendBytes(clientError.getBytes());
+        assertTrue("Failed to identify end", parser.isResponseEnd(line));
         StoreCommandResponse response = parser.getResponse();
         assertEquals("Wrong status", JsendStatus.error, response.getStatus());
         assertEquals("Wrong data", clientError, response.getMessage());
@@ -102,8 +101,8 @@ public class StoreLineParserTest {
     @Test
     public void testServerErrorEndLine() throws Exception {
         String serverError = "SERVER ERROR message";
-        outputStream.write(serverError.getBytes());
-        assertTrue("Failed to identify end", parser.isResponseEnd(outputStream));
+        line.appendBytes(serverError.getBytes());
+        assertTrue("Failed to identify end", parser.isResponseEnd(line));
         StoreCommandResponse response = parser.getResponse();
         assertEquals("Wrong status", JsendStatus.error, response.getStatus());
         assertEquals("Wrong data", serverError, response.getMessage());
@@ -112,8 +111,8 @@ public class StoreLineParserTest {
     @Test
     public void testUnexpectedFormat() throws Exception {
         try {
-            outputStream.write("foo".getBytes());
-            parser.isResponseEnd(outputStream);
+            line.appendBytes("foo".getBytes());
+            parser.isResponseEnd(line);
             assertTrue("Failed to throw exception", false);
         } catch (MemcacheException me) {
             assertEquals("Unexpected exception", "Unexpected format in response", me.getMessage());
@@ -16,6 +16,7 @@
 package com.groupon.vertx.memcache.server;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import io.vertx.core.json.JsonArray;
@@ -51,7 +52,7 @@ public class ContinuumFactoryTest implements MemcacheKeys {
     public void testCreateKetama() {
         Continuum continuum = ContinuumFactory.create(new MemcacheConfig(configJson));
         assertTrue("Wrong continuum type", continuum instanceof KetamaContinuum);
-        assertEquals("Wrong server count", 8, continuum.getServerContinuum().size());
+        assertEquals("Wrong server count", 8, ((RingContinuum) continuum).getServerContinuum().size());
     }
 
     @Test
@@ -59,7 +60,23 @@ public class ContinuumFactoryTest implements MemcacheKeys {
         configJson.put(CONTINUUM_KEY, ContinuumType.DEFAULT.name());
         Continuum continuum = ContinuumFactory.create(new MemcacheConfig(configJson));
         assertTrue("Wrong continuum type", continuum instanceof DefaultContinuum);
-        assertEquals("Wrong server count", 2, continuum.getServerContinuum().size());
+        assertEquals("Wrong server count", 2, ((RingContinuum) continuum).getServerContinuum().size());
+    }
+
+    @Test
+    public void testCreateJump() {
+        configJson.put(CONTINUUM_KEY, ContinuumType.JUMP.name());
+        Continuum continuum = ContinuumFactory.create(new MemcacheConfig(configJson));
+        assertTrue("Wrong continuum type", continuum instanceof JumpContinuum);
+        assertNotNull("Missing server", continuum.getServer("key"));
+    }
+
+    @Test
+    public void testCreateRendezvous() {
+        configJson.put(CONTINUUM_KEY, ContinuumType.RENDEZVOUS.name());
+        Continuum continuum = ContinuumFactory.create(new MemcacheConfig(configJson));
+        assertTrue("Wrong continuum type", continuum instanceof RendezvousContinuum);
+        assertNotNull("Missing server", continuum.getServer("key"));
     }
 
     @Test
@@ -67,7 +84,7 @@ public class ContinuumFactoryTest implements MemcacheKeys {
         configJson.putNull(CONTINUUM_KEY);
         Continuum continuum = ContinuumFactory.create(new MemcacheConfig(configJson));
         assertTrue("Wrong continuum type", continuum instanceof KetamaContinuum);
-        assertEquals("Wrong server count", 8, continuum.getServerContinuum().size());
+        assertEquals("Wrong server count", 8, ((RingContinuum) continuum).getServerContinuum().size());
     }
 
     @Test(expected = IllegalArgumentException.class)
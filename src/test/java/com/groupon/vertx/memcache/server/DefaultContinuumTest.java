@@ -17,8 +17,10 @@ package com.groupon.vertx.memcache.server;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 
 import java.util.Arrays;
+import java.util.Map;
 import java.util.TreeMap;
 
 import org.junit.Before;
@@ -72,4 +74,18 @@ public class DefaultContinuumTest {
             assertNotNull(server);
         }
     }
+
+    @Test
+    public void testLookupMatchesSortedMap() {
+        DefaultContinuum continuum = new DefaultContinuum(Arrays.asList(server1, server2, server3),
+                HashAlgorithm.FNV1_32_HASH, 160);
+
+        TreeMap<Long, MemcacheServer> map = continuum.getServerContinuum();
+        for (int i = 0; i < 5000; i++) {
+            String key = "key" + i;
+            Map.Entry<Long, MemcacheServer> entry = map.ceilingEntry(HashAlgorithm.FNV1_32_HASH.hash(key));
+            MemcacheServer expected = entry != null ? entry.getValue() : map.firstEntry().getValue();
+            assertSame("Unexpected server for " + key, expected, continuum.getServer(key));
+        }
+    }
 }
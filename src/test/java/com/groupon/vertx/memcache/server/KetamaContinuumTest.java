@@ -16,8 +16,12 @@
 package com.groupon.vertx.memcache.server;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.TreeMap;
 
 import org.junit.Before;
@@ -61,4 +65,39 @@ public class KetamaContinuumTest {
         TreeMap<Long, MemcacheServer> map = continuum.getServerContinuum();
         assertEquals("Unexpected server count", 24, map.size());
     }
+
+    @Test
+    public void testKeyDistribution() {
+        HashAlgorithm[] algorithms = new HashAlgorithm[] {HashAlgorithm.KETAMA_HASH, HashAlgorithm.MURMUR3_32_HASH,
+            HashAlgorithm.XXHASH32_HASH, HashAlgorithm.XXHASH64_HASH};
+        int keys = 30000;
+
+        for (HashAlgorithm algorithm : algorithms) {
+            KetamaContinuum continuum = new KetamaContinuum(Arrays.asList(server1, server2, server3), algorithm, 160);
+            Map<MemcacheServer, Integer> counts = new HashMap<>();
+            for (int i = 0; i < keys; i++) {
+                counts.merge(continuum.getServer("namespace:user:" + i), 1, Integer::sum);
+            }
+
+            assertEquals("Keys missing a server for " + algorithm, 3, counts.size());
+            for (Integer count : counts.values()) {
+                double share = (double) count / keys;
+                assertTrue("Uneven distribution for " + algorithm + ": " + share, share > 0.27 && share < 0.40);
+            }
+        }
+    }
+
+    @Test
+    public void testLookupMatchesSortedMap() {
+        KetamaContinuum continuum = new KetamaContinuum(Arrays.asList(server1, server2, server3),
+                HashAlgorithm.KETAMA_HASH, 160);
+
+        TreeMap<Long, MemcacheServer> map = continuum.getServerContinuum();
+        for (int i = 0; i < 5000; i++) {
+            String key = "key" + i;
+            Map.Entry<Long, MemcacheServer> entry = map.ceilingEntry(HashAlgorithm.KETAMA_HASH.hash(key));
+            MemcacheServer expected = entry != null ? entry.getValue() : map.firstEntry().getValue();
+            assertSame("Unexpected server for " + key, expected, continuum.getServer(key));
+        }
+    }
 }
@@ -0,0 +1,109 @@
+/**
+ * Copyright 2014 Groupon.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.vertx.memcache.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.groupon.vertx.memcache.hash.HashAlgorithm;
+
+/**
+ * Tests for <code>RendezvousContinuum</code>.
+ *
+ * @author Stuart Siegrist (fsiegrist at groupon dot com)
+ * @since 4.0.3
+ */
+public class RendezvousContinuumTest {
+    private static final int KEYS = 30000;
+
+    private MemcacheServer server1;
+    private MemcacheServer server2;
+    private MemcacheServer server3;
+    private MemcacheServer server4;
+
+    @Before
+    public void setUp() {
+        server1 = new MemcacheServer("localhost:1234:1");
+        server2 = new MemcacheServer("localhost:1235:1");
+        server3 = new MemcacheServer("localhost:1236:1");
+        server4 = new MemcacheServer("localhost:1237:1");
+    }
+
+    @Test
+    public void testSingleServer() {
+        RendezvousContinuum continuum = new RendezvousContinuum(Arrays.asList(server1), HashAlgorithm.FNV1_32_HASH);
+        assertSame("Unexpected server", server1, continuum.getServer("key"));
+    }
+
+    @Test
+    public void testKeyDistribution() {
+        RendezvousContinuum continuum = new RendezvousContinuum(Arrays.asList(server1, server2, server3), HashAlgorithm.FNV1A_32_HASH);
+        Map<MemcacheServer, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(continuum.getServer("key" + i), 1, Integer::sum);
+        }
+
+        assertEquals("Keys missing a server", 3, counts.size());
+        for (Integer count : counts.values()) {
+            double share = (double) count / KEYS;
+            assertTrue("Uneven distribution: " + share, share > 0.31 && share < 0.36);
+        }
+    }
+
+    @Test
+    public void testWeightedDistribution() {
+        MemcacheServer heavy = new MemcacheServer("localhost:1238:3");
+        RendezvousContinuum continuum = new RendezvousContinuum(Arrays.asList(server1, heavy), HashAlgorithm.MURMUR3_32_HASH);
+        int heavyCount = 0;
+        for (int i = 0; i < KEYS; i++) {
+            if (continuum.getServer("key" + i) == heavy) {
+                heavyCount++;
+            }
+        }
+
+        double share = (double) heavyCount / KEYS;
+        assertTrue("Weight not respected: " + share, share > 0.72 && share < 0.78);
+    }
+
+    @Test
+    public void testRemovedServerOnlyLosesKeys() {
+        RendezvousContinuum before = new RendezvousContinuum(Arrays.asList(server1, server2, server3, server4),
+                HashAlgorithm.MURMUR3_32_HASH);
+        // Remove a server from the middle of the list.
+        RendezvousContinuum after = new RendezvousContinuum(Arrays.asList(server1, server3, server4), HashAlgorithm.MURMUR3_32_HASH);
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "key" + i;
+            MemcacheServer server = before.getServer(key);
+            if (server != after.getServer(key)) {
+                assertSame("Key moved from a remaining server", server2, server);
+                moved++;
+            }
+        }
+
+        double share = (double) moved / KEYS;
+        assertTrue("Unexpected moved keys: " + share, share > 0.22 && share < 0.28);
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright 2014 Groupon.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.vertx.memcache.server;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for <code>RingContinuum</code>.
+ *
+ * @author Stuart Siegrist (fsiegrist at groupon dot com)
+ * @since 4.0.3
+ */
+public class RingContinuumTest {
+    @Test
+    public void testCeilingEdges() {
+        long[] values = new long[] {10L, 20L, 30L};
+
+        assertEquals("Invalid index below first", 0, RingContinuum.ceiling(values, 5L));
+        assertEquals("Invalid index at first", 0, RingContinuum.ceiling(values, 10L));
+        assertEquals("Invalid index between", 1, RingContinuum.ceiling(values, 11L));
+        assertEquals("Invalid index at last", 2, RingContinuum.ceiling(values, 30L));
+        assertEquals("Invalid index past last", 3, RingContinuum.ceiling(values, 31L));
+        assertEquals("Invalid single index", 0, RingContinuum.ceiling(new long[] {Long.MAX_VALUE}, 0L));
+    }
+
+    @Test
+    public void testCeilingMatchesLinearSearch() {
+        Random random = new Random(42);
+        for (int length = 1; length < 70; length++) {
+            long[] values = new long[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = random.nextInt(1000);
+            }
+            Arrays.sort(values);
+
+            for (long hash = -1; hash <= 1001; hash++) {
+                int expected = 0;
+                while (expected < length && values[expected] < hash) {
+                    expected++;
+                }
+                assertEquals("Invalid index for " + hash, expected, RingContinuum.ceiling(values, hash));
+            }
+        }
+    }
+}
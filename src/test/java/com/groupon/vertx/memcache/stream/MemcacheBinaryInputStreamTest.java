@@ -0,0 +1,263 @@
+/**
+ * Copyright 2014 Groupon.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.vertx.memcache.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.groupon.vertx.memcache.MemcacheException;
+import com.groupon.vertx.memcache.client.JsendStatus;
+import com.groupon.vertx.memcache.client.response.DeleteCommandResponse;
+import com.groupon.vertx.memcache.client.response.MemcacheCommandResponse;
+import com.groupon.vertx.memcache.client.response.ModifyCommandResponse;
+import com.groupon.vertx.memcache.client.response.RetrieveCommandResponse;
+import com.groupon.vertx.memcache.client.response.StoreCommandResponse;
+import com.groupon.vertx.memcache.command.MemcacheCommand;
+import com.groupon.vertx.memcache.command.MemcacheCommandType;
+
+/**
+ * Tests for <code>MemcacheBinaryInputStream</code>.
+ *
+ * @author Stuart Siegrist (fsiegrist at groupon dot com)
+ * @since 4.0.3
+ */
+public class MemcacheBinaryInputStreamTest {
+    private PendingCommandQueue pendingCommands;
+    private MemcacheBinaryInputStream input;
+    private MemcacheCommandResponse[] received;
+
+    @Before
+    public void setUp() {
+        pendingCommands = new PendingCommandQueue();
+        input = new MemcacheBinaryInputStream(pendingCommands);
+        received = new MemcacheCommandResponse[1];
+    }
+
+    @Test
+    public void testGetHit() {
+        addCommand(new MemcacheCommand(MemcacheCommandType.get, "key", null, null));
+
+        input.processBuffer(response(MemcacheBinaryProtocol.GET, 0, 0, Buffer.buffer().appendInt(0), null, "value"));
+
+        RetrieveCommandResponse response = (RetrieveCommandResponse) received[0];
+        assertEquals(JsendStatus.success, response.getStatus());
+        assertEquals("value", response.getData().get("key"));
+        assertEquals(0, pendingCommands.size());
+        assertEquals(1, input.getCompletedCommands());
+    }
+
+    @Test
+    public void testGetHitWithFlags() {
+        addCommand(new MemcacheCommand(MemcacheCommandType.get, "key", null, null));
+
+        input.processBuffer(response(MemcacheBinaryProtocol.GET, 0, 0, Buffer.buffer().appendInt(12), null, "value"));
+
+        RetrieveCommandResponse response = (RetrieveCommandResponse) received[0];
+        assertEquals("value", response.getData().get("key"));
+        assertEquals(12, response.getFlags("key"));
+    }
+
+    @Test
+    public void testGetMiss() {
+        addCommand(new MemcacheCommand(MemcacheCommandType.get, "key", null, null));
+
+        input.processBuffer(response(MemcacheBinaryProtocol.GET, 1, 0, null, null, "Not found"));
+
+        RetrieveCommandResponse response = (RetrieveCommandResponse) received[0];
+        assertEquals(JsendStatus.success, response.getStatus());
+        assertTrue("Data not empty", response.getData().isEmpty());
+    }
+
+    @Test
+    public void testMultiGet() {
+        addCommand(new MemcacheCommand(MemcacheCommandType.get, Arrays.asList("key1", "key2", "key3")));
+
+        Buffer buffer = response(MemcacheBinaryProtocol.GETKQ, 0, 0, Buffer.buffer().appendInt(0), "key1", "value1")
+                .appendBuffer(response(MemcacheBinaryProtocol.GETKQ, 0, 0, Buffer.buffer().appendInt(0), "key3", "value3"))
+                .appendBuffer(response(MemcacheBinaryProtocol.NOOP, 0, 0, null, null, null));
+
+        input.processBuffer(buffer.getBuffer(0, 30));
+        assertNull("Response too early", received[0]);
+        input.processBuffer(buffer.getBuffer(30, buffer.length()));
+
+        RetrieveCommandResponse response = (RetrieveCommandResponse) received[0];
+        assertEquals(JsendStatus.success, response.getStatus());
+        assertEquals(2, response.getData().size());
+        assertEquals("value1", response.getData().get("key1"));
+        assertEquals("value3", response.getData().get("key3"));
+    }
+
+    @Test
+    public void testGetsHit() {
+        addCommand(new MemcacheCommand(MemcacheCommandType.gets, "key", null, null));
+
+        input.processBuffer(response(MemcacheBinaryProtocol.GET, 0, 0, Buffer.buffer().appendInt(0), null, "value").setLong(16, 99L));
+
+        RetrieveCommandResponse response = (RetrieveCommandResponse) received[0];
+        assertEquals("value", response.getData().get("key"));
+        assertEquals(Long.valueOf(99), response.getCas("key"));
+    }
+
+    @Test
+    public void testMultiGetAndTouchWithCas() {
+        addCommand(new MemcacheCommand.Builder()
+                .setType(MemcacheCommandType.gats)
+                .setKeys(Arrays.asList("key1", "key2"))
+                .setExpires(300)
+                .build());
+
+        input.processBuffer(response(MemcacheBinaryProtocol.GATKQ, 0, 0, Buffer.buffer().appendInt(0), "key2", "value2").setLong(16, 7L)
+                .appendBuffer(response(MemcacheBinaryProtocol.NOOP, 0, 0, null, null, null)));
+
+        RetrieveCommandResponse response = (RetrieveCommandResponse) received[0];
+        assertEquals(1, response.getData().size());
+        assertEquals("value2", response.getData().get("key2"));
+        assertEquals(Long.valueOf(7), response.getCas("key2"));
+    }
+
+    @Test
+    public void testCasExists() {
+        addCommand(new MemcacheCommand.Builder().setType(MemcacheCommandType.cas).setKey("key").setValue("value").setCas(5L).build());
+        input.processBuffer(response(MemcacheBinaryProtocol.SET, 2, 0, null, null, "Data exists for key."));
+
+        assertEquals("EXISTS", ((StoreCommandResponse) received[0]).getData());
+    }
+
+    @Test
+    public void testStore() {
+        addCommand(new MemcacheCommand(MemcacheCommandType.add, "key", "value", 0));
+        input.processBuffer(response(MemcacheBinaryProtocol.ADD, 2, 0, null, null, "Data exists for key."));
+
+        StoreCommandResponse response = (StoreCommandResponse) received[0];
+        assertEquals(JsendStatus.success, response.getStatus());
+        assertEquals("NOT_STORED", response.getData());
+    }
+
+    @Test
+    public void testDelete() {
+        addCommand(new MemcacheCommand(MemcacheCommandType.delete, "key", null, null));
+        input.processBuffer(response(MemcacheBinaryProtocol.DELETE, 0, 0, null, null, null));
+
+        assertEquals("DELETED", ((DeleteCommandResponse) received[0]).getData());
+    }
+
+    @Test
+    public void testIncr() {
+        addCommand(new MemcacheCommand(MemcacheCommandType.incr, "key", "1", null));
+        input.processBuffer(response(MemcacheBinaryProtocol.INCREMENT, 0, 0, null, null, null).appendLong(42));
+
+        ModifyCommandResponse response = (ModifyCommandResponse) received[0];
+        assertEquals(JsendStatus.success, response.getStatus());
+        assertEquals(Integer.valueOf(42), response.getData());
+    }
+
+    @Test
+    public void testError() {
+        addCommand(new MemcacheCommand(MemcacheCommandType.incr, "key", "1", null));
+        input.processBuffer(response(MemcacheBinaryProtocol.INCREMENT, 6, 0, null, null, "Non-numeric server-side value for incr or decr"));
+
+        assertEquals(JsendStatus.error, received[0].getStatus());
+        assertEquals("Non-numeric server-side value for incr or decr", received[0].getMessage());
+    }
+
+    @Test
+    public void testUnexpectedOpaque() {
+        addCommand(new MemcacheCommand(MemcacheCommandType.delete, "key", null, null));
+
+        try {
+            input.processBuffer(response(MemcacheBinaryProtocol.DELETE, 0, 5, null, null, null));
+            assertTrue("Unexpected success", false);
+        } catch (MemcacheException me) {
+            assertEquals("Unexpected opaque in response", me.getMessage());
+        }
+
+        assertNull("Response for another opaque", received[0]);
+        assertEquals(1, pendingCommands.size());
+    }
+
+    @Test
+    public void testResponseWithoutPendingCommand() {
+        try {
+            input.processBuffer(response(MemcacheBinaryProtocol.DELETE, 0, 0, null, null, null));
+            assertTrue("Unexpected success", false);
+        } catch (MemcacheException me) {
+            assertEquals("Unexpected opaque in response", me.getMessage());
+        }
+    }
+
+    @Test
+    public void testNoreplyFailure() {
+        addCommand(new MemcacheCommand(MemcacheCommandType.delete, "key", null, null));
+        input.processBuffer(response(MemcacheBinaryProtocol.DELETEQ, 1, MemcacheBinaryProtocol.NOREPLY_OPAQUE, null, null, "Not found")
+                .appendBuffer(response(MemcacheBinaryProtocol.DELETE, 0, 0, null, null, null)));
+
+        assertEquals("DELETED", ((DeleteCommandResponse) received[0]).getData());
+        assertEquals(0, pendingCommands.size());
+    }
+
+    @Test
+    public void testInvalidMagic() {
+        addCommand(new MemcacheCommand(MemcacheCommandType.delete, "key", null, null));
+        Buffer buffer = response(MemcacheBinaryProtocol.DELETE, 0, 0, null, null, null);
+        buffer.setByte(0, (byte) 0x80);
+
+        try {
+            input.processBuffer(buffer);
+            assertTrue("Unexpected success", false);
+        } catch (MemcacheException me) {
+            assertEquals("Unexpected format in response", me.getMessage());
+        }
+    }
+
+    private void addCommand(MemcacheCommand command) {
+        command.commandResponseHandler(response -> received[0] = response);
+        pendingCommands.add(command);
+    }
+
+    private static Buffer response(byte opcode, int status, int opaque, Buffer extras, String key, String value) {
+        Buffer body = Buffer.buffer();
+        if (extras != null) {
+            body.appendBuffer(extras);
+        }
+        if (key != null) {
+            body.appendString(key);
+        }
+        int keyLength = body.length() - (extras != null ? extras.length() : 0);
+        if (value != null) {
+            body.appendString(value);
+        }
+        int bodyLength = body.length() + (opcode == MemcacheBinaryProtocol.INCREMENT && value == null ? Long.BYTES : 0);
+
+        return Buffer.buffer()
+                .appendByte((byte) 0x81)
+                .appendByte(opcode)
+                .appendShort((short) keyLength)
+                .appendByte((byte) (extras != null ? extras.length() : 0))
+                .appendByte((byte) 0)
+                .appendShort((short) status)
+                .appendInt(bodyLength)
+                .appendInt(opaque)
+                .appendLong(0)
+                .appendBuffer(body);
+    }
+}
@@ -0,0 +1,214 @@
+/**
+ * Copyright 2014 Groupon.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.vertx.memcache.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.net.NetSocket;
+import org.junit.Test;
+
+import com.groupon.vertx.memcache.MemcacheException;
+import com.groupon.vertx.memcache.command.MemcacheCommand;
+import com.groupon.vertx.memcache.command.MemcacheCommandType;
+
+/**
+ * Tests for <code>MemcacheBinaryProtocol</code>.
+ *
+ * @author Stuart Siegrist (fsiegrist at groupon dot com)
+ * @since 4.0.3
+ */
+public class MemcacheBinaryProtocolTest {
+    @Test
+    public void testEncodeGet() {
+        Buffer buffer = encode(new MemcacheCommand(MemcacheCommandType.get, "key", null, null), 7);
+
+        assertEquals(24 + 3, buffer.length());
+        assertEquals((byte) 0x80, buffer.getByte(0));
+        assertEquals(MemcacheBinaryProtocol.GET, buffer.getByte(1));
+        assertEquals(3, buffer.getShort(2));
+        assertEquals(0, buffer.getByte(4));
+        assertEquals(3, buffer.getInt(8));
+        assertEquals(7, buffer.getInt(12));
+        assertEquals(0L, buffer.getLong(16));
+        assertEquals("key", buffer.getString(24, 27));
+    }
+
+    @Test
+    public void testEncodeSet() {
+        Buffer buffer = encode(new MemcacheCommand(MemcacheCommandType.set, "key", "value", 300), 1);
+
+        assertEquals(MemcacheBinaryProtocol.SET, buffer.getByte(1));
+        assertEquals(3, buffer.getShort(2));
+        assertEquals(8, buffer.getByte(4));
+        assertEquals(8 + 3 + 5, buffer.getInt(8));
+        assertEquals(0, buffer.getInt(24));
+        assertEquals(300, buffer.getInt(28));
+        assertEquals("keyvalue", buffer.getString(32, 40));
+    }
+
+    @Test
+    public void testEncodeSetWithFlags() {
+        MemcacheCommand command = new MemcacheCommand.Builder()
+                .setType(MemcacheCommandType.add)
+                .setKey("key")
+                .setValue("value")
+                .setExpires(300)
+                .setFlags(6)
+                .build();
+        Buffer buffer = encode(command, 1);
+
+        assertEquals(MemcacheBinaryProtocol.ADD, buffer.getByte(1));
+        assertEquals(6, buffer.getInt(24));
+        assertEquals(300, buffer.getInt(28));
+    }
+
+    @Test
+    public void testEncodeNoreplySet() {
+        MemcacheCommand command = new MemcacheCommand.Builder()
+                .setType(MemcacheCommandType.set)
+                .setKey("key")
+                .setValue("value")
+                .setNoreply(true)
+                .build();
+        Buffer buffer = encode(command, MemcacheBinaryProtocol.NOREPLY_OPAQUE);
+
+        assertEquals(MemcacheBinaryProtocol.SETQ, buffer.getByte(1));
+        assertEquals(MemcacheBinaryProtocol.NOREPLY_OPAQUE, buffer.getInt(12));
+    }
+
+    @Test
+    public void testEncodeCas() {
+        MemcacheCommand command = new MemcacheCommand.Builder()
+                .setType(MemcacheCommandType.cas)
+                .setKey("key")
+                .setValue("value")
+                .setExpires(0)
+                .setCas(77L)
+                .build();
+        Buffer buffer = encode(command, 1);
+
+        assertEquals(MemcacheBinaryProtocol.SET, buffer.getByte(1));
+        assertEquals(77L, buffer.getLong(16));
+    }
+
+    @Test
+    public void testOpaque() {
+        assertEquals(5, MemcacheBinaryProtocol.getOpaque(5));
+        assertEquals(0, MemcacheBinaryProtocol.getOpaque(0x80000000L));
+        assertEquals(0x7fffffff, MemcacheBinaryProtocol.getOpaque(0xffffffffL));
+    }
+
+    @Test
+    public void testEncodeIncr() {
+        Buffer buffer = encode(new MemcacheCommand(MemcacheCommandType.incr, "key", "5", null), 1);
+
+        assertEquals(MemcacheBinaryProtocol.INCREMENT, buffer.getByte(1));
+        assertEquals(20, buffer.getByte(4));
+        assertEquals(5L, buffer.getLong(24));
+        assertEquals(0L, buffer.getLong(32));
+        assertEquals(0xffffffff, buffer.getInt(40));
+    }
+
+    @Test
+    public void testEncodeInvalidIncr() {
+        NetSocket socket = mock(NetSocket.class);
+        MemcacheOutputStream output = new MemcacheOutputStream(socket);
+        try {
+            MemcacheBinaryProtocol.encode(output, new MemcacheCommand(MemcacheCommandType.incr, "key", "abc", null), 1);
+            assertTrue("Unexpected success", false);
+        } catch (MemcacheException me) {
+            assertEquals("Invalid numeric delta argument", me.getMessage());
+        }
+
+        output.flush();
+        verify(socket, never()).write(any(Buffer.class));
+    }
+
+    @Test
+    public void testEncodeMultiByteKey() {
+        Buffer buffer = encode(new MemcacheCommand(MemcacheCommandType.get, "k\u00e9y\ud83d\ude00", null, null), 1);
+
+        assertEquals(1 + 2 + 1 + 4, buffer.getShort(2));
+        assertEquals(24 + 8, buffer.length());
+        assertEquals("k\u00e9y\ud83d\ude00", buffer.getString(24, 32, "UTF-8"));
+    }
+
+    @Test
+    public void testEncodedLength() {
+        assertEquals(3, MemcacheBinaryProtocol.encodedLength("key", 0, 3));
+        assertEquals(2, MemcacheBinaryProtocol.encodedLength("a key", 2, 4));
+        assertEquals(3, MemcacheBinaryProtocol.encodedLength("\u20ac", 0, 1));
+        assertEquals("\ud83d".getBytes(StandardCharsets.UTF_8).length, MemcacheBinaryProtocol.encodedLength("\ud83d", 0, 1));
+    }
+
+    @Test
+    public void testEncodeMultiGet() {
+        MemcacheCommand command = new MemcacheCommand(MemcacheCommandType.get, Arrays.asList("key1", "key2"));
+        Buffer buffer = encode(command, 9);
+
+        assertEquals(3 * 24 + 8, buffer.length());
+        assertEquals(MemcacheBinaryProtocol.GETKQ, buffer.getByte(1));
+        assertEquals("key1", buffer.getString(24, 28));
+        assertEquals(MemcacheBinaryProtocol.GETKQ, buffer.getByte(29));
+        assertEquals("key2", buffer.getString(52, 56));
+        assertEquals(MemcacheBinaryProtocol.NOOP, buffer.getByte(57));
+        assertEquals(0, buffer.getInt(64));
+        assertEquals(9, buffer.getInt(68));
+    }
+
+    @Test
+    public void testEncodeMultiGetAndTouch() {
+        MemcacheCommand command = new MemcacheCommand.Builder()
+                .setType(MemcacheCommandType.gat)
+                .setKeys(Arrays.asList("key1", "key2"))
+                .setExpires(300)
+                .build();
+        Buffer buffer = encode(command, 9);
+
+        assertEquals(3 * 24 + 2 * 4 + 8, buffer.length());
+        assertEquals(MemcacheBinaryProtocol.GATKQ, buffer.getByte(1));
+        assertEquals(4, buffer.getByte(4));
+        assertEquals(300, buffer.getInt(24));
+        assertEquals("key1", buffer.getString(28, 32));
+        assertEquals(MemcacheBinaryProtocol.GATKQ, buffer.getByte(33));
+        assertEquals("key2", buffer.getString(60, 64));
+        assertEquals(MemcacheBinaryProtocol.NOOP, buffer.getByte(65));
+    }
+
+    private Buffer encode(MemcacheCommand command, int opaque) {
+        Buffer written = Buffer.buffer();
+        NetSocket socket = mock(NetSocket.class);
+        doAnswer(invocation -> {
+            written.appendBuffer((Buffer) invocation.getArguments()[0]);
+            return socket;
+        }).when(socket).write(any(Buffer.class));
+
+        MemcacheOutputStream output = new MemcacheOutputStream(socket);
+        MemcacheBinaryProtocol.encode(output, command, opaque);
+        output.flush();
+        return written;
+    }
+}
@@ -20,17 +20,18 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
-import java.io.ByteArrayOutputStream;
 import java.lang.reflect.Field;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
+import io.netty.buffer.ByteBuf;
 import io.vertx.core.buffer.Buffer;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.groupon.vertx.memcache.MemcacheException;
 import com.groupon.vertx.memcache.client.JsendStatus;
 import com.groupon.vertx.memcache.client.response.DeleteCommandResponse;
 import com.groupon.vertx.memcache.client.response.ModifyCommandResponse;
@@ -46,16 +47,16 @@ import com.groupon.vertx.memcache.command.MemcacheCommandType;
  * @since 1.0.0
  */
 public class MemcacheInputStreamTest {
-    private ConcurrentLinkedQueue<MemcacheCommand> pendingCommands = null;
+    private PendingCommandQueue pendingCommands = null;
 
-    private Field buffer = null;
+    private Field remaining = null;
 
     @Before
     public void setUp() throws Exception {
-        pendingCommands = new ConcurrentLinkedQueue<>();
+        pendingCommands = new PendingCommandQueue();
 
-        buffer = MemcacheInputStream.class.getDeclaredField("buffer");
-        buffer.setAccessible(true);
+        remaining = MemcacheInputStream.class.getDeclaredField("remaining");
+        remaining.setAccessible(true);
     }
 
     @After
@@ -63,7 +64,7 @@ public class MemcacheInputStreamTest {
         pendingCommands.clear();
         pendingCommands = null;
 
-        buffer.setAccessible(false);
+        remaining.setAccessible(false);
     }
 
     @Test
@@ -73,7 +74,7 @@ public class MemcacheInputStreamTest {
         try {
             input.processBuffer(Buffer.buffer());
 
-            assertEquals("Invalid buffer position", 0, ((ByteArrayOutputStream) buffer.get(input)).size());
+            assertEquals("Invalid buffer position", 0, remainingBytes(input));
         } catch (Exception ex) {
             assertNull("Unexpected exception: " + ex.getMessage(), ex);
         }
@@ -86,7 +87,7 @@ public class MemcacheInputStreamTest {
         try {
             input.processBuffer(null);
 
-            assertEquals("Invalid buffer position", 0, ((ByteArrayOutputStream) buffer.get(input)).size());
+            assertEquals("Invalid buffer position", 0, remainingBytes(input));
         } catch (Exception ex) {
             assertNull("Unexpected exception: " + ex.getMessage(), ex);
         }
@@ -101,7 +102,7 @@ public class MemcacheInputStreamTest {
             buff.appendByte((byte) 'a');
             input.processBuffer(buff);
 
-            assertEquals("Invalid buffer position", 1, ((ByteArrayOutputStream) buffer.get(input)).size());
+            assertEquals("Invalid buffer position", 1, remainingBytes(input));
         } catch (Exception ex) {
             assertNull("Unexpected exception: " + ex.getMessage(), ex);
         }
@@ -127,7 +128,7 @@ public class MemcacheInputStreamTest {
             buff.appendString("TOUCHED\r\n");
             input.processBuffer(buff);
 
-            assertEquals("Invalid buffer position", 0, ((ByteArrayOutputStream) buffer.get(input)).size());
+            assertEquals("Invalid buffer position", 0, remainingBytes(input));
         } catch (Exception ex) {
             assertNull("Unexpected exception: " + ex.getMessage(), ex);
         }
@@ -152,7 +153,7 @@ public class MemcacheInputStreamTest {
             buff.appendString("CLIENT ERROR message\r\n");
             input.processBuffer(buff);
 
-            assertEquals("Invalid buffer position", 0, ((ByteArrayOutputStream) buffer.get(input)).size());
+            assertEquals("Invalid buffer position", 0, remainingBytes(input));
         } catch (Exception ex) {
             assertNull("Unexpected exception: " + ex.getMessage(), ex);
         }
@@ -177,7 +178,7 @@ public class MemcacheInputStreamTest {
             buff.appendString("SERVER ERROR message\r\n");
             input.processBuffer(buff);
 
-            assertEquals("Invalid buffer position", 0, ((ByteArrayOutputStream) buffer.get(input)).size());
+            assertEquals("Invalid buffer position", 0, remainingBytes(input));
         } catch (Exception ex) {
             assertNull("Unexpected exception: " + ex.getMessage(), ex);
         }
@@ -202,7 +203,7 @@ public class MemcacheInputStreamTest {
             buff.appendString("ERROR\r\n");
             input.processBuffer(buff);
 
-            assertEquals("Invalid buffer position", 0, ((ByteArrayOutputStream) buffer.get(input)).size());
+            assertEquals("Invalid buffer position", 0, remainingBytes(input));
         } catch (Exception ex) {
             assertNull("Unexpected exception: " + ex.getMessage(), ex);
         }
@@ -227,7 +228,7 @@ public class MemcacheInputStreamTest {
             buff.appendString("DELETED\r\n");
             input.processBuffer(buff);
 
-            assertEquals("Invalid buffer position", 0, ((ByteArrayOutputStream) buffer.get(input)).size());
+            assertEquals("Invalid buffer position", 0, remainingBytes(input));
         } catch (Exception ex) {
             assertNull("Unexpected exception: " + ex.getMessage(), ex);
         }
@@ -252,7 +253,7 @@ public class MemcacheInputStreamTest {
             buff.appendString("NOT_FOUND\r\n");
             input.processBuffer(buff);
 
-            assertEquals("Invalid buffer position", 0, ((ByteArrayOutputStream) buffer.get(input)).size());
+            assertEquals("Invalid buffer position", 0, remainingBytes(input));
         } catch (Exception ex) {
             assertNull("Unexpected exception: " + ex.getMessage(), ex);
         }
@@ -277,7 +278,7 @@ public class MemcacheInputStreamTest {
             buff.appendString("2\r\n");
             input.processBuffer(buff);
 
-            assertEquals("Invalid buffer position", 0, ((ByteArrayOutputStream) buffer.get(input)).size());
+            assertEquals("Invalid buffer position", 0, remainingBytes(input));
         } catch (Exception ex) {
             assertNull("Unexpected exception: " + ex.getMessage(), ex);
         }
@@ -303,7 +304,7 @@ public class MemcacheInputStreamTest {
             buff.appendString("VALUE key 0 6\r\nfoobar\r\nEND\r\n");
             input.processBuffer(buff);
 
-            assertEquals("Invalid buffer position", 0, ((ByteArrayOutputStream) buffer.get(input)).size());
+            assertEquals("Invalid buffer position", 0, remainingBytes(input));
         } catch (Exception ex) {
             assertNull("Unexpected exception: " + ex.getMessage(), ex);
         }
@@ -333,7 +334,7 @@ public class MemcacheInputStreamTest {
             buff.appendString("VALUE key 0 3\r\nfoo\r\nVALUE key1 0 3\r\nbar\r\nEND\r\n");
             input.processBuffer(buff);
 
-            assertEquals("Invalid buffer position", 0, ((ByteArrayOutputStream) buffer.get(input)).size());
+            assertEquals("Invalid buffer position", 0, remainingBytes(input));
         } catch (Exception ex) {
             assertNull("Unexpected exception: " + ex.getMessage(), ex);
         }
@@ -356,7 +357,7 @@ public class MemcacheInputStreamTest {
             buff.appendString("VALUE key 0 3\r\nfoo\r\nVALUE key1 0 3\r\nbar\r\n");
             input.processBuffer(buff);
 
-            assertEquals("Invalid buffer position", 0, ((ByteArrayOutputStream) buffer.get(input)).size());
+            assertEquals("Invalid buffer position", 0, remainingBytes(input));
         } catch (Exception ex) {
             assertNull("Unexpected exception: " + ex.getMessage(), ex);
         }
@@ -382,7 +383,7 @@ public class MemcacheInputStreamTest {
             assertFalse("Exception did not occur", true);
         } catch (Exception ex) {
             try {
-                assertEquals("Invalid buffer position", 0, ((ByteArrayOutputStream) buffer.get(input)).size());
+                assertEquals("Invalid buffer position", 0, remainingBytes(input));
             } catch (Exception exc) {
                 assertNull("Unexpected runtime exception", exc);
             }
@@ -413,7 +414,7 @@ public class MemcacheInputStreamTest {
         assertEquals("Invalid pending commands", 0, pendingCommands.size());
 
         try {
-            assertEquals("Invalid buffer position", 0, ((ByteArrayOutputStream) buffer.get(input)).size());
+            assertEquals("Invalid buffer position", 0, remainingBytes(input));
         } catch (Exception exc) {
             assertNull("Unexpected runtime exception", exc);
         }
@@ -443,9 +444,169 @@ public class MemcacheInputStreamTest {
         assertEquals("Invalid pending commands", 0, pendingCommands.size());
 
         try {
-            assertEquals("Invalid buffer position", 0, ((ByteArrayOutputStream) buffer.get(input)).size());
+            assertEquals("Invalid buffer position", 0, remainingBytes(input));
         } catch (Exception exc) {
             assertNull("Unexpected runtime exception", exc);
         }
     }
+
+    @Test
+    public void testProcessRetrieveBinaryBuffer() {
+        MemcacheInputStream input = new MemcacheInputStream(pendingCommands);
+        byte[] value = new byte[] {'f', 'o', '\r', '\n', 'E', 'N', 'D', '\r', '\n', 0, (byte) 0xff};
+
+        MemcacheCommand command = new MemcacheCommand(MemcacheCommandType.get, "key", null, null);
+
+        final RetrieveCommandResponse[] result = new RetrieveCommandResponse[1];
+        command.commandResponseHandler(response -> result[0] = (RetrieveCommandResponse) response);
+
+        pendingCommands.add(command);
+
+        Buffer buff = Buffer.buffer();
+        buff.appendString("VALUE key 0 11\r\n");
+        buff.appendBytes(value);
+        buff.appendString("\r\nEND\r\n");
+        input.processBuffer(buff);
+
+        assertEquals("Invalid pending commands", 0, pendingCommands.size());
+        assertNotNull("Missing response", result[0]);
+        assertEquals("Invalid status", JsendStatus.success, result[0].getStatus());
+        assertEquals("Invalid data", Buffer.buffer(value), result[0].getBinaryData().get("key"));
+    }
+
+    @Test
+    public void testProcessRetrieveSplitValueBuffer() {
+        MemcacheInputStream input = new MemcacheInputStream(pendingCommands);
+
+        MemcacheCommand command = new MemcacheCommand(MemcacheCommandType.get, "key", null, null);
+
+        final RetrieveCommandResponse[] result = new RetrieveCommandResponse[1];
+        command.commandResponseHandler(response -> result[0] = (RetrieveCommandResponse) response);
+
+        pendingCommands.add(command);
+
+        input.processBuffer(Buffer.buffer("VALUE key 0 8\r\nfo"));
+        input.processBuffer(Buffer.buffer("o\r\nb"));
+        input.processBuffer(Buffer.buffer("ar\r"));
+        assertNull("Response received early", result[0]);
+        input.processBuffer(Buffer.buffer("\nEND\r\n"));
+
+        assertEquals("Invalid pending commands", 0, pendingCommands.size());
+        assertNotNull("Missing response", result[0]);
+        assertEquals("Invalid data", "foo\r\nbar", result[0].getData().get("key"));
+    }
+
+    @Test
+    public void testProcessRetrieveMissingCrlfBuffer() {
+        MemcacheInputStream input = new MemcacheInputStream(pendingCommands);
+
+        MemcacheCommand command = new MemcacheCommand(MemcacheCommandType.get, "key", null, null);
+        command.commandResponseHandler(response -> {
+            assertFalse("Command response handler called unexpectedly", true);
+        });
+
+        pendingCommands.add(command);
+
+        try {
+            input.processBuffer(Buffer.buffer("VALUE key 0 3\r\nfoobar\r\nEND\r\n"));
+            assertFalse("Exception did not occur", true);
+        } catch (MemcacheException me) {
+            assertEquals("Unexpected exception", "Data block not terminated by CRLF", me.getMessage());
+        }
+    }
+
+    @Test
+    public void testProcessRetrieveMultipleSplitBuffers() throws Exception {
+        MemcacheInputStream input = new MemcacheInputStream(pendingCommands);
+
+        MemcacheCommand command = new MemcacheCommand(MemcacheCommandType.get, "a b", null, null);
+
+        final RetrieveCommandResponse[] result = new RetrieveCommandResponse[1];
+        command.commandResponseHandler(response -> result[0] = (RetrieveCommandResponse) response);
+
+        pendingCommands.add(command);
+
+        input.processBuffer(Buffer.buffer("VALUE a 0 3\r\nfo"));
+        input.processBuffer(Buffer.buffer("o\r\nVALUE b 0 3\r\nba"));
+        assertEquals("Invalid buffer position", 2, remainingBytes(input));
+        input.processBuffer(Buffer.buffer("r\r\nEN"));
+        input.processBuffer(Buffer.buffer("D\r\n"));
+
+        assertEquals("Invalid pending commands", 0, pendingCommands.size());
+        assertEquals("Invalid buffer position", 0, remainingBytes(input));
+        assertNotNull("Missing response", result[0]);
+        assertEquals("Invalid data", "foo", result[0].getData().get("a"));
+        assertEquals("Invalid data", "bar", result[0].getData().get("b"));
+    }
+
+    @Test
+    public void testProcessSingleBytes() throws Exception {
+        MemcacheInputStream input = new MemcacheInputStream(pendingCommands);
+
+        MemcacheCommand command = new MemcacheCommand(MemcacheCommandType.get, "key", null, null);
+
+        final RetrieveCommandResponse[] result = new RetrieveCommandResponse[1];
+        command.commandResponseHandler(response -> result[0] = (RetrieveCommandResponse) response);
+
+        pendingCommands.add(command);
+
+        byte[] bytes = "VALUE key 0 6\r\nfo\r\nar\r\nEND\r\n".getBytes("UTF-8");
+        for (byte b : bytes) {
+            input.processBuffer(Buffer.buffer(new byte[] {b}));
+        }
+
+        assertEquals("Invalid pending commands", 0, pendingCommands.size());
+        assertEquals("Invalid buffer position", 0, remainingBytes(input));
+        assertNotNull("Missing response", result[0]);
+        assertEquals("Invalid data", "fo\r\nar", result[0].getData().get("key"));
+    }
+
+    @Test
+    public void testProcessBatchedMetaGet() throws Exception {
+        MemcacheInputStream input = new MemcacheInputStream(pendingCommands);
+
+        MemcacheCommand command = new MemcacheCommand(MemcacheCommandType.mg, Arrays.asList("a", "b", "c"));
+
+        final RetrieveCommandResponse[] result = new RetrieveCommandResponse[1];
+        command.commandResponseHandler(response -> result[0] = (RetrieveCommandResponse) response);
+
+        pendingCommands.add(command);
+
+        input.processBuffer(Buffer.buffer("VA 3 ka\r\nfoo\r\nVA 3 kc\r\nba"));
+        assertNull("Response too early", result[0]);
+        input.processBuffer(Buffer.buffer("r\r\nMN\r\n"));
+
+        assertEquals("Invalid pending commands", 0, pendingCommands.size());
+        assertEquals("Invalid buffer position", 0, remainingBytes(input));
+        assertNotNull("Missing response", result[0]);
+        assertEquals("Invalid data size", 2, result[0].getData().size());
+        assertEquals("Invalid data", "foo", result[0].getData().get("a"));
+        assertEquals("Invalid data", "bar", result[0].getData().get("c"));
+    }
+
+    @Test
+    public void testProcessMetaArithmetic() throws Exception {
+        MemcacheInputStream input = new MemcacheInputStream(pendingCommands);
+
+        MemcacheCommand first = new MemcacheCommand(MemcacheCommandType.ma, "key", "1", null);
+        MemcacheCommand second = new MemcacheCommand(MemcacheCommandType.ma, "key", "1", null);
+
+        final ModifyCommandResponse[] result = new ModifyCommandResponse[2];
+        first.commandResponseHandler(response -> result[0] = (ModifyCommandResponse) response);
+        second.commandResponseHandler(response -> result[1] = (ModifyCommandResponse) response);
+
+        pendingCommands.add(first);
+        pendingCommands.add(second);
+
+        input.processBuffer(Buffer.buffer("VA 2\r\n41\r\nVA 2\r\n42\r\n"));
+
+        assertEquals("Invalid pending commands", 0, pendingCommands.size());
+        assertEquals("Invalid data", Integer.valueOf(41), result[0].getData());
+        assertEquals("Invalid data", Integer.valueOf(42), result[1].getData());
+    }
+
+    private int remainingBytes(MemcacheInputStream input) throws IllegalAccessException {
+        ByteBuf bytes = (ByteBuf) remaining.get(input);
+        return bytes != null ? bytes.readableBytes() : 0;
+    }
 }
@@ -23,6 +23,7 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
 
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.net.NetSocket;
@@ -105,6 +106,34 @@ public class MemcacheOutputStreamTest {
         verify(socket, never()).write(any(Buffer.class));
     }
 
+    @Test
+    public void testWriteIntOutsideBuffer() {
+        try {
+            output.write("abc");
+            output.writeInt(7);
+
+            assertEquals("Buffer doesn't match", Buffer.buffer().appendInt(7), buffer.get(output));
+        } catch (Exception ex) {
+            assertNull("Unexpected exception", ex);
+        }
+
+        verify(socket, times(1)).write(Buffer.buffer().appendString("abc"));
+    }
+
+    @Test
+    public void testWriteShortAndLong() {
+        try {
+            output.writeShort(3);
+            output.writeLong(-2L);
+
+            assertEquals("Buffer doesn't match", Buffer.buffer().appendLong(-2L), buffer.get(output));
+        } catch (Exception ex) {
+            assertNull("Unexpected exception", ex);
+        }
+
+        verify(socket, times(1)).write(Buffer.buffer().appendShort((short) 3));
+    }
+
     @Test
     public void testWriteCrlfOutsideBuffer() {
         try {
@@ -164,6 +193,72 @@ public class MemcacheOutputStreamTest {
         verify(socket, times(1)).write(Buffer.buffer().appendString("foo"));
     }
 
+    @Test
+    public void testWriteNegativeInteger() {
+        output.write(-12);
+
+        try {
+            assertEquals("Buffer doesn't match", Buffer.buffer().appendString("-12"), buffer.get(output));
+        } catch (Exception ex) {
+            assertNull("Unexpected exception", ex);
+        }
+    }
+
+    @Test
+    public void testWriteLong() {
+        output = new MemcacheOutputStream(socket, 64);
+        output.write(Long.MAX_VALUE);
+        output.writeDelim();
+        output.write(4294967295L);
+        output.writeDelim();
+        output.write(Long.MIN_VALUE);
+        output.writeDelim();
+        output.write(Integer.MIN_VALUE);
+
+        try {
+            assertEquals("Buffer doesn't match", Buffer.buffer().appendString("9223372036854775807 4294967295 -9223372036854775808 -2147483648"),
+                    buffer.get(output));
+        } catch (Exception ex) {
+            assertNull("Unexpected exception", ex);
+        }
+    }
+
+    @Test
+    public void testWriteLongOutsideBuffer() {
+        output = new MemcacheOutputStream(socket, 12);
+        output.write("foo");
+        output.write(12345678901L);
+
+        try {
+            assertEquals("Buffer doesn't match", Buffer.buffer().appendString("12345678901"), buffer.get(output));
+        } catch (Exception ex) {
+            assertNull("Unexpected exception", ex);
+        }
+
+        verify(socket, times(1)).write(Buffer.buffer().appendString("foo"));
+    }
+
+    @Test
+    public void testWriteSubstring() {
+        output.write("a key b", 2, 5);
+
+        try {
+            assertEquals("Buffer doesn't match", Buffer.buffer().appendString("key"), buffer.get(output));
+        } catch (Exception ex) {
+            assertNull("Unexpected exception", ex);
+        }
+    }
+
+    @Test
+    public void testWriteNonAsciiOutsideBuffer() {
+        output.write("k\u00e4 key");
+        output.flush();
+
+        byte[] expected = "k\u00e4 key".getBytes(StandardCharsets.UTF_8);
+        verify(socket, times(1)).write(Buffer.buffer().appendBytes(expected, 0, 5));
+        verify(socket, times(1)).write(Buffer.buffer().appendBytes(expected, 5, 2));
+    }
+
     @Test
     public void testWriteByteInsideBuffer() {
         output.write((byte) 'a');
@@ -18,9 +18,9 @@ package com.groupon.vertx.memcache.stream;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
-import java.io.ByteArrayOutputStream;
 import java.nio.charset.Charset;
 
+import io.vertx.core.buffer.Buffer;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -32,46 +32,46 @@ import org.junit.Test;
  */
 public class MemcacheResponseTypeTest {
     private Charset encoding = Charset.forName("UTF-8");
-    private ByteArrayOutputStream outputStream;
+    private Buffer line;
 
     @Before
     public void setUp() {
-        outputStream = new ByteArrayOutputStream();
+        line = Buffer.buffer();
     }
 
     @Test
     public void testMatchExactSuccess() throws Exception {
-        outputStream.write("STORED".getBytes(encoding));
-        assertTrue("Exact match should have succeeded", MemcacheResponseType.STORED.matches(outputStream));
+        line.appendBytes("STORED".getBytes(encoding));
+        assertTrue("Exact match should have succeeded", MemcacheResponseType.STORED.matches(line));
     }
 
     @Test
     public void testMatchExcactFailure() throws Exception {
-        outputStream.write("STORE".getBytes(encoding));
-        assertFalse("Exact match should have failed", MemcacheResponseType.STORED.matches(outputStream));
+        line.appendBytes("STORE".getBytes(encoding));
+        assertFalse("Exact match should have failed", MemcacheResponseType.STORED.matches(line));
     }
 
     @Test
     public void testMatchNonExactSuccess() throws Exception {
-        outputStream.write("VALUE ".getBytes(encoding));
-        assertTrue("Partial match should have succeeded", MemcacheResponseType.VALUE.matches(outputStream));
+        line.appendBytes("VALUE ".getBytes(encoding));
+        assertTrue("Partial match should have succeeded", MemcacheResponseType.VALUE.matches(line));
     }
 
     @Test
     public void testMatchNonExactDifferentLengthSuccess() throws Exception {
-        outputStream.write("VALUE EXTRA".getBytes(encoding));
-        assertTrue("Partial match should have succeeded", MemcacheResponseType.VALUE.matches(outputStream));
+        line.appendBytes("VALUE EXTRA".getBytes(encoding));
+        assertTrue("Partial match should have succeeded", MemcacheResponseType.VALUE.matches(line));
     }
 
     @Test
     public void testMatchNonExcactFailure() throws Exception {
-        outputStream.write("NOTIT".getBytes(encoding));
-        assertFalse("Exact match should have failed", MemcacheResponseType.VALUE.matches(outputStream));
+        line.appendBytes("NOTIT".getBytes(encoding));
+        assertFalse("Exact match should have failed", MemcacheResponseType.VALUE.matches(line));
     }
 
     @Test
     public void testMatchNonExcactDifferentLengthsFailure() throws Exception {
-        outputStream.write("VALU".getBytes(encoding));
-        assertFalse("Exact match should have failed", MemcacheResponseType.VALUE.matches(outputStream));
+        line.appendBytes("VALU".getBytes(encoding));
+        assertFalse("Exact match should have failed", MemcacheResponseType.VALUE.matches(line));
     }
 }
@@ -16,15 +16,18 @@
 package com.groupon.vertx.memcache.stream;
 
 
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.stub;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
@@ -177,4 +180,23 @@ public class MemcacheSocketHandlerTest {
 
         verify(vertx, times(1)).setTimer(eq(60000L), timerCaptor.capture());
     }
+
+    @Test
+    public void testSocketRegistered() {
+        MemcacheSocketRegistry registry = mock(MemcacheSocketRegistry.class);
+        MemcacheSocketHandler handler = new MemcacheSocketHandler(vertx, "address", memcacheServer, netClient, 1, false, registry);
+
+        handler.handle(1L);
+
+        verify(netClient, times(2)).connect(eq(11211), eq("host"), connectCaptor.capture());
+        connectCaptor.getValue().handle(Future.succeededFuture(netSocket));
+
+        verify(registry, times(1)).register(eq("address"), any(Context.class), any(MemcacheSocket.class));
+
+        verify(netSocket, times(1)).closeHandler(closeCaptor.capture());
+        closeCaptor.getValue().handle(null);
+
+        verify(registry, times(1)).unregister(eq("address"), any(MemcacheSocket.class));
+        verify(consumer, times(1)).unregister();
+    }
 }
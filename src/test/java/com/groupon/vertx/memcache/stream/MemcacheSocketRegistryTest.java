@@ -0,0 +1,179 @@
+/**
+ * Copyright 2014 Groupon.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.vertx.memcache.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.SharedData;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Matchers;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.groupon.vertx.memcache.client.JsendStatus;
+import com.groupon.vertx.memcache.client.response.MemcacheCommandResponse;
+import com.groupon.vertx.memcache.command.MemcacheCommand;
+import com.groupon.vertx.memcache.command.MemcacheCommandType;
+
+/**
+ * Tests for <code>MemcacheSocketRegistry</code>.
+ *
+ * @author Stuart Siegrist (fsiegrist at groupon dot com)
+ * @since 4.0.3
+ */
+public class MemcacheSocketRegistryTest {
+    @Mock
+    private Vertx vertx;
+
+    @Mock
+    private SharedData sharedData;
+
+    @Mock
+    private LocalMap<String, MemcacheSocketRegistry> registryMap;
+
+    @Mock
+    private Context context;
+
+    @Mock
+    private MemcacheSocket socket;
+
+    @Captor
+    private ArgumentCaptor<Handler<Void>> contextCaptor;
+
+    private MemcacheSocketRegistry registry;
+    private MemcacheCommand command;
+    private MemcacheCommandResponse[] received;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        registry = new MemcacheSocketRegistry();
+        command = new MemcacheCommand(MemcacheCommandType.get, "key", null, null);
+        received = new MemcacheCommandResponse[1];
+    }
+
+    @Test
+    public void testGetInstance() {
+        doReturn(sharedData).when(vertx).sharedData();
+        doReturn(registryMap).when(sharedData).getLocalMap("com.groupon.vertx.memcache.sockets");
+
+        MemcacheSocketRegistry created = MemcacheSocketRegistry.getInstance(vertx);
+        verify(registryMap, times(1)).putIfAbsent("registry", created);
+
+        doReturn(registry).when(registryMap).get("registry");
+        assertSame("Registry not shared", registry, MemcacheSocketRegistry.getInstance(vertx));
+    }
+
+    @Test
+    public void testSendCommandNoSocket() {
+        assertFalse("Command sent without a socket", registry.sendCommand("address", command, response -> received[0] = response));
+    }
+
+    @Test
+    public void testSendCommand() {
+        registry.register("address", context, socket);
+
+        assertTrue("Command not sent", registry.sendCommand("address", command, response -> received[0] = response));
+
+        verify(context, times(1)).runOnContext(contextCaptor.capture());
+        verify(socket, never()).sendCommand(Matchers.any(MemcacheCommand.class));
+
+        contextCaptor.getValue().handle(null);
+        verify(socket, times(1)).sendCommand(command);
+
+        MemcacheCommandResponse response = new MemcacheCommandResponse.Builder().setStatus(JsendStatus.success).build();
+        command.setResponse(response);
+        assertEquals("Response not received", response, received[0]);
+    }
+
+    @Test
+    public void testSendCommandSameEventLoop() {
+        doReturn(true).when(context).isEventLoopContext();
+        registry.register("address", context, socket);
+
+        assertTrue("Command not sent", registry.sendCommand("address", command, response -> received[0] = response));
+
+        verify(context, never()).runOnContext(Matchers.any());
+        verify(socket, times(1)).sendCommand(command);
+    }
+
+    @Test
+    public void testSendCommandPrefersSameEventLoop() {
+        Context otherContext = mock(Context.class);
+        MemcacheSocket otherSocket = mock(MemcacheSocket.class);
+        doReturn(true).when(context).isEventLoopContext();
+        doReturn(10).when(socket).getPendingCommandCount();
+
+        registry.register("address", otherContext, otherSocket);
+        registry.register("address", context, socket);
+
+        assertTrue("Command not sent", registry.sendCommand("address", command, response -> received[0] = response));
+
+        verify(socket, times(1)).sendCommand(command);
+        verify(otherSocket, never()).sendCommand(Matchers.any(MemcacheCommand.class));
+        verify(otherContext, never()).runOnContext(Matchers.any());
+    }
+
+    @Test
+    public void testSendCommandLeastPending() {
+        MemcacheSocket busySocket = mock(MemcacheSocket.class);
+        doReturn(10).when(busySocket).getPendingCommandCount();
+        doReturn(2).when(socket).getPendingCommandCount();
+
+        registry.register("address", context, busySocket);
+        registry.register("address", context, socket);
+
+        assertTrue("Command not sent", registry.sendCommand("address", command, response -> received[0] = response));
+
+        verify(context, times(1)).runOnContext(contextCaptor.capture());
+        contextCaptor.getValue().handle(null);
+
+        verify(socket, times(1)).sendCommand(command);
+        verify(busySocket, never()).sendCommand(Matchers.any(MemcacheCommand.class));
+    }
+
+    @Test
+    public void testUnregister() {
+        registry.register("address", context, socket);
+        registry.unregister("address", socket);
+
+        assertFalse("Command sent without a socket", registry.sendCommand("address", command, response -> received[0] = response));
+    }
+
+    @Test
+    public void testUnregisterOtherAddress() {
+        registry.register("address", context, socket);
+        registry.unregister("other", socket);
+
+        assertTrue("Command not sent", registry.sendCommand("address", command, response -> received[0] = response));
+    }
+}
@@ -17,13 +17,22 @@ package com.groupon.vertx.memcache.stream;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import java.lang.reflect.Field;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.Arrays;
 
+import io.vertx.core.Context;
 import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.net.NetSocket;
 import org.junit.After;
@@ -35,6 +44,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import com.groupon.vertx.memcache.client.JsendStatus;
+import com.groupon.vertx.memcache.client.response.MemcacheCommandResponse;
 import com.groupon.vertx.memcache.command.MemcacheCommand;
 import com.groupon.vertx.memcache.command.MemcacheCommandType;
 
@@ -54,16 +64,25 @@ public class MemcacheSocketTest {
     @Captor
     ArgumentCaptor<Handler<Buffer>> dataCaptor;
 
+    @Captor
+    ArgumentCaptor<Handler<Void>> flushCaptor;
+
+    @Captor
+    ArgumentCaptor<Handler<Long>> timerCaptor;
+
+    @Mock
+    private Vertx vertx;
+
     private MemcacheSocket memcacheSocket;
     private Field inputStreamField;
-    private ConcurrentLinkedQueue<MemcacheCommand> pendingCommands;
+    private PendingCommandQueue pendingCommands;
     private Handler<Buffer> dataHandler;
 
     @Before
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
 
-        pendingCommands = new ConcurrentLinkedQueue<>();
+        pendingCommands = new PendingCommandQueue();
         memcacheSocket = new MemcacheSocket(netSocket, pendingCommands);
 
         inputStreamField = MemcacheSocket.class.getDeclaredField("input");
@@ -116,7 +135,7 @@ public class MemcacheSocketTest {
             assertNull("Unexpected exception", ex);
         }
 
-        verify(netSocket, times(1)).write(Buffer.buffer().appendString("set key 0 5\r\nvalue\r\n"));
+        verify(netSocket, times(1)).write(Buffer.buffer().appendString("set key 0 0 5\r\nvalue\r\n"));
     }
 
     @Test
@@ -135,6 +154,49 @@ public class MemcacheSocketTest {
         verify(netSocket, times(1)).write(Buffer.buffer().appendString("set key 0 200 5\r\nvalue\r\n"));
     }
 
+    @Test
+    public void testPipelinedCommands() {
+        Context context = mock(Context.class);
+        memcacheSocket = new MemcacheSocket(netSocket, pendingCommands, context);
+
+        MemcacheCommand getCommand = new MemcacheCommand(MemcacheCommandType.get, "key", null, null);
+        MemcacheCommand setCommand = new MemcacheCommand(MemcacheCommandType.set, "key", "value", 200);
+
+        memcacheSocket.sendCommand(getCommand);
+        memcacheSocket.sendCommand(setCommand);
+
+        assertEquals("Missing pending commands", 2, pendingCommands.size());
+        assertEquals("Incorrect command order", getCommand, pendingCommands.poll());
+        assertEquals("Incorrect command order", setCommand, pendingCommands.poll());
+
+        verify(netSocket, never()).write(any(Buffer.class));
+        verify(context, times(1)).runOnContext(flushCaptor.capture());
+
+        flushCaptor.getValue().handle(null);
+
+        verify(netSocket, times(1)).write(Buffer.buffer().appendString("get key\r\nset key 0 200 5\r\nvalue\r\n"));
+
+        memcacheSocket.sendCommand(getCommand);
+
+        verify(context, times(2)).runOnContext(flushCaptor.capture());
+    }
+
+    @Test
+    public void testPipelinedFlushAfterClose() {
+        Context context = mock(Context.class);
+        memcacheSocket = new MemcacheSocket(netSocket, pendingCommands, context);
+
+        memcacheSocket.sendCommand(new MemcacheCommand(MemcacheCommandType.get, "key", null, null));
+
+        verify(context, times(1)).runOnContext(flushCaptor.capture());
+
+        memcacheSocket.close();
+        flushCaptor.getValue().handle(null);
+
+        verify(netSocket, times(1)).write(any(Buffer.class));
+        verify(netSocket, times(1)).close();
+    }
+
     @Test
     public void testClose() {
         MemcacheCommand command = new MemcacheCommand(MemcacheCommandType.get, "key", null, null);
@@ -150,4 +212,290 @@ public class MemcacheSocketTest {
 
         verify(netSocket, times(1)).close();
     }
+
+    @Test
+    public void testSetBinaryCommand() {
+        Buffer value = Buffer.buffer(new byte[] {'a', '\r', '\n', 0, (byte) 0xff});
+        MemcacheCommand command = new MemcacheCommand.Builder()
+                .setType(MemcacheCommandType.set)
+                .setKey("key")
+                .setValue(value)
+                .setExpires(200)
+                .build();
+
+        memcacheSocket.sendCommand(command);
+
+        verify(netSocket, times(1)).write(Buffer.buffer().appendString("set key 0 200 5\r\n").appendBuffer(value).appendString("\r\n"));
+    }
+
+    @Test
+    public void testSetWithFlagsCommand() {
+        memcacheSocket.sendCommand(new MemcacheCommand.Builder()
+                .setType(MemcacheCommandType.set)
+                .setKey("key")
+                .setValue("value")
+                .setExpires(200)
+                .setFlags(-1)
+                .build());
+
+        verify(netSocket, times(1)).write(Buffer.buffer().appendString("set key 4294967295 200 5\r\nvalue\r\n"));
+    }
+
+    @Test
+    public void testSetNoreplyCommand() {
+        MemcacheCommand command = new MemcacheCommand.Builder()
+                .setType(MemcacheCommandType.set)
+                .setKey("key")
+                .setValue("value")
+                .setExpires(200)
+                .setNoreply(true)
+                .build();
+
+        final MemcacheCommandResponse[] received = new MemcacheCommandResponse[1];
+        command.commandResponseHandler(response -> received[0] = response);
+
+        memcacheSocket.sendCommand(command);
+
+        verify(netSocket, times(1)).write(Buffer.buffer().appendString("set key 0 200 5 noreply\r\nvalue\r\n"));
+        assertEquals("Unexpected pending command", 0, pendingCommands.size());
+        assertEquals("Unexpected pending count", 0, memcacheSocket.getPendingCommandCount());
+        assertEquals("Invalid status", JsendStatus.success, received[0].getStatus());
+    }
+
+    @Test
+    public void testCasCommand() {
+        memcacheSocket.sendCommand(new MemcacheCommand.Builder()
+                .setType(MemcacheCommandType.cas)
+                .setKey("key")
+                .setValue("value")
+                .setExpires(200)
+                .setCas(12345L)
+                .build());
+
+        verify(netSocket, times(1)).write(Buffer.buffer().appendString("cas key 0 200 5 12345\r\nvalue\r\n"));
+    }
+
+    @Test
+    public void testDeleteNoreplyCommand() {
+        memcacheSocket.sendCommand(new MemcacheCommand.Builder()
+                .setType(MemcacheCommandType.delete)
+                .setKey("key")
+                .setNoreply(true)
+                .build());
+
+        verify(netSocket, times(1)).write(Buffer.buffer().appendString("delete key noreply\r\n"));
+        assertEquals("Unexpected pending command", 0, pendingCommands.size());
+    }
+
+    @Test
+    public void testGetAndTouchCommand() {
+        memcacheSocket.sendCommand(new MemcacheCommand.Builder()
+                .setType(MemcacheCommandType.gats)
+                .setKeys(Arrays.asList("key1", "key2"))
+                .setExpires(300)
+                .build());
+
+        verify(netSocket, times(1)).write(Buffer.buffer().appendString("gats 300 key1 key2\r\n"));
+    }
+
+    @Test
+    public void testMetaGetCommand() {
+        memcacheSocket.sendCommand(new MemcacheCommand(MemcacheCommandType.mg, "key", null, null));
+
+        verify(netSocket, times(1)).write(Buffer.buffer().appendString("mg key v k f\r\n"));
+    }
+
+    @Test
+    public void testBatchedMetaGetCommand() {
+        memcacheSocket.sendCommand(new MemcacheCommand(MemcacheCommandType.mg, Arrays.asList("key1", "key2")));
+
+        verify(netSocket, times(1)).write(Buffer.buffer().appendString("mg key1 v k f q\r\nmg key2 v k f q\r\nmn\r\n"));
+        assertEquals("Missing pending command", 1, pendingCommands.size());
+    }
+
+    @Test
+    public void testMetaSetCommand() {
+        memcacheSocket.sendCommand(new MemcacheCommand(MemcacheCommandType.ms, "key", "value", 200));
+
+        verify(netSocket, times(1)).write(Buffer.buffer().appendString("ms key 5 T200\r\nvalue\r\n"));
+    }
+
+    @Test
+    public void testMetaArithmeticCommand() {
+        MemcacheCommand command = new MemcacheCommand.Builder()
+                .setType(MemcacheCommandType.ma)
+                .setKey("key")
+                .setValue("3")
+                .setMetaFlags("MD")
+                .build();
+
+        memcacheSocket.sendCommand(command);
+
+        verify(netSocket, times(1)).write(Buffer.buffer().appendString("ma key v D3 MD\r\n"));
+    }
+
+    @Test
+    public void testSendCommandAfterClose() {
+        MemcacheCommand command = new MemcacheCommand(MemcacheCommandType.get, "key", null, null);
+        final MemcacheCommandResponse[] received = new MemcacheCommandResponse[1];
+        command.commandResponseHandler(response -> received[0] = response);
+
+        memcacheSocket.close();
+        memcacheSocket.sendCommand(command);
+
+        assertEquals("Command should not be pending", 0, pendingCommands.size());
+        assertEquals(JsendStatus.error, received[0].getStatus());
+        assertEquals("Socket closed unexpectedly", received[0].getMessage());
+        verify(netSocket, never()).write(any(Buffer.class));
+    }
+
+    @Test
+    public void testOperationTimeout() {
+        memcacheSocket = new MemcacheSocket(netSocket, pendingCommands, null, vertx, 100);
+        MemcacheCommand command = new MemcacheCommand(MemcacheCommandType.get, "key", null, null);
+        final MemcacheCommandResponse[] received = new MemcacheCommandResponse[1];
+        command.commandResponseHandler(response -> received[0] = response);
+
+        memcacheSocket.sendCommand(command);
+
+        verify(vertx, times(1)).setTimer(eq(100L), timerCaptor.capture());
+        assertTrue("Missing deadline", command.getDeadline() > 0);
+
+        command.setDeadline(System.currentTimeMillis() - 1);
+        timerCaptor.getValue().handle(0L);
+
+        assertEquals("Command should not be pending", 0, pendingCommands.size());
+        assertEquals(JsendStatus.error, received[0].getStatus());
+        assertEquals("Command timed out", received[0].getMessage());
+        verify(netSocket, times(1)).close();
+    }
+
+    @Test
+    public void testOperationTimeoutRescheduled() {
+        memcacheSocket = new MemcacheSocket(netSocket, pendingCommands, null, vertx, 100);
+        MemcacheCommand command = new MemcacheCommand(MemcacheCommandType.get, "key", null, null);
+
+        memcacheSocket.sendCommand(command);
+        memcacheSocket.sendCommand(new MemcacheCommand(MemcacheCommandType.get, "key", null, null));
+
+        verify(vertx, times(1)).setTimer(eq(100L), timerCaptor.capture());
+
+        command.setDeadline(System.currentTimeMillis() + 1000);
+        timerCaptor.getValue().handle(0L);
+
+        assertEquals("Commands should be pending", 2, pendingCommands.size());
+        verify(vertx, times(2)).setTimer(anyLong(), any());
+        verify(netSocket, never()).close();
+    }
+
+    @Test
+    public void testCommandTimeout() {
+        memcacheSocket = new MemcacheSocket(netSocket, pendingCommands, null, vertx, 0);
+
+        memcacheSocket.sendCommand(new MemcacheCommand(MemcacheCommandType.get, "key", null, null));
+
+        verify(vertx, never()).setTimer(anyLong(), any());
+
+        memcacheSocket.sendCommand(new MemcacheCommand.Builder()
+                .setType(MemcacheCommandType.get)
+                .setKey("key")
+                .setTimeout(50L)
+                .build());
+
+        verify(vertx, times(1)).setTimer(eq(50L), any());
+    }
+
+    @Test
+    public void testShortTimeoutBehindLongTimeout() {
+        doReturn(5L).doReturn(6L).when(vertx).setTimer(anyLong(), any());
+        memcacheSocket = new MemcacheSocket(netSocket, pendingCommands, null, vertx, 1000);
+        MemcacheCommand command = new MemcacheCommand(MemcacheCommandType.get, "key", null, null);
+        final MemcacheCommandResponse[] received = new MemcacheCommandResponse[1];
+        command.commandResponseHandler(response -> received[0] = response);
+        MemcacheCommand shortCommand = new MemcacheCommand.Builder()
+                .setType(MemcacheCommandType.get)
+                .setKey("key")
+                .setTimeout(50L)
+                .build();
+
+        memcacheSocket.sendCommand(command);
+        memcacheSocket.sendCommand(shortCommand);
+
+        verify(vertx, times(1)).setTimer(eq(1000L), any());
+        verify(vertx, times(1)).cancelTimer(5L);
+        verify(vertx, times(1)).setTimer(eq(50L), timerCaptor.capture());
+
+        shortCommand.setDeadline(System.currentTimeMillis() - 1);
+        timerCaptor.getValue().handle(6L);
+
+        assertEquals("Command should not be pending", 0, pendingCommands.size());
+        assertEquals("Command timed out", received[0].getMessage());
+        verify(netSocket, times(1)).close();
+    }
+
+    @Test
+    public void testTimeoutBehindCommandWithoutTimeout() {
+        memcacheSocket = new MemcacheSocket(netSocket, pendingCommands, null, vertx, 0);
+        MemcacheCommand timedCommand = new MemcacheCommand.Builder()
+                .setType(MemcacheCommandType.get)
+                .setKey("key")
+                .setTimeout(50L)
+                .build();
+
+        memcacheSocket.sendCommand(new MemcacheCommand(MemcacheCommandType.get, "key", null, null));
+        memcacheSocket.sendCommand(timedCommand);
+
+        verify(vertx, times(1)).setTimer(eq(50L), timerCaptor.capture());
+
+        timedCommand.setDeadline(System.currentTimeMillis() + 1000);
+        timerCaptor.getValue().handle(0L);
+
+        verify(vertx, times(2)).setTimer(anyLong(), timerCaptor.capture());
+        verify(netSocket, never()).close();
+
+        timedCommand.setDeadline(System.currentTimeMillis() - 1);
+        timerCaptor.getValue().handle(0L);
+
+        assertEquals("Commands should not be pending", 0, pendingCommands.size());
+        verify(netSocket, times(1)).close();
+    }
+
+    @Test
+    public void testTimerStartedOnSocketContext() {
+        Context context = mock(Context.class);
+        doReturn(context).when(vertx).getOrCreateContext();
+        memcacheSocket = new MemcacheSocket(netSocket, pendingCommands, null, vertx, 100);
+
+        memcacheSocket.sendCommand(new MemcacheCommand(MemcacheCommandType.get, "key1", null, null));
+        memcacheSocket.sendCommand(new MemcacheCommand(MemcacheCommandType.get, "key2", null, null));
+
+        verify(context, times(1)).runOnContext(flushCaptor.capture());
+        verify(vertx, never()).setTimer(anyLong(), any());
+
+        flushCaptor.getValue().handle(null);
+
+        verify(vertx, times(1)).setTimer(anyLong(), any());
+    }
+
+    @Test
+    public void testCloseCancelsTimer() {
+        doReturn(5L).when(vertx).setTimer(anyLong(), any());
+        memcacheSocket = new MemcacheSocket(netSocket, pendingCommands, null, vertx, 100);
+
+        memcacheSocket.sendCommand(new MemcacheCommand(MemcacheCommandType.get, "key", null, null));
+        memcacheSocket.close();
+
+        verify(vertx, times(1)).cancelTimer(5L);
+    }
+
+    @Test
+    public void testPendingCommandCount() {
+        doReturn(1L).when(inputStream).getCompletedCommands();
+
+        memcacheSocket.sendCommand(new MemcacheCommand(MemcacheCommandType.get, "key1", null, null));
+        memcacheSocket.sendCommand(new MemcacheCommand(MemcacheCommandType.get, "key2", null, null));
+        memcacheSocket.sendCommand(new MemcacheCommand(MemcacheCommandType.get, "key3", null, null));
+
+        assertEquals("Pending count doesn't match", 2, memcacheSocket.getPendingCommandCount());
+    }
 }
@@ -0,0 +1,159 @@
+/**
+ * Copyright 2014 Groupon.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.vertx.memcache.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.groupon.vertx.memcache.command.MemcacheCommand;
+import com.groupon.vertx.memcache.command.MemcacheCommandType;
+
+/**
+ * Tests for <code>PendingCommandQueue</code>.
+ *
+ * @author Stuart Siegrist (fsiegrist at groupon dot com)
+ * @since 4.0.3
+ */
+public class PendingCommandQueueTest {
+    @Test
+    public void testEmptyQueue() {
+        PendingCommandQueue queue = new PendingCommandQueue();
+
+        assertTrue("Queue should be empty", queue.isEmpty());
+        assertNull("Unexpected command", queue.peek());
+        assertNull("Unexpected command", queue.poll());
+    }
+
+    @Test
+    public void testOrderAcrossGrowth() {
+        PendingCommandQueue queue = new PendingCommandQueue(2);
+        MemcacheCommand[] commands = commands(10);
+
+        // Move the head so the ring wraps before it grows.
+        queue.add(commands[0]);
+        assertSame(commands[0], queue.poll());
+
+        for (int i = 1; i < commands.length; i++) {
+            queue.add(commands[i]);
+        }
+
+        assertEquals("Invalid size", 9, queue.size());
+        assertSame("Invalid head", commands[1], queue.peek());
+        for (int i = 1; i < commands.length; i++) {
+            assertSame("Invalid order", commands[i], queue.poll());
+        }
+        assertTrue("Queue should be empty", queue.isEmpty());
+    }
+
+    @Test
+    public void testInterleavedAddAndPoll() {
+        PendingCommandQueue queue = new PendingCommandQueue(4);
+        MemcacheCommand[] commands = commands(20);
+
+        int polled = 0;
+        for (int i = 0; i < commands.length; i++) {
+            queue.add(commands[i]);
+            if (i % 3 == 2) {
+                assertSame("Invalid order", commands[polled++], queue.poll());
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            assertSame("Invalid order", commands[polled++], queue.poll());
+        }
+        assertEquals("Missing commands", commands.length, polled);
+    }
+
+    @Test
+    public void testDrain() {
+        PendingCommandQueue queue = new PendingCommandQueue();
+        MemcacheCommand[] commands = commands(3);
+        for (MemcacheCommand command : commands) {
+            queue.add(command);
+        }
+
+        List<MemcacheCommand> drained = new ArrayList<>();
+        queue.drain(drained::add);
+
+        assertEquals("Invalid drained commands", 3, drained.size());
+        for (int i = 0; i < commands.length; i++) {
+            assertSame("Invalid order", commands[i], drained.get(i));
+        }
+        assertTrue("Queue should be empty", queue.isEmpty());
+    }
+
+    @Test
+    public void testClear() {
+        PendingCommandQueue queue = new PendingCommandQueue();
+        MemcacheCommand[] commands = commands(3);
+        for (MemcacheCommand command : commands) {
+            queue.add(command);
+        }
+
+        queue.clear();
+
+        assertEquals("Invalid size", 0, queue.size());
+        assertNull("Unexpected command", queue.peek());
+        queue.add(commands[1]);
+        assertSame("Invalid head", commands[1], queue.peek());
+    }
+
+    @Test
+    public void testGetAfterWrap() {
+        PendingCommandQueue queue = new PendingCommandQueue(4);
+        MemcacheCommand[] commands = commands(6);
+        for (int i = 0; i < 3; i++) {
+            queue.add(commands[i]);
+        }
+        queue.poll();
+        queue.poll();
+        for (int i = 3; i < commands.length; i++) {
+            queue.add(commands[i]);
+        }
+
+        for (int i = 0; i < queue.size(); i++) {
+            assertSame("Invalid command", commands[i + 2], queue.get(i));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetPastTail() {
+        PendingCommandQueue queue = new PendingCommandQueue();
+        queue.add(commands(1)[0]);
+
+        queue.get(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCapacity() {
+        new PendingCommandQueue(0);
+    }
+
+    private MemcacheCommand[] commands(int count) {
+        MemcacheCommand[] commands = new MemcacheCommand[count];
+        for (int i = 0; i < count; i++) {
+            commands[i] = new MemcacheCommand(MemcacheCommandType.get, "key" + i, null, null);
+        }
+        return commands;
+    }
+}